@@ -0,0 +1,265 @@
+package engine;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AsyncLogWriter writes the log messages of every {@link GameLogger} on a background thread.
+ * <p>
+ * Messages are stored in a bounded ring buffer made of preallocated arrays, so appending a
+ * message does not allocate and never blocks: any number of threads can append concurrently,
+ * and when the buffer is full the message is dropped and counted. The writer thread formats
+ * the timestamps with {@link DateTimeFormatter}, which is thread-safe, and writes the lines
+ * through a buffered writer that is flushed whenever the ring buffer is empty.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class AsyncLogWriter implements Closeable {
+
+    public static final int INFO = 0;
+    public static final int WARNING = 1;
+    public static final int SEVERE = 2;
+
+    /**
+     * The default number of messages that can be waiting to be written
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final String[] LEVEL_NAMES = {"INFO", "WARNING", "SEVERE"};
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    /**
+     * How long the writer thread sleeps when there is nothing to write
+     */
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] levels;
+    private final String[] sources;
+    private final String[] messages;
+    /**
+     * The sequence number + 1 of the message stored in each slot, set once the slot is readable
+     */
+    private final AtomicLongArray published;
+    /**
+     * The sequence number of the next slot to be claimed by a producer
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * The sequence number of the next slot to be written by the writer thread
+     */
+    private volatile long head = 0;
+    /**
+     * The sequence number up to which the messages have been written and flushed
+     */
+    private volatile long flushed = 0;
+    /**
+     * The number of messages dropped because the buffer was full
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    private final Writer output;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a writer and starts its background thread.
+     *
+     * @param output   the destination of the log lines
+     * @param capacity the number of messages that can be buffered, rounded up to a power of two
+     */
+    public AsyncLogWriter(Writer output, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.output = output;
+        mask = size - 1;
+        timestamps = new long[size];
+        levels = new int[size];
+        sources = new String[size];
+        messages = new String[size];
+        published = new AtomicLongArray(size);
+
+        thread = new Thread(this::drain, "GameLogger");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the writer shared by every {@link GameLogger}, writing to the "logs" directory
+     * placed where the game is executed.
+     *
+     * @return the default writer
+     */
+    public static AsyncLogWriter getDefault() {
+        return DefaultWriterHolder.INSTANCE;
+    }
+
+    /**
+     * Appends a message to the buffer. It never blocks.
+     *
+     * @param level   the message level: {@link #INFO}, {@link #WARNING} or {@link #SEVERE}
+     * @param source  the name of the logger
+     * @param message the message
+     * @return true if the message has been buffered, false if it has been dropped
+     */
+    public boolean append(int level, String source, String message) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head > mask || !running) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        timestamps[slot] = System.currentTimeMillis();
+        levels[slot] = level;
+        sources[slot] = source;
+        messages[slot] = message;
+        published.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * Returns the number of messages dropped because the buffer was full.
+     *
+     * @return the number of dropped messages
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Waits until every message appended so far has been written and flushed.
+     */
+    public void flush() {
+        long target = tail.get();
+        while (flushed < target && thread.isAlive()) {
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Writes the pending messages, stops the writer thread and closes the output.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop of the writer thread.
+     */
+    private void drain() {
+        StringBuilder line = new StringBuilder(128);
+
+        while (true) {
+            long sequence = head;
+            int slot = (int) sequence & mask;
+
+            if (published.get(slot) == sequence + 1) {
+                write(slot, line);
+                sources[slot] = null;
+                messages[slot] = null;
+                head = sequence + 1;
+                continue;
+            }
+
+            flushOutput();
+            flushed = sequence;
+
+            // Stop only when every claimed slot has been written.
+            if (!running && tail.get() == sequence) {
+                break;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK);
+        }
+
+        try {
+            output.close();
+        } catch (IOException e) {
+            System.err.println("Cannot close the log file: " + e);
+        }
+    }
+
+    private void write(int slot, StringBuilder line) {
+        line.setLength(0);
+        TIMESTAMP_FORMAT.formatTo(Instant.ofEpochMilli(timestamps[slot]), line);
+        line.append(" [").append(LEVEL_NAMES[levels[slot]]).append("] ")
+                .append(sources[slot]).append(" -- ").append(messages[slot]).append('\n');
+
+        if (levels[slot] >= WARNING) {
+            System.err.print(line);
+        }
+
+        try {
+            output.append(line);
+        } catch (IOException e) {
+            System.err.print(line);
+        }
+    }
+
+    private void flushOutput() {
+        try {
+            output.flush();
+        } catch (IOException e) {
+            System.err.println("Cannot write the log file: " + e);
+        }
+    }
+
+    /**
+     * Lazily creates the default writer, closing it when the JVM shuts down.
+     */
+    private static final class DefaultWriterHolder {
+        static final AsyncLogWriter INSTANCE = create();
+
+        private static AsyncLogWriter create() {
+            Writer output;
+            try {
+                File directory = new File(System.getProperty("user.dir") + "/" + "logs");
+                directory.mkdirs();
+
+                File file = new File(directory, GameEngine.GAME_NAME + ".log");
+                output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("Cannot create the log file, logging to the console: " + e);
+                output = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            }
+
+            AsyncLogWriter writer = new AsyncLogWriter(output, DEFAULT_CAPACITY);
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "GameLogger shutdown"));
+            return writer;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Board is an immutable snapshot of a {@link Level} position.
+ * <p>
+ * The cells are stored in row-major order, so the cell at (row, column) has the
+ * index {@code row * columns + column}. Snapshots can be safely shared between
+ * threads, which makes them suitable for any analysis running in the background.
+ * Every snapshot of a level shares its {@link LevelLayout}, so a snapshot only
+ * stores the position of the crates and of the keeper.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class Board {
+
+    /**
+     * The walls and diamonds of the level
+     */
+    private final LevelLayout layout;
+    /**
+     * The sorted cell indices of the crates
+     */
+    private final int[] crates;
+    /**
+     * The cell index of the warehouse keeper
+     */
+    private final int keeper;
+    /**
+     * The cached hash code
+     */
+    private int hash;
+    /**
+     * The cached content hash, 0 until computed
+     */
+    private long contentHash;
+
+    Board(LevelLayout layout, int[] crates, int keeper) {
+        this.layout = layout;
+        this.crates = crates;
+        this.keeper = keeper;
+    }
+
+    /**
+     * Returns the layout shared by every snapshot of the level.
+     *
+     * @return the level layout
+     */
+    public LevelLayout getLayout() {
+        return layout;
+    }
+
+    public int getRows() {
+        return layout.getRows();
+    }
+
+    public int getColumns() {
+        return layout.getColumns();
+    }
+
+    /**
+     * Returns the total number of cells of this board.
+     *
+     * @return the number of cells
+     */
+    public int getCellCount() {
+        return layout.getCellCount();
+    }
+
+    /**
+     * Returns the index of the cell located at (row, column).
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return the cell index
+     */
+    public int cellOf(int row, int column) {
+        return layout.cellOf(row, column);
+    }
+
+    public boolean isWall(int cell) {
+        return layout.isWall(cell);
+    }
+
+    public boolean isGoal(int cell) {
+        return layout.isGoal(cell);
+    }
+
+    public int getKeeper() {
+        return keeper;
+    }
+
+    public int getCrateCount() {
+        return crates.length;
+    }
+
+    /**
+     * Returns the cell index of the i-th crate. Crates are sorted by cell index.
+     *
+     * @param i the crate number
+     * @return the cell index of the crate
+     */
+    public int getCrate(int i) {
+        return crates[i];
+    }
+
+    /**
+     * Returns true if a crate is located in the cell.
+     *
+     * @param cell the cell index
+     * @return true if the cell contains a crate, false otherwise
+     */
+    public boolean hasCrate(int cell) {
+        return Arrays.binarySearch(crates, cell) >= 0;
+    }
+
+    /**
+     * Visits the object to be shown in every cell of a rectangle, one row span at a time,
+     * as {@link Level#forEachCell(int, int, int, int, CellVisitor)} does for a level.
+     *
+     * @param fromRow    the first row, inclusive
+     * @param toRow      the last row, exclusive
+     * @param fromColumn the first column of every row span, inclusive
+     * @param toColumn   the last column of every row span, exclusive
+     * @param visitor    the visitor called for every cell
+     * @throws ArrayIndexOutOfBoundsException if the rectangle is not inside the board
+     */
+    public void forEachCell(int fromRow, int toRow, int fromColumn, int toColumn, CellVisitor visitor) {
+        if (fromRow < 0 || fromColumn < 0 || fromRow > toRow || fromColumn > toColumn
+                || toRow > getRows() || toColumn > getColumns()) {
+            throw new ArrayIndexOutOfBoundsException("The cells [" + fromRow + ":" + fromColumn + "] to ["
+                    + toRow + ":" + toColumn + "] are outside the board.");
+        }
+
+        // The crates are sorted, so they are found by walking them along the traversal.
+        int nextCrate = 0;
+        for (int row = fromRow; row < toRow; row++) {
+            int rowStart = cellOf(row, 0);
+            int start = rowStart + fromColumn;
+            int end = rowStart + toColumn;
+
+            while (nextCrate < crates.length && crates[nextCrate] < start) {
+                nextCrate++;
+            }
+
+            for (int cell = start; cell < end; cell++) {
+                boolean goal = layout.isGoal(cell);
+                GameObject object;
+                if (nextCrate < crates.length && crates[nextCrate] == cell) {
+                    nextCrate++;
+                    object = goal ? GameObject.CRATE_ON_DIAMOND : GameObject.CRATE;
+                } else if (cell == keeper) {
+                    object = GameObject.KEEPER;
+                } else if (goal) {
+                    object = GameObject.DIAMOND;
+                } else {
+                    object = layout.getTerrain(cell);
+                }
+
+                visitor.visit(row, cell - rowStart, object);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the cell next to another one in the given direction.
+     *
+     * @param cell      the source cell
+     * @param direction the direction to follow
+     * @return the index of the neighbour cell, or -1 if it falls outside the board
+     */
+    public int neighbour(int cell, Direction direction) {
+        int columns = layout.getColumns();
+        int row = cell / columns + direction.getRowDelta();
+        int column = cell % columns + direction.getColumnDelta();
+        if (!layout.contains(row, column)) {
+            return -1;
+        }
+
+        return row * columns + column;
+    }
+
+    /**
+     * Returns true if the keeper can walk on the cell, i.e. it is inside the board,
+     * it is not a wall and it does not contain a crate.
+     *
+     * @param cell the cell index
+     * @return true if the cell is free, false otherwise
+     */
+    public boolean isFree(int cell) {
+        return cell >= 0 && !layout.isWall(cell) && !hasCrate(cell);
+    }
+
+    /**
+     * Returns true if every diamond is covered by a crate.
+     *
+     * @return true if the position is solved, false otherwise
+     */
+    public boolean isComplete() {
+        int covered = 0;
+        for (int crate : crates) {
+            if (layout.isGoal(crate)) {
+                covered++;
+            }
+        }
+
+        return covered >= layout.getNumberOfDiamonds();
+    }
+
+    /**
+     * Returns the board obtained moving the keeper in the given direction, following
+     * the same rules applied by {@link GameEngine}.
+     *
+     * @param direction the direction of the movement
+     * @return the resulting board, or null if the keeper cannot move
+     */
+    public Board move(Direction direction) {
+        int target = neighbour(keeper, direction);
+        if (target < 0 || layout.isWall(target)) {
+            return null;
+        }
+
+        int crate = Arrays.binarySearch(crates, target);
+        if (crate < 0) {
+            return new Board(layout, crates, target);
+        }
+
+        int crateTarget = neighbour(target, direction);
+        if (!isFree(crateTarget)) {
+            return null;
+        }
+
+        return withCrateMoved(target, crateTarget, target);
+    }
+
+    /**
+     * Returns the board obtained moving a crate and placing the keeper in a new cell.
+     * The layout is shared with this board.
+     *
+     * @param from   the current cell of the crate
+     * @param to     the destination cell of the crate
+     * @param keeper the new cell of the keeper
+     * @return the resulting board
+     */
+    public Board withCrateMoved(int from, int to, int keeper) {
+        int[] moved = crates.clone();
+        moved[Arrays.binarySearch(moved, from)] = to;
+        Arrays.sort(moved);
+        return new Board(layout, moved, keeper);
+    }
+
+    /**
+     * Returns true if the other board has the same walls and goals as this one.
+     *
+     * @param other the board to compare
+     * @return true if the boards share the same layout, false otherwise
+     */
+    public boolean hasSameLayout(Board other) {
+        return other != null && layout.hasSameCells(other.layout);
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of this position: the cells of the layout, the crates and the keeper.
+     * Unlike {@link #hashCode()}, it is stable across runs, so it can identify the position in a file.
+     * The hash of the initial position of a level is its {@link LevelLayout#getContentHash()}.
+     *
+     * @return the content hash, never 0
+     */
+    public long getContentHash() {
+        long h = contentHash;
+        if (h == 0) {
+            h = layout.getCellsContentHash();
+            for (int crate : crates) {
+                h = LevelLayout.fnv(h, crate);
+            }
+            h = LevelLayout.fnv(h, keeper);
+
+            // 0 marks a hash that has not been computed yet.
+            contentHash = h == 0 ? 1 : h;
+        }
+
+        return contentHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Board)) {
+            return false;
+        }
+
+        Board other = (Board) o;
+        return keeper == other.keeper
+                && Arrays.equals(crates, other.crates)
+                && hasSameLayout(other);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * Arrays.hashCode(crates) + keeper;
+            h = 31 * h + layout.cellsHashCode();
+            hash = h;
+        }
+
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        int columns = layout.getColumns();
+        StringBuilder sb = new StringBuilder((columns + 1) * layout.getRows());
+        for (int cell = 0; cell < getCellCount(); cell++) {
+            boolean goal = layout.isGoal(cell);
+            GameObject object;
+            if (layout.isWall(cell)) {
+                object = GameObject.WALL;
+            } else if (cell == keeper) {
+                object = GameObject.KEEPER;
+            } else if (hasCrate(cell)) {
+                object = goal ? GameObject.CRATE_ON_DIAMOND : GameObject.CRATE;
+            } else {
+                object = goal ? GameObject.DIAMOND : GameObject.FLOOR;
+            }
+
+            sb.append(object.getCharSymbol());
+            if (cell % columns == columns - 1) {
+                sb.append('\n');
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package engine;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * CellSpliterator traverses the cells of a snapshot of a {@link Level} or of a {@link GameGrid},
+ * so that an analysis of the whole board can run as a parallel stream.
+ * <p>
+ * The snapshot is a row-major array taken when the spliterator is created, so the traversal is
+ * not affected by later moves. A spliterator is only split at the start of a row, as long as it
+ * spans more than one row, so every row span is traversed by a single thread. The cells can be
+ * traversed with their position through {@link #forEachRemaining(CellVisitor)}.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class CellSpliterator implements Spliterator<GameObject> {
+
+    /**
+     * The objects of the snapshot, in row-major order
+     */
+    private final GameObject[] cells;
+    /**
+     * The number of columns of the snapshot
+     */
+    private final int columns;
+    /**
+     * The next cell to be traversed
+     */
+    private int origin;
+    /**
+     * The cell after the last one to be traversed
+     */
+    private final int fence;
+
+    /**
+     * Creates a spliterator over every cell of a snapshot.
+     *
+     * @param cells   the objects of the snapshot, in row-major order
+     * @param columns the number of columns of the snapshot
+     */
+    CellSpliterator(GameObject[] cells, int columns) {
+        this(cells, columns, 0, cells.length);
+    }
+
+    private CellSpliterator(GameObject[] cells, int columns, int origin, int fence) {
+        this.cells = cells;
+        this.columns = columns;
+        this.origin = origin;
+        this.fence = fence;
+    }
+
+    /**
+     * Returns the number of columns of the snapshot.
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super GameObject> action) {
+        if (origin >= fence) {
+            return false;
+        }
+
+        action.accept(cells[origin++]);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super GameObject> action) {
+        for (int cell = origin; cell < fence; cell++) {
+            action.accept(cells[cell]);
+        }
+        origin = fence;
+    }
+
+    /**
+     * Traverses the next cell with its position, if there is one.
+     *
+     * @param visitor the visitor called for the cell
+     * @return false if no cells remain, true otherwise
+     */
+    public boolean tryAdvance(CellVisitor visitor) {
+        if (origin >= fence) {
+            return false;
+        }
+
+        int cell = origin++;
+        visitor.visit(cell / columns, cell % columns, cells[cell]);
+        return true;
+    }
+
+    /**
+     * Traverses the remaining cells with their position, one row span at a time.
+     *
+     * @param visitor the visitor called for every cell
+     */
+    public void forEachRemaining(CellVisitor visitor) {
+        int cell = origin;
+        while (cell < fence) {
+            int row = cell / columns;
+            int rowStart = row * columns;
+            int end = Math.min(fence, rowStart + columns);
+
+            for (; cell < end; cell++) {
+                visitor.visit(row, cell - rowStart, cells[cell]);
+            }
+        }
+        origin = fence;
+    }
+
+    @Override
+    public CellSpliterator trySplit() {
+        int firstRow = origin / columns;
+        int lastRow = (fence - 1) / columns;
+        if (origin >= fence || lastRow - firstRow < 1) {
+            return null;
+        }
+
+        // Split at the start of the middle row, so that no row is shared by two spliterators.
+        int middle = (firstRow + 1 + (lastRow - firstRow) / 2) * columns;
+        CellSpliterator prefix = new CellSpliterator(cells, columns, origin, middle);
+        origin = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+    }
+}
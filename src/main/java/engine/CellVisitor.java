@@ -0,0 +1,23 @@
+package engine;
+
+/**
+ * CellVisitor is called for every cell of a bulk traversal of a {@link Level} or of a {@link GameGrid}.
+ * <p>
+ * The cells are visited in row-major order, one row span after the other, so a visitor can keep
+ * its own state between calls, e.g. the pixel offset of the current row, without allocating anything.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+@FunctionalInterface
+public interface CellVisitor {
+
+    /**
+     * Called for a cell of the traversal.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @param object the object in the cell, or null if the cell is empty
+     */
+    void visit(int row, int column, GameObject object);
+}
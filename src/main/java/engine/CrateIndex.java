@@ -0,0 +1,166 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * CrateIndex keeps the cells of the crates of a {@link Level} together with a reverse map from a
+ * cell to the crate in it, so that finding and moving the crate in a cell takes constant time
+ * rather than a scan of every crate.
+ * <p>
+ * A crate keeps its number for the whole level, so per-crate data, e.g. a rendering overlay or the
+ * contribution of a crate to a heuristic, can be kept in arrays indexed by crate and updated one
+ * crate at a time. The reverse map is an open-addressing hash table sized by the number of crates,
+ * not by the number of cells, so a level keeps using memory proportional to its crates.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+final class CrateIndex {
+
+    /**
+     * The marker of an empty slot of the reverse map
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * The cell of every crate, by crate number
+     */
+    private final int[] cells;
+    /**
+     * The reverse map: the crate numbers, placed by the hash of their cell with linear probing
+     */
+    private final int[] slots;
+    /**
+     * The mask turning a hash into a slot, as the number of slots is a power of two
+     */
+    private final int mask;
+
+    /**
+     * Creates the index of a set of crates.
+     *
+     * @param cells the cell of every crate, owned by the index from now on
+     */
+    CrateIndex(int[] cells) {
+        this.cells = cells;
+
+        // At most half of the slots are used, so the probes stay short.
+        slots = new int[Integer.highestOneBit(Math.max(1, cells.length * 2 - 1)) << 1];
+        mask = slots.length - 1;
+        Arrays.fill(slots, EMPTY);
+        for (int crate = 0; crate < cells.length; crate++) {
+            insert(crate);
+        }
+    }
+
+    /**
+     * Creates a copy of another index, so that the crates can be moved independently.
+     *
+     * @param other the index to be copied
+     */
+    CrateIndex(CrateIndex other) {
+        cells = other.cells.clone();
+        slots = other.slots.clone();
+        mask = other.mask;
+    }
+
+    int size() {
+        return cells.length;
+    }
+
+    /**
+     * Returns the cell of a crate.
+     *
+     * @param crate the crate number
+     * @return the cell index
+     */
+    int get(int crate) {
+        return cells[crate];
+    }
+
+    /**
+     * Returns the crate located in a cell.
+     *
+     * @param cell the cell index
+     * @return the crate number, or -1 if the cell does not contain a crate
+     */
+    int indexOf(int cell) {
+        for (int slot = slotOf(cell); slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (cells[slots[slot]] == cell) {
+                return slots[slot];
+            }
+        }
+
+        return -1;
+    }
+
+    boolean contains(int cell) {
+        return indexOf(cell) >= 0;
+    }
+
+    /**
+     * Moves the crate located in a cell to another cell, which must not contain a crate.
+     *
+     * @param from the cell of the crate
+     * @param to   the destination cell
+     * @return the number of the crate that has been moved
+     * @throws IllegalArgumentException if there is no crate in the source cell
+     */
+    int move(int from, int to) {
+        int slot = slotOf(from);
+        while (slots[slot] != EMPTY && cells[slots[slot]] != from) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (slots[slot] == EMPTY) {
+            throw new IllegalArgumentException("There is no crate in the cell " + from);
+        }
+
+        int crate = slots[slot];
+        remove(slot);
+        cells[crate] = to;
+        insert(crate);
+        return crate;
+    }
+
+    /**
+     * Returns the cells of the crates.
+     *
+     * @return a new array containing the cell of every crate, by crate number
+     */
+    int[] toArray() {
+        return cells.clone();
+    }
+
+    private int slotOf(int cell) {
+        int h = cell * 0x9E3779B9;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    private void insert(int crate) {
+        int slot = slotOf(cells[crate]);
+        while (slots[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+
+        slots[slot] = crate;
+    }
+
+    /**
+     * Empties a slot, moving back the crates that follow it in the same probe sequence,
+     * so that no tombstones are needed.
+     */
+    private void remove(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; slots[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slotOf(cells[slots[next]]);
+
+            // The crate can fill the hole if the hole is not before its home slot.
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+
+        slots[hole] = EMPTY;
+    }
+}
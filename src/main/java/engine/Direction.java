@@ -0,0 +1,118 @@
+package engine;
+
+import javafx.scene.input.KeyCode;
+
+import java.awt.*;
+
+/**
+ * Direction represents the four directions in which the warehouse keeper can move.
+ * <p>
+ * Each direction holds its delta expressed as (row, column), the same convention
+ * used by {@link Level} for its points, and the lower case LURD symbol.
+ */
+public enum Direction {
+    UP(-1, 0, 'u', KeyCode.UP),
+    RIGHT(0, 1, 'r', KeyCode.RIGHT),
+    DOWN(1, 0, 'd', KeyCode.DOWN),
+    LEFT(0, -1, 'l', KeyCode.LEFT);
+
+    private final int rowDelta;
+    private final int columnDelta;
+    private final char symbol;
+    private final KeyCode keyCode;
+
+    Direction(int rowDelta, int columnDelta, char symbol, KeyCode keyCode) {
+        this.rowDelta = rowDelta;
+        this.columnDelta = columnDelta;
+        this.symbol = symbol;
+        this.keyCode = keyCode;
+    }
+
+    /**
+     * Returns the direction associated with a keyboard key.
+     *
+     * @param code the keyboard key code
+     * @return the direction, or null if the key is not a direction key
+     */
+    public static Direction fromKeyCode(KeyCode code) {
+        for (Direction direction : values()) {
+            if (direction.keyCode == code) {
+                return direction;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the direction associated with a LURD symbol, in either case.
+     *
+     * @param symbol the LURD symbol
+     * @return the direction, or null if the symbol is not a LURD symbol
+     */
+    public static Direction fromSymbol(char symbol) {
+        char lower = Character.toLowerCase(symbol);
+        for (Direction direction : values()) {
+            if (direction.symbol == lower) {
+                return direction;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the direction matching a movement delta.
+     *
+     * @param delta the movement delta as (row, column)
+     * @return the direction, or null if the delta is not a unit step
+     */
+    public static Direction fromDelta(Point delta) {
+        for (Direction direction : values()) {
+            if (direction.rowDelta == delta.x && direction.columnDelta == delta.y) {
+                return direction;
+            }
+        }
+
+        return null;
+    }
+
+    public int getRowDelta() {
+        return rowDelta;
+    }
+
+    public int getColumnDelta() {
+        return columnDelta;
+    }
+
+    /**
+     * Returns the movement delta as a new {@link Point}.
+     *
+     * @return the movement delta as (row, column)
+     */
+    public Point toDelta() {
+        return new Point(rowDelta, columnDelta);
+    }
+
+    /**
+     * Returns the lower case LURD symbol of this direction.
+     *
+     * @return the LURD symbol
+     */
+    public char getSymbol() {
+        return symbol;
+    }
+
+    public KeyCode getKeyCode() {
+        return keyCode;
+    }
+
+    /**
+     * Returns the direction pointing the other way.
+     *
+     * @return the opposite direction
+     */
+    public Direction opposite() {
+        return values()[(ordinal() + 2) % 4];
+    }
+}
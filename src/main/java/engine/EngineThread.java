@@ -0,0 +1,207 @@
+package engine;
+
+import javafx.scene.input.KeyCode;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * EngineThread drives a {@link GameEngine} on its own thread and publishes a {@link GameSnapshot}
+ * after the commands it executes, so that rendering never delays the input and the input never
+ * waits for rendering.
+ * <p>
+ * Commands are queued by any thread and executed in order; the {@link MoveListener}s of the engine
+ * are called on this thread. After a batch of commands the new snapshot replaces the previous one
+ * in an {@link AtomicReference}, so readers never lock and always see the latest complete state,
+ * skipping the intermediate ones when an automated player drives the engine faster than they read.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class EngineThread implements Closeable {
+
+    /**
+     * The maximum number of commands executed before a snapshot is published
+     */
+    public static final int MAX_BATCH = 256;
+
+    /**
+     * The command stopping the thread
+     */
+    private static final Consumer<GameEngine> STOP = engine -> {
+    };
+    /**
+     * The number of threads created, used to name them
+     */
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final GameEngine engine;
+    private final BlockingQueue<Consumer<GameEngine>> commands = new LinkedBlockingQueue<>();
+    /**
+     * The latest snapshot published
+     */
+    private final AtomicReference<GameSnapshot> snapshot = new AtomicReference<>();
+    /**
+     * The latches released after the next snapshot, only used on the engine thread
+     */
+    private final List<CountDownLatch> waiting = new ArrayList<>();
+    private final Thread thread;
+    private volatile boolean closed = false;
+    /**
+     * The number of commands executed and of snapshots published, only used on the engine thread
+     */
+    private long commandCount = 0;
+    private long version = 0;
+
+    /**
+     * Starts driving an engine. From now on the engine must only be used through {@link #submit(Consumer)}.
+     *
+     * @param engine the engine
+     */
+    public EngineThread(GameEngine engine) {
+        this.engine = engine;
+        snapshot.set(new GameSnapshot(engine, version, commandCount));
+
+        thread = new Thread(this::run, "EngineThread-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a command to be executed on the engine thread.
+     *
+     * @param command the command, receiving the engine
+     * @return true if the command has been queued, false if the thread has been closed
+     */
+    public boolean submit(Consumer<GameEngine> command) {
+        if (closed) {
+            return false;
+        }
+
+        commands.add(command);
+        return true;
+    }
+
+    /**
+     * Queues a key to be handled by the engine.
+     *
+     * @param code the keyboard key code
+     * @return true if the key has been queued, false if the thread has been closed
+     * @see GameEngine#handleKey(KeyCode)
+     */
+    public boolean submitKey(KeyCode code) {
+        return submit(engine -> engine.handleKey(code));
+    }
+
+    /**
+     * Returns the latest snapshot published. It never blocks.
+     *
+     * @return the latest snapshot
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Waits for the commands queued so far to be executed.
+     *
+     * @return the snapshot published after them
+     * @throws InterruptedException  if interrupted while waiting
+     * @throws IllegalStateException if the thread has been closed
+     */
+    public GameSnapshot sync() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        if (!submit(engine -> waiting.add(latch))) {
+            throw new IllegalStateException("The engine thread has been closed");
+        }
+
+        // A command queued while the thread was being closed is never executed.
+        while (!latch.await(100, TimeUnit.MILLISECONDS)) {
+            if (!thread.isAlive()) {
+                throw new IllegalStateException("The engine thread has been closed");
+            }
+        }
+
+        return snapshot.get();
+    }
+
+    /**
+     * Returns the logger of the engine, which can be used from any thread.
+     *
+     * @return the engine logger
+     */
+    public GameLogger getLogger() {
+        return engine.getLogger();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Consumer<GameEngine> command = commands.take();
+                int executed = 0;
+
+                while (command != null) {
+                    if (command == STOP) {
+                        publish();
+                        return;
+                    }
+
+                    execute(command);
+                    executed++;
+                    command = executed < MAX_BATCH ? commands.poll() : null;
+                }
+
+                publish();
+            }
+        } catch (InterruptedException e) {
+            // The thread has been closed.
+        } finally {
+            // Nobody waits for a thread that is not running.
+            waiting.forEach(CountDownLatch::countDown);
+        }
+    }
+
+    private void execute(Consumer<GameEngine> command) {
+        try {
+            command.accept(engine);
+        } catch (RuntimeException e) {
+            engine.getLogger().severe("Cannot execute the command: " + e);
+        }
+        commandCount++;
+    }
+
+    private void publish() {
+        snapshot.set(new GameSnapshot(engine, ++version, commandCount));
+
+        waiting.forEach(CountDownLatch::countDown);
+        waiting.clear();
+    }
+
+    /**
+     * Stops the thread once the commands already queued have been executed, and waits for it
+     * to finish. The commands submitted afterwards are ignored.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        commands.add(STOP);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package engine;
 
+import engine.events.GameFileLoadEvent;
+import engine.events.MoveEvent;
+import engine.lurd.LurdCodec;
+import engine.metrics.EngineMetrics;
+import engine.trace.Trace;
+import engine.trace.TraceEvent;
 import javafx.scene.input.KeyCode;
 import javafx.scene.media.MediaPlayer;
 
 import javax.sound.sampled.LineUnavailableException;
 import java.awt.*;
 import java.io.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * GameEngine is responsible for handling all the game mechanics.
+ * <p>
+ * The engine is not thread-safe: it must be driven by one thread at a time, e.g. by an
+ * {@link EngineThread}, which publishes a {@link GameSnapshot} for the other threads to read.
  *
  * @author Stefano Frazzetto
  * @version 2.0.0
@@ -27,13 +42,17 @@ public class GameEngine {
      */
     public static final String GAME_NAME = "SokobanFX by Stefano Frazzetto";
     /**
-     * The system logger
+     * The number of engines created, used to name their loggers
      */
-    public static GameLogger logger;
+    private static final AtomicInteger engineCount = new AtomicInteger();
+    /**
+     * The engine logger
+     */
+    private final GameLogger logger = new GameLogger("GameEngine-" + engineCount.incrementAndGet());
     /**
      * The game debug mode
      */
-    private static boolean debug = false;
+    private boolean debug = false;
     /**
      * The current level displayed in the game
      */
@@ -43,17 +62,37 @@ public class GameEngine {
      */
     private String mapSetName;
     /**
-     * The list of levels
+     * The list of levels as loaded. They are never modified: the current level is a copy,
+     * so the same list can be shared by several engines.
      */
     private List<Level> levels;
     /**
      * The game state
      */
     private boolean gameComplete = false;
+    /**
+     * True while more levels may still be appended through {@link #addLevels(List)}
+     */
+    private boolean loading = false;
+    /**
+     * The position of the level to be started as soon as it is added, if the player completed
+     * every level loaded so far while the others were being loaded, or -1
+     */
+    private int awaitedLevel = -1;
     /**
      * The number of moves
      */
     private int movesCount = 0;
+    /**
+     * The moves made in the current level, most recent first, encoded as
+     * the direction ordinal shifted left by one and the push flag in the lowest bit
+     */
+    private final Deque<Integer> history = new ArrayDeque<>();
+
+    /**
+     * The listeners notified when the keeper moves
+     */
+    private final List<MoveListener> moveListeners = new CopyOnWriteArrayList<>();
 
     /**
      * The music player
@@ -69,16 +108,12 @@ public class GameEngine {
      */
     public GameEngine(InputStream input, boolean production) {
         try {
-            // Initialize the logger
-            logger = new GameLogger();
             levels = loadGameFile(input);
             currentLevel = getNextLevel();
 
             if (production) {
                 createPlayer();
             }
-        } catch (IOException x) {
-            System.out.println("Cannot create logger.");
         } catch (NoSuchElementException e) {
             logger.warning("Cannot load the default save file: " + e.getStackTrace());
         } catch (LineUnavailableException e) {
@@ -86,15 +121,51 @@ public class GameEngine {
         }
     }
 
+    /**
+     * Creates the engine using levels that have already been parsed, for example by a
+     * {@link LevelPackParser} running in the background. More levels can be appended
+     * later through {@link #addLevels(List)}.
+     * <p>
+     * The list of levels is not copied and it is never modified, so the same parsed levels
+     * can be shared by several engines.
+     *
+     * @param mapSetName the map set name
+     * @param levels     the levels parsed so far, at least one
+     * @param production true if using the engine in live mode, false
+     *                   only for testing mode.
+     */
+    public GameEngine(String mapSetName, List<Level> levels, boolean production) {
+        try {
+            this.mapSetName = mapSetName;
+            this.levels = levels;
+            currentLevel = getNextLevel();
+
+            if (production) {
+                createPlayer();
+            }
+        } catch (LineUnavailableException e) {
+            logger.warning("Cannot load the music file: " + e.getStackTrace());
+        }
+    }
+
     /**
      * Checks if the debug mode is active.
      *
      * @return boolean true if the debug mode is active, false otherwise
      */
-    public static boolean isDebugActive() {
+    public boolean isDebugActive() {
         return debug;
     }
 
+    /**
+     * Returns the logger of this engine.
+     *
+     * @return the engine logger
+     */
+    public GameLogger getLogger() {
+        return logger;
+    }
+
     public int getMovesCount() {
         return movesCount;
     }
@@ -103,6 +174,25 @@ public class GameEngine {
         return mapSetName;
     }
 
+    /**
+     * Registers a listener that will be notified every time the keeper moves, a move is undone
+     * or the current level changes.
+     *
+     * @param listener the listener to be added
+     */
+    public void addMoveListener(MoveListener listener) {
+        moveListeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered {@link MoveListener}.
+     *
+     * @param listener the listener to be removed
+     */
+    public void removeMoveListener(MoveListener listener) {
+        moveListeners.remove(listener);
+    }
+
     /**
      * Handles the action that should be executed when a specific
      * keyboard key {@link KeyCode} is pressed.
@@ -110,59 +200,70 @@ public class GameEngine {
      * @param code the keyboard key code.
      */
     public void handleKey(KeyCode code) {
-        switch (code) {
-            case UP:
-                move(new Point(-1, 0));
-                break;
-
-            case RIGHT:
-                move(new Point(0, 1));
-                break;
+        Direction direction = Direction.fromKeyCode(code);
+        if (direction != null) {
+            move(direction.toDelta());
+        }
 
-            case DOWN:
-                move(new Point(1, 0));
-                break;
+        Trace.record(TraceEvent.KEY_PRESSED, code.ordinal());
+    }
 
-            case LEFT:
-                move(new Point(0, -1));
-                break;
+    /**
+     * Moves the keeper in a direction, pushing the crate in front of it if possible.
+     *
+     * @param direction the direction of the movement
+     * @return true if the keeper moved, false otherwise
+     */
+    public boolean move(Direction direction) {
+        return move(direction.toDelta());
+    }
 
-            default:
-                // TODO: implement something funny.
+    /**
+     * Plays a sequence of moves, as read by {@link LurdCodec}, skipping the ones the keeper cannot
+     * make. The push flags of the moves are ignored, since the position decides whether a move pushes.
+     *
+     * @param moves  the codes of the moves
+     * @param offset the first code
+     * @param count  the number of codes
+     * @return the number of moves the keeper made, stopping when the game is complete
+     */
+    public int play(byte[] moves, int offset, int count) {
+        int moved = 0;
+        for (int i = offset; i < offset + count && !isGameComplete(); i++) {
+            if (move(LurdCodec.direction(moves[i]).toDelta())) {
+                moved++;
+            }
         }
 
-        if (isDebugActive()) {
-            System.out.println(code);
-        }
+        return moved;
     }
 
     /**
      * Handles the movement of the keeper and the objects that collide with it
      *
      * @param delta - the movement delta
+     * @return true if the keeper moved, false otherwise
      */
-    private void move(Point delta) {
-        // Prevent the player from moving if the game is complete.
-        if (isGameComplete()) {
-            return;
+    private boolean move(Point delta) {
+        // Prevent the player from moving if the game is complete or the next level is not loaded yet.
+        if (isGameComplete() || currentLevel == null) {
+            return false;
         }
 
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        long start = System.nanoTime();
         Point keeperPosition = currentLevel.getKeeperPosition();
         // Check what kind of object is located at target
         GameObject keeper = currentLevel.getObjectAt(keeperPosition);
         Point targetObjectPoint = GameGrid.translatePoint(keeperPosition, delta);
         GameObject keeperTarget = currentLevel.getObjectAt(targetObjectPoint);
 
-        // Print useful information if the debug mode is active.
-        if (GameEngine.isDebugActive()) {
-            System.out.println("Current level state:");
-            System.out.println(currentLevel.toString());
-            System.out.println("Keeper pos: " + keeperPosition);
-            System.out.println("Movement source obj: " + keeper);
-            System.out.printf("Target object: %s at [%s]", keeperTarget, targetObjectPoint);
-        }
+        Trace.record(TraceEvent.MOVE, keeperPosition.x, keeperPosition.y,
+                Direction.fromDelta(delta).ordinal() << 8 | keeperTarget.ordinal());
 
         boolean keeperMoved = false;
+        boolean cratePushed = false;
 
         // Check keeper target
         switch (keeperTarget) {
@@ -180,6 +281,7 @@ public class GameEngine {
                     currentLevel.moveGameObjectBy(keeperTarget, targetObjectPoint, delta);
                     currentLevel.moveGameObjectBy(keeper, keeperPosition, delta);
                     keeperMoved = true;
+                    cratePushed = true;
                 }
                 break;
 
@@ -193,80 +295,110 @@ public class GameEngine {
                 throw new AssertionError("This should not have happened. Report this problem to the developer.");
         }
 
+        EngineMetrics.get().recordMove(System.nanoTime() - start, keeperMoved, cratePushed);
+
+        if (event.shouldCommit()) {
+            event.levelIndex = currentLevel.getIndex();
+            event.direction = String.valueOf(Direction.fromDelta(delta));
+            event.keeperMoved = keeperMoved;
+            event.cratePushed = cratePushed;
+            event.cellsTouched = cratePushed ? 3 : keeperMoved ? 2 : 0;
+        }
+
         if (keeperMoved) {
-            keeperPosition.translate((int) delta.getX(), (int) delta.getY());
             movesCount++;
+            Direction direction = Direction.fromDelta(delta);
+            history.push(direction.ordinal() << 1 | (cratePushed ? 1 : 0));
+            for (MoveListener listener : moveListeners) {
+                listener.keeperMoved(direction, cratePushed);
+            }
+
             if (currentLevel.isComplete()) {
-                if (isDebugActive()) {
-                    System.out.println("Level complete!");
-                }
+                event.levelComplete = true;
+                Trace.record(TraceEvent.LEVEL_COMPLETE, currentLevel.getIndex(), movesCount);
+                EngineMetrics.get().recordLevelCompleted();
 
                 currentLevel = getNextLevel();
+                history.clear();
+                if (currentLevel != null) {
+                    for (MoveListener listener : moveListeners) {
+                        listener.levelStarted(currentLevel);
+                    }
+                }
             }
         }
+
+        event.commit();
+        return keeperMoved;
     }
 
     /**
-     * Loads a game file creating a {@link List} of {@link Level}s.
+     * Takes back the last move made in the current level, pulling back the crate
+     * if the move pushed one. Moves made in the previous levels cannot be undone.
      *
-     * @param input - the file containing the levels
-     * @return the list containing the levels
+     * @return true if a move has been undone, false if there was nothing to undo
      */
-    private List<Level> loadGameFile(InputStream input) {
-        List<Level> levels = new ArrayList<>(5);
-        int levelIndex = 0;
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
-            boolean parsedFirstLevel = false;
-            List<String> rawLevel = new ArrayList<>();
-            String levelName = "";
-
-            // START - While loop
-            while (true) {
-                String line = reader.readLine();
-
-                // Break the loop if EOF is reached
-                if (line == null) {
-                    // If the list size is not equal to zero, it means
-                    // that the last level has not been parsed yet.
-                    if (rawLevel.size() != 0) {
-                        Level parsedLevel = new Level(levelName, ++levelIndex, rawLevel);
-                        levels.add(parsedLevel);
-                    }
-                    break;
-                }
+    public boolean undo() {
+        if (isGameComplete() || history.isEmpty()) {
+            return false;
+        }
 
-                // If the line contains the map set name, save it
-                if (line.contains("MapSetName")) {
-                    mapSetName = line.replace("MapSetName: ", "");
-                    continue;
-                }
+        int lastMove = history.pop();
+        Direction direction = Direction.values()[lastMove >> 1];
+        Point back = direction.opposite().toDelta();
+        Point keeperPosition = currentLevel.getKeeperPosition();
+        Point cratePosition = GameGrid.translatePoint(keeperPosition, direction.toDelta());
 
-                // If the line contains the level name, save it
-                if (line.contains("LevelName")) {
-                    // If we already parsed the first level, it means that this is the n+1 level,
-                    // so we can already parse it.
-                    if (parsedFirstLevel) {
-                        Level parsedLevel = new Level(levelName, ++levelIndex, rawLevel);
-                        levels.add(parsedLevel);
-                        rawLevel.clear();
-                    } else {
-                        parsedFirstLevel = true;
-                    }
+        boolean cratePulled = (lastMove & 1) == 1;
+        currentLevel.moveGameObjectBy(GameObject.KEEPER, keeperPosition, back);
+        if (cratePulled) {
+            currentLevel.moveGameObjectBy(GameObject.CRATE, cratePosition, back);
+        }
 
-                    // Get the level name by removing "LevelName:"
-                    levelName = line.replace("LevelName: ", "");
-                    continue;
-                }
+        movesCount--;
+        for (MoveListener listener : moveListeners) {
+            listener.moveUndone(direction, cratePulled);
+        }
+        return true;
+    }
 
-                line = line.trim();
-                line = line.toUpperCase();
-                // If the line contains at least 2 WALLS, add it to the list
-                if (line.matches(".*W.*W.*")) {
-                    rawLevel.add(line);
-                }
-            } // END - While loop
+    /**
+     * Restarts the current level from its initial position.
+     */
+    public void resetLevel() {
+        if (isGameComplete() || currentLevel == null) {
+            return;
+        }
+
+        movesCount -= history.size();
+        history.clear();
+        currentLevel = new Level(levels.get(currentLevel.getIndex() - 1));
+        for (MoveListener listener : moveListeners) {
+            listener.levelReset(currentLevel);
+        }
+    }
 
+    /**
+     * Loads a game file creating a {@link List} of {@link Level}s.
+     *
+     * @param input - the file containing the levels
+     * @return the list containing the levels
+     */
+    private List<Level> loadGameFile(InputStream input) {
+        List<Level> levels = new ArrayList<>(5);
+        GameFileLoadEvent event = new GameFileLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        try (LevelPackParser parser = new LevelPackParser(input)) {
+            levels = parser.readAll();
+            mapSetName = parser.getMapSetName();
+            EngineMetrics.get().recordPackLoaded(System.nanoTime() - start);
+
+            event.mapSetName = mapSetName;
+            event.levels = levels.size();
+            event.bytesRead = parser.getBytesRead();
+            event.commit();
         } catch (IOException e) {
             logger.severe("Error trying to load the game file: " + e);
         } catch (NullPointerException e) {
@@ -322,21 +454,160 @@ public class GameEngine {
     }
 
     /**
-     * Returns the next level in the list of levels.
+     * Appends levels to the list of levels, e.g. while the game file is still being loaded.
      *
-     * @return the next level loaded from the save file.
+     * @param moreLevels the levels to be appended
+     */
+    public void addLevels(List<Level> moreLevels) {
+        // Never modify the current list, as it may be shared with other engines.
+        List<Level> allLevels = new ArrayList<>(levels.size() + moreLevels.size());
+        allLevels.addAll(levels);
+        allLevels.addAll(moreLevels);
+        levels = allLevels;
+
+        if (awaitedLevel >= 0 && awaitedLevel < levels.size()) {
+            currentLevel = new Level(levels.get(awaitedLevel));
+            awaitedLevel = -1;
+            for (MoveListener listener : moveListeners) {
+                listener.levelStarted(currentLevel);
+            }
+        }
+    }
+
+    /**
+     * Tells the engine whether more levels are being loaded. While they are, completing the last
+     * level loaded so far does not complete the game: the next level starts when it is added.
+     *
+     * @param loading true if more levels may be added, false once the loading has finished
+     */
+    public void setLoading(boolean loading) {
+        this.loading = loading;
+        if (!loading && awaitedLevel >= 0) {
+            awaitedLevel = -1;
+            gameComplete = true;
+        }
+    }
+
+    /**
+     * Replaces the levels, e.g. after the game file changed on disk. The current level keeps its
+     * position and its moves if it is still in the game file, even at a different index; otherwise
+     * the level now at the same index is started from its initial position.
+     * <p>
+     * The levels found unchanged by a {@link LevelPackDiff} are the same objects as before, so
+     * they are recognised by reference.
+     *
+     * @param newLevels the new levels, at least one
+     * @return true if the current level has been kept, false if it has been restarted
+     */
+    public boolean replaceLevels(List<Level> newLevels) {
+        if (newLevels.isEmpty()) {
+            throw new IllegalArgumentException("The game file does not contain any level");
+        }
+
+        List<Level> oldLevels = levels;
+        levels = newLevels;
+        if (currentLevel == null) {
+            return false;
+        }
+
+        int index = currentLevel.getIndex();
+        Level original = oldLevels.get(index - 1);
+        if (index <= newLevels.size() && newLevels.get(index - 1) == original) {
+            return true;
+        }
+
+        // The level may have moved, e.g. because another one has been inserted before it.
+        LevelLayout originalLayout = original.getLayout();
+        for (Level level : newLevels) {
+            LevelLayout layout = level.getLayout();
+            if (layout.getContentHash() == originalLayout.getContentHash()
+                    && Objects.equals(layout.getName(), originalLayout.getName())) {
+                currentLevel = new Level(currentLevel, layout);
+                return true;
+            }
+        }
+
+        movesCount -= history.size();
+        history.clear();
+        currentLevel = new Level(newLevels.get(Math.min(index, newLevels.size()) - 1));
+        for (MoveListener listener : moveListeners) {
+            listener.levelStarted(currentLevel);
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the levels as loaded, in their initial position.
+     *
+     * @return the levels, which must not be played
+     */
+    public List<Level> getLevels() {
+        return Collections.unmodifiableList(levels);
+    }
+
+    /**
+     * Returns the number of levels loaded.
+     *
+     * @return the number of levels
+     */
+    public int getLevelCount() {
+        return levels.size();
+    }
+
+    /**
+     * Returns a level as loaded, in its initial position. The level must not be played:
+     * use {@link #selectLevel(int)} to play it.
+     *
+     * @param index the level index, starting from 1
+     * @return the level
+     * @throws IndexOutOfBoundsException if the level has not been loaded
+     */
+    public Level getLevel(int index) {
+        return levels.get(index - 1);
+    }
+
+    /**
+     * Abandons the current level and starts playing another one from its initial position.
+     * The moves made so far are still counted.
+     *
+     * @param index the level index, starting from 1
+     * @throws IndexOutOfBoundsException if the level has not been loaded
+     */
+    public void selectLevel(int index) {
+        currentLevel = new Level(levels.get(index - 1));
+        history.clear();
+        gameComplete = false;
+        awaitedLevel = -1;
+        Trace.record(TraceEvent.LEVEL_SELECTED, index);
+
+        for (MoveListener listener : moveListeners) {
+            listener.levelStarted(currentLevel);
+        }
+    }
+
+    /**
+     * Returns a copy of the next level in the list of levels.
+     *
+     * @return the next level loaded from the save file, or null if there is none, e.g. because
+     * it is still being loaded
      */
     private Level getNextLevel() {
         if (currentLevel == null) {
-            return levels.get(0);
+            return new Level(levels.get(0));
         }
 
+        // Level indices start from 1, so the current index is also the position of the next level.
         int currentLevelIndex = currentLevel.getIndex();
         if (currentLevelIndex < levels.size()) {
-            return levels.get(currentLevelIndex + 1);
+            return new Level(levels.get(currentLevelIndex));
         }
 
-        gameComplete = true;
+        if (loading) {
+            awaitedLevel = currentLevelIndex;
+        } else {
+            gameComplete = true;
+        }
         return null;
     }
 
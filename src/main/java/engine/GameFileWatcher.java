@@ -0,0 +1,116 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameFileWatcher notifies a listener every time a game file changes on disk, so that it can
+ * be reloaded while the game is running.
+ * <p>
+ * The directory containing the game file is watched by a {@link WatchService} on a daemon thread.
+ * Editors often write a file in several steps, or write a temporary file and rename it, so the
+ * listener is only called once the game file has not changed for the quiet period.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class GameFileWatcher implements Closeable {
+
+    /**
+     * The default time without changes before the listener is called, in milliseconds
+     */
+    public static final long DEFAULT_QUIET_PERIOD = 150;
+
+    private final Path file;
+    private final WatchService watchService;
+    private final Thread thread;
+    private final Runnable onChange;
+    private final long quietPeriod;
+
+    /**
+     * Starts watching a game file.
+     *
+     * @param file        the game file
+     * @param quietPeriod the time without changes before the listener is called, in milliseconds
+     * @param onChange    the listener, called on the watcher thread
+     * @throws IOException if the directory of the game file cannot be watched
+     */
+    public GameFileWatcher(Path file, long quietPeriod, Runnable onChange) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.quietPeriod = quietPeriod;
+        this.onChange = onChange;
+
+        watchService = FileSystems.getDefault().newWatchService();
+        try {
+            this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        thread = new Thread(this::watch, "GameFileWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                // Wait for a change, then for the quiet period to pass without further changes.
+                if (!changed(watchService.take())) {
+                    continue;
+                }
+
+                for (WatchKey key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS); key != null;
+                     key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS)) {
+                    changed(key);
+                }
+
+                onChange.run();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher has been closed.
+        }
+    }
+
+    /**
+     * Returns true if the events of a key concern the game file, and resets the key.
+     */
+    private boolean changed(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // An overflow may hide a change to the game file.
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Stops watching the game file.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
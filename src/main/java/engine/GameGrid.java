@@ -1,12 +1,16 @@
 package engine;
 
+import engine.trace.Trace;
+import engine.trace.TraceEvent;
+
 import java.awt.*;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * GameGrid class can be used to create a 2D grid and gameObjects to it.
  */
-public class GameGrid implements Iterable {
+public class GameGrid implements Iterable<GameObject> {
 
     /**
      * The number of columns
@@ -79,9 +83,7 @@ public class GameGrid implements Iterable {
      */
     public GameObject getGameObjectAt(int col, int row) throws ArrayIndexOutOfBoundsException {
         if (isPointOutOfBounds(col, row)) {
-            if (GameEngine.isDebugActive()) {
-                System.out.printf("Trying to get null GameObject from COL: %d  ROW: %d", col, row);
-            }
+            Trace.record(TraceEvent.OUT_OF_BOUNDS, col, row);
             throw new ArrayIndexOutOfBoundsException("The point [" + col + ":" + row + "] is outside the map.");
         }
 
@@ -181,7 +183,21 @@ public class GameGrid implements Iterable {
     }
 
     /**
-     * Returns an iterator over elements of type {@code T}.
+     * Visits every cell of the grid in row-major order, reading the grid directly
+     * rather than checking the bounds of every cell.
+     *
+     * @param visitor the visitor called for every cell
+     */
+    public void forEachCell(CellVisitor visitor) {
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLUMNS; col++) {
+                visitor.visit(row, col, gameObjects[col][row]);
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over the cells of the grid, in row-major order.
      *
      * @return an Iterator.
      */
@@ -190,6 +206,18 @@ public class GameGrid implements Iterable {
         return new GridIterator();
     }
 
+    /**
+     * Returns a spliterator over a snapshot of the cells of the grid, in row-major order.
+     *
+     * @return a spliterator over the grid
+     */
+    @Override
+    public CellSpliterator spliterator() {
+        GameObject[] cells = new GameObject[COLUMNS * ROWS];
+        forEachCell((row, col, gameObject) -> cells[row * COLUMNS + col] = gameObject);
+        return new CellSpliterator(cells, COLUMNS);
+    }
+
     /**
      * GridIterator provides the interface to iterate through the grid containing
      * the {@link GameObject}s for the current {@link Level}.
@@ -202,16 +230,22 @@ public class GameGrid implements Iterable {
 
         @Override
         public boolean hasNext() {
-            return !(row == ROWS && column == COLUMNS);
+            return row < ROWS && column < COLUMNS;
         }
 
         @Override
         public GameObject next() {
-            if (column >= COLUMNS) {
+            if (!hasNext()) {
+                throw new NoSuchElementException("The whole grid has been iterated.");
+            }
+
+            GameObject gameObject = gameObjects[column++][row];
+            if (column == COLUMNS) {
                 column = 0;
                 row++;
             }
-            return getGameObjectAt(column++, row);
+
+            return gameObject;
         }
     }
-}
\ No newline at end of file
+}
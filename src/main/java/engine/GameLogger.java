@@ -1,70 +1,72 @@
 package engine;
 
-import java.io.File;
-import java.io.IOException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.logging.FileHandler;
-import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
-
 /**
  * Handles the game logging.
- * The logfile is placed in the directory where the game is executed under a directory named "GAME_NAME"-logfiles.
+ * The logfile is placed in the directory where the game is executed under a directory named "logs".
+ * <p>
+ * Every message is handed over to an {@link AsyncLogWriter}, which formats and writes it on a
+ * background thread, so logging never blocks the caller. Loggers are cheap, thread-safe objects:
+ * each {@link GameEngine} owns one, and its name is written next to every message.
  */
-public class GameLogger extends Logger {
-
-    private static Logger logger = Logger.getLogger("GameLogger");
-    private DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
-    private Calendar calendar = Calendar.getInstance();
-
-    public GameLogger() throws IOException {
-        super("com.stefanofrazzetto.sokoban", null);
+public class GameLogger {
 
-        File directory = new File(System.getProperty("user.dir") + "/" + "logs");
-        directory.mkdirs();
+    /**
+     * The name written next to every message
+     */
+    private final String name;
+    /**
+     * The writer receiving the messages
+     */
+    private final AsyncLogWriter writer;
 
-        FileHandler fh = new FileHandler(directory + "/" + GameEngine.GAME_NAME + ".log");
-        logger.addHandler(fh);
-        SimpleFormatter formatter = new SimpleFormatter();
-        fh.setFormatter(formatter);
+    /**
+     * Creates a logger writing to the default log file.
+     *
+     * @param name the name of the logger
+     */
+    public GameLogger(String name) {
+        this(name, AsyncLogWriter.getDefault());
     }
 
     /**
-     * Returns a {@link String} containing the current date and time, and the message.
+     * Creates a logger writing through the specified writer.
      *
-     * @param message - the message that should be appended to the {@link String}
-     * @return - a {@link String} containing the current date and time, and the message
+     * @param name   the name of the logger
+     * @param writer the writer receiving the messages
      */
-    private String createFormattedMessage(String message) {
-        return dateFormat.format(calendar.getTime()) + " -- " + message;
+    public GameLogger(String name, AsyncLogWriter writer) {
+        this.name = name;
+        this.writer = writer;
+    }
+
+    public String getName() {
+        return name;
     }
 
     /**
-     * {@inheritDoc}
+     * Logs an informational message.
      *
-     * @param message
+     * @param message the message to be logged
      */
     public void info(String message) {
-        logger.info(createFormattedMessage(message));
+        writer.append(AsyncLogWriter.INFO, name, message);
     }
 
     /**
-     * {@inheritDoc}
+     * Logs a warning message.
      *
-     * @param message
+     * @param message the message to be logged
      */
     public void warning(String message) {
-        logger.warning(createFormattedMessage(message));
+        writer.append(AsyncLogWriter.WARNING, name, message);
     }
 
     /**
-     * {@inheritDoc}
+     * Logs a severe error message.
      *
-     * @param message
+     * @param message the message to be logged
      */
     public void severe(String message) {
-        logger.severe(createFormattedMessage(message));
+        writer.append(AsyncLogWriter.SEVERE, name, message);
     }
-}
\ No newline at end of file
+}
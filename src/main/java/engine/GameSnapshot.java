@@ -0,0 +1,108 @@
+package engine;
+
+import java.util.List;
+
+/**
+ * GameSnapshot is an immutable copy of the state of a {@link GameEngine}, published by an
+ * {@link EngineThread} so that other threads, e.g. the renderer, can read the game without
+ * touching the engine.
+ * <p>
+ * Taking a snapshot is cheap: the position is a {@link Board}, which only copies the cells of the
+ * crates, and the list of levels is shared, as the engine replaces it rather than modifying it.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class GameSnapshot {
+
+    /**
+     * The number of snapshots published before this one by the same thread
+     */
+    private final long version;
+    /**
+     * The number of commands executed by the engine thread before this snapshot
+     */
+    private final long commandCount;
+    private final String mapSetName;
+    /**
+     * The levels as loaded, in their initial position
+     */
+    private final List<Level> levels;
+    /**
+     * The position of the current level, or null if the game is complete
+     */
+    private final Board board;
+    private final int movesCount;
+    private final boolean gameComplete;
+    private final boolean debug;
+
+    /**
+     * Takes a snapshot of an engine. It must be called by the thread driving the engine.
+     *
+     * @param engine       the engine
+     * @param version      the number of snapshots published before this one
+     * @param commandCount the number of commands executed so far
+     */
+    GameSnapshot(GameEngine engine, long version, long commandCount) {
+        this.version = version;
+        this.commandCount = commandCount;
+        mapSetName = engine.getMapSetName();
+        levels = engine.getLevels();
+        Level currentLevel = engine.getCurrentLevel();
+        board = currentLevel == null ? null : currentLevel.toBoard();
+        movesCount = engine.getMovesCount();
+        gameComplete = engine.isGameComplete();
+        debug = engine.isDebugActive();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    public String getMapSetName() {
+        return mapSetName;
+    }
+
+    /**
+     * Returns the levels as loaded, in their initial position.
+     *
+     * @return the levels, which must not be played
+     */
+    public List<Level> getLevels() {
+        return levels;
+    }
+
+    /**
+     * Returns the position of the current level.
+     *
+     * @return the position, or null if the game is complete
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Returns the index of the current level.
+     *
+     * @return the level index, or 0 if the game is complete
+     */
+    public int getLevelIndex() {
+        return board == null ? 0 : board.getLayout().getIndex();
+    }
+
+    public int getMovesCount() {
+        return movesCount;
+    }
+
+    public boolean isGameComplete() {
+        return gameComplete;
+    }
+
+    public boolean isDebugActive() {
+        return debug;
+    }
+}
@@ -1,8 +1,14 @@
 package engine;
 
+import engine.metrics.EngineMetrics;
+import engine.trace.Trace;
+import engine.trace.TraceEvent;
+
 import java.awt.*;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import static engine.GameGrid.translatePoint;
 
@@ -10,6 +16,10 @@ import static engine.GameGrid.translatePoint;
 /**
  * Level handles the creation of the game level parsing a {@link List} of {@link String}s and putting the right
  * {@link GameObject} in a 2D array. The object is created matching a char with the corresponding {@link GameObject}.
+ * <p>
+ * The walls and the diamonds never move, so they are kept in a {@link LevelLayout} shared by every copy of the
+ * level. A level only stores the cells of its crates and of the warehouse keeper, so the memory used by a level
+ * being played depends on the number of crates rather than on the size of the map.
  *
  * @author Stefano Frazzetto
  * @since 2.3.0
@@ -17,29 +27,17 @@ import static engine.GameGrid.translatePoint;
 public final class Level implements Iterable<GameObject> {
 
     /**
-     * The level name
-     */
-    private final String name;
-    /**
-     * The array containing the objectsGrid
-     */
-    private final GameGrid objectsGrid;
-    /**
-     * The object containing the diamondsGrid.
-     */
-    private final GameGrid diamondsGrid;
-    /**
-     * The level index
+     * The walls and diamonds of this level
      */
-    private final int index;
+    private final LevelLayout layout;
     /**
-     * The total number of diamondsGrid in this level
+     * The cell indices of the crates, with the crate in every cell
      */
-    private int numberOfDiamonds = 0;
+    private final CrateIndex crates;
     /**
-     * The current warehouse keeper position
+     * The cell index of the warehouse keeper
      */
-    private Point keeperPosition = new Point(0, 0);
+    private int keeper;
 
     /**
      * Creates a level using the first parameter as the level name and the second parameter as {@link List} of
@@ -50,57 +48,65 @@ public final class Level implements Iterable<GameObject> {
      * @param raw_level  the raw data of the level
      */
     public Level(String levelName, int levelIndex, List<String> raw_level) {
-        if (GameEngine.isDebugActive()) {
-            System.out.printf("[ADDING LEVEL] LEVEL [%d]: %s\n", levelIndex, levelName);
-        }
+        this(new LevelLayout(levelName, levelIndex, raw_level));
+    }
 
-        name = levelName;
-        index = levelIndex;
-
-        int rows = raw_level.size();
-        // Get the first row, trim it to remove any space before and after it, then get its length.
-        int columns = raw_level.get(0).trim().length();
-
-        // Create the grids grids
-        objectsGrid = new GameGrid(rows, columns);
-        diamondsGrid = new GameGrid(rows, columns);
-
-        // Loop over the List
-        for (int row = 0; row < raw_level.size(); row++) {
-
-            // Loop over the string one char at a time because it should be the fastest way:
-            // http://stackoverflow.com/questions/8894258/fastest-way-to-iterate-over-all-the-chars-in-a-string
-            for (int col = 0; col < raw_level.get(row).length(); col++) {
-                // The game object is null when the we're adding a floor or a diamond
-                GameObject curTile = GameObject.fromChar(raw_level.get(row).charAt(col));
-
-                // If the tile is a diamond, add it to the diamond grid and add a floor
-                // into the objects grid.
-                if (curTile == GameObject.DIAMOND) {
-                    numberOfDiamonds++;
-                    diamondsGrid.putGameObjectAt(curTile, row, col);
-                    curTile = GameObject.FLOOR;
-                } else if (curTile == GameObject.KEEPER) {
-                    keeperPosition = new Point(row, col);
-                }
+    /**
+     * Creates a level in the initial position of a layout.
+     *
+     * @param layout the walls and diamonds of the level
+     */
+    public Level(LevelLayout layout) {
+        this.layout = layout;
+        crates = new CrateIndex(layout.getInitialCrates());
+        keeper = layout.getInitialKeeper();
+    }
+
+    /**
+     * Creates a copy of another level in its current position, so that it can be played
+     * without changing the original one. The layout is shared with the other level.
+     *
+     * @param other the level to be copied
+     */
+    Level(Level other) {
+        layout = other.layout;
+        crates = new CrateIndex(other.crates);
+        keeper = other.keeper;
+    }
 
-                objectsGrid.putGameObjectAt(curTile, row, col);
-                curTile = null;
-            } // END- String loop
-        } // END - List loop
+    /**
+     * Creates a copy of another level in its current position, using a layout with the same
+     * content, e.g. the same level found at a different index after the game file changed.
+     *
+     * @param other  the level to be copied
+     * @param layout the layout of the copy, with the same cells as the layout of the other level
+     */
+    Level(Level other, LevelLayout layout) {
+        this.layout = layout;
+        crates = new CrateIndex(other.crates);
+        keeper = other.keeper;
     }
 
     boolean isComplete() {
+        long start = System.nanoTime();
         int cratedDiamondsCount = 0;
-        for (int row = 0; row < objectsGrid.ROWS; row++) {
-            for (int col = 0; col < objectsGrid.COLUMNS; col++) {
-                if (objectsGrid.getGameObjectAt(col, row) == GameObject.CRATE && diamondsGrid.getGameObjectAt(col, row) == GameObject.DIAMOND) {
-                    cratedDiamondsCount++;
-                }
+        for (int i = 0; i < crates.size(); i++) {
+            if (layout.isGoal(crates.get(i))) {
+                cratedDiamondsCount++;
             }
         }
 
-        return cratedDiamondsCount >= numberOfDiamonds;
+        EngineMetrics.get().recordCompletionCheck(System.nanoTime() - start);
+        return cratedDiamondsCount >= layout.getNumberOfDiamonds();
+    }
+
+    /**
+     * Returns the walls and diamonds of this level, shared with every copy of it.
+     *
+     * @return the level layout
+     */
+    public LevelLayout getLayout() {
+        return layout;
     }
 
     /**
@@ -109,7 +115,7 @@ public final class Level implements Iterable<GameObject> {
      * @return the name of this level
      */
     public String getName() {
-        return name;
+        return layout.getName();
     }
 
     /**
@@ -117,17 +123,17 @@ public final class Level implements Iterable<GameObject> {
      *
      * @return the level index
      */
-    int getIndex() {
-        return index;
+    public int getIndex() {
+        return layout.getIndex();
     }
 
     /**
-     * Returns the warehouse keeper position
+     * Returns the warehouse keeper position, expressed as (row, column)
      *
      * @return the warehouse keeper position
      */
-    Point getKeeperPosition() {
-        return keeperPosition;
+    public Point getKeeperPosition() {
+        return new Point(keeper / layout.getColumns(), keeper % layout.getColumns());
     }
 
     /**
@@ -138,7 +144,7 @@ public final class Level implements Iterable<GameObject> {
      * @return the object at distance delta from source
      */
     GameObject getTargetObject(Point source, Point delta) {
-        return objectsGrid.getTargetFromSource(source, delta);
+        return getObjectAt(translatePoint(source, delta));
     }
 
     /**
@@ -146,9 +152,176 @@ public final class Level implements Iterable<GameObject> {
      *
      * @param p the point where is object is located
      * @return GameObject the objected located at point p.
+     * @throws ArrayIndexOutOfBoundsException if the point is outside the level
      */
     GameObject getObjectAt(Point p) {
-        return objectsGrid.getGameObjectAt(p);
+        return getObjectAt(cellOf(p));
+    }
+
+    /**
+     * Returns the object located in a cell, ignoring the diamonds.
+     *
+     * @param cell the cell index
+     * @return the keeper, a crate, or the terrain of the cell
+     */
+    private GameObject getObjectAt(int cell) {
+        if (cell == keeper) {
+            return GameObject.KEEPER;
+        }
+
+        return indexOfCrate(cell) >= 0 ? GameObject.CRATE : layout.getTerrain(cell);
+    }
+
+    /**
+     * Returns the object to be shown at (row, column), combining the objects with the diamonds.
+     * It gives the renderer random access to the level, so that only the visible part is drawn.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return the object to be shown, or null if the cell is outside the raw level rows
+     * @throws ArrayIndexOutOfBoundsException if the cell is outside the level
+     */
+    public GameObject getDisplayedObject(int row, int column) {
+        if (!layout.contains(row, column)) {
+            Trace.record(TraceEvent.OUT_OF_BOUNDS, row, column);
+            throw new ArrayIndexOutOfBoundsException("The point [" + row + ":" + column + "] is outside the map.");
+        }
+
+        return getDisplayedObjectAt(layout.cellOf(row, column));
+    }
+
+    /**
+     * Returns the object to be shown in a cell, combining the objects with the diamonds.
+     *
+     * @param cell the cell index
+     * @return the object to be shown
+     */
+    private GameObject getDisplayedObjectAt(int cell) {
+        return withDiamond(cell, getObjectAt(cell));
+    }
+
+    /**
+     * Combines the object in a cell with the diamond of the cell, if any.
+     *
+     * @param cell   the cell index
+     * @param object the keeper, a crate, or the terrain of the cell
+     * @return the object to be shown
+     */
+    private GameObject withDiamond(int cell, GameObject object) {
+        // If the cell contains a diamond, then return it.
+        if (layout.isGoal(cell)) {
+            if (object == GameObject.CRATE) {
+                return GameObject.CRATE_ON_DIAMOND;
+            } else if (object == GameObject.FLOOR) {
+                return GameObject.DIAMOND;
+            }
+        }
+
+        return object;
+    }
+
+    /**
+     * Visits the object to be shown in every cell, in row-major order.
+     *
+     * @param visitor the visitor called for every cell
+     * @see #getDisplayedObject(int, int)
+     */
+    public void forEachCell(CellVisitor visitor) {
+        forEachCell(0, layout.getRows(), 0, layout.getColumns(), visitor);
+    }
+
+    /**
+     * Visits the object to be shown in every cell of a rectangle, one row span at a time.
+     * The bounds are checked once, and the crates are found by walking a sorted copy of
+     * their cells along with the traversal, so visiting a cell costs the same as reading an array.
+     * The level must not change during the traversal.
+     *
+     * @param fromRow    the first row, inclusive
+     * @param toRow      the last row, exclusive
+     * @param fromColumn the first column of every row span, inclusive
+     * @param toColumn   the last column of every row span, exclusive
+     * @param visitor    the visitor called for every cell
+     * @throws ArrayIndexOutOfBoundsException if the rectangle is not inside the level
+     */
+    public void forEachCell(int fromRow, int toRow, int fromColumn, int toColumn, CellVisitor visitor) {
+        if (fromRow < 0 || fromColumn < 0 || fromRow > toRow || fromColumn > toColumn
+                || toRow > layout.getRows() || toColumn > layout.getColumns()) {
+            Trace.record(TraceEvent.OUT_OF_BOUNDS, toRow - 1, toColumn - 1);
+            throw new ArrayIndexOutOfBoundsException("The cells [" + fromRow + ":" + fromColumn + "] to ["
+                    + toRow + ":" + toColumn + "] are outside the map.");
+        }
+
+        int[] sortedCrates = crates.toArray();
+        Arrays.sort(sortedCrates);
+        int nextCrate = 0;
+
+        for (int row = fromRow; row < toRow; row++) {
+            int rowStart = layout.cellOf(row, 0);
+            int start = rowStart + fromColumn;
+            int end = rowStart + toColumn;
+
+            while (nextCrate < sortedCrates.length && sortedCrates[nextCrate] < start) {
+                nextCrate++;
+            }
+
+            for (int cell = start; cell < end; cell++) {
+                GameObject object;
+                if (nextCrate < sortedCrates.length && sortedCrates[nextCrate] == cell) {
+                    nextCrate++;
+                    object = GameObject.CRATE;
+                } else {
+                    object = cell == keeper ? GameObject.KEEPER : layout.getTerrain(cell);
+                }
+
+                visitor.visit(row, cell - rowStart, withDiamond(cell, object));
+            }
+        }
+    }
+
+    /**
+     * Returns the cell index of a point, which is expressed as (row, column).
+     *
+     * @param p the point
+     * @return the cell index
+     * @throws ArrayIndexOutOfBoundsException if the point is outside the level
+     */
+    private int cellOf(Point p) {
+        if (!layout.contains(p.x, p.y)) {
+            Trace.record(TraceEvent.OUT_OF_BOUNDS, p.x, p.y);
+            throw new ArrayIndexOutOfBoundsException("The point [" + p.x + ":" + p.y + "] is outside the map.");
+        }
+
+        return layout.cellOf(p.x, p.y);
+    }
+
+    /**
+     * Returns the number of crates in this level.
+     *
+     * @return the number of crates
+     */
+    public int getCrateCount() {
+        return crates.size();
+    }
+
+    /**
+     * Returns the cell index of a crate. Every crate keeps its number for the whole level,
+     * so per-crate data can be kept in arrays indexed by crate.
+     *
+     * @param crate the crate number, from 0 to {@link #getCrateCount()} - 1
+     * @return the cell index of the crate
+     */
+    public int getCrate(int crate) {
+        return crates.get(crate);
+    }
+
+    /**
+     * Returns the number of the crate located in a cell.
+     *
+     * @param cell the cell index
+     * @return the crate number, or -1 if the cell does not contain a crate
+     */
+    public int indexOfCrate(int cell) {
+        return crates.indexOf(cell);
     }
 
     void moveGameObjectBy(GameObject object, Point source, Point delta) {
@@ -159,77 +332,158 @@ public final class Level implements Iterable<GameObject> {
      * Moves a {@link GameObject} to the target destination.
      * It removes the object from its original position and places it into the new one.
      *
-     * @param object      - the {@link GameObject} to be moved
+     * @param object      - the {@link GameObject} to be moved, either the keeper or a crate
      * @param source      - the position of the object to be moved
      * @param destination - the "Final Destination" for the object (pun intended)
      */
     private void moveGameObjectTo(GameObject object, Point source, Point destination) {
-        objectsGrid.putGameObjectAt(getObjectAt(destination), source);
-        objectsGrid.putGameObjectAt(object, destination);
+        int target = cellOf(destination);
+
+        switch (object) {
+            case KEEPER:
+                keeper = target;
+                break;
+
+            case CRATE:
+                crates.move(cellOf(source), target);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Only the keeper and the crates can be moved, not " + object);
+        }
+    }
+
+    /**
+     * Creates an immutable {@link Board} snapshot of the current position.
+     * Cells outside the raw level rows are considered walls.
+     *
+     * @return the snapshot of this level
+     */
+    public Board toBoard() {
+        int[] sortedCrates = crates.toArray();
+        Arrays.sort(sortedCrates);
+        return new Board(layout, sortedCrates, keeper);
     }
 
     @Override
     public String toString() {
-        return objectsGrid.toString();
+        int columns = layout.getColumns();
+        StringBuilder sb = new StringBuilder((columns + 1) * layout.getRows());
+
+        for (int cell = 0; cell < layout.getCellCount(); cell++) {
+            GameObject object = getObjectAt(cell);
+            if (object == null) {
+                object = GameObject.DEBUG_OBJECT;
+            }
+            sb.append(object.getCharSymbol());
+
+            if (cell % columns == columns - 1) {
+                sb.append('\n');
+            }
+        }
+
+        return sb.toString();
     }
 
     /**
-     * Returns an iterator over elements of type {@code T}.
+     * Returns an iterator over the objects to be shown, in row-major order.
      *
      * @return an Iterator.
      */
     @Override
-    public Iterator<GameObject> iterator() {
+    public LevelIterator iterator() {
         return new LevelIterator();
     }
 
+    /**
+     * Returns a spliterator over a snapshot of the objects to be shown, in row-major order,
+     * so that an analysis of the whole level can run as a parallel stream.
+     *
+     * @return a spliterator over the current position
+     */
+    @Override
+    public CellSpliterator spliterator() {
+        int columns = layout.getColumns();
+        GameObject[] cells = new GameObject[layout.getCellCount()];
+        forEachCell((row, column, object) -> cells[row * columns + column] = object);
+        return new CellSpliterator(cells, columns);
+    }
 
     /**
-     * LevelIterator provides the interface to iterate through the {@link GameGrid}
-     * containing the {@link GameObject}s for the current {@link Level}.
+     * LevelIterator provides the interface to iterate through the objects to be shown
+     * for the current {@link Level}, in row-major order. The level must not change
+     * during the iteration.
      *
      * @see Iterator
      */
     public class LevelIterator implements Iterator<GameObject> {
 
-        int column = 0;
-        int row = 0;
+        /**
+         * The sorted cells of the crates when the iteration started
+         */
+        private final int[] sortedCrates = crates.toArray();
+        /**
+         * The next crate to be found
+         */
+        private int nextCrate;
+        /**
+         * The next cell to be returned
+         */
+        private int cell;
+
+        LevelIterator() {
+            Arrays.sort(sortedCrates);
+        }
 
         @Override
         public boolean hasNext() {
-            return !(row == objectsGrid.ROWS - 1 && column == objectsGrid.COLUMNS);
+            return cell < layout.getCellCount();
         }
 
         @Override
         public GameObject next() {
-            if (column >= objectsGrid.COLUMNS) {
-                column = 0;
-                row++;
+            if (!hasNext()) {
+                throw new NoSuchElementException("The whole level has been iterated.");
             }
 
-            GameObject object = objectsGrid.getGameObjectAt(column, row);
-            GameObject diamond = diamondsGrid.getGameObjectAt(column, row);
-            GameObject retObj = object;
+            GameObject object;
+            if (nextCrate < sortedCrates.length && sortedCrates[nextCrate] == cell) {
+                nextCrate++;
+                object = GameObject.CRATE;
+            } else {
+                object = cell == keeper ? GameObject.KEEPER : layout.getTerrain(cell);
+            }
 
-            // After the object is assigned, increment the column number.
-            column++;
+            // After the object is assigned, move to the next cell.
+            return withDiamond(cell++, object);
+        }
 
-            // If the diamonds grid contains a diamond, then return it.
-            if (diamond == GameObject.DIAMOND) {
-                if (object == GameObject.CRATE) {
-                    retObj = GameObject.CRATE_ON_DIAMOND;
-                } else if (object == GameObject.FLOOR) {
-                    retObj = diamond;
-                } else {
-                    retObj = object;
-                }
-            }
+        /**
+         * Returns the row of the last object returned by {@link #next()}.
+         *
+         * @return the row of the last object
+         */
+        public int getRow() {
+            return (cell - 1) / layout.getColumns();
+        }
 
-            return retObj;
+        /**
+         * Returns the column of the last object returned by {@link #next()}.
+         *
+         * @return the column of the last object
+         */
+        public int getColumn() {
+            return (cell - 1) % layout.getColumns();
         }
 
+        /**
+         * Returns the position of the last object returned by {@link #next()}, expressed as (row, column).
+         * Use {@link #getRow()} and {@link #getColumn()} to avoid allocating a {@link Point}.
+         *
+         * @return the position of the last object
+         */
         public Point getCurrentPosition() {
-            return new Point(column, row);
+            return new Point(getRow(), getColumn());
         }
     }
-}
\ No newline at end of file
+}
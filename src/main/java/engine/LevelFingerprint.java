@@ -0,0 +1,383 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LevelFingerprint identifies a level regardless of its orientation and of the area around it,
+ * so that the same puzzle can be recognised when a game file contains it rotated, mirrored or
+ * surrounded by more walls.
+ * <p>
+ * The fingerprint is computed from a canonical form of the level:
+ * <ol>
+ * <li>every cell the keeper cannot reach, pushing the crates aside, is turned into a wall, and the
+ * level is trimmed to the smallest rectangle containing the reachable cells;</li>
+ * <li>the keeper is moved to the first cell, in row-major order, that it can reach without pushing
+ * any crate, as the puzzle does not change while it walks around;</li>
+ * <li>the 8 rotations and reflections of the result are compared, and the lexicographically
+ * smallest one is the canonical form.</li>
+ * </ol>
+ * Two fingerprints are equal if their canonical forms are equal, and the 64-bit hash of the
+ * canonical form can be stored in place of the fingerprint.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class LevelFingerprint {
+
+    /**
+     * The cell codes of the canonical form
+     */
+    private static final byte WALL = 0;
+    private static final byte FLOOR = 1;
+    private static final byte GOAL = 2;
+    private static final byte CRATE = 3;
+    private static final byte CRATE_ON_GOAL = 4;
+    private static final byte KEEPER = 5;
+    private static final byte KEEPER_ON_GOAL = 6;
+
+    /**
+     * The number of rotations and reflections of a rectangle
+     */
+    public static final int TRANSFORMS = 8;
+
+    /**
+     * The canonical form: the number of rows and columns as two bytes each, then the cell codes
+     */
+    private final byte[] canonical;
+    /**
+     * The transform turning the level into its canonical form
+     */
+    private final int transform;
+    /**
+     * The FNV-1a hash of the canonical form, never 0
+     */
+    private final long hash;
+
+    private LevelFingerprint(byte[] canonical, int transform) {
+        this.canonical = canonical;
+        this.transform = transform;
+
+        long h = 0xcbf29ce484222325L;
+        for (byte b : canonical) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        hash = h == 0 ? 1 : h;
+    }
+
+    /**
+     * Returns the fingerprint of a level in its initial position. The fingerprint is computed
+     * once and kept with the layout.
+     *
+     * @param layout the level layout
+     * @return the fingerprint
+     */
+    public static LevelFingerprint of(LevelLayout layout) {
+        return layout.getDerived(LevelFingerprint.class, l -> of(new Level(l).toBoard()));
+    }
+
+    /**
+     * Returns the fingerprint of a level in its current position.
+     *
+     * @param level the level
+     * @return the fingerprint
+     */
+    public static LevelFingerprint of(Level level) {
+        return of(level.toBoard());
+    }
+
+    /**
+     * Returns the fingerprint of a position.
+     *
+     * @param board the position
+     * @return the fingerprint
+     */
+    public static LevelFingerprint of(Board board) {
+        byte[] cells = new byte[board.getCellCount()];
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (board.isWall(cell)) {
+                cells[cell] = WALL;
+            } else if (board.hasCrate(cell)) {
+                cells[cell] = board.isGoal(cell) ? CRATE_ON_GOAL : CRATE;
+            } else {
+                cells[cell] = board.isGoal(cell) ? GOAL : FLOOR;
+            }
+        }
+
+        return canonicalize(board.getRows(), board.getColumns(), cells, board.getKeeper());
+    }
+
+    /**
+     * Returns the fingerprint of a level in its initial position without parsing it,
+     * reading the rows as {@link LevelLayout} would.
+     *
+     * @param rawLevel the rows of the level as read by the {@link LevelPackParser}
+     * @return the fingerprint
+     */
+    public static LevelFingerprint of(List<String> rawLevel) {
+        int rows = rawLevel.size();
+        int columns = rawLevel.get(0).trim().length();
+        byte[] cells = new byte[rows * columns];
+        int keeper = 0;
+
+        for (int row = 0; row < rows; row++) {
+            String rawRow = rawLevel.get(row);
+            for (int col = 0; col < Math.min(rawRow.length(), columns); col++) {
+                int cell = row * columns + col;
+                switch (GameObject.fromChar(rawRow.charAt(col))) {
+                    case FLOOR:
+                        cells[cell] = FLOOR;
+                        break;
+                    case DIAMOND:
+                        cells[cell] = GOAL;
+                        break;
+                    case CRATE:
+                        cells[cell] = CRATE;
+                        break;
+                    case CRATE_ON_DIAMOND:
+                        cells[cell] = CRATE_ON_GOAL;
+                        break;
+                    case KEEPER:
+                        cells[cell] = FLOOR;
+                        keeper = cell;
+                        break;
+                    default:
+                        cells[cell] = WALL;
+                }
+            }
+        }
+
+        return canonicalize(rows, columns, cells, keeper);
+    }
+
+    private static LevelFingerprint canonicalize(int rows, int columns, byte[] cells, int keeper) {
+        // The area of the level: everything the keeper can reach, pushing the crates aside.
+        // Without a keeper, every cell that is not a wall.
+        boolean hasKeeper = keeper >= 0 && keeper < cells.length && cells[keeper] != WALL;
+        boolean[] area = hasKeeper ? flood(rows, columns, cells, keeper, CRATE_ON_GOAL) : notWalls(cells);
+        boolean[] walkable = hasKeeper ? flood(rows, columns, cells, keeper, GOAL) : new boolean[cells.length];
+
+        int top = rows;
+        int bottom = -1;
+        int left = columns;
+        int right = -1;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (area[cell]) {
+                top = Math.min(top, cell / columns);
+                bottom = Math.max(bottom, cell / columns);
+                left = Math.min(left, cell % columns);
+                right = Math.max(right, cell % columns);
+            }
+        }
+
+        if (bottom < 0) {
+            return new LevelFingerprint(new byte[4], 0);
+        }
+
+        int height = bottom - top + 1;
+        int width = right - left + 1;
+        byte[] best = null;
+        int bestTransform = 0;
+        byte[] candidate = new byte[4 + height * width];
+
+        for (int transform = 0; transform < TRANSFORMS; transform++) {
+            boolean swapped = (transform & 1) == 1;
+            int outRows = swapped ? width : height;
+            int outColumns = swapped ? height : width;
+            candidate[0] = (byte) (outRows >>> 8);
+            candidate[1] = (byte) outRows;
+            candidate[2] = (byte) (outColumns >>> 8);
+            candidate[3] = (byte) outColumns;
+
+            boolean keeperPlaced = false;
+            for (int i = 0; i < outRows; i++) {
+                for (int j = 0; j < outColumns; j++) {
+                    int source = sourceCell(transform, i, j, height, width);
+                    int cell = (top + source / width) * columns + left + source % width;
+                    byte code = area[cell] ? cells[cell] : WALL;
+
+                    if (!keeperPlaced && walkable[cell]) {
+                        keeperPlaced = true;
+                        code = code == GOAL ? KEEPER_ON_GOAL : KEEPER;
+                    }
+                    candidate[4 + i * outColumns + j] = code;
+                }
+            }
+
+            if (best == null || compare(candidate, best) < 0) {
+                best = candidate.clone();
+                bestTransform = transform;
+            }
+        }
+
+        return new LevelFingerprint(best, bestTransform);
+    }
+
+    /**
+     * Returns the cell of the trimmed level, as row * width + column, shown at (i, j) by a transform.
+     * The odd transforms swap the rows with the columns.
+     */
+    private static int sourceCell(int transform, int i, int j, int height, int width) {
+        int row;
+        int col;
+        switch (transform) {
+            case 0: // Identity
+                row = i;
+                col = j;
+                break;
+            case 1: // Rotation by 90 degrees clockwise
+                row = height - 1 - j;
+                col = i;
+                break;
+            case 2: // Rotation by 180 degrees
+                row = height - 1 - i;
+                col = width - 1 - j;
+                break;
+            case 3: // Rotation by 270 degrees clockwise
+                row = j;
+                col = width - 1 - i;
+                break;
+            case 4: // Horizontal reflection
+                row = i;
+                col = width - 1 - j;
+                break;
+            case 5: // Reflection on the main diagonal
+                row = j;
+                col = i;
+                break;
+            case 6: // Vertical reflection
+                row = height - 1 - i;
+                col = j;
+                break;
+            default: // Reflection on the anti-diagonal
+                row = height - 1 - j;
+                col = width - 1 - i;
+                break;
+        }
+
+        return row * width + col;
+    }
+
+    /**
+     * Returns the cells reachable from a cell through the cells whose code is between FLOOR and maxCode.
+     */
+    private static boolean[] flood(int rows, int columns, byte[] cells, int start, byte maxCode) {
+        boolean[] reached = new boolean[cells.length];
+        int[] queue = new int[cells.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        reached[start] = true;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / columns;
+            int col = cell % columns;
+
+            if (row > 0) {
+                tail = visit(cells, reached, queue, tail, cell - columns, maxCode);
+            }
+            if (row < rows - 1) {
+                tail = visit(cells, reached, queue, tail, cell + columns, maxCode);
+            }
+            if (col > 0) {
+                tail = visit(cells, reached, queue, tail, cell - 1, maxCode);
+            }
+            if (col < columns - 1) {
+                tail = visit(cells, reached, queue, tail, cell + 1, maxCode);
+            }
+        }
+
+        return reached;
+    }
+
+    private static int visit(byte[] cells, boolean[] reached, int[] queue, int tail, int cell, byte maxCode) {
+        if (!reached[cell] && cells[cell] != WALL && cells[cell] <= maxCode) {
+            reached[cell] = true;
+            queue[tail++] = cell;
+        }
+
+        return tail;
+    }
+
+    private static boolean[] notWalls(byte[] cells) {
+        boolean[] area = new boolean[cells.length];
+        for (int cell = 0; cell < cells.length; cell++) {
+            area[cell] = cells[cell] != WALL;
+        }
+
+        return area;
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            if (a[i] != b[i]) {
+                return (a[i] & 0xff) - (b[i] & 0xff);
+            }
+        }
+
+        return a.length - b.length;
+    }
+
+    /**
+     * Returns the 64-bit hash of the canonical form.
+     *
+     * @return the hash, never 0
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the rotation or reflection turning the level into its canonical form: 0 is the
+     * identity, 1 to 3 are rotations by 90, 180 and 270 degrees clockwise, 4 and 6 are the
+     * horizontal and vertical reflections, 5 and 7 the reflections on the diagonals.
+     *
+     * @return the transform, from 0 to 7
+     */
+    public int getTransform() {
+        return transform;
+    }
+
+    /**
+     * Returns the number of rows of the canonical form.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return (canonical[0] & 0xff) << 8 | canonical[1] & 0xff;
+    }
+
+    /**
+     * Returns the number of columns of the canonical form.
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return (canonical[2] & 0xff) << 8 | canonical[3] & 0xff;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LevelFingerprint)) {
+            return false;
+        }
+
+        LevelFingerprint other = (LevelFingerprint) o;
+        return hash == other.hash && Arrays.equals(canonical, other.canonical);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x", hash);
+    }
+}
@@ -0,0 +1,431 @@
+package engine;
+
+import engine.events.LevelParseEvent;
+import engine.trace.Trace;
+import engine.trace.TraceEvent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * LevelLayout is the immutable part of a {@link Level}: its walls, its diamonds and the
+ * initial position of the crates and of the warehouse keeper.
+ * <p>
+ * A layout is created once, when the level is parsed, and it is shared by reference by every
+ * copy of the level and by every {@link Board} snapshot taken from them, so a level being
+ * played only needs to store where its crates and its keeper are. Anything that depends only
+ * on the layout, e.g. the analysis used by a solver, can be computed once and attached to the
+ * layout through {@link #getDerived(Class, Function)}.
+ * <p>
+ * The cells are stored in row-major order, so the cell at (row, column) has the index
+ * {@code row * columns + column}.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class LevelLayout {
+
+    /**
+     * The level name
+     */
+    private final String name;
+    /**
+     * The level index
+     */
+    private final int index;
+    /**
+     * The number of rows
+     */
+    private final int rows;
+    /**
+     * The number of columns
+     */
+    private final int columns;
+    /**
+     * The terrain of every cell: a wall, a floor, or null outside the raw level rows
+     */
+    private final GameObject[] terrain;
+    /**
+     * True for every cell that cannot be walked on
+     */
+    private final boolean[] walls;
+    /**
+     * True for every cell containing a diamond
+     */
+    private final boolean[] goals;
+    /**
+     * The total number of diamonds
+     */
+    private final int numberOfDiamonds;
+    /**
+     * The cell indices of the crates at the start of the level, in row-major order
+     */
+    private final int[] initialCrates;
+    /**
+     * The cell index of the warehouse keeper at the start of the level
+     */
+    private final int initialKeeper;
+    /**
+     * The data computed from this layout, by type
+     */
+    private final ConcurrentMap<Class<?>, Object> derived = new ConcurrentHashMap<>(2);
+    /**
+     * The cached hash code
+     */
+    private int hash;
+    /**
+     * The cached content hash, 0 until computed
+     */
+    private long contentHash;
+    /**
+     * The cached hash of the size, terrain and diamonds, 0 until computed
+     */
+    private long cellsContentHash;
+
+    /**
+     * Parses the raw data of a level, where each {@link String} is a row and each char
+     * corresponds to a {@link GameObject}.
+     *
+     * @param levelName  the name of the level
+     * @param levelIndex the number used as index for the levels
+     * @param rawLevel   the raw data of the level
+     */
+    LevelLayout(String levelName, int levelIndex, List<String> rawLevel) {
+        LevelParseEvent event = new LevelParseEvent();
+        event.begin();
+
+        name = levelName;
+        index = levelIndex;
+        rows = rawLevel.size();
+        // Get the first row, trim it to remove any space before and after it, then get its length.
+        columns = rawLevel.get(0).trim().length();
+
+        Trace.record(TraceEvent.LEVEL_CREATED, levelIndex, rows, columns);
+
+        terrain = new GameObject[rows * columns];
+        walls = new boolean[rows * columns];
+        goals = new boolean[rows * columns];
+        int[] crates = new int[rows * columns];
+        int crateCount = 0;
+        int diamonds = 0;
+        int keeper = 0;
+
+        for (int row = 0; row < rows; row++) {
+            String rawRow = rawLevel.get(row);
+
+            // Characters beyond the width of the first row are ignored.
+            for (int col = 0; col < Math.min(rawRow.length(), columns); col++) {
+                int cell = row * columns + col;
+                GameObject tile = GameObject.fromChar(rawRow.charAt(col));
+
+                switch (tile) {
+                    case CRATE_ON_DIAMOND:
+                        goals[cell] = true;
+                        diamonds++;
+                        crates[crateCount++] = cell;
+                        break;
+
+                    case DIAMOND:
+                        goals[cell] = true;
+                        diamonds++;
+                        break;
+
+                    case CRATE:
+                        crates[crateCount++] = cell;
+                        break;
+
+                    case KEEPER:
+                        keeper = cell;
+                        break;
+
+                    default:
+                        break;
+                }
+
+                terrain[cell] = tile == GameObject.WALL || tile == GameObject.DEBUG_OBJECT ? GameObject.WALL : GameObject.FLOOR;
+            }
+        }
+
+        for (int cell = 0; cell < terrain.length; cell++) {
+            walls[cell] = terrain[cell] != GameObject.FLOOR;
+        }
+
+        numberOfDiamonds = diamonds;
+        initialCrates = Arrays.copyOf(crates, crateCount);
+        initialKeeper = keeper;
+
+        if (event.shouldCommit()) {
+            event.levelIndex = levelIndex;
+            event.levelName = levelName;
+            event.rows = rows;
+            event.columns = columns;
+            event.diamonds = numberOfDiamonds;
+            event.commit();
+        }
+    }
+
+    /**
+     * Creates a copy of a layout with a different index, sharing its cells and the data derived from it.
+     *
+     * @param other the layout to be copied
+     * @param index the new level index
+     */
+    private LevelLayout(LevelLayout other, int index) {
+        name = other.name;
+        this.index = index;
+        rows = other.rows;
+        columns = other.columns;
+        terrain = other.terrain;
+        walls = other.walls;
+        goals = other.goals;
+        numberOfDiamonds = other.numberOfDiamonds;
+        initialCrates = other.initialCrates;
+        initialKeeper = other.initialKeeper;
+        hash = other.hash;
+        contentHash = other.contentHash;
+        cellsContentHash = other.cellsContentHash;
+        derived.putAll(other.derived);
+    }
+
+    /**
+     * Returns this layout with a different index, e.g. because a level has been inserted before it.
+     * The cells are shared rather than parsed again.
+     *
+     * @param newIndex the new level index
+     * @return this layout if the index is the same, a copy otherwise
+     */
+    LevelLayout withIndex(int newIndex) {
+        return newIndex == index ? this : new LevelLayout(this, newIndex);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the total number of cells of this layout.
+     *
+     * @return the number of cells
+     */
+    public int getCellCount() {
+        return terrain.length;
+    }
+
+    /**
+     * Returns the index of the cell located at (row, column).
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return the cell index
+     */
+    public int cellOf(int row, int column) {
+        return row * columns + column;
+    }
+
+    /**
+     * Returns true if the cell (row, column) is inside this layout.
+     *
+     * @param row    the row of the cell
+     * @param column the column of the cell
+     * @return true if the cell exists, false otherwise
+     */
+    public boolean contains(int row, int column) {
+        return row >= 0 && column >= 0 && row < rows && column < columns;
+    }
+
+    /**
+     * Returns the terrain of a cell.
+     *
+     * @param cell the cell index
+     * @return {@link GameObject#WALL}, {@link GameObject#FLOOR}, or null if the cell is
+     * outside the raw level rows
+     */
+    public GameObject getTerrain(int cell) {
+        return terrain[cell];
+    }
+
+    public boolean isWall(int cell) {
+        return walls[cell];
+    }
+
+    public boolean isGoal(int cell) {
+        return goals[cell];
+    }
+
+    public int getNumberOfDiamonds() {
+        return numberOfDiamonds;
+    }
+
+    public int getInitialKeeper() {
+        return initialKeeper;
+    }
+
+    /**
+     * Returns the cells of the crates at the start of the level.
+     *
+     * @return a new array containing the crate cells in row-major order
+     */
+    public int[] getInitialCrates() {
+        return initialCrates.clone();
+    }
+
+    /**
+     * Returns the data computed from this layout, computing it the first time it is requested.
+     * The data is kept as long as the layout, so it must not refer to a particular position.
+     *
+     * @param type    the type of the data
+     * @param factory the function computing the data from this layout
+     * @param <T>     the type of the data
+     * @return the data computed from this layout
+     */
+    public <T> T getDerived(Class<T> type, Function<LevelLayout, T> factory) {
+        return type.cast(derived.computeIfAbsent(type, key -> factory.apply(this)));
+    }
+
+    /**
+     * Returns true if the other layout has the same walls and diamonds as this one.
+     *
+     * @param other the layout to compare
+     * @return true if the cells are the same, false otherwise
+     */
+    public boolean hasSameCells(LevelLayout other) {
+        return other == this || other != null
+                && columns == other.columns
+                && Arrays.equals(walls, other.walls)
+                && Arrays.equals(goals, other.goals);
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the content of this layout: its size, its terrain, its diamonds
+     * and the initial position of the crates and of the keeper. The name and the index are not part
+     * of the hash, so the same level has the same hash in every game file.
+     *
+     * @return the content hash, never 0
+     */
+    public long getContentHash() {
+        long h = contentHash;
+        if (h == 0) {
+            h = getCellsContentHash();
+            for (int crate : initialCrates) {
+                h = fnv(h, crate);
+            }
+            h = fnv(h, initialKeeper);
+
+            // 0 marks a hash that has not been computed yet.
+            contentHash = h == 0 ? 1 : h;
+        }
+
+        return contentHash;
+    }
+
+    /**
+     * Returns the first part of the content hash: the FNV-1a hash of the size, the terrain and the
+     * diamonds, which {@link Board#getContentHash()} continues with the position of a snapshot.
+     *
+     * @return the hash of the cells
+     */
+    long getCellsContentHash() {
+        long h = cellsContentHash;
+        if (h == 0) {
+            h = fnv(0xcbf29ce484222325L, rows);
+            h = fnv(h, columns);
+            for (int cell = 0; cell < terrain.length; cell++) {
+                h = fnv(h, (terrain[cell] == null ? 0 : terrain[cell].ordinal() + 1) << 1 | (goals[cell] ? 1 : 0));
+            }
+
+            // The hash of the cells is never 0 in practice, and recomputing it would only cost time.
+            cellsContentHash = h;
+        }
+
+        return h;
+    }
+
+    /**
+     * Returns the content hash of a level without parsing it into a layout. The hash is the one
+     * returned by {@link #getContentHash()} for the layout of the same rows.
+     *
+     * @param rawLevel the rows of the level as read by the {@link LevelPackParser}
+     * @return the content hash, never 0
+     */
+    public static long contentHashOf(List<String> rawLevel) {
+        int rows = rawLevel.size();
+        int columns = rawLevel.get(0).trim().length();
+        int keeper = 0;
+
+        long h = fnv(0xcbf29ce484222325L, rows);
+        h = fnv(h, columns);
+        for (int row = 0; row < rows; row++) {
+            String rawRow = rawLevel.get(row);
+            int width = Math.min(rawRow.length(), columns);
+
+            for (int col = 0; col < columns; col++) {
+                if (col >= width) {
+                    h = fnv(h, 0);
+                    continue;
+                }
+
+                GameObject tile = GameObject.fromChar(rawRow.charAt(col));
+                GameObject terrain = tile == GameObject.WALL || tile == GameObject.DEBUG_OBJECT ? GameObject.WALL : GameObject.FLOOR;
+                boolean goal = tile == GameObject.DIAMOND || tile == GameObject.CRATE_ON_DIAMOND;
+                h = fnv(h, (terrain.ordinal() + 1) << 1 | (goal ? 1 : 0));
+
+                if (tile == GameObject.KEEPER) {
+                    keeper = row * columns + col;
+                }
+            }
+        }
+
+        // The crates come after all the cells, in row-major order.
+        for (int row = 0; row < rows; row++) {
+            String rawRow = rawLevel.get(row);
+            for (int col = 0; col < Math.min(rawRow.length(), columns); col++) {
+                GameObject tile = GameObject.fromChar(rawRow.charAt(col));
+                if (tile == GameObject.CRATE || tile == GameObject.CRATE_ON_DIAMOND) {
+                    h = fnv(h, row * columns + col);
+                }
+            }
+        }
+        h = fnv(h, keeper);
+
+        return h == 0 ? 1 : h;
+    }
+
+    static long fnv(long h, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            h ^= (value >>> shift) & 0xff;
+            h *= 0x100000001b3L;
+        }
+
+        return h;
+    }
+
+    /**
+     * Returns the hash code of the walls and diamonds of this layout.
+     *
+     * @return the hash code of the cells
+     */
+    int cellsHashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * Arrays.hashCode(walls) + Arrays.hashCode(goals);
+            hash = h;
+        }
+
+        return h;
+    }
+}
@@ -0,0 +1,162 @@
+package engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LevelPackDiff compares a game file with the levels previously loaded from it, so that only
+ * the levels whose text changed are built again when the game file is reloaded.
+ * <p>
+ * The game file is read as {@link RawLevel}s and the content hash of each of them is compared
+ * with the {@link LevelLayout#getContentHash()} of the previous levels. A level with the same name
+ * and content is kept as it is if it did not move, or re-indexed sharing its cells if it did, e.g.
+ * because a level has been inserted before it. The other levels are parsed.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class LevelPackDiff {
+
+    private final String mapSetName;
+    private final List<Level> levels;
+    /**
+     * The number of levels kept as they were, re-indexed and parsed
+     */
+    private final int kept;
+    private final int moved;
+    private final int parsed;
+    /**
+     * The number of previous levels not found in the game file
+     */
+    private final int removed;
+
+    private LevelPackDiff(String mapSetName, List<Level> levels, int kept, int moved, int parsed, int removed) {
+        this.mapSetName = mapSetName;
+        this.levels = Collections.unmodifiableList(levels);
+        this.kept = kept;
+        this.moved = moved;
+        this.parsed = parsed;
+        this.removed = removed;
+    }
+
+    /**
+     * Reads a game file, reusing the previous levels that did not change.
+     *
+     * @param previous the levels previously loaded from the game file, in their initial position
+     * @param input    the stream containing the new version of the game file
+     * @return the difference
+     * @throws IOException if the game file cannot be read
+     */
+    public static LevelPackDiff compute(List<Level> previous, InputStream input) throws IOException {
+        Map<Long, List<Level>> byContent = new HashMap<>();
+        for (Level level : previous) {
+            byContent.computeIfAbsent(level.getLayout().getContentHash(), hash -> new ArrayList<>(1)).add(level);
+        }
+
+        List<Level> levels = new ArrayList<>(previous.size());
+        int kept = 0;
+        int moved = 0;
+        int parsed = 0;
+
+        try (LevelPackParser parser = new LevelPackParser(input)) {
+            for (RawLevel raw = parser.nextRawLevel(); raw != null; raw = parser.nextRawLevel()) {
+                Level match = raw.getRows().isEmpty() ? null : take(byContent.get(LevelLayout.contentHashOf(raw.getRows())), raw);
+
+                if (match == null) {
+                    levels.add(new Level(raw.getName(), raw.getIndex(), raw.getRows()));
+                    parsed++;
+                } else if (match.getIndex() == raw.getIndex()) {
+                    levels.add(match);
+                    kept++;
+                } else {
+                    levels.add(new Level(match.getLayout().withIndex(raw.getIndex())));
+                    moved++;
+                }
+            }
+
+            return new LevelPackDiff(parser.getMapSetName(), levels, kept, moved, parsed, previous.size() - kept - moved);
+        }
+    }
+
+    /**
+     * Removes from the candidates the level with the same name as the raw level, preferring
+     * the one at the same index.
+     *
+     * @return the level removed, or null if none matches
+     */
+    private static Level take(List<Level> candidates, RawLevel raw) {
+        if (candidates == null) {
+            return null;
+        }
+
+        Level match = null;
+        for (Level candidate : candidates) {
+            if (Objects.equals(candidate.getName(), raw.getName())
+                    && (match == null || candidate.getIndex() == raw.getIndex())) {
+                match = candidate;
+            }
+        }
+
+        if (match != null) {
+            for (Iterator<Level> iterator = candidates.iterator(); iterator.hasNext(); ) {
+                if (iterator.next() == match) {
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+
+        return match;
+    }
+
+    public String getMapSetName() {
+        return mapSetName;
+    }
+
+    /**
+     * Returns the levels of the new version of the game file.
+     *
+     * @return the levels, in their initial position
+     */
+    public List<Level> getLevels() {
+        return levels;
+    }
+
+    public int getKept() {
+        return kept;
+    }
+
+    public int getMoved() {
+        return moved;
+    }
+
+    public int getParsed() {
+        return parsed;
+    }
+
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Returns true if the game file contains exactly the previous levels.
+     *
+     * @return true if nothing changed
+     */
+    public boolean isUnchanged() {
+        return parsed == 0 && moved == 0 && removed == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d levels: %d unchanged, %d moved, %d parsed, %d removed",
+                levels.size(), kept, moved, parsed, removed);
+    }
+}
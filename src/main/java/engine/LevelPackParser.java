@@ -0,0 +1,257 @@
+package engine;
+
+import engine.metrics.EngineMetrics;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LevelPackParser reads a game file one {@link Level} at a time.
+ * <p>
+ * Levels are returned as soon as they are parsed, so a caller can start using the first
+ * level while the rest of the file is still being read, keep track of the progress through
+ * {@link #getBytesRead()} and stop reading at any time.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class LevelPackParser implements Closeable {
+
+    /**
+     * The stream counting the bytes read from the game file
+     */
+    private final CountingInputStream counter;
+    /**
+     * The reader used to read the game file
+     */
+    private final BufferedReader reader;
+    /**
+     * The rows of the level being parsed
+     */
+    private List<String> rawLevel = new ArrayList<>();
+    /**
+     * The line number of each row of the level being parsed
+     */
+    private List<Integer> rowLines = new ArrayList<>();
+    /**
+     * The lines of the level being parsed that are not level rows, and their line numbers
+     */
+    private List<String> skippedLines = new ArrayList<>();
+    private List<Integer> skippedLineNumbers = new ArrayList<>();
+    /**
+     * The number of lines read
+     */
+    private int lineNumber = 0;
+    /**
+     * The map set name
+     */
+    private String mapSetName;
+    /**
+     * The name of the level being parsed
+     */
+    private String levelName = "";
+    /**
+     * The index of the last parsed level
+     */
+    private int levelIndex = 0;
+    /**
+     * True once the first level name has been read
+     */
+    private boolean parsedFirstLevel = false;
+    /**
+     * True once the end of the file has been reached
+     */
+    private boolean finished = false;
+
+    /**
+     * Creates a parser reading the levels from a stream.
+     *
+     * @param input the stream containing the game levels
+     */
+    public LevelPackParser(InputStream input) {
+        if (input == null) {
+            throw new NullPointerException("The game file stream cannot be null.");
+        }
+
+        counter = new CountingInputStream(input);
+        reader = new BufferedReader(new InputStreamReader(counter));
+    }
+
+    /**
+     * Returns true if the line contains at least two walls, i.e. it is a row of a level.
+     *
+     * @param line the line to be checked
+     * @return true if the line is a level row, false otherwise
+     */
+    private static boolean isLevelRow(String line) {
+        int firstWall = line.indexOf('W');
+        return firstWall >= 0 && line.indexOf('W', firstWall + 1) >= 0;
+    }
+
+    /**
+     * Parses the next level of the game file.
+     *
+     * @return the next level, or null if there are no more levels
+     * @throws IOException if the game file cannot be read
+     */
+    public Level nextLevel() throws IOException {
+        long start = System.nanoTime();
+        RawLevel raw = nextRawLevel();
+        if (raw == null) {
+            return null;
+        }
+
+        Level level = new Level(raw.getName(), raw.getIndex(), raw.getRows());
+        EngineMetrics.get().recordLevelParsed(System.nanoTime() - start);
+        return level;
+    }
+
+    /**
+     * Reads the next level of the game file without building it, keeping track of the
+     * line numbers and of the lines ignored, so that the level can be validated.
+     *
+     * @return the next raw level, or null if there are no more levels
+     * @throws IOException if the game file cannot be read
+     */
+    public RawLevel nextRawLevel() throws IOException {
+        while (!finished) {
+            String line = reader.readLine();
+            lineNumber++;
+
+            // If the EOF is reached and the list is not empty, the last level has not been parsed yet.
+            if (line == null) {
+                finished = true;
+                return rawLevel.isEmpty() ? null : createLevel();
+            }
+
+            // If the line contains the map set name, save it
+            if (line.contains("MapSetName")) {
+                mapSetName = line.replace("MapSetName: ", "");
+                continue;
+            }
+
+            // If the line contains the level name, the previous level (if any) is complete.
+            if (line.contains("LevelName")) {
+                RawLevel parsedLevel = parsedFirstLevel ? createLevel() : null;
+                parsedFirstLevel = true;
+
+                // Get the level name by removing "LevelName:"
+                levelName = line.replace("LevelName: ", "");
+                if (parsedLevel != null) {
+                    return parsedLevel;
+                }
+                continue;
+            }
+
+            String row = line.trim().toUpperCase();
+            if (isLevelRow(row)) {
+                rawLevel.add(row);
+                rowLines.add(lineNumber);
+            } else if (!row.isEmpty() && parsedFirstLevel) {
+                skippedLines.add(line);
+                skippedLineNumbers.add(lineNumber);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses every remaining level of the game file.
+     *
+     * @return the list of levels
+     * @throws IOException if the game file cannot be read
+     */
+    public List<Level> readAll() throws IOException {
+        List<Level> levels = new ArrayList<>(5);
+        for (Level level = nextLevel(); level != null; level = nextLevel()) {
+            levels.add(level);
+        }
+
+        return levels;
+    }
+
+    private RawLevel createLevel() {
+        RawLevel level = new RawLevel(levelName, ++levelIndex, rawLevel, rowLines, skippedLines, skippedLineNumbers);
+        rawLevel = new ArrayList<>();
+        rowLines = new ArrayList<>();
+        skippedLines = new ArrayList<>();
+        skippedLineNumbers = new ArrayList<>();
+        return level;
+    }
+
+    /**
+     * Returns the map set name, if it has been read already.
+     *
+     * @return the map set name, or null
+     */
+    public String getMapSetName() {
+        return mapSetName;
+    }
+
+    /**
+     * Returns the number of levels parsed so far.
+     *
+     * @return the number of parsed levels
+     */
+    public int getLevelsParsed() {
+        return levelIndex;
+    }
+
+    /**
+     * Returns the number of bytes read from the game file so far.
+     *
+     * @return the number of bytes read
+     */
+    public long getBytesRead() {
+        return counter.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * CountingInputStream counts the bytes read from the wrapped stream.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package engine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * LevelPackWriter writes levels in the game file format read by {@link LevelPackParser}.
+ * <p>
+ * Levels are written in their current position. The format has no symbol for the keeper
+ * standing on a diamond, so the diamond below the keeper is lost.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class LevelPackWriter {
+
+    private LevelPackWriter() {
+    }
+
+    /**
+     * Writes a game file.
+     *
+     * @param output     the stream the game file is written to, left open
+     * @param mapSetName the map set name
+     * @param levels     the levels to be written
+     * @throws IOException if the game file cannot be written
+     */
+    public static void write(OutputStream output, String mapSetName, List<Level> levels) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write("MapSetName: " + mapSetName);
+        writer.newLine();
+
+        for (Level level : levels) {
+            writer.write("LevelName: " + level.getName());
+            writer.newLine();
+            writer.write(level.toBoard().toString().replace("\n", System.lineSeparator()));
+            writer.newLine();
+        }
+
+        writer.flush();
+    }
+}
@@ -0,0 +1,45 @@
+package engine;
+
+/**
+ * MoveListener is notified by {@link GameEngine} every time the warehouse keeper moves.
+ * <p>
+ * Listeners are called on the thread that is driving the engine, so they should
+ * return quickly and hand any expensive work over to another thread.
+ */
+public interface MoveListener {
+
+    /**
+     * Called after the keeper has moved. If the move completes the level, this is called
+     * before {@link #levelStarted(Level)} is called for the next level.
+     *
+     * @param direction the direction of the movement
+     * @param cratePushed true if the keeper pushed a crate
+     */
+    void keeperMoved(Direction direction, boolean cratePushed);
+
+    /**
+     * Called after a move has been undone.
+     *
+     * @param direction   the direction of the move that has been undone
+     * @param cratePulled true if the crate pushed by the move has been pulled back
+     */
+    default void moveUndone(Direction direction, boolean cratePulled) {
+    }
+
+    /**
+     * Called after the current level has been restarted.
+     *
+     * @param level the restarted level
+     */
+    default void levelReset(Level level) {
+    }
+
+    /**
+     * Called when the engine moves on to another level, after completing one or
+     * because the level has been chosen with {@link GameEngine#selectLevel(int)}.
+     *
+     * @param level the new current level
+     */
+    default void levelStarted(Level level) {
+    }
+}
@@ -0,0 +1,80 @@
+package engine;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * RawLevel holds a level as read from a game file by {@link LevelPackParser}, before it is
+ * turned into a {@link Level}: its rows, the line number of each row and the lines between
+ * the rows that have been ignored because they are not level rows.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class RawLevel {
+
+    private final String name;
+    private final int index;
+    /**
+     * The rows, trimmed and upper case
+     */
+    private final List<String> rows;
+    private final List<Integer> rowLines;
+    private final List<String> skippedLines;
+    private final List<Integer> skippedLineNumbers;
+
+    RawLevel(String name, int index, List<String> rows, List<Integer> rowLines,
+             List<String> skippedLines, List<Integer> skippedLineNumbers) {
+        this.name = name;
+        this.index = index;
+        this.rows = Collections.unmodifiableList(rows);
+        this.rowLines = Collections.unmodifiableList(rowLines);
+        this.skippedLines = Collections.unmodifiableList(skippedLines);
+        this.skippedLineNumbers = Collections.unmodifiableList(skippedLineNumbers);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the rows of the level, trimmed and converted to upper case.
+     *
+     * @return the rows
+     */
+    public List<String> getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the line number of a row in the game file.
+     *
+     * @param row the row
+     * @return the line number, starting from 1
+     */
+    public int getLineOf(int row) {
+        return rowLines.get(row);
+    }
+
+    /**
+     * Returns the lines ignored while reading the level.
+     *
+     * @return the ignored lines
+     */
+    public List<String> getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * Returns the line numbers of the lines ignored while reading the level.
+     *
+     * @return the line numbers, in the same order as {@link #getSkippedLines()}
+     */
+    public List<Integer> getSkippedLineNumbers() {
+        return skippedLineNumbers;
+    }
+}
@@ -0,0 +1,228 @@
+package engine.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AnalysisCache keeps the results of expensive per-level computations, e.g. solutions or
+ * difficulty scores, across runs, so that analysing the same levels again is nearly free.
+ * <p>
+ * An entry is identified by a content hash, such as {@code LevelLayout.getContentHash()} or
+ * {@code Board.getContentHash()}, and by the kind of data, chosen by the code computing it. The
+ * entries are stored in an append-only {@link CacheFile} bounded in size, and the most recently used
+ * ones are also kept in memory. The cache can be used by several threads at the same time; two threads
+ * missing the same entry at the same time both compute it, and the last one to store it wins.
+ * <p>
+ * The file and its maximum size can be changed with the "sokoban.cache" and "sokoban.cache.size"
+ * system properties, the latter expressed in megabytes.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class AnalysisCache implements Closeable {
+
+    /**
+     * The default cache file, in the working directory
+     */
+    public static final String DEFAULT_FILE = ".sokoban-cache";
+    /**
+     * The default maximum size of the cache file, in bytes
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    /**
+     * The default number of entries kept in memory
+     */
+    public static final int DEFAULT_MEMORY_ENTRIES = 1024;
+
+    /**
+     * The computation of an entry missing from the cache
+     */
+    @FunctionalInterface
+    public interface Computation {
+
+        /**
+         * Computes the data of an entry.
+         *
+         * @return the data, or null if it should not be stored
+         * @throws IOException if the data cannot be computed
+         */
+        byte[] compute() throws IOException;
+    }
+
+    private final CacheFile store;
+    /**
+     * The most recently used entries, in access order, guarded by itself
+     */
+    private final Map<CacheKey, byte[]> memory;
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder fileHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private AnalysisCache(CacheFile store, int memoryEntries) {
+        this.store = store;
+        memory = new LinkedHashMap<CacheKey, byte[]>(Math.min(memoryEntries, 1024) * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, byte[]> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+    }
+
+    /**
+     * Opens a cache, creating its file if it does not exist.
+     *
+     * @param file          the cache file
+     * @param maxBytes      the maximum size of the cache file, in bytes
+     * @param memoryEntries the maximum number of entries kept in memory
+     * @return the cache
+     * @throws IOException if the cache file cannot be opened
+     */
+    public static AnalysisCache open(Path file, long maxBytes, int memoryEntries) throws IOException {
+        if (maxBytes <= CacheFile.HEADER_SIZE || memoryEntries < 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + maxBytes + " bytes, " + memoryEntries + " entries");
+        }
+
+        return new AnalysisCache(CacheFile.open(file, maxBytes), memoryEntries);
+    }
+
+    /**
+     * Opens the cache configured by the "sokoban.cache" and "sokoban.cache.size" system properties.
+     *
+     * @return the cache
+     * @throws IOException if the cache file cannot be opened
+     */
+    public static AnalysisCache fromSystemProperties() throws IOException {
+        Path file = Paths.get(System.getProperty("sokoban.cache", DEFAULT_FILE));
+        long maxBytes = Long.getLong("sokoban.cache.size", DEFAULT_MAX_BYTES >> 20) << 20;
+        return open(file, maxBytes, DEFAULT_MEMORY_ENTRIES);
+    }
+
+    /**
+     * Returns the data of an entry.
+     *
+     * @param contentHash the content hash of the level or position
+     * @param kind        the kind of data
+     * @return a copy of the data, or null if the entry is not in the cache
+     * @throws IOException if the cache file cannot be read
+     */
+    public byte[] get(long contentHash, int kind) throws IOException {
+        CacheKey key = new CacheKey(contentHash, kind);
+        byte[] data;
+        synchronized (memory) {
+            data = memory.get(key);
+        }
+
+        if (data != null) {
+            memoryHits.increment();
+            store.touch(key);
+            return data.clone();
+        }
+
+        data = store.read(key);
+        if (data == null) {
+            misses.increment();
+            return null;
+        }
+
+        fileHits.increment();
+        synchronized (memory) {
+            memory.put(key, data);
+        }
+        return data.clone();
+    }
+
+    /**
+     * Stores the data of an entry, replacing the previous data of the same entry.
+     *
+     * @param contentHash the content hash of the level or position
+     * @param kind        the kind of data
+     * @param data        the data, which is copied
+     * @throws IOException if the cache file cannot be written
+     */
+    public void put(long contentHash, int kind, byte[] data) throws IOException {
+        CacheKey key = new CacheKey(contentHash, kind);
+        byte[] copy = data.clone();
+        if (store.write(key, copy)) {
+            synchronized (memory) {
+                memory.put(key, copy);
+            }
+        }
+    }
+
+    /**
+     * Returns the data of an entry, computing and storing it if it is not in the cache.
+     * The computation runs on the calling thread, without holding any lock.
+     *
+     * @param contentHash the content hash of the level or position
+     * @param kind        the kind of data
+     * @param computation the computation of the data
+     * @return the data, or null if it is not in the cache and the computation returned null
+     * @throws IOException if the cache file cannot be used or the data cannot be computed
+     */
+    public byte[] computeIfAbsent(long contentHash, int kind, Computation computation) throws IOException {
+        byte[] data = get(contentHash, kind);
+        if (data == null) {
+            data = computation.compute();
+            if (data != null) {
+                put(contentHash, kind, data);
+            }
+        }
+
+        return data;
+    }
+
+    /**
+     * Returns the number of entries in the cache file.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return store.size();
+    }
+
+    public long getFileSize() {
+        return store.getFileSize();
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getFileHits() {
+        return fileHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries dropped to keep the cache file within its maximum size.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return store.getEvictions();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entries, %d bytes: %d memory hits, %d file hits, %d misses, %d evictions",
+                size(), getFileSize(), getMemoryHits(), getFileHits(), getMisses(), getEvictions());
+    }
+
+    /**
+     * Writes the entries to the disk and closes the cache file.
+     *
+     * @throws IOException if the cache file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+}
@@ -0,0 +1,369 @@
+package engine.cache;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * CacheFile is the append-only store behind an {@link AnalysisCache}.
+ * <p>
+ * The file starts with a magic number and a version, followed by the records. Every record holds
+ * the length of its data, the key, a CRC-32 of the key and the data, and then the data. A record is
+ * never modified: storing a key again appends a new record, which hides the previous one. When the file
+ * is opened the records are scanned to rebuild the index, and the file is truncated at the first
+ * record that is incomplete or corrupt, e.g. because the process stopped while appending it.
+ * <p>
+ * When the file grows beyond its maximum size it is compacted: the most recently used entries are
+ * copied to a temporary file, up to half the maximum size, which is then moved in place. Reads run
+ * concurrently with each other, while appends and compactions are exclusive. The file must only be
+ * used by one process at a time.
+ */
+final class CacheFile implements Closeable {
+
+    /**
+     * "SKBCACHE" in ASCII
+     */
+    static final long MAGIC = 0x534B424341434845L;
+    static final int VERSION = 1;
+    /**
+     * The size of the file header: the magic number and the version
+     */
+    static final int HEADER_SIZE = 12;
+    /**
+     * The size of the record header: the data length, the content hash, the kind and the CRC
+     */
+    static final int RECORD_HEADER_SIZE = 20;
+
+    /**
+     * The location of the data of a key in the file
+     */
+    private static final class Entry {
+        final long offset;
+        final int length;
+        /**
+         * The value of the access clock when the entry was last used
+         */
+        volatile long lastUse;
+
+        Entry(long offset, int length, long lastUse) {
+            this.offset = offset;
+            this.length = length;
+            this.lastUse = lastUse;
+        }
+
+        long recordSize() {
+            return RECORD_HEADER_SIZE + length;
+        }
+    }
+
+    private final Path file;
+    private final long maxBytes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<CacheKey, Entry> index = new HashMap<>();
+    /**
+     * The access clock, ordering the uses of the entries
+     */
+    private final AtomicLong clock = new AtomicLong();
+    private FileChannel channel;
+    /**
+     * The size of the file, where the next record is appended
+     */
+    private long end;
+    /**
+     * The number of entries dropped by the compactions
+     */
+    private long evictions;
+
+    private CacheFile(Path file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Opens a cache file, creating it if it does not exist. A file that is not a cache file
+     * of this version is emptied.
+     *
+     * @param file     the cache file
+     * @param maxBytes the size beyond which the file is compacted
+     * @return the cache file
+     * @throws IOException if the file cannot be opened or created
+     */
+    static CacheFile open(Path file, long maxBytes) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        CacheFile cacheFile = new CacheFile(file, maxBytes);
+        cacheFile.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            cacheFile.scan();
+        } catch (IOException e) {
+            cacheFile.channel.close();
+            throw e;
+        }
+
+        return cacheFile;
+    }
+
+    /**
+     * Rebuilds the index from the records, dropping everything after the first invalid one.
+     */
+    private void scan() throws IOException {
+        long valid = HEADER_SIZE;
+        boolean headerValid = false;
+
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            headerValid = data.readLong() == MAGIC && data.readInt() == VERSION;
+            byte[] buffer = new byte[256];
+            CRC32 crc = new CRC32();
+
+            while (headerValid) {
+                int length = data.readInt();
+                long contentHash = data.readLong();
+                int kind = data.readInt();
+                int checksum = data.readInt();
+                if (length < 0 || valid + RECORD_HEADER_SIZE + length > channel.size()) {
+                    break;
+                }
+
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                data.readFully(buffer, 0, length);
+                if (checksum != checksum(crc, contentHash, kind, buffer, length)) {
+                    break;
+                }
+
+                Entry entry = new Entry(valid + RECORD_HEADER_SIZE, length, 0);
+                index.put(new CacheKey(contentHash, kind), entry);
+                valid += entry.recordSize();
+            }
+        } catch (EOFException e) {
+            // The last record is incomplete, or the file is new.
+        }
+
+        if (!headerValid) {
+            index.clear();
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(MAGIC).putInt(VERSION);
+            header.flip();
+            writeFully(channel, header, 0);
+            valid = HEADER_SIZE;
+        } else if (valid < channel.size()) {
+            channel.truncate(valid);
+        }
+
+        end = valid;
+    }
+
+    private static int checksum(CRC32 crc, long contentHash, int kind, byte[] data, int length) {
+        crc.reset();
+        ByteBuffer key = ByteBuffer.allocate(12).putLong(contentHash).putInt(kind);
+        crc.update(key.array(), 0, 12);
+        crc.update(data, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Reads the data of a key.
+     *
+     * @param key the key
+     * @return the data, or null if the key is not in the file
+     * @throws IOException if the file cannot be read
+     */
+    byte[] read(CacheKey key) throws IOException {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            ByteBuffer data = ByteBuffer.allocate(entry.length);
+            while (data.hasRemaining()) {
+                if (channel.read(data, entry.offset + data.position()) < 0) {
+                    throw new EOFException("The cache file " + file + " has been truncated");
+                }
+            }
+            entry.lastUse = clock.incrementAndGet();
+
+            return data.array();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks a key as used, e.g. because its data has been found in memory, so that it is kept
+     * by the next compaction.
+     *
+     * @param key the key
+     */
+    void touch(CacheKey key) {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(key);
+            if (entry != null) {
+                entry.lastUse = clock.incrementAndGet();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the data of a key, compacting the file if it grows beyond its maximum size.
+     * Data larger than half the maximum size is not stored, as it would not survive a compaction.
+     *
+     * @param key  the key
+     * @param data the data
+     * @return true if the data has been stored
+     * @throws IOException if the file cannot be written
+     */
+    boolean write(CacheKey key, byte[] data) throws IOException {
+        if (RECORD_HEADER_SIZE + data.length > maxBytes / 2) {
+            return false;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + data.length);
+        record.putInt(data.length).putLong(key.contentHash).putInt(key.kind)
+                .putInt(checksum(new CRC32(), key.contentHash, key.kind, data, data.length))
+                .put(data);
+        record.flip();
+
+        lock.writeLock().lock();
+        try {
+            writeFully(channel, record, end);
+            index.put(key, new Entry(end + RECORD_HEADER_SIZE, data.length, clock.incrementAndGet()));
+            end += record.limit();
+
+            if (end > maxBytes) {
+                compact();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the file keeping the most recently used entries, up to half the maximum size.
+     * It must be called holding the write lock.
+     */
+    private void compact() throws IOException {
+        List<Map.Entry<CacheKey, Entry>> entries = new ArrayList<>(index.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().lastUse, a.getValue().lastUse));
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<CacheKey, Entry> kept = new HashMap<>();
+        long size = HEADER_SIZE;
+
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(MAGIC).putInt(VERSION);
+            header.flip();
+            writeFully(output, header, 0);
+
+            for (Map.Entry<CacheKey, Entry> mapping : entries) {
+                Entry entry = mapping.getValue();
+                if (size + entry.recordSize() > maxBytes / 2) {
+                    continue;
+                }
+
+                // The record is copied as it is, header and checksum included.
+                long copied = 0;
+                while (copied < entry.recordSize()) {
+                    copied += channel.transferTo(entry.offset - RECORD_HEADER_SIZE + copied,
+                            entry.recordSize() - copied, output.position(size + copied));
+                }
+
+                kept.put(mapping.getKey(), new Entry(size + RECORD_HEADER_SIZE, entry.length, entry.lastUse));
+                size += entry.recordSize();
+            }
+            output.force(false);
+        }
+
+        // The channel is closed first, as some platforms cannot replace a file that is open. If the move
+        // fails, the original file is still in place and the index still describes it, so it is reopened.
+        channel.close();
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Files.deleteIfExists(temporary);
+        }
+
+        evictions += index.size() - kept.size();
+        index.clear();
+        index.putAll(kept);
+        end = size;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long getFileSize() {
+        lock.readLock().lock();
+        try {
+            return end;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long getEvictions() {
+        lock.readLock().lock();
+        try {
+            return evictions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the records to the disk and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package engine.cache;
+
+/**
+ * CacheKey identifies an entry of an {@link AnalysisCache}: the content hash of a level or of a
+ * position, and the kind of data computed from it.
+ */
+final class CacheKey {
+
+    final long contentHash;
+    final int kind;
+
+    CacheKey(long contentHash, int kind) {
+        this.contentHash = contentHash;
+        this.kind = kind;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheKey)) {
+            return false;
+        }
+
+        CacheKey other = (CacheKey) o;
+        return contentHash == other.contentHash && kind == other.kind;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(contentHash) + kind;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x/%d", contentHash, kind);
+    }
+}
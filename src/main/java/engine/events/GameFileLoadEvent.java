@@ -0,0 +1,30 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when a whole game file has been loaded.
+ */
+@Name("sokoban.GameFileLoad")
+@Label("Game File Load")
+@Category({"SokobanFX", "Engine"})
+@Description("The parsing of a game file containing a set of levels")
+@StackTrace(false)
+public class GameFileLoadEvent extends Event {
+
+    @Label("Map Set Name")
+    public String mapSetName;
+
+    @Label("Levels")
+    public int levels;
+
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytesRead;
+}
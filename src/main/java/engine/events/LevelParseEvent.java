@@ -0,0 +1,34 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted by the {@link engine.Level} constructor.
+ */
+@Name("sokoban.LevelParse")
+@Label("Level Parse")
+@Category({"SokobanFX", "Engine"})
+@Description("The creation of a level from its raw rows")
+@StackTrace(false)
+public class LevelParseEvent extends Event {
+
+    @Label("Level Index")
+    public int levelIndex;
+
+    @Label("Level Name")
+    public String levelName;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Columns")
+    public int columns;
+
+    @Label("Diamonds")
+    public int diamonds;
+}
@@ -0,0 +1,38 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted by {@link engine.GameEngine} for every move of the keeper.
+ */
+@Name("sokoban.Move")
+@Label("Keeper Move")
+@Category({"SokobanFX", "Engine"})
+@Description("A movement of the warehouse keeper handled by the game engine")
+@StackTrace(false)
+public class MoveEvent extends Event {
+
+    @Label("Level Index")
+    public int levelIndex;
+
+    @Label("Direction")
+    public String direction;
+
+    @Label("Keeper Moved")
+    public boolean keeperMoved;
+
+    @Label("Crate Pushed")
+    public boolean cratePushed;
+
+    @Label("Cells Touched")
+    @Description("The number of grid cells updated by the move")
+    public int cellsTouched;
+
+    @Label("Level Complete")
+    public boolean levelComplete;
+}
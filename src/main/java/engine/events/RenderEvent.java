@@ -0,0 +1,25 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted for every render of the game grid.
+ */
+@Name("sokoban.Render")
+@Label("Grid Render")
+@Category({"SokobanFX", "Rendering"})
+@Description("A full render of the game grid")
+@StackTrace(false)
+public class RenderEvent extends Event {
+
+    @Label("Level Index")
+    public int levelIndex;
+
+    @Label("Cells Rendered")
+    public int cellsRendered;
+}
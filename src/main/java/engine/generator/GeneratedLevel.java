@@ -0,0 +1,75 @@
+package engine.generator;
+
+import engine.Level;
+
+/**
+ * GeneratedLevel is a level built by {@link LevelGenerator}, with its difficulty metrics.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class GeneratedLevel {
+
+    /**
+     * The weight of a box line change in the score, compared to a single push
+     */
+    static final int BOX_LINE_WEIGHT = 4;
+
+    private final Level level;
+    /**
+     * The number of pushes of the known solution
+     */
+    private final int pushes;
+    /**
+     * The number of times the known solution starts pushing another crate or changes direction
+     */
+    private final int boxLineChanges;
+    /**
+     * True if the metrics come from a solver, false if they come from the generation path
+     */
+    private final boolean solved;
+
+    GeneratedLevel(Level level, int pushes, int boxLineChanges, boolean solved) {
+        this.level = level;
+        this.pushes = pushes;
+        this.boxLineChanges = boxLineChanges;
+        this.solved = solved;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public int getPushes() {
+        return pushes;
+    }
+
+    public int getBoxLineChanges() {
+        return boxLineChanges;
+    }
+
+    /**
+     * Returns true if the metrics have been measured on a solution found by the solver.
+     * Otherwise they are measured on the generation path, which is an upper bound.
+     *
+     * @return true if the level has been solved by the solver
+     */
+    public boolean isSolved() {
+        return solved;
+    }
+
+    /**
+     * Returns the difficulty score: the pushes plus the box line changes, which weigh
+     * {@value #BOX_LINE_WEIGHT} times as much since each one is a decision for the player.
+     *
+     * @return the difficulty score
+     */
+    public int getScore() {
+        return pushes + BOX_LINE_WEIGHT * boxLineChanges;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d pushes, %d box lines, score %d", level.getName(), pushes, boxLineChanges, getScore());
+    }
+}
@@ -0,0 +1,510 @@
+package engine.generator;
+
+import engine.Board;
+import engine.Direction;
+import engine.Level;
+import engine.LevelPackWriter;
+import engine.search.BoardAnalysis;
+import engine.search.PushSolver;
+import engine.search.SearchResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LevelGenerator builds new levels by playing the game backwards.
+ * <p>
+ * Each candidate is a random room in which the crates start on the diamonds; the keeper then
+ * pulls random crates around, and the position reached is the start of the new level. Every
+ * pull can be undone by a push, so the level is solvable by construction. Several candidates
+ * are built for each level and the one with the highest difficulty score is kept: the pushes
+ * and box line changes are measured on the solution found by {@link PushSolver} when a solver
+ * budget is set, or on the reversed generation path otherwise. The generation path is only an
+ * upper bound, so a candidate the solver could not solve within the budget is only kept when
+ * none of the others could be solved either.
+ * <p>
+ * Levels are generated in parallel. The random generator of each level is seeded from the
+ * generator seed and the level number, so the same seed always produces the same levels,
+ * whatever the number of threads. With a solver budget, this holds as long as every search
+ * completes within the budget.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class LevelGenerator {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    /**
+     * The probability of an inner cell being a wall
+     */
+    private static final double WALL_DENSITY = 0.18;
+    /**
+     * The number of pulls performed for each crate
+     */
+    private static final int PULLS_PER_CRATE = 15;
+
+    private final int rows;
+    private final int columns;
+    private final int crates;
+    private final long seed;
+    /**
+     * The number of candidates built for each level
+     */
+    private int candidates = 8;
+    /**
+     * The time the solver can spend on each candidate in nanoseconds, or 0 to skip the solver
+     */
+    private long solverBudget = 0;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a generator.
+     *
+     * @param rows    the number of rows of the levels, walls included
+     * @param columns the number of columns of the levels, walls included
+     * @param crates  the number of crates of each level
+     * @param seed    the seed of the random generators
+     */
+    public LevelGenerator(int rows, int columns, int crates, long seed) {
+        if (rows < 4 || columns < 4 || crates < 1) {
+            throw new IllegalArgumentException("The levels need at least 4 rows, 4 columns and 1 crate.");
+        }
+
+        this.rows = rows;
+        this.columns = columns;
+        this.crates = crates;
+        this.seed = seed;
+    }
+
+    public void setCandidates(int candidates) {
+        this.candidates = Math.max(1, candidates);
+    }
+
+    /**
+     * Sets the time the solver can spend on each candidate to measure its difficulty.
+     *
+     * @param solverBudget the time budget in nanoseconds, or 0 to measure the generation path
+     */
+    public void setSolverBudget(long solverBudget) {
+        this.solverBudget = solverBudget;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Generates levels in parallel.
+     *
+     * @param count the number of levels
+     * @return the levels, numbered from 1
+     * @throws InterruptedException if interrupted while waiting for the levels
+     */
+    public List<GeneratedLevel> generate(int count) throws InterruptedException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "LevelGenerator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<GeneratedLevel>> futures = new ArrayList<>(count);
+            for (int i = 1; i <= count; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> generateLevel(index)));
+            }
+
+            List<GeneratedLevel> levels = new ArrayList<>(count);
+            for (Future<GeneratedLevel> future : futures) {
+                levels.add(future.get());
+            }
+
+            return levels;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot generate the levels.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates a single level, keeping the hardest of the candidates.
+     *
+     * @param index the level number, starting from 1
+     * @return the level
+     */
+    public GeneratedLevel generateLevel(int index) {
+        SplittableRandom random = new SplittableRandom(mix(seed + index * 0x9E3779B97F4A7C15L));
+        GeneratedLevel best = null;
+        int built = 0;
+
+        // Give up only if the size and the number of crates make candidates nearly impossible.
+        for (int attempt = 0; built < candidates && attempt < candidates * 100; attempt++) {
+            GeneratedLevel candidate = buildCandidate(random, index);
+            if (candidate != null) {
+                built++;
+                if (best == null || isBetter(candidate, best)) {
+                    best = candidate;
+                }
+            }
+        }
+
+        if (best == null) {
+            throw new IllegalStateException("Cannot fit " + crates + " crates in a " + rows + "x" + columns + " level.");
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns true if a candidate is harder than the best one so far. The scores measured by the
+     * solver and the upper bounds of the generation path are never compared, since the bounds
+     * would favour the levels the solver could not solve.
+     */
+    private static boolean isBetter(GeneratedLevel candidate, GeneratedLevel best) {
+        if (candidate.isSolved() != best.isSolved()) {
+            return candidate.isSolved();
+        }
+
+        return candidate.getScore() > best.getScore();
+    }
+
+    /**
+     * Builds a candidate: a random room, then random pulls from the solved position.
+     *
+     * @param random the random generator of the level
+     * @param index  the level number
+     * @return the candidate, or null if the room is too small or no crate could be moved off its diamond
+     */
+    private GeneratedLevel buildCandidate(SplittableRandom random, int index) {
+        boolean[] walls = buildRoom(random);
+        int[] floor = floorCells(walls);
+        if (floor.length < crates * 3 + 1) {
+            return null;
+        }
+
+        // Place the crates on the diamonds, and the keeper somewhere else.
+        shuffle(floor, random);
+        int[] goals = Arrays.copyOf(floor, crates);
+        int[] crateCells = goals.clone();
+        int keeper = floor[crates];
+
+        boolean[] occupied = new boolean[walls.length];
+        for (int crate : crateCells) {
+            occupied[crate] = true;
+        }
+
+        int pushes = 0;
+        int boxLineChanges = 0;
+        int lastCrate = -1;
+        Direction lastDirection = null;
+        int[] queue = new int[walls.length];
+        boolean[] reachable = new boolean[walls.length];
+        int[] pulls = new int[crates * DIRECTIONS.length];
+
+        for (int step = 0; step < crates * PULLS_PER_CRATE; step++) {
+            explore(keeper, walls, occupied, reachable, queue);
+
+            // A crate can be pulled if the keeper can stand next to it and step back.
+            int pullCount = 0;
+            for (int i = 0; i < crateCells.length; i++) {
+                for (Direction direction : DIRECTIONS) {
+                    int stand = neighbour(crateCells[i], direction);
+                    int back = stand < 0 ? -1 : neighbour(stand, direction);
+                    if (back >= 0 && reachable[stand] && !walls[back] && !occupied[back]) {
+                        pulls[pullCount++] = i * DIRECTIONS.length + direction.ordinal();
+                    }
+                }
+            }
+
+            if (pullCount == 0) {
+                break;
+            }
+
+            int pull = pulls[random.nextInt(pullCount)];
+            int crate = pull / DIRECTIONS.length;
+            Direction direction = DIRECTIONS[pull % DIRECTIONS.length];
+
+            int stand = neighbour(crateCells[crate], direction);
+            occupied[crateCells[crate]] = false;
+            occupied[stand] = true;
+            crateCells[crate] = stand;
+            keeper = neighbour(stand, direction);
+
+            pushes++;
+            if (crate != lastCrate || direction != lastDirection) {
+                boxLineChanges++;
+            }
+            lastCrate = crate;
+            lastDirection = direction;
+        }
+
+        boolean[] goalCells = new boolean[walls.length];
+        for (int goal : goals) {
+            goalCells[goal] = true;
+        }
+
+        int cratesOnGoals = 0;
+        for (int crate : crateCells) {
+            if (goalCells[crate]) {
+                cratesOnGoals++;
+            }
+        }
+        if (cratesOnGoals == crates) {
+            return null;
+        }
+
+        // The game files cannot store the keeper on a diamond, but any cell it can reach is equivalent.
+        if (goalCells[keeper]) {
+            explore(keeper, walls, occupied, reachable, queue);
+            keeper = -1;
+            for (int cell = 0; cell < walls.length && keeper < 0; cell++) {
+                if (reachable[cell] && !goalCells[cell]) {
+                    keeper = cell;
+                }
+            }
+            if (keeper < 0) {
+                return null;
+            }
+        }
+
+        Level level = new Level("Generated " + index, index, toRows(walls, goalCells, occupied, keeper));
+        if (solverBudget > 0) {
+            GeneratedLevel measured = measure(level);
+            if (measured != null) {
+                return measured;
+            }
+        }
+
+        return new GeneratedLevel(level, pushes, boxLineChanges, false);
+    }
+
+    /**
+     * Measures the difficulty of a level on the solution found by the solver.
+     *
+     * @param level the level
+     * @return the measured level, or null if the solver did not find a solution within the budget
+     */
+    private GeneratedLevel measure(Level level) {
+        Board board = level.toBoard();
+        SearchResult result = new PushSolver(BoardAnalysis.of(board)).solve(board, solverBudget);
+        if (!result.isSolved()) {
+            return null;
+        }
+
+        int pushes = 0;
+        int boxLineChanges = 0;
+        int lastCrate = -1;
+        Direction lastDirection = null;
+
+        for (Direction move : result.getMoves()) {
+            int target = board.neighbour(board.getKeeper(), move);
+            if (board.hasCrate(target)) {
+                pushes++;
+                // The crate keeps its line if it is the one pushed last, in the same direction.
+                if (target != lastCrate || move != lastDirection) {
+                    boxLineChanges++;
+                }
+                lastCrate = board.neighbour(target, move);
+                lastDirection = move;
+            }
+            board = board.move(move);
+        }
+
+        return new GeneratedLevel(level, pushes, boxLineChanges, true);
+    }
+
+    /**
+     * Builds a room enclosed by walls, with random inner walls. Only the largest connected
+     * area of floor is kept, the rest is filled with walls.
+     *
+     * @param random the random generator
+     * @return the walls of the room
+     */
+    private boolean[] buildRoom(SplittableRandom random) {
+        boolean[] walls = new boolean[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                boolean border = row == 0 || col == 0 || row == rows - 1 || col == columns - 1;
+                walls[row * columns + col] = border || random.nextDouble() < WALL_DENSITY;
+            }
+        }
+
+        boolean[] largest = new boolean[walls.length];
+        boolean[] visited = new boolean[walls.length];
+        boolean[] area = new boolean[walls.length];
+        boolean[] noCrates = new boolean[walls.length];
+        int[] queue = new int[walls.length];
+        int largestSize = 0;
+
+        for (int cell = 0; cell < walls.length; cell++) {
+            if (!walls[cell] && !visited[cell]) {
+                int size = explore(cell, walls, noCrates, area, queue);
+                for (int i = 0; i < size; i++) {
+                    visited[queue[i]] = true;
+                }
+                if (size > largestSize) {
+                    largestSize = size;
+                    System.arraycopy(area, 0, largest, 0, area.length);
+                }
+            }
+        }
+
+        for (int cell = 0; cell < walls.length; cell++) {
+            walls[cell] = !largest[cell];
+        }
+
+        return walls;
+    }
+
+    private int[] floorCells(boolean[] walls) {
+        int[] cells = new int[walls.length];
+        int count = 0;
+        for (int cell = 0; cell < walls.length; cell++) {
+            if (!walls[cell]) {
+                cells[count++] = cell;
+            }
+        }
+
+        return Arrays.copyOf(cells, count);
+    }
+
+    /**
+     * Finds the cells the keeper can walk to.
+     *
+     * @param start     the cell of the keeper
+     * @param walls     the walls
+     * @param occupied  the cells containing a crate
+     * @param reachable set to true for every reachable cell
+     * @param queue     the queue used by the search, holding the reachable cells when done
+     * @return the number of reachable cells
+     */
+    private int explore(int start, boolean[] walls, boolean[] occupied, boolean[] reachable, int[] queue) {
+        Arrays.fill(reachable, false);
+        int head = 0;
+        int tail = 0;
+        reachable[start] = true;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            for (Direction direction : DIRECTIONS) {
+                int next = neighbour(cell, direction);
+                if (next >= 0 && !reachable[next] && !walls[next] && !occupied[next]) {
+                    reachable[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return tail;
+    }
+
+    private int neighbour(int cell, Direction direction) {
+        int row = cell / columns + direction.getRowDelta();
+        int col = cell % columns + direction.getColumnDelta();
+        if (row < 0 || col < 0 || row >= rows || col >= columns) {
+            return -1;
+        }
+
+        return row * columns + col;
+    }
+
+    private List<String> toRows(boolean[] walls, boolean[] goals, boolean[] crateCells, int keeper) {
+        List<String> lines = new ArrayList<>(rows);
+        StringBuilder sb = new StringBuilder(columns);
+
+        for (int row = 0; row < rows; row++) {
+            sb.setLength(0);
+            for (int col = 0; col < columns; col++) {
+                int cell = row * columns + col;
+                char symbol;
+                if (walls[cell]) {
+                    symbol = 'W';
+                } else if (cell == keeper) {
+                    symbol = 'S';
+                } else if (crateCells[cell]) {
+                    symbol = goals[cell] ? 'O' : 'C';
+                } else {
+                    symbol = goals[cell] ? 'D' : ' ';
+                }
+                sb.append(symbol);
+            }
+            lines.add(sb.toString());
+        }
+
+        return lines;
+    }
+
+    private static void shuffle(int[] cells, SplittableRandom random) {
+        for (int i = cells.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = cells[i];
+            cells[i] = cells[j];
+            cells[j] = swap;
+        }
+    }
+
+    /**
+     * The SplitMix64 finalizer, spreading consecutive seeds over the whole range.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Generates a game file.
+     * Usage: {@code LevelGenerator <count> <output.skb> [seed] [rows] [columns] [crates] [solver budget ms]}.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if the game file cannot be written
+     * @throws InterruptedException if interrupted while generating the levels
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: LevelGenerator <count> <output.skb> [seed] [rows] [columns] [crates] [solver budget ms]");
+            System.exit(1);
+        }
+
+        int count = Integer.parseInt(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 9;
+        int columns = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        int crates = args.length > 5 ? Integer.parseInt(args[5]) : 3;
+
+        LevelGenerator generator = new LevelGenerator(rows, columns, crates, seed);
+        if (args.length > 6) {
+            generator.setSolverBudget(TimeUnit.MILLISECONDS.toNanos(Long.parseLong(args[6])));
+        }
+
+        long start = System.nanoTime();
+        List<GeneratedLevel> generated = generator.generate(count);
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        List<Level> levels = new ArrayList<>(generated.size());
+        for (GeneratedLevel level : generated) {
+            levels.add(level.getLevel());
+        }
+        try (OutputStream output = Files.newOutputStream(Paths.get(args[1]))) {
+            LevelPackWriter.write(output, "Generated with seed " + seed, levels);
+        }
+
+        System.out.printf("Generated %d levels in %.2f s (%.0f levels/min), seed %d%n",
+                count, seconds, count / seconds * 60, seed);
+    }
+}
@@ -0,0 +1,152 @@
+package engine.library;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * CatalogFile reads and writes the catalog of a {@link LevelLibrary}.
+ * <p>
+ * The catalog starts with a magic number and a version, followed by the number of game files
+ * and, for each of them, its path, size, modification time, map set name, error and levels.
+ * A catalog that cannot be read is ignored, so the library is indexed again from scratch.
+ * The catalog is written to a temporary file first and then moved in place, so a crash
+ * never leaves a truncated catalog behind.
+ */
+final class CatalogFile {
+
+    /**
+     * "SKBCATLG" in ASCII
+     */
+    static final long MAGIC = 0x534B424341544C47L;
+    static final int VERSION = 2;
+    /**
+     * The smallest number of bytes taken by a game file: an empty path, size, modification time,
+     * two null strings and the level count
+     */
+    private static final int MIN_PACK_BYTES = 2 + 8 + 8 + 1 + 1 + 4;
+    /**
+     * The smallest number of bytes taken by a level: index, empty name, four sizes and two hashes
+     */
+    private static final int MIN_LEVEL_BYTES = 4 + 2 + 4 * 4 + 2 * 8;
+
+    private CatalogFile() {
+    }
+
+    /**
+     * Reads a catalog.
+     *
+     * @param file the catalog file
+     * @return the game files in the catalog, or an empty list if the catalog does not exist or is not valid
+     */
+    static List<PackInfo> read(Path file) {
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (data.readLong() != MAGIC || data.readInt() != VERSION) {
+                return new ArrayList<>();
+            }
+
+            long fileSize = Files.size(file);
+            int packCount = readCount(data, fileSize / MIN_PACK_BYTES);
+            List<PackInfo> packs = new ArrayList<>(packCount);
+            for (int i = 0; i < packCount; i++) {
+                String path = data.readUTF();
+                long size = data.readLong();
+                long lastModified = data.readLong();
+                String mapSetName = readNullable(data);
+                String error = readNullable(data);
+
+                int levelCount = readCount(data, fileSize / MIN_LEVEL_BYTES);
+                List<LevelInfo> levels = new ArrayList<>(levelCount);
+                for (int j = 0; j < levelCount; j++) {
+                    levels.add(new LevelInfo(path, mapSetName, data.readInt(), data.readUTF(),
+                            data.readInt(), data.readInt(), data.readInt(), data.readInt(), data.readLong(), data.readLong()));
+                }
+
+                packs.add(new PackInfo(path, size, lastModified, mapSetName, levels, error));
+            }
+
+            return packs;
+        } catch (IOException | RuntimeException e) {
+            // A missing or corrupt catalog only means the library has to be indexed again.
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Writes a catalog, replacing the previous one.
+     *
+     * @param file  the catalog file
+     * @param packs the game files in the catalog
+     * @throws IOException if the catalog cannot be written
+     */
+    static void write(Path file, Collection<PackInfo> packs) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                data.writeLong(MAGIC);
+                data.writeInt(VERSION);
+                data.writeInt(packs.size());
+
+                for (PackInfo pack : packs) {
+                    data.writeUTF(pack.getPath());
+                    data.writeLong(pack.getSize());
+                    data.writeLong(pack.getLastModified());
+                    writeNullable(data, pack.getMapSetName());
+                    writeNullable(data, pack.getError());
+
+                    data.writeInt(pack.getLevels().size());
+                    for (LevelInfo level : pack.getLevels()) {
+                        data.writeInt(level.getIndex());
+                        data.writeUTF(level.getName());
+                        data.writeInt(level.getRows());
+                        data.writeInt(level.getColumns());
+                        data.writeInt(level.getCrates());
+                        data.writeInt(level.getDiamonds());
+                        data.writeLong(level.getContentHash());
+                        data.writeLong(level.getFingerprint());
+                    }
+                }
+            }
+
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a number of entries, checking that the file is large enough to contain them.
+     *
+     * @throws IOException if the count is negative or larger than the limit
+     */
+    private static int readCount(DataInputStream data, long limit) throws IOException {
+        int count = data.readInt();
+        if (count < 0 || count > limit) {
+            throw new IOException("Invalid entry count: " + count);
+        }
+
+        return count;
+    }
+
+    private static String readNullable(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+}
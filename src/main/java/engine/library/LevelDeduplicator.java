@@ -0,0 +1,160 @@
+package engine.library;
+
+import engine.Level;
+import engine.LevelPackParser;
+import engine.LevelPackWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LevelDeduplicator finds the levels of a {@link LevelLibrary} that are the same puzzle,
+ * possibly rotated, mirrored or re-padded, and writes the unique ones to a single game file.
+ * <p>
+ * The fingerprints are computed while the library is indexed, so finding the duplicates only
+ * groups the catalog entries. Writing the unique levels reads each game file once, in parallel.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class LevelDeduplicator {
+
+    private final LevelLibrary library;
+    private final int threads;
+
+    /**
+     * Creates a deduplicator.
+     *
+     * @param library the library, already refreshed
+     * @param threads the number of threads reading the game files
+     */
+    public LevelDeduplicator(LevelLibrary library, int threads) {
+        this.library = library;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Returns the first level of every puzzle in the library, in library order.
+     *
+     * @return the unique levels
+     */
+    public List<LevelInfo> findUnique() {
+        Set<Long> seen = new HashSet<>();
+        List<LevelInfo> unique = new ArrayList<>();
+        for (LevelInfo level : library.getLevels()) {
+            if (seen.add(level.getFingerprint())) {
+                unique.add(level);
+            }
+        }
+
+        return unique;
+    }
+
+    /**
+     * Writes the unique levels of the library to a game file.
+     *
+     * @param output     the stream the game file is written to, left open
+     * @param mapSetName the map set name of the game file
+     * @return the number of levels written
+     * @throws IOException if a game file cannot be read or the output cannot be written
+     */
+    public int writeUnique(OutputStream output, String mapSetName) throws IOException {
+        Map<String, Set<Integer>> wanted = new LinkedHashMap<>();
+        for (LevelInfo level : findUnique()) {
+            wanted.computeIfAbsent(level.getPath(), path -> new HashSet<>()).add(level.getIndex());
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "LevelDeduplicator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<List<Level>>> results = new ArrayList<>(wanted.size());
+            for (Map.Entry<String, Set<Integer>> entry : wanted.entrySet()) {
+                Path file = library.getRoot().resolve(entry.getKey());
+                results.add(executor.submit(() -> read(file, entry.getValue())));
+            }
+
+            List<Level> levels = new ArrayList<>();
+            for (Future<List<Level>> result : results) {
+                levels.addAll(result.get());
+            }
+
+            LevelPackWriter.write(output, mapSetName, levels);
+            return levels.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the library", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot read the library", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Level> read(Path file, Set<Integer> indices) throws IOException {
+        List<Level> levels = new ArrayList<>(indices.size());
+        try (InputStream input = Files.newInputStream(file);
+             LevelPackParser parser = new LevelPackParser(input)) {
+            for (Level level = parser.nextLevel(); level != null; level = parser.nextLevel()) {
+                if (indices.contains(level.getIndex())) {
+                    levels.add(level);
+                }
+            }
+        }
+
+        return levels;
+    }
+
+    /**
+     * Prints the duplicated levels of a directory and optionally writes the unique ones.
+     *
+     * @param args the directory, optionally followed by the game file to write
+     * @throws IOException if the library cannot be read or the game file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: LevelDeduplicator <directory> [unique.skb]");
+            System.exit(2);
+        }
+
+        LevelLibrary library = new LevelLibrary(Paths.get(args[0]));
+        library.refresh();
+
+        int duplicated = 0;
+        for (List<LevelInfo> group : library.findDuplicates()) {
+            System.out.println(group.get(0));
+            for (LevelInfo copy : group.subList(1, group.size())) {
+                System.out.println("  = " + copy);
+            }
+            duplicated += group.size() - 1;
+        }
+        System.out.printf("%d levels, %d duplicates%n", library.getLevels().size(), duplicated);
+
+        if (args.length > 1) {
+            LevelDeduplicator deduplicator = new LevelDeduplicator(library, Runtime.getRuntime().availableProcessors());
+            try (OutputStream output = Files.newOutputStream(Paths.get(args[1]))) {
+                int written = deduplicator.writeUnique(output, "Unique levels of " + args[0]);
+                System.out.printf("%d levels written to %s%n", written, args[1]);
+            }
+        }
+    }
+}
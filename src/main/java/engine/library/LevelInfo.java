@@ -0,0 +1,109 @@
+package engine.library;
+
+import engine.LevelFingerprint;
+import engine.LevelLayout;
+
+import java.util.Locale;
+
+/**
+ * LevelInfo describes a level of the {@link LevelLibrary} without holding the level itself.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class LevelInfo {
+
+    /**
+     * The path of the game file, relative to the library directory
+     */
+    private final String path;
+    private final String mapSetName;
+    private final int index;
+    private final String name;
+    private final int rows;
+    private final int columns;
+    private final int crates;
+    private final int diamonds;
+    /**
+     * The hash returned by {@link LevelLayout#getContentHash()}
+     */
+    private final long contentHash;
+    /**
+     * The hash of the {@link LevelFingerprint}, equal for rotated, mirrored or re-padded copies
+     */
+    private final long fingerprint;
+    /**
+     * The text matched by the searches, in lower case
+     */
+    private final String searchText;
+
+    LevelInfo(String path, String mapSetName, int index, String name, int rows, int columns,
+              int crates, int diamonds, long contentHash, long fingerprint) {
+        this.path = path;
+        this.mapSetName = mapSetName;
+        this.index = index;
+        this.name = name;
+        this.rows = rows;
+        this.columns = columns;
+        this.crates = crates;
+        this.diamonds = diamonds;
+        this.contentHash = contentHash;
+        this.fingerprint = fingerprint;
+        searchText = (name + '\n' + (mapSetName == null ? "" : mapSetName) + '\n' + path).toLowerCase(Locale.ROOT);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getMapSetName() {
+        return mapSetName;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getCrates() {
+        return crates;
+    }
+
+    public int getDiamonds() {
+        return diamonds;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns true if the name, the map set name or the path of the level contain a term.
+     *
+     * @param lowerCaseTerm the term, in lower case
+     * @return true if the level matches the term
+     */
+    boolean matches(String lowerCaseTerm) {
+        return searchText.contains(lowerCaseTerm);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s #%d %s (%s) %dx%d, %d crates", path, index, name, mapSetName, columns, rows, crates);
+    }
+}
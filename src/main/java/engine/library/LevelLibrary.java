@@ -0,0 +1,433 @@
+package engine.library;
+
+import engine.GameObject;
+import engine.LevelFingerprint;
+import engine.LevelLayout;
+import engine.LevelPackParser;
+import engine.RawLevel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * LevelLibrary indexes every game file found in a directory tree, so that the levels can be
+ * searched without opening the game files one by one.
+ * <p>
+ * The index is kept in a catalog file. When the library is refreshed, only the game files whose
+ * size or modification time changed since the last refresh are read again, in parallel, and the
+ * catalog is rewritten if anything changed. Indexing a level only reads its rows: no {@link
+ * engine.Level} is built, and its content hash is the one of {@link LevelLayout#getContentHash()},
+ * so the same level can be recognised in different game files. Its {@link LevelFingerprint} is
+ * recorded as well, to find the levels that are rotated, mirrored or re-padded copies of each other.
+ * <p>
+ * The levels found are kept in memory, so searches never touch the disk. A library can be searched
+ * by any thread, but it should only be refreshed by one thread at a time.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class LevelLibrary {
+
+    /**
+     * The extension of the game files
+     */
+    private static final String EXTENSION = ".skb";
+    /**
+     * The name of the catalog file used when none is given
+     */
+    public static final String CATALOG_NAME = ".sokoban-catalog";
+    /**
+     * The order of the levels in the library: by path, then by index
+     */
+    private static final Comparator<LevelInfo> LIBRARY_ORDER =
+            Comparator.comparing(LevelInfo::getPath).thenComparingInt(LevelInfo::getIndex);
+
+    /**
+     * The directory containing the game files
+     */
+    private final Path root;
+    /**
+     * The file containing the catalog
+     */
+    private final Path catalogFile;
+    /**
+     * The number of threads reading the game files
+     */
+    private final int threads;
+    /**
+     * The game files indexed, by path relative to the root
+     */
+    private volatile Map<String, PackInfo> packs = Collections.emptyMap();
+    /**
+     * Every level of the library, in path and index order
+     */
+    private volatile List<LevelInfo> levels = Collections.emptyList();
+
+    /**
+     * The outcome of the last refresh
+     */
+    private volatile int filesIndexed = 0;
+    private volatile int filesRemoved = 0;
+    private volatile long lastRefreshTime = 0;
+
+    /**
+     * Creates a library keeping its catalog in the root directory.
+     *
+     * @param root the directory containing the game files
+     */
+    public LevelLibrary(Path root) {
+        this(root, root.resolve(CATALOG_NAME), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a library. The catalog is not read until {@link #refresh()} is called.
+     *
+     * @param root        the directory containing the game files
+     * @param catalogFile the file containing the catalog
+     * @param threads     the number of threads reading the game files
+     */
+    public LevelLibrary(Path root, Path catalogFile, int threads) {
+        this.root = root;
+        this.catalogFile = catalogFile;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Reads the catalog without scanning the directory, so the library can be searched
+     * immediately on startup while {@link #refresh()} runs in the background.
+     */
+    public void load() {
+        Map<String, PackInfo> loaded = new TreeMap<>();
+        for (PackInfo pack : CatalogFile.read(catalogFile)) {
+            loaded.put(pack.getPath(), pack);
+        }
+
+        publish(loaded);
+    }
+
+    /**
+     * Brings the library up to date with the directory: the game files added or changed since
+     * the catalog was written are indexed, the ones deleted are removed, and the catalog is
+     * written again if anything changed.
+     *
+     * @throws IOException if the directory cannot be scanned or the catalog cannot be written
+     */
+    public void refresh() throws IOException {
+        long start = System.nanoTime();
+        Map<String, PackInfo> known = new HashMap<>();
+        for (PackInfo pack : packs.isEmpty() ? CatalogFile.read(catalogFile) : packs.values()) {
+            known.put(pack.getPath(), pack);
+        }
+
+        Map<String, PackInfo> current = new TreeMap<>();
+        List<Path> changed = new ArrayList<>();
+        for (Path file : findGameFiles()) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            PackInfo pack = known.get(relativePath(file));
+
+            if (pack != null && pack.isUpToDate(attributes.size(), attributes.lastModifiedTime().toMillis())) {
+                current.put(pack.getPath(), pack);
+            } else {
+                changed.add(file);
+            }
+        }
+
+        for (PackInfo pack : indexAll(changed)) {
+            current.put(pack.getPath(), pack);
+        }
+
+        int removed = 0;
+        for (String path : known.keySet()) {
+            if (!current.containsKey(path)) {
+                removed++;
+            }
+        }
+
+        if (!changed.isEmpty() || removed > 0 || !Files.exists(catalogFile)) {
+            CatalogFile.write(catalogFile, current.values());
+        }
+
+        publish(current);
+        filesIndexed = changed.size();
+        filesRemoved = removed;
+        lastRefreshTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Replaces the game files and the levels seen by the searches.
+     */
+    private void publish(Map<String, PackInfo> current) {
+        List<LevelInfo> allLevels = new ArrayList<>();
+        for (PackInfo pack : current.values()) {
+            allLevels.addAll(pack.getLevels());
+        }
+
+        packs = Collections.unmodifiableMap(current);
+        levels = Collections.unmodifiableList(allLevels);
+    }
+
+    /**
+     * Returns the levels whose name, map set name or path contain every term of the query,
+     * ignoring the case. An empty query matches every level.
+     *
+     * @param query the terms separated by spaces
+     * @return the levels matching the query
+     */
+    public List<LevelInfo> search(String query) {
+        String[] terms = query.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        return filter(level -> {
+            for (String term : terms) {
+                if (!level.matches(term)) {
+                    return false;
+                }
+            }
+
+            return true;
+        });
+    }
+
+    /**
+     * Returns the levels matching a condition, e.g. on their size or number of crates.
+     *
+     * @param condition the condition
+     * @return the levels matching the condition
+     */
+    public List<LevelInfo> filter(Predicate<LevelInfo> condition) {
+        return levels.stream().filter(condition).collect(Collectors.toList());
+    }
+
+    /**
+     * Groups the levels that are the same puzzle, possibly rotated, mirrored or surrounded by a
+     * different area, by comparing their fingerprints.
+     *
+     * @return the groups of two or more levels with the same fingerprint, in library order
+     */
+    public List<List<LevelInfo>> findDuplicates() {
+        Map<Long, List<LevelInfo>> groups = levels.parallelStream()
+                .collect(Collectors.groupingByConcurrent(LevelInfo::getFingerprint));
+
+        List<List<LevelInfo>> duplicates = new ArrayList<>();
+        for (LevelInfo level : levels) {
+            // Each group is taken when its first level is met.
+            List<LevelInfo> group = groups.remove(level.getFingerprint());
+            if (group != null && group.size() > 1) {
+                group.sort(LIBRARY_ORDER);
+                duplicates.add(group);
+            }
+        }
+
+        return duplicates;
+    }
+
+    /**
+     * Returns the absolute path of the game file containing a level.
+     *
+     * @param level the level
+     * @return the path of its game file
+     */
+    public Path resolve(LevelInfo level) {
+        return root.resolve(level.getPath());
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public List<LevelInfo> getLevels() {
+        return levels;
+    }
+
+    /**
+     * Returns the game files indexed, sorted by path.
+     *
+     * @return the game files
+     */
+    public List<PackInfo> getPacks() {
+        return new ArrayList<>(packs.values());
+    }
+
+    /**
+     * Returns the number of game files read by the last refresh.
+     *
+     * @return the number of game files added or changed
+     */
+    public int getFilesIndexed() {
+        return filesIndexed;
+    }
+
+    /**
+     * Returns the number of game files removed by the last refresh.
+     *
+     * @return the number of game files deleted from the directory
+     */
+    public int getFilesRemoved() {
+        return filesRemoved;
+    }
+
+    /**
+     * Returns the duration of the last refresh.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    private List<Path> findGameFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(file -> file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(EXTENSION))
+                    .filter(Files::isRegularFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private String relativePath(Path file) {
+        // Use the same separator on every platform, so the catalog can be moved.
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * Indexes the game files on a pool of threads.
+     */
+    private List<PackInfo> indexAll(List<Path> files) throws IOException {
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()), task -> {
+            Thread thread = new Thread(task, "LevelLibrary-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<PackInfo>> results = new ArrayList<>(files.size());
+            for (Path file : files) {
+                results.add(executor.submit(() -> index(file)));
+            }
+
+            List<PackInfo> indexed = new ArrayList<>(files.size());
+            for (Future<PackInfo> result : results) {
+                indexed.add(result.get());
+            }
+
+            return indexed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing " + root, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot index " + root, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the metadata of every level of a game file. A game file that cannot be read is kept
+     * in the catalog with its error, so it is not read again until it changes.
+     */
+    private PackInfo index(Path file) throws IOException {
+        String path = relativePath(file);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        List<RawLevel> rawLevels = new ArrayList<>();
+        String mapSetName;
+        try (InputStream input = Files.newInputStream(file);
+             LevelPackParser parser = new LevelPackParser(input)) {
+            for (RawLevel level = parser.nextRawLevel(); level != null; level = parser.nextRawLevel()) {
+                rawLevels.add(level);
+            }
+            mapSetName = parser.getMapSetName();
+        } catch (IOException e) {
+            return new PackInfo(path, size, lastModified, null, Collections.emptyList(), e.toString());
+        }
+
+        List<LevelInfo> levels = new ArrayList<>(rawLevels.size());
+        for (RawLevel level : rawLevels) {
+            if (!level.getRows().isEmpty()) {
+                levels.add(describe(path, mapSetName, level));
+            }
+        }
+
+        return new PackInfo(path, size, lastModified, mapSetName, levels, null);
+    }
+
+    /**
+     * Describes a level as {@link LevelLayout} would parse it, without parsing it.
+     */
+    private static LevelInfo describe(String path, String mapSetName, RawLevel level) {
+        List<String> rows = level.getRows();
+        int columns = rows.get(0).trim().length();
+        int crates = 0;
+        int diamonds = 0;
+
+        for (String row : rows) {
+            for (int col = 0; col < Math.min(row.length(), columns); col++) {
+                GameObject object = GameObject.fromChar(row.charAt(col));
+                if (object == GameObject.CRATE || object == GameObject.CRATE_ON_DIAMOND) {
+                    crates++;
+                }
+                if (object == GameObject.DIAMOND || object == GameObject.CRATE_ON_DIAMOND) {
+                    diamonds++;
+                }
+            }
+        }
+
+        String name = level.getName() == null ? "" : level.getName();
+        return new LevelInfo(path, mapSetName, level.getIndex(), name, rows.size(), columns,
+                crates, diamonds, LevelLayout.contentHashOf(rows), LevelFingerprint.of(rows).getHash());
+    }
+
+    /**
+     * Refreshes the library of a directory and prints the levels matching a query.
+     *
+     * @param args the directory, followed by the terms to search for
+     * @throws IOException if the library cannot be refreshed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: LevelLibrary <directory> [terms...]");
+            System.exit(2);
+        }
+
+        LevelLibrary library = new LevelLibrary(Paths.get(args[0]));
+        library.refresh();
+        System.out.printf("%d files, %d levels - %d files indexed, %d removed in %.1f ms%n",
+                library.getPacks().size(), library.getLevels().size(), library.getFilesIndexed(),
+                library.getFilesRemoved(), library.getLastRefreshTime() / 1e6);
+
+        if (args.length > 1) {
+            String query = String.join(" ", Arrays.asList(args).subList(1, args.length));
+            long start = System.nanoTime();
+            List<LevelInfo> found = library.search(query);
+            for (LevelInfo level : found) {
+                System.out.println(level);
+            }
+            System.out.printf("%d levels found in %.2f ms%n", found.size(), (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package engine.library;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PackInfo describes a game file of the {@link LevelLibrary}: the levels it contains and the
+ * size and modification time it had when it was indexed, used to tell if it has changed since.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class PackInfo {
+
+    /**
+     * The path of the game file, relative to the library directory
+     */
+    private final String path;
+    private final long size;
+    private final long lastModified;
+    private final String mapSetName;
+    private final List<LevelInfo> levels;
+    /**
+     * The reason why the game file could not be indexed, or null
+     */
+    private final String error;
+
+    PackInfo(String path, long size, long lastModified, String mapSetName, List<LevelInfo> levels, String error) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.mapSetName = mapSetName;
+        this.levels = Collections.unmodifiableList(levels);
+        this.error = error;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getMapSetName() {
+        return mapSetName;
+    }
+
+    public List<LevelInfo> getLevels() {
+        return levels;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Returns true if the game file had this size and modification time when it was indexed.
+     *
+     * @param size         the current size of the game file
+     * @param lastModified the current modification time of the game file in milliseconds
+     * @return true if the game file has not changed
+     */
+    boolean isUpToDate(long size, long lastModified) {
+        return this.size == size && this.lastModified == lastModified;
+    }
+}
@@ -0,0 +1,491 @@
+package engine.lurd;
+
+import engine.Direction;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * LurdCodec converts keeper moves between LURD text, run-length encoded LURD text and a packed
+ * binary form, so that solutions and replays can be stored and transferred compactly.
+ * <p>
+ * A move is a byte code: the ordinal of its {@link Direction} in the lowest two bits, plus
+ * {@link #PUSH} if the move pushes a crate. In LURD text a move is one of "lurd", upper case
+ * for pushes; in run-length encoded text a move repeated several times is preceded by the number
+ * of repetitions, e.g. "3rU" for "rrrU". The binary form packs each move in 2 bits, dropping the
+ * pushes, which {@link LurdValidator} can restore by replaying the moves, or in 3 bits.
+ * <p>
+ * The bulk methods work on arrays of codes with table lookups and fixed-size groups, without any
+ * branch in their inner loops, so they can process millions of moves per second.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class LurdCodec {
+
+    /**
+     * The flag of the moves pushing a crate
+     */
+    public static final byte PUSH = 4;
+    /**
+     * The code of the bytes that are not LURD symbols
+     */
+    private static final byte INVALID = -1;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    /**
+     * The code of every byte of LURD text, or {@link #INVALID}
+     */
+    private static final byte[] TEXT_TO_CODE = new byte[256];
+    /**
+     * The LURD symbol of every code
+     */
+    private static final byte[] CODE_TO_TEXT = new byte[8];
+
+    static {
+        Arrays.fill(TEXT_TO_CODE, INVALID);
+        for (Direction direction : DIRECTIONS) {
+            char symbol = direction.getSymbol();
+            byte code = (byte) direction.ordinal();
+            TEXT_TO_CODE[symbol] = code;
+            TEXT_TO_CODE[Character.toUpperCase(symbol)] = (byte) (code | PUSH);
+            CODE_TO_TEXT[code] = (byte) symbol;
+            CODE_TO_TEXT[code | PUSH] = (byte) Character.toUpperCase(symbol);
+        }
+    }
+
+    private LurdCodec() {
+    }
+
+    /**
+     * Returns the code of a move.
+     *
+     * @param direction the direction of the move
+     * @param push      true if the move pushes a crate
+     * @return the code
+     */
+    public static byte code(Direction direction, boolean push) {
+        return (byte) (direction.ordinal() | (push ? PUSH : 0));
+    }
+
+    public static Direction direction(byte code) {
+        return DIRECTIONS[code & 3];
+    }
+
+    public static boolean isPush(byte code) {
+        return (code & PUSH) != 0;
+    }
+
+    /**
+     * Parses LURD text, either plain or run-length encoded. Whitespace is ignored, so
+     * solutions split over several lines can be parsed as they are.
+     *
+     * @param text     the LURD text
+     * @param maxMoves the maximum number of moves, checked before they are expanded
+     * @return the codes of the moves
+     * @throws IllegalArgumentException if the text contains anything but LURD symbols,
+     *                                  repetition counts and whitespace, or if it has more
+     *                                  than the given number of moves
+     */
+    public static byte[] parse(CharSequence text, int maxMoves) {
+        byte[] moves = new byte[Math.min(Math.max(16, text.length()), maxMoves)];
+        int count = 0;
+        long repeat = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char symbol = text.charAt(i);
+            if (symbol >= '0' && symbol <= '9') {
+                // The count is checked digit by digit, so that it cannot overflow.
+                repeat = repeat * 10 + symbol - '0';
+                if (count + repeat > maxMoves) {
+                    throw tooLong(maxMoves);
+                }
+                continue;
+            }
+            if (Character.isWhitespace(symbol) && repeat == 0) {
+                continue;
+            }
+
+            byte code = symbol < 256 ? TEXT_TO_CODE[symbol] : INVALID;
+            if (code == INVALID) {
+                throw new IllegalArgumentException("Invalid LURD symbol '" + symbol + "' at position " + i);
+            }
+
+            int times = (int) Math.max(1, repeat);
+            if (times > maxMoves - count) {
+                throw tooLong(maxMoves);
+            }
+            if (count + times > moves.length) {
+                moves = Arrays.copyOf(moves, (int) Math.min(maxMoves, Math.max(count + times, moves.length * 2L)));
+            }
+            Arrays.fill(moves, count, count + times, code);
+            count += times;
+            repeat = 0;
+        }
+
+        if (repeat != 0) {
+            throw new IllegalArgumentException("The LURD text ends with a repetition count");
+        }
+
+        return Arrays.copyOf(moves, count);
+    }
+
+    private static IllegalArgumentException tooLong(int maxMoves) {
+        return new IllegalArgumentException("The LURD text has more than " + maxMoves + " moves");
+    }
+
+    /**
+     * Converts plain LURD text, e.g. read from a file, to codes.
+     *
+     * @param text        the ASCII LURD text
+     * @param offset      the first byte of the text
+     * @param length      the number of bytes, one per move
+     * @param moves       the array receiving the codes
+     * @param movesOffset the first code to be written
+     * @throws IllegalArgumentException if a byte is not a LURD symbol
+     */
+    public static void fromText(byte[] text, int offset, int length, byte[] moves, int movesOffset) {
+        int invalid = 0;
+        for (int i = 0; i < length; i++) {
+            byte code = TEXT_TO_CODE[text[offset + i] & 0xff];
+            moves[movesOffset + i] = code;
+            invalid |= code;
+        }
+
+        // The sign bit is only set by INVALID, so a single test covers the whole text.
+        if (invalid < 0) {
+            for (int i = 0; i < length; i++) {
+                if (moves[movesOffset + i] == INVALID) {
+                    throw new IllegalArgumentException("Invalid LURD symbol '" + (char) (text[offset + i] & 0xff)
+                            + "' at position " + i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts codes to plain LURD text.
+     *
+     * @param moves      the codes of the moves
+     * @param offset     the first code
+     * @param count      the number of codes
+     * @param text       the array receiving the ASCII LURD text, one byte per move
+     * @param textOffset the first byte to be written
+     */
+    public static void toText(byte[] moves, int offset, int count, byte[] text, int textOffset) {
+        for (int i = 0; i < count; i++) {
+            text[textOffset + i] = CODE_TO_TEXT[moves[offset + i] & 7];
+        }
+    }
+
+    /**
+     * Returns the plain LURD text of some moves.
+     *
+     * @param moves the codes of the moves
+     * @return the LURD text
+     */
+    public static String toText(byte[] moves) {
+        byte[] text = new byte[moves.length];
+        toText(moves, 0, moves.length, text, 0);
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the run-length encoded LURD text of some moves. Only the runs of at least three
+     * moves are counted, so the encoded text is never longer than the plain one.
+     *
+     * @param moves the codes of the moves
+     * @return the run-length encoded LURD text
+     */
+    public static String toRunLength(byte[] moves) {
+        StringBuilder sb = new StringBuilder(moves.length / 2 + 16);
+        int i = 0;
+        while (i < moves.length) {
+            int code = moves[i] & 7;
+            int run = 1;
+            while (i + run < moves.length && (moves[i + run] & 7) == code) {
+                run++;
+            }
+
+            char symbol = (char) CODE_TO_TEXT[code];
+            if (run >= 3) {
+                sb.append(run).append(symbol);
+            } else {
+                for (int j = 0; j < run; j++) {
+                    sb.append(symbol);
+                }
+            }
+            i += run;
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of bytes needed to pack some moves.
+     *
+     * @param count  the number of moves
+     * @param pushes true to keep the pushes, packing 3 bits per move, false to pack 2 bits per move
+     * @return the number of bytes
+     */
+    public static int packedSize(int count, boolean pushes) {
+        return (int) (((long) count * (pushes ? 3 : 2) + 7) / 8);
+    }
+
+    /**
+     * Packs moves in 2 bits each, four per byte, dropping the pushes.
+     *
+     * @param moves  the codes of the moves
+     * @param offset the first code
+     * @param count  the number of codes
+     * @param packed the array receiving the packed moves
+     * @param packedOffset the first byte to be written
+     * @return the number of bytes written
+     */
+    public static int pack2(byte[] moves, int offset, int count, byte[] packed, int packedOffset) {
+        int groups = count >>> 2;
+        int in = offset;
+        int out = packedOffset;
+        for (int g = 0; g < groups; g++, in += 4) {
+            packed[out++] = (byte) (moves[in] & 3 | (moves[in + 1] & 3) << 2
+                    | (moves[in + 2] & 3) << 4 | (moves[in + 3] & 3) << 6);
+        }
+
+        int remaining = count & 3;
+        if (remaining > 0) {
+            int bits = 0;
+            for (int i = 0; i < remaining; i++) {
+                bits |= (moves[in + i] & 3) << (2 * i);
+            }
+            packed[out++] = (byte) bits;
+        }
+
+        return out - packedOffset;
+    }
+
+    /**
+     * Unpacks moves packed by {@link #pack2(byte[], int, int, byte[], int)}. The moves have no pushes.
+     *
+     * @param packed       the packed moves
+     * @param packedOffset the first byte
+     * @param count        the number of moves
+     * @param moves        the array receiving the codes
+     * @param offset       the first code to be written
+     */
+    public static void unpack2(byte[] packed, int packedOffset, int count, byte[] moves, int offset) {
+        int groups = count >>> 2;
+        int in = packedOffset;
+        int out = offset;
+        for (int g = 0; g < groups; g++, out += 4) {
+            int bits = packed[in++];
+            moves[out] = (byte) (bits & 3);
+            moves[out + 1] = (byte) (bits >> 2 & 3);
+            moves[out + 2] = (byte) (bits >> 4 & 3);
+            moves[out + 3] = (byte) (bits >> 6 & 3);
+        }
+
+        for (int i = 0; i < (count & 3); i++) {
+            moves[out + i] = (byte) (packed[in] >> (2 * i) & 3);
+        }
+    }
+
+    /**
+     * Packs moves in 3 bits each, eight in three bytes, keeping the pushes.
+     *
+     * @param moves        the codes of the moves
+     * @param offset       the first code
+     * @param count        the number of codes
+     * @param packed       the array receiving the packed moves
+     * @param packedOffset the first byte to be written
+     * @return the number of bytes written
+     */
+    public static int pack3(byte[] moves, int offset, int count, byte[] packed, int packedOffset) {
+        int groups = count >>> 3;
+        int in = offset;
+        int out = packedOffset;
+        for (int g = 0; g < groups; g++, in += 8) {
+            int bits = moves[in] & 7 | (moves[in + 1] & 7) << 3 | (moves[in + 2] & 7) << 6
+                    | (moves[in + 3] & 7) << 9 | (moves[in + 4] & 7) << 12 | (moves[in + 5] & 7) << 15
+                    | (moves[in + 6] & 7) << 18 | (moves[in + 7] & 7) << 21;
+            packed[out++] = (byte) bits;
+            packed[out++] = (byte) (bits >> 8);
+            packed[out++] = (byte) (bits >> 16);
+        }
+
+        int remaining = count & 7;
+        if (remaining > 0) {
+            int bits = 0;
+            for (int i = 0; i < remaining; i++) {
+                bits |= (moves[in + i] & 7) << (3 * i);
+            }
+            for (int shift = 0; shift < remaining * 3; shift += 8) {
+                packed[out++] = (byte) (bits >> shift);
+            }
+        }
+
+        return out - packedOffset;
+    }
+
+    /**
+     * Unpacks moves packed by {@link #pack3(byte[], int, int, byte[], int)}.
+     *
+     * @param packed       the packed moves
+     * @param packedOffset the first byte
+     * @param count        the number of moves
+     * @param moves        the array receiving the codes
+     * @param offset       the first code to be written
+     */
+    public static void unpack3(byte[] packed, int packedOffset, int count, byte[] moves, int offset) {
+        int groups = count >>> 3;
+        int in = packedOffset;
+        int out = offset;
+        for (int g = 0; g < groups; g++, out += 8) {
+            int bits = packed[in] & 0xff | (packed[in + 1] & 0xff) << 8 | (packed[in + 2] & 0xff) << 16;
+            in += 3;
+            moves[out] = (byte) (bits & 7);
+            moves[out + 1] = (byte) (bits >> 3 & 7);
+            moves[out + 2] = (byte) (bits >> 6 & 7);
+            moves[out + 3] = (byte) (bits >> 9 & 7);
+            moves[out + 4] = (byte) (bits >> 12 & 7);
+            moves[out + 5] = (byte) (bits >> 15 & 7);
+            moves[out + 6] = (byte) (bits >> 18 & 7);
+            moves[out + 7] = (byte) (bits >> 21 & 7);
+        }
+
+        int remaining = count & 7;
+        if (remaining > 0) {
+            int bits = 0;
+            for (int shift = 0; shift < remaining * 3; shift += 8) {
+                bits |= (packed[in++] & 0xff) << shift;
+            }
+            for (int i = 0; i < remaining; i++) {
+                moves[out + i] = (byte) (bits >> (3 * i) & 7);
+            }
+        }
+    }
+
+    /**
+     * Packs moves into a buffer, advancing its position.
+     *
+     * @param moves  the codes of the moves
+     * @param offset the first code
+     * @param count  the number of codes
+     * @param pushes true to keep the pushes, packing 3 bits per move, false to pack 2 bits per move
+     * @param buffer the buffer receiving the packed moves
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static void pack(byte[] moves, int offset, int count, boolean pushes, ByteBuffer buffer) {
+        int size = packedSize(count, pushes);
+        if (buffer.remaining() < size) {
+            throw new java.nio.BufferOverflowException();
+        }
+
+        if (buffer.hasArray()) {
+            int position = buffer.arrayOffset() + buffer.position();
+            if (pushes) {
+                pack3(moves, offset, count, buffer.array(), position);
+            } else {
+                pack2(moves, offset, count, buffer.array(), position);
+            }
+            buffer.position(buffer.position() + size);
+        } else {
+            byte[] packed = new byte[size];
+            if (pushes) {
+                pack3(moves, offset, count, packed, 0);
+            } else {
+                pack2(moves, offset, count, packed, 0);
+            }
+            buffer.put(packed);
+        }
+    }
+
+    /**
+     * Unpacks moves from a buffer, advancing its position.
+     *
+     * @param buffer the buffer containing the packed moves
+     * @param count  the number of moves
+     * @param pushes true if the moves have been packed keeping the pushes
+     * @param moves  the array receiving the codes
+     * @param offset the first code to be written
+     * @throws java.nio.BufferUnderflowException if the buffer does not contain all the moves
+     */
+    public static void unpack(ByteBuffer buffer, int count, boolean pushes, byte[] moves, int offset) {
+        int size = packedSize(count, pushes);
+        if (buffer.remaining() < size) {
+            throw new java.nio.BufferUnderflowException();
+        }
+
+        byte[] packed;
+        int position;
+        if (buffer.hasArray()) {
+            packed = buffer.array();
+            position = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + size);
+        } else {
+            packed = new byte[size];
+            position = 0;
+            buffer.get(packed);
+        }
+
+        if (pushes) {
+            unpack3(packed, position, count, moves, offset);
+        } else {
+            unpack2(packed, position, count, moves, offset);
+        }
+    }
+
+    /**
+     * Encodes moves as a self-contained binary string: the number of moves and the push flag as a
+     * variable-length integer, followed by the packed moves.
+     *
+     * @param moves  the codes of the moves
+     * @param pushes true to keep the pushes, false to drop them and save a third of the size
+     * @return the binary string
+     */
+    public static byte[] toBinary(byte[] moves, boolean pushes) {
+        long header = (long) moves.length << 1 | (pushes ? 1 : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(10 + packedSize(moves.length, pushes));
+        do {
+            byte next = (byte) (header & 0x7f);
+            header >>>= 7;
+            buffer.put(header == 0 ? next : (byte) (next | 0x80));
+        } while (header != 0);
+
+        pack(moves, 0, moves.length, pushes, buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Decodes a binary string written by {@link #toBinary(byte[], boolean)}.
+     *
+     * @param binary the binary string
+     * @return the codes of the moves, without pushes if they have been dropped
+     * @throws IllegalArgumentException if the binary string is not valid
+     */
+    public static byte[] fromBinary(byte[] binary) {
+        ByteBuffer buffer = ByteBuffer.wrap(binary);
+        long header = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (!buffer.hasRemaining() || shift > 35) {
+                throw new IllegalArgumentException("Invalid move header");
+            }
+
+            byte next = buffer.get();
+            header |= (long) (next & 0x7f) << shift;
+            if (next >= 0) {
+                break;
+            }
+        }
+
+        long count = header >>> 1;
+        boolean pushes = (header & 1) == 1;
+        if (count > Integer.MAX_VALUE || packedSize((int) count, pushes) != buffer.remaining()) {
+            throw new IllegalArgumentException("The binary string does not contain " + count + " moves");
+        }
+
+        byte[] moves = new byte[(int) count];
+        unpack(buffer, moves.length, pushes, moves, 0);
+        return moves;
+    }
+}
@@ -0,0 +1,80 @@
+package engine.lurd;
+
+/**
+ * LurdValidation is the result of replaying moves with {@link LurdValidator}.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class LurdValidation {
+
+    /**
+     * The number of moves applied before the first error, or all of them
+     */
+    private final int movesApplied;
+    /**
+     * The number of pushes among the moves applied
+     */
+    private final int pushes;
+    /**
+     * The index of the first invalid move, -1 if every move is valid
+     */
+    private final int errorIndex;
+    private final String error;
+    /**
+     * True if every diamond is covered once the moves applied have been played
+     */
+    private final boolean solved;
+
+    LurdValidation(int movesApplied, int pushes, int errorIndex, String error, boolean solved) {
+        this.movesApplied = movesApplied;
+        this.pushes = pushes;
+        this.errorIndex = errorIndex;
+        this.error = error;
+        this.solved = solved;
+    }
+
+    public int getMovesApplied() {
+        return movesApplied;
+    }
+
+    public int getPushes() {
+        return pushes;
+    }
+
+    /**
+     * Returns the index of the first invalid move, relative to the first move validated.
+     *
+     * @return the index, or -1 if every move is valid
+     */
+    public int getErrorIndex() {
+        return errorIndex;
+    }
+
+    /**
+     * Returns why the first invalid move cannot be played.
+     *
+     * @return the error, or null if every move is valid
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isValid() {
+        return errorIndex < 0;
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    @Override
+    public String toString() {
+        String result = movesApplied + " moves, " + pushes + " pushes";
+        if (!isValid()) {
+            return result + ", move " + errorIndex + ": " + error;
+        }
+
+        return solved ? result + ", solved" : result;
+    }
+}
@@ -0,0 +1,110 @@
+package engine.lurd;
+
+import engine.Board;
+import engine.Direction;
+import engine.Level;
+import engine.LevelLayout;
+
+/**
+ * LurdValidator replays moves against a position, following the rules applied by
+ * {@link engine.GameEngine}, without changing the position.
+ * <p>
+ * The crates are tracked in a flag per cell and the moves are applied in place, so validating a long
+ * solution costs a few operations per move and no allocation besides the flags. A validation can also
+ * restore the pushes of moves decoded from a form that does not keep them, since whether a move pushes
+ * a crate only depends on the position it is played in.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class LurdValidator {
+
+    private LurdValidator() {
+    }
+
+    /**
+     * Replays moves from the current position of a level.
+     *
+     * @param level the level, which is not changed
+     * @param moves the codes of the moves, as read by {@link LurdCodec}
+     * @return the result of the validation
+     */
+    public static LurdValidation validate(Level level, byte[] moves) {
+        return validate(level.toBoard(), moves, 0, moves.length, false);
+    }
+
+    /**
+     * Replays moves from a position, stopping at the first move that cannot be played.
+     *
+     * @param board          the starting position
+     * @param moves          the codes of the moves
+     * @param offset         the first code
+     * @param count          the number of codes
+     * @param restorePushes  true to set the push flag of every move according to the position, false
+     *                       to report a move whose push flag is wrong as an error
+     * @return the result of the validation
+     */
+    public static LurdValidation validate(Board board, byte[] moves, int offset, int count, boolean restorePushes) {
+        LevelLayout layout = board.getLayout();
+        int columns = layout.getColumns();
+        boolean[] crates = new boolean[layout.getCellCount()];
+        int onGoals = 0;
+        for (int i = 0; i < board.getCrateCount(); i++) {
+            int crate = board.getCrate(i);
+            crates[crate] = true;
+            if (layout.isGoal(crate)) {
+                onGoals++;
+            }
+        }
+
+        int keeper = board.getKeeper();
+        int pushes = 0;
+        for (int i = 0; i < count; i++) {
+            byte code = moves[offset + i];
+            Direction direction = LurdCodec.direction(code);
+
+            int target = neighbour(layout, keeper, direction);
+            if (target < 0 || layout.isWall(target)) {
+                return failure(layout, i, pushes, "the keeper cannot move " + direction + " from " + position(keeper, columns), onGoals);
+            }
+
+            boolean push = crates[target];
+            if (restorePushes) {
+                moves[offset + i] = LurdCodec.code(direction, push);
+            } else if (push != LurdCodec.isPush(code)) {
+                String error = push ? "the move pushes a crate" : "the move does not push a crate";
+                return failure(layout, i, pushes, error, onGoals);
+            }
+
+            if (push) {
+                int crateTarget = neighbour(layout, target, direction);
+                if (crateTarget < 0 || layout.isWall(crateTarget) || crates[crateTarget]) {
+                    return failure(layout, i, pushes, "the crate at " + position(target, columns) + " cannot be pushed " + direction, onGoals);
+                }
+
+                crates[target] = false;
+                crates[crateTarget] = true;
+                onGoals += (layout.isGoal(crateTarget) ? 1 : 0) - (layout.isGoal(target) ? 1 : 0);
+                pushes++;
+            }
+
+            keeper = target;
+        }
+
+        return new LurdValidation(count, pushes, -1, null, onGoals >= layout.getNumberOfDiamonds());
+    }
+
+    private static LurdValidation failure(LevelLayout layout, int index, int pushes, String error, int onGoals) {
+        return new LurdValidation(index, pushes, index, error, onGoals >= layout.getNumberOfDiamonds());
+    }
+
+    private static int neighbour(LevelLayout layout, int cell, Direction direction) {
+        int row = cell / layout.getColumns() + direction.getRowDelta();
+        int column = cell % layout.getColumns() + direction.getColumnDelta();
+        return layout.contains(row, column) ? layout.cellOf(row, column) : -1;
+    }
+
+    private static String position(int cell, int columns) {
+        return "(" + cell / columns + ", " + cell % columns + ")";
+    }
+}
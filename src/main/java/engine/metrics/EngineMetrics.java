@@ -0,0 +1,182 @@
+package engine.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * EngineMetrics collects the runtime metrics of the game and exposes them over JMX,
+ * so that they can be watched with the standard JDK tools, e.g. JConsole or VisualVM.
+ * <p>
+ * Counters are striped {@link LongAdder}s and durations are recorded in
+ * {@link LatencyHistogram}s, so every record method is cheap and thread-safe.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+
+    /**
+     * The name of the MBean
+     */
+    public static final String OBJECT_NAME = "sokoban:type=EngineMetrics";
+
+    private static final EngineMetrics INSTANCE = register(new EngineMetrics());
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder pushes = new LongAdder();
+    private final LongAdder levelsLoaded = new LongAdder();
+    private final LongAdder levelsCompleted = new LongAdder();
+    private final RateMeter moveRate = new RateMeter();
+    private final LatencyHistogram moveTime = new LatencyHistogram();
+    private final LatencyHistogram levelParseTime = new LatencyHistogram();
+    private final LatencyHistogram packLoadTime = new LatencyHistogram();
+    private final LatencyHistogram completionCheckTime = new LatencyHistogram();
+    private final LatencyHistogram renderTime = new LatencyHistogram();
+
+    private EngineMetrics() {
+    }
+
+    /**
+     * Returns the metrics shared by the whole application.
+     *
+     * @return the metrics instance
+     */
+    public static EngineMetrics get() {
+        return INSTANCE;
+    }
+
+    private static EngineMetrics register(EngineMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            System.err.println("Cannot register the engine metrics MBean: " + e);
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Records a call to the engine move logic.
+     *
+     * @param elapsed     the time spent in nanoseconds
+     * @param keeperMoved true if the keeper moved
+     * @param cratePushed true if a crate has been pushed
+     */
+    public void recordMove(long elapsed, boolean keeperMoved, boolean cratePushed) {
+        moveTime.record(elapsed);
+        if (keeperMoved) {
+            moves.increment();
+            moveRate.mark();
+        }
+        if (cratePushed) {
+            pushes.increment();
+        }
+    }
+
+    /**
+     * Records the parsing of a level.
+     *
+     * @param elapsed the time spent in nanoseconds
+     */
+    public void recordLevelParsed(long elapsed) {
+        levelParseTime.record(elapsed);
+        levelsLoaded.increment();
+    }
+
+    /**
+     * Records the loading of a whole game file.
+     *
+     * @param elapsed the time spent in nanoseconds
+     */
+    public void recordPackLoaded(long elapsed) {
+        packLoadTime.record(elapsed);
+    }
+
+    /**
+     * Records a check of the level completion.
+     *
+     * @param elapsed the time spent in nanoseconds
+     */
+    public void recordCompletionCheck(long elapsed) {
+        completionCheckTime.record(elapsed);
+    }
+
+    public void recordLevelCompleted() {
+        levelsCompleted.increment();
+    }
+
+    /**
+     * Records a render of the game grid.
+     *
+     * @param elapsed the time spent in nanoseconds
+     */
+    public void recordRender(long elapsed) {
+        renderTime.record(elapsed);
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public long getPushes() {
+        return pushes.sum();
+    }
+
+    @Override
+    public double getMovesPerSecond() {
+        return moveRate.getRate();
+    }
+
+    @Override
+    public long getLevelsLoaded() {
+        return levelsLoaded.sum();
+    }
+
+    @Override
+    public long getLevelsCompleted() {
+        return levelsCompleted.sum();
+    }
+
+    @Override
+    public LatencySnapshot getMoveTime() {
+        return moveTime.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getLevelParseTime() {
+        return levelParseTime.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getPackLoadTime() {
+        return packLoadTime.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getCompletionCheckTime() {
+        return completionCheckTime.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getRenderTime() {
+        return renderTime.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        moves.reset();
+        pushes.reset();
+        levelsLoaded.reset();
+        levelsCompleted.reset();
+        moveRate.reset();
+        moveTime.reset();
+        levelParseTime.reset();
+        packLoadTime.reset();
+        completionCheckTime.reset();
+        renderTime.reset();
+    }
+}
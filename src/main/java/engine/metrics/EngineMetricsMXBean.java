@@ -0,0 +1,33 @@
+package engine.metrics;
+
+/**
+ * The management interface of {@link EngineMetrics}, registered as
+ * {@value EngineMetrics#OBJECT_NAME}. Durations are expressed in milliseconds.
+ */
+public interface EngineMetricsMXBean {
+
+    long getMoves();
+
+    long getPushes();
+
+    double getMovesPerSecond();
+
+    long getLevelsLoaded();
+
+    long getLevelsCompleted();
+
+    LatencySnapshot getMoveTime();
+
+    LatencySnapshot getLevelParseTime();
+
+    LatencySnapshot getPackLoadTime();
+
+    LatencySnapshot getCompletionCheckTime();
+
+    LatencySnapshot getRenderTime();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
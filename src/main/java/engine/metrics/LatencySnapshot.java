@@ -0,0 +1,50 @@
+package engine.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * LatencySnapshot is an immutable summary of a {@link LatencyHistogram}, in milliseconds.
+ * It is exposed over JMX as composite data.
+ */
+public final class LatencySnapshot {
+
+    private final long count;
+    private final double mean;
+    private final double median;
+    private final double percentile99;
+    private final double max;
+
+    @ConstructorProperties({"count", "mean", "median", "percentile99", "max"})
+    public LatencySnapshot(long count, double mean, double median, double percentile99, double max) {
+        this.count = count;
+        this.mean = mean;
+        this.median = median;
+        this.percentile99 = percentile99;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getMedian() {
+        return median;
+    }
+
+    public double getPercentile99() {
+        return percentile99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", count, mean, median, percentile99, max);
+    }
+}
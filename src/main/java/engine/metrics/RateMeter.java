@@ -0,0 +1,70 @@
+package engine.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * RateMeter counts events in one-second slots and reports the average rate
+ * over the last {@value #WINDOW} complete seconds.
+ */
+final class RateMeter {
+
+    /**
+     * The number of complete seconds used to compute the rate
+     */
+    private static final int WINDOW = 5;
+    private static final int SLOTS = 8;
+
+    /**
+     * The second each slot refers to
+     */
+    private final AtomicLongArray seconds = new AtomicLongArray(SLOTS);
+    /**
+     * The number of events of each slot
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+
+    /**
+     * Counts an event. Events counted by other threads while a slot is being
+     * recycled for a new second may be lost, which is fine for a rate estimate.
+     */
+    void mark() {
+        long second = currentSecond();
+        int slot = (int) (second & (SLOTS - 1));
+
+        long stamp = seconds.get(slot);
+        if (stamp != second && seconds.compareAndSet(slot, stamp, second)) {
+            counts.set(slot, 0);
+        }
+        counts.incrementAndGet(slot);
+    }
+
+    /**
+     * Returns the average number of events per second.
+     *
+     * @return the rate over the last complete seconds
+     */
+    double getRate() {
+        long now = currentSecond();
+        long events = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            long age = now - seconds.get(slot);
+            if (age >= 1 && age <= WINDOW) {
+                events += counts.get(slot);
+            }
+        }
+
+        return events / (double) WINDOW;
+    }
+
+    void reset() {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            seconds.set(slot, 0);
+            counts.set(slot, 0);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package engine.replay;
+
+/**
+ * ReplayEntry lists the entries of a replay stream.
+ * <p>
+ * Every entry is stored in one byte: the entry code in the upper bits, then the crate flag and
+ * the direction ordinal in the lowest three bits. A {@link #LEVEL} entry is followed by the
+ * content hash of the new level. The ordinals are part of the file format, so new entries must
+ * be appended at the end.
+ */
+public enum ReplayEntry {
+    /**
+     * The keeper moved, possibly pushing a crate
+     */
+    MOVE,
+    /**
+     * A move has been undone, possibly pulling back a crate
+     */
+    UNDO,
+    /**
+     * The current level has been restarted
+     */
+    RESET,
+    /**
+     * The game moved on to the next level
+     */
+    LEVEL;
+
+    private static final ReplayEntry[] VALUES = values();
+
+    /**
+     * Returns the entry with the given code.
+     *
+     * @param code the entry code
+     * @return the entry, or null if the code is unknown
+     */
+    static ReplayEntry fromCode(int code) {
+        return code < VALUES.length ? VALUES[code] : null;
+    }
+}
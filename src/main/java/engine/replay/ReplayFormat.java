@@ -0,0 +1,57 @@
+package engine.replay;
+
+/**
+ * ReplayFormat holds the constants of the replay file format.
+ * <p>
+ * A replay starts with a fixed size header: {@link #MAGIC}, {@link #VERSION}, the flags, the
+ * content hash of the first level and the start time in milliseconds since the epoch. The header
+ * is followed by the entries, one byte each (see {@link ReplayEntry}), interleaved with optional
+ * timestamp records holding the milliseconds elapsed since the start as an int.
+ */
+final class ReplayFormat {
+
+    /**
+     * The first bytes of every replay
+     */
+    static final long MAGIC = 0x534B425245504C59L; // "SKBREPLY"
+    /**
+     * The version of the replay format
+     */
+    static final int VERSION = 1;
+    /**
+     * The size of the header in bytes
+     */
+    static final int HEADER_SIZE = 8 + 4 + 4 + 8 + 8;
+    /**
+     * The flag set when the replay contains timestamp records
+     */
+    static final int FLAG_TIMESTAMPS = 1;
+
+    /**
+     * The code of the timestamp records, after the entry codes
+     */
+    static final int TIMESTAMP = 7;
+    /**
+     * The number of bits holding the crate flag and the direction
+     */
+    static final int CODE_SHIFT = 3;
+    static final int CRATE_FLAG = 1 << 2;
+    static final int DIRECTION_MASK = 3;
+
+    private ReplayFormat() {
+    }
+
+    /**
+     * Returns the size of a record, including its first byte.
+     *
+     * @param code the record code
+     * @return the size in bytes
+     */
+    static int sizeOf(int code) {
+        if (code == TIMESTAMP) {
+            return 1 + 4;
+        }
+
+        return code == ReplayEntry.LEVEL.ordinal() ? 1 + 8 : 1;
+    }
+}
@@ -0,0 +1,467 @@
+package engine.replay;
+
+import engine.Direction;
+import engine.GameEngine;
+import engine.Level;
+import engine.LevelLayout;
+import engine.LevelPackParser;
+import engine.MoveListener;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ReplayHeatmap counts, for every cell of a level, how often the players walked on it and pushed
+ * crates from it, and where the crates were when the players restarted the level or gave up on it.
+ * <p>
+ * Every session on the level found in the replays is played again through a {@link GameEngine},
+ * so the counts follow the rules of the game rather than what the replay claims: a session whose
+ * moves the engine rejects, e.g. because the level has been edited since it was recorded, is
+ * discarded from the first rejected move. A session ending without completing the level, because the
+ * player chose another level or closed the game, counts as stuck.
+ * <p>
+ * The replays are read in parallel: each thread takes the next file from the shared iterator,
+ * replays it into a heatmap of its own, and the heatmaps are merged at the end. Only the cursor of
+ * the current replay is kept by each thread, so any number of replays can be processed in constant
+ * memory.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class ReplayHeatmap {
+
+    private final LevelLayout layout;
+    /**
+     * The number of times the keeper entered each cell, including the start of every session
+     */
+    private final long[] visits;
+    /**
+     * The number of crates pushed out of each cell
+     */
+    private final long[] pushes;
+    /**
+     * The number of crates on each cell when the level was restarted
+     */
+    private final long[] restartCrates;
+    /**
+     * The number of crates on each cell when a session ended without completing the level
+     */
+    private final long[] stuckCrates;
+    private long replays;
+    /**
+     * The number of replays that could not be read
+     */
+    private long unreadable;
+    private long sessions;
+    private long completed;
+    private long restarts;
+    private long stuck;
+    /**
+     * The number of sessions whose moves were rejected by the engine
+     */
+    private long discarded;
+
+    /**
+     * Creates an empty heatmap.
+     *
+     * @param level the level whose sessions are counted
+     */
+    public ReplayHeatmap(Level level) {
+        layout = level.getLayout();
+
+        int cells = layout.getCellCount();
+        visits = new long[cells];
+        pushes = new long[cells];
+        restartCrates = new long[cells];
+        stuckCrates = new long[cells];
+    }
+
+    /**
+     * Counts the sessions on a level of the replays in a directory.
+     *
+     * @param level     the level, as loaded from its game file
+     * @param directory the directory containing the replay files
+     * @param threads   the number of threads reading the replays
+     * @return the heatmap of the level
+     * @throws IOException if the directory cannot be listed
+     */
+    public static ReplayHeatmap aggregate(Level level, Path directory, int threads) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + ReplayRecorder.EXTENSION)) {
+            return aggregate(level, files.iterator(), threads);
+        }
+    }
+
+    /**
+     * Counts the sessions on a level of a sequence of replays. The replays are taken from the
+     * iterator one at a time, as the threads need them.
+     *
+     * @param level   the level, as loaded from its game file
+     * @param replays the replay files
+     * @param threads the number of threads reading the replays
+     * @return the heatmap of the level
+     * @throws IOException if the threads are interrupted
+     */
+    public static ReplayHeatmap aggregate(Level level, Iterator<Path> replays, int threads) throws IOException {
+        int workers = Math.max(1, threads);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "ReplayHeatmap-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<ReplayHeatmap>> results = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                results.add(executor.submit(() -> {
+                    Player player = new Player(new ReplayHeatmap(level), level);
+                    for (Path file = next(replays); file != null; file = next(replays)) {
+                        player.play(file);
+                    }
+                    return player.heatmap;
+                }));
+            }
+
+            ReplayHeatmap heatmap = new ReplayHeatmap(level);
+            for (Future<ReplayHeatmap> result : results) {
+                heatmap.merge(result.get());
+            }
+
+            return heatmap;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the replays", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot read the replays", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Path next(Iterator<Path> replays) {
+        synchronized (replays) {
+            return replays.hasNext() ? replays.next() : null;
+        }
+    }
+
+    /**
+     * Adds the counts of another heatmap of the same level to this one.
+     *
+     * @param other the heatmap to be added
+     * @throws IllegalArgumentException if the other heatmap belongs to another level
+     */
+    public void merge(ReplayHeatmap other) {
+        if (other.layout.getContentHash() != layout.getContentHash()) {
+            throw new IllegalArgumentException("The heatmaps belong to different levels.");
+        }
+
+        for (int cell = 0; cell < visits.length; cell++) {
+            visits[cell] += other.visits[cell];
+            pushes[cell] += other.pushes[cell];
+            restartCrates[cell] += other.restartCrates[cell];
+            stuckCrates[cell] += other.stuckCrates[cell];
+        }
+
+        replays += other.replays;
+        unreadable += other.unreadable;
+        sessions += other.sessions;
+        completed += other.completed;
+        restarts += other.restarts;
+        stuck += other.stuck;
+        discarded += other.discarded;
+    }
+
+    public LevelLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the number of times the keeper entered each cell, indexed as in {@link LevelLayout}.
+     *
+     * @return a copy of the visit counts
+     */
+    public long[] getVisits() {
+        return visits.clone();
+    }
+
+    /**
+     * Returns the number of crates pushed out of each cell, indexed as in {@link LevelLayout}.
+     *
+     * @return a copy of the push counts
+     */
+    public long[] getPushes() {
+        return pushes.clone();
+    }
+
+    /**
+     * Returns how many times each cell held a crate when the level was restarted.
+     *
+     * @return a copy of the counts, indexed as in {@link LevelLayout}
+     */
+    public long[] getRestartCrates() {
+        return restartCrates.clone();
+    }
+
+    /**
+     * Returns how many times each cell held a crate when a session ended without completing the level.
+     *
+     * @return a copy of the counts, indexed as in {@link LevelLayout}
+     */
+    public long[] getStuckCrates() {
+        return stuckCrates.clone();
+    }
+
+    public long getReplays() {
+        return replays;
+    }
+
+    public long getUnreadable() {
+        return unreadable;
+    }
+
+    public long getSessions() {
+        return sessions;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getRestarts() {
+        return restarts;
+    }
+
+    public long getStuck() {
+        return stuck;
+    }
+
+    public long getDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * Draws a set of counts over the level: walls as 'W', every other cell as a digit from 0 to 9
+     * growing with the logarithm of its count, or as '.' if its count is 0.
+     *
+     * @param counts the counts, e.g. {@link #getVisits()}
+     * @return the rows of the drawing, separated by new lines
+     */
+    public String render(long[] counts) {
+        long max = 1;
+        for (long count : counts) {
+            max = Math.max(max, count);
+        }
+
+        double scale = 9 / Math.log1p(max);
+        StringBuilder sb = new StringBuilder(layout.getCellCount() + layout.getRows());
+        for (int row = 0; row < layout.getRows(); row++) {
+            for (int col = 0; col < layout.getColumns(); col++) {
+                int cell = layout.cellOf(row, col);
+                if (layout.isWall(cell)) {
+                    sb.append('W');
+                } else if (counts[cell] == 0) {
+                    sb.append('.');
+                } else {
+                    sb.append((char) ('0' + Math.round(Math.log1p(counts[cell]) * scale)));
+                }
+            }
+            sb.append(System.lineSeparator());
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d replays (%d unreadable), %d sessions: %d completed, %d stuck, %d discarded, %d restarts",
+                replays, unreadable, sessions, completed, stuck, discarded, restarts);
+    }
+
+    /**
+     * Player replays the sessions of the level into a heatmap, on the thread that owns both.
+     */
+    private static final class Player implements MoveListener {
+        final ReplayHeatmap heatmap;
+        final GameEngine engine;
+        final int levelIndex;
+        final long levelHash;
+        /**
+         * True while a session on the level is being replayed
+         */
+        boolean active;
+
+        Player(ReplayHeatmap heatmap, Level level) {
+            this.heatmap = heatmap;
+            levelIndex = level.getIndex();
+            levelHash = level.getLayout().getContentHash();
+
+            // The engine finds the levels by index, so the level is placed at its own index.
+            engine = new GameEngine("", Collections.nCopies(levelIndex, level), false);
+            engine.addMoveListener(this);
+        }
+
+        void play(Path file) {
+            ReplayReader reader;
+            try {
+                reader = ReplayReader.open(file);
+            } catch (IOException e) {
+                heatmap.unreadable++;
+                return;
+            }
+
+            try {
+                if (reader.getFirstLevelHash() == levelHash) {
+                    start();
+                }
+
+                while (reader.next()) {
+                    switch (reader.getEntry()) {
+                        case LEVEL:
+                            end();
+                            if (reader.getLevelHash() == levelHash) {
+                                start();
+                            }
+                            break;
+
+                        case MOVE:
+                            if (active && !engine.move(reader.getDirection())) {
+                                discard();
+                            } else if (active && engine.isGameComplete()) {
+                                // The engine only holds this level, so completing it completes the game.
+                                heatmap.completed++;
+                                active = false;
+                            }
+                            break;
+
+                        case UNDO:
+                            if (active && !engine.undo()) {
+                                discard();
+                            }
+                            break;
+
+                        case RESET:
+                            if (active) {
+                                heatmap.restarts++;
+                                countCrates(heatmap.restartCrates);
+                                engine.resetLevel();
+                            }
+                            break;
+
+                        default:
+                            break;
+                    }
+                }
+
+                end();
+                heatmap.replays++;
+            } catch (IllegalStateException e) {
+                // The replay is corrupted: what has been counted so far is kept.
+                active = false;
+                heatmap.unreadable++;
+            } finally {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // The replay has already been read.
+                }
+            }
+        }
+
+        private void start() {
+            engine.selectLevel(levelIndex);
+            active = true;
+            heatmap.sessions++;
+        }
+
+        private void end() {
+            if (active) {
+                heatmap.stuck++;
+                countCrates(heatmap.stuckCrates);
+                active = false;
+            }
+        }
+
+        private void discard() {
+            heatmap.discarded++;
+            active = false;
+        }
+
+        private void countCrates(long[] counts) {
+            Level level = engine.getCurrentLevel();
+            for (int i = 0; i < level.getCrateCount(); i++) {
+                counts[level.getCrate(i)]++;
+            }
+        }
+
+        private int keeperCell() {
+            Point keeper = engine.getCurrentLevel().getKeeperPosition();
+            return heatmap.layout.cellOf(keeper.x, keeper.y);
+        }
+
+        @Override
+        public void keeperMoved(Direction direction, boolean cratePushed) {
+            int cell = keeperCell();
+            heatmap.visits[cell]++;
+            if (cratePushed) {
+                heatmap.pushes[cell]++;
+            }
+        }
+
+        @Override
+        public void levelStarted(Level level) {
+            if (level != null) {
+                heatmap.visits[keeperCell()]++;
+            }
+        }
+
+        @Override
+        public void levelReset(Level level) {
+            heatmap.visits[keeperCell()]++;
+        }
+    }
+
+    /**
+     * Prints the heatmaps of a level from the replays in a directory.
+     *
+     * @param args the game file, the level index and the directory containing the replays
+     * @throws IOException if the game file or the replays cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: ReplayHeatmap <file.skb> <level> <replay directory>");
+            System.exit(2);
+        }
+
+        Level level;
+        try (InputStream input = Files.newInputStream(Paths.get(args[0]));
+             LevelPackParser parser = new LevelPackParser(input)) {
+            level = parser.readAll().get(Integer.parseInt(args[1]) - 1);
+        }
+
+        long start = System.nanoTime();
+        ReplayHeatmap heatmap = aggregate(level, Paths.get(args[2]), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%s in %.1f ms%n", heatmap, (System.nanoTime() - start) / 1e6);
+        System.out.println("Keeper visits:");
+        System.out.print(heatmap.render(heatmap.visits));
+        System.out.println("Pushes:");
+        System.out.print(heatmap.render(heatmap.pushes));
+        System.out.println("Crates at restart:");
+        System.out.print(heatmap.render(heatmap.restartCrates));
+        System.out.println("Crates when stuck:");
+        System.out.print(heatmap.render(heatmap.stuckCrates));
+    }
+}
@@ -0,0 +1,333 @@
+package engine.replay;
+
+import engine.Direction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static engine.replay.ReplayFormat.CODE_SHIFT;
+import static engine.replay.ReplayFormat.CRATE_FLAG;
+import static engine.replay.ReplayFormat.DIRECTION_MASK;
+
+/**
+ * ReplayReader reads a replay written by {@link ReplayRecorder} through a memory-mapped buffer.
+ * <p>
+ * The reader is a cursor: {@link #next()} moves to the next entry, whose details are then
+ * available through the getters, so a replay can be scanned without allocating anything.
+ * {@link #seek(long)} jumps to any entry using a sparse index holding the state of the cursor
+ * every {@value #CHECKPOINT_INTERVAL} entries, which is built on the first seek. A record cut
+ * short at the end of the file, e.g. by a crash while recording, is ignored.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class ReplayReader implements Closeable {
+
+    /**
+     * The number of entries between two checkpoints of the index
+     */
+    public static final int CHECKPOINT_INTERVAL = 1024;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final FileChannel channel;
+    private final ByteBuffer data;
+    /**
+     * The content hash of the first level
+     */
+    private final long firstLevelHash;
+    /**
+     * The time the recording started, in milliseconds since the epoch
+     */
+    private final long startTime;
+    private final boolean timestamps;
+
+    /**
+     * The offset of the next record
+     */
+    private int position = ReplayFormat.HEADER_SIZE;
+    /**
+     * The index of the current entry, -1 before the first one
+     */
+    private long entryIndex = -1;
+    private ReplayEntry entry;
+    private Direction direction;
+    private boolean crateMoved;
+    private long levelHash;
+    /**
+     * The last timestamp read in milliseconds since the start, or -1
+     */
+    private int timestamp = -1;
+
+    /**
+     * The offset of the entry starting each checkpoint, or null until the index is built
+     */
+    private int[] checkpointOffsets;
+    private long[] checkpointLevelHashes;
+    private int[] checkpointTimestamps;
+    private long entryCount = -1;
+
+    private ReplayReader(FileChannel channel, ByteBuffer data) throws IOException {
+        this.channel = channel;
+        this.data = data;
+
+        if (data.limit() < ReplayFormat.HEADER_SIZE || data.getLong(0) != ReplayFormat.MAGIC) {
+            throw new IOException("Not a replay file.");
+        }
+        int version = data.getInt(8);
+        if (version != ReplayFormat.VERSION) {
+            throw new IOException("Unsupported replay version: " + version);
+        }
+
+        timestamps = (data.getInt(12) & ReplayFormat.FLAG_TIMESTAMPS) != 0;
+        firstLevelHash = data.getLong(16);
+        startTime = data.getLong(24);
+        levelHash = firstLevelHash;
+    }
+
+    /**
+     * Opens a replay file.
+     *
+     * @param file the replay file
+     * @return the reader, positioned before the first entry
+     * @throws IOException if the file cannot be read or it is not a replay
+     */
+    public static ReplayReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The replay is too large to be mapped: " + file);
+            }
+
+            return new ReplayReader(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getFirstLevelHash() {
+        return firstLevelHash;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns true if the replay contains timestamps.
+     *
+     * @return true if timestamps have been recorded
+     */
+    public boolean hasTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return true if there is an entry, false if the end of the replay has been reached
+     * @throws IllegalStateException if the replay is corrupted
+     */
+    public boolean next() {
+        int limit = data.limit();
+        while (position < limit) {
+            int code = data.get(position) & 0xff;
+            int size = ReplayFormat.sizeOf(code >>> CODE_SHIFT);
+            if (position + size > limit) {
+                break;
+            }
+
+            if (code >>> CODE_SHIFT == ReplayFormat.TIMESTAMP) {
+                timestamp = data.getInt(position + 1);
+                position += size;
+                continue;
+            }
+
+            ReplayEntry read = ReplayEntry.fromCode(code >>> CODE_SHIFT);
+            if (read == null) {
+                throw new IllegalStateException("Unknown replay record " + code + " at offset " + position);
+            }
+
+            entry = read;
+            boolean hasDirection = read == ReplayEntry.MOVE || read == ReplayEntry.UNDO;
+            direction = hasDirection ? DIRECTIONS[code & DIRECTION_MASK] : null;
+            crateMoved = hasDirection && (code & CRATE_FLAG) != 0;
+            if (read == ReplayEntry.LEVEL) {
+                levelHash = data.getLong(position + 1);
+            }
+
+            position += size;
+            entryIndex++;
+            return true;
+        }
+
+        entry = null;
+        direction = null;
+        crateMoved = false;
+        return false;
+    }
+
+    /**
+     * Returns the current entry.
+     *
+     * @return the entry, or null before the first entry and after the last one
+     */
+    public ReplayEntry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Returns the direction of the current move or undo.
+     *
+     * @return the direction, or null for the other entries
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Returns true if the current move pushed a crate, or the current undo pulled one back.
+     *
+     * @return true if a crate has been moved
+     */
+    public boolean isCrateMoved() {
+        return crateMoved;
+    }
+
+    /**
+     * Returns the content hash of the level the current entry belongs to.
+     *
+     * @return the level content hash
+     */
+    public long getLevelHash() {
+        return levelHash;
+    }
+
+    /**
+     * Returns the index of the current entry.
+     *
+     * @return the entry index, or -1 before the first entry
+     */
+    public long getEntryIndex() {
+        return entryIndex;
+    }
+
+    /**
+     * Returns the time of the last timestamp read.
+     *
+     * @return the milliseconds elapsed since the start, or -1 if no timestamp has been read
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the number of entries in the replay, building the index if needed.
+     *
+     * @return the number of entries
+     */
+    public long getEntryCount() {
+        buildIndex();
+        return entryCount;
+    }
+
+    /**
+     * Moves the cursor right before an entry, so that the next call to {@link #next()} reads it.
+     *
+     * @param index the index of the entry, between 0 and the number of entries
+     * @throws IndexOutOfBoundsException if the index is outside the replay
+     */
+    public void seek(long index) {
+        buildIndex();
+        if (index < 0 || index > entryCount) {
+            throw new IndexOutOfBoundsException("Entry " + index + " of " + entryCount);
+        }
+
+        int checkpoint = (int) (index / CHECKPOINT_INTERVAL);
+        restore(checkpointOffsets[checkpoint], checkpoint * (long) CHECKPOINT_INTERVAL - 1,
+                checkpointLevelHashes[checkpoint], checkpointTimestamps[checkpoint]);
+
+        // Skip the entries between the checkpoint and the requested one.
+        while (entryIndex < index - 1) {
+            next();
+        }
+    }
+
+    /**
+     * Scans the whole replay once, saving the state of the cursor every {@value #CHECKPOINT_INTERVAL}
+     * entries. The cursor position is preserved.
+     */
+    private void buildIndex() {
+        if (checkpointOffsets != null) {
+            return;
+        }
+
+        int savedPosition = position;
+        long savedIndex = entryIndex;
+        long savedHash = levelHash;
+        int savedTimestamp = timestamp;
+        ReplayEntry savedEntry = entry;
+        Direction savedDirection = direction;
+        boolean savedCrate = crateMoved;
+
+        int[] offsets = new int[16];
+        long[] hashes = new long[16];
+        int[] times = new int[16];
+        int checkpoints = 0;
+
+        restore(ReplayFormat.HEADER_SIZE, -1, firstLevelHash, -1);
+        while (true) {
+            if ((entryIndex + 1) % CHECKPOINT_INTERVAL == 0) {
+                if (checkpoints == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, checkpoints * 2);
+                    hashes = Arrays.copyOf(hashes, checkpoints * 2);
+                    times = Arrays.copyOf(times, checkpoints * 2);
+                }
+                offsets[checkpoints] = position;
+                hashes[checkpoints] = levelHash;
+                times[checkpoints] = timestamp;
+                checkpoints++;
+            }
+
+            if (!next()) {
+                break;
+            }
+        }
+
+        entryCount = entryIndex + 1;
+        checkpointOffsets = offsets;
+        checkpointLevelHashes = hashes;
+        checkpointTimestamps = times;
+
+        restore(savedPosition, savedIndex, savedHash, savedTimestamp);
+        entry = savedEntry;
+        direction = savedDirection;
+        crateMoved = savedCrate;
+    }
+
+    private void restore(int position, long entryIndex, long levelHash, int timestamp) {
+        this.position = position;
+        this.entryIndex = entryIndex;
+        this.levelHash = levelHash;
+        this.timestamp = timestamp;
+        entry = null;
+        direction = null;
+        crateMoved = false;
+    }
+
+    /**
+     * Closes the file. The mapped buffer is released by the garbage collector.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
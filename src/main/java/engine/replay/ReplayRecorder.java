@@ -0,0 +1,234 @@
+package engine.replay;
+
+import engine.Direction;
+import engine.GameEngine;
+import engine.GameLogger;
+import engine.Level;
+import engine.MoveListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static engine.replay.ReplayFormat.CODE_SHIFT;
+import static engine.replay.ReplayFormat.CRATE_FLAG;
+
+/**
+ * ReplayRecorder writes the moves of a {@link GameEngine} into an append-only replay file,
+ * which can be read back with {@link ReplayReader}.
+ * <p>
+ * The recorder is a {@link MoveListener}: each notification only puts one byte into a 64 KiB
+ * buffer, which is written to the file through a {@link FileChannel} when full, so recording
+ * adds no noticeable latency to the moves. A timestamp is added every few entries when
+ * requested. Like the engine, a recorder must be used by one thread at a time.
+ * <p>
+ * Recording is enabled for the whole game by setting the "sokoban.replay.dir" system property
+ * to the directory where the replays should be written.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class ReplayRecorder implements MoveListener, Closeable {
+
+    /**
+     * The directory where the replays are written, or null if recording is disabled
+     */
+    public static final String DIRECTORY = System.getProperty("sokoban.replay.dir");
+    /**
+     * The default number of entries between two timestamps
+     */
+    public static final int DEFAULT_TIMESTAMP_INTERVAL = 64;
+    /**
+     * The extension of the replay files
+     */
+    public static final String EXTENSION = ".rpl";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final AtomicInteger fileCount = new AtomicInteger();
+    private static final GameLogger logger = new GameLogger("ReplayRecorder");
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /**
+     * The time the recording started, in milliseconds since the epoch
+     */
+    private final long startTime;
+    /**
+     * The number of entries between two timestamps, or 0 to record no timestamp
+     */
+    private final int timestampInterval;
+    /**
+     * The number of entries recorded
+     */
+    private long entries = 0;
+    /**
+     * True once the recorder has been closed or has failed to write
+     */
+    private boolean closed = false;
+
+    /**
+     * Creates a new replay file, replacing any existing one, and writes its header.
+     *
+     * @param file              the replay file
+     * @param level             the level being played
+     * @param timestampInterval the number of entries between two timestamps, or 0 to record no timestamp
+     * @throws IOException if the file cannot be created
+     */
+    public ReplayRecorder(Path file, Level level, int timestampInterval) throws IOException {
+        if (timestampInterval < 0) {
+            throw new IllegalArgumentException("The timestamp interval cannot be negative.");
+        }
+
+        this.file = file;
+        this.timestampInterval = timestampInterval;
+        startTime = System.currentTimeMillis();
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        buffer.putLong(ReplayFormat.MAGIC)
+                .putInt(ReplayFormat.VERSION)
+                .putInt(timestampInterval > 0 ? ReplayFormat.FLAG_TIMESTAMPS : 0)
+                .putLong(level.getLayout().getContentHash())
+                .putLong(startTime);
+    }
+
+    /**
+     * Starts recording the moves of an engine in the replay directory, if recording is enabled.
+     *
+     * @param engine the engine to be recorded
+     * @param name   the name used as prefix of the replay file
+     * @return the recorder, or null if recording is disabled or the file cannot be created
+     */
+    public static ReplayRecorder record(GameEngine engine, String name) {
+        if (DIRECTORY == null || engine.getCurrentLevel() == null) {
+            return null;
+        }
+
+        String fileName = String.format("%s-%s-%d%s", name.replaceAll("[^A-Za-z0-9_.-]", "_"),
+                LocalDateTime.now().format(FILE_DATE), fileCount.incrementAndGet(), EXTENSION);
+        try {
+            Path directory = Files.createDirectories(Paths.get(DIRECTORY));
+            ReplayRecorder recorder = new ReplayRecorder(directory.resolve(fileName), engine.getCurrentLevel(),
+                    DEFAULT_TIMESTAMP_INTERVAL);
+            engine.addMoveListener(recorder);
+            return recorder;
+        } catch (IOException e) {
+            logger.warning("Cannot create the replay file " + fileName + ": " + e);
+            return null;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of entries recorded.
+     *
+     * @return the number of entries
+     */
+    public long getEntryCount() {
+        return entries;
+    }
+
+    @Override
+    public void keeperMoved(Direction direction, boolean cratePushed) {
+        append(ReplayEntry.MOVE, direction, cratePushed);
+    }
+
+    @Override
+    public void moveUndone(Direction direction, boolean cratePulled) {
+        append(ReplayEntry.UNDO, direction, cratePulled);
+    }
+
+    @Override
+    public void levelReset(Level level) {
+        append(ReplayEntry.RESET, null, false);
+    }
+
+    @Override
+    public void levelStarted(Level level) {
+        if (append(ReplayEntry.LEVEL, null, false)) {
+            buffer.putLong(level.getLayout().getContentHash());
+        }
+    }
+
+    /**
+     * Appends an entry to the buffer, making room for its payload.
+     *
+     * @param entry     the entry
+     * @param direction the direction of the move, or null
+     * @param crate     true if a crate has been moved
+     * @return true if the entry has been appended, false if the recorder is closed
+     */
+    private boolean append(ReplayEntry entry, Direction direction, boolean crate) {
+        if (closed) {
+            return false;
+        }
+
+        // Make room for the largest timestamp and entry records.
+        if (buffer.remaining() < 16 && !drain()) {
+            return false;
+        }
+
+        if (timestampInterval > 0 && entries % timestampInterval == 0) {
+            buffer.put((byte) (ReplayFormat.TIMESTAMP << CODE_SHIFT));
+            buffer.putInt((int) (System.currentTimeMillis() - startTime));
+        }
+
+        int code = entry.ordinal() << CODE_SHIFT;
+        if (direction != null) {
+            code |= (crate ? CRATE_FLAG : 0) | direction.ordinal();
+        }
+
+        buffer.put((byte) code);
+        entries++;
+        return true;
+    }
+
+    /**
+     * Writes the buffer to the file.
+     *
+     * @return true if successful, false if the recording has been stopped because of an error
+     */
+    private boolean drain() {
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            return true;
+        } catch (IOException e) {
+            logger.severe("Cannot write the replay file " + file + ", recording stopped: " + e);
+            closed = true;
+            return false;
+        }
+    }
+
+    /**
+     * Writes the buffered entries to the file.
+     */
+    public void flush() {
+        if (!closed) {
+            drain();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        closed = true;
+        channel.close();
+    }
+}
@@ -0,0 +1,458 @@
+package engine.search;
+
+import engine.Board;
+import engine.Direction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * BidirectionalSolver searches for a solution from both ends at once: a forward search pushes the
+ * crates from the starting position, as {@link PushSolver} does, while a backward search pulls them
+ * away from the diamonds on another thread.
+ * <p>
+ * Both searches identify a state by its crate cells and by the smallest cell reachable by the keeper,
+ * and they share a single concurrent table of the states they reached. The first state found by one
+ * search in the table of the other joins the two halves: the forward pushes leading to it, followed by
+ * the backward pulls played in reverse as pushes, solve the position. Levels where the crates have to be
+ * threaded into a tight goal area are much easier to search backwards, since pulling a crate out of a
+ * goal room has few alternatives, so the two halves usually meet long before a forward search alone
+ * would find the goals.
+ * <p>
+ * The backward search starts with a crate on every diamond, so positions with more crates than
+ * diamonds are solved by a plain {@link PushSolver}.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class BidirectionalSolver {
+
+    /**
+     * The number of expanded states between two checks of the deadline, of the interrupt flag
+     * and of the other half
+     */
+    private static final int CHECK_INTERVAL = 256;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final BoardAnalysis analysis;
+
+    /**
+     * Creates a solver for the boards having the layout described by the analysis.
+     *
+     * @param analysis the analysis of the board layout
+     */
+    public BidirectionalSolver(BoardAnalysis analysis) {
+        this.analysis = analysis;
+    }
+
+    /**
+     * Searches for a solution of the board, running the backward half on a separate thread.
+     *
+     * @param start      the board to be solved
+     * @param timeBudget the maximum search time in nanoseconds
+     * @return the search result, with the states expanded by both halves
+     */
+    public SearchResult solve(Board start, long timeBudget) {
+        int goalCount = 0;
+        for (int cell = 0; cell < start.getCellCount(); cell++) {
+            if (start.isGoal(cell)) {
+                goalCount++;
+            }
+        }
+
+        if (start.isComplete() || start.getCrateCount() != goalCount) {
+            return new PushSolver(analysis).solve(start, timeBudget);
+        }
+        // The forward half adds up the goal distances, which are not defined for dead squares.
+        if (analysis.hasDeadCrate(start)) {
+            return SearchResult.deadlocked(start);
+        }
+
+        Search search = new Search(start, System.nanoTime() + timeBudget);
+        Half forward = new Half(search, false);
+        Half backward = new Half(search, true);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "BidirectionalSolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Future<?> pulls = executor.submit(backward::run);
+            forward.run();
+
+            // The forward half only stops when the search is over, so the backward one follows shortly.
+            search.finish();
+            pulls.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            search.cancelled = true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The backward search failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int expanded = forward.expanded + backward.expanded;
+        if (search.cancelled || Thread.currentThread().isInterrupted()) {
+            return new SearchResult(start, new ArrayList<Direction>(), false, true, expanded);
+        }
+
+        SearchNode[] meeting = search.meeting.get();
+        if (meeting == null) {
+            return new SearchResult(start, toMoves(start, forward.best, null), false, false, expanded);
+        }
+
+        return new SearchResult(start, toMoves(start, meeting[0], meeting[1]), true, false, expanded);
+    }
+
+    /**
+     * Converts the forward pushes leading to a state, followed by the pushes undoing the backward
+     * pulls leading to the same state, into the complete list of keeper moves.
+     */
+    private List<Direction> toMoves(Board start, SearchNode forward, SearchNode backward) {
+        Deque<SearchNode> pushes = new ArrayDeque<>();
+        for (SearchNode n = forward; n.parent != null; n = n.parent) {
+            pushes.push(n);
+        }
+
+        List<SearchNode> pulls = new ArrayList<>();
+        for (SearchNode n = backward; n != null && n.parent != null; n = n.parent) {
+            pulls.add(n);
+        }
+
+        int[] crates = new int[pushes.size() + pulls.size()];
+        Direction[] directions = new Direction[crates.length];
+        int i = 0;
+        for (SearchNode push : pushes) {
+            crates[i] = push.pushedCrate;
+            directions[i++] = push.direction;
+        }
+        // The last pull made by the backward search is the first push to be played.
+        for (SearchNode pull : pulls) {
+            crates[i] = pull.pushedCrate;
+            directions[i++] = pull.direction;
+        }
+
+        return PushSolver.toMoves(analysis, start, crates, directions);
+    }
+
+    /**
+     * Search holds the state shared by the two halves of a search.
+     */
+    private static final class Search {
+        final Board start;
+        final long deadline;
+        /**
+         * Every state reached by either half, mapped to the node that reached it first
+         */
+        final ConcurrentMap<SearchNode, SearchNode> states = new ConcurrentHashMap<>();
+        /**
+         * The forward and backward nodes of the state where the two halves met
+         */
+        final AtomicReference<SearchNode[]> meeting = new AtomicReference<>();
+        /**
+         * True once either half has finished, e.g. because it ran out of states or of time
+         */
+        volatile boolean finished;
+        volatile boolean cancelled;
+
+        Search(Board start, long deadline) {
+            this.start = start;
+            this.deadline = deadline;
+        }
+
+        void finish() {
+            finished = true;
+        }
+
+        boolean isOver() {
+            return finished || meeting.get() != null;
+        }
+
+        /**
+         * Adds a state to the table.
+         *
+         * @return true if the state is new, false if it was already reached
+         */
+        boolean reach(SearchNode node) {
+            SearchNode previous = states.putIfAbsent(node, node);
+            if (previous == null) {
+                return true;
+            }
+
+            if (previous.backward != node.backward) {
+                SearchNode[] met = node.backward ? new SearchNode[]{previous, node} : new SearchNode[]{node, previous};
+                meeting.compareAndSet(null, met);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Half is one direction of the search, with its own open list and scratch arrays.
+     */
+    private final class Half {
+        final Search search;
+        /**
+         * True for the half pulling the crates away from the diamonds
+         */
+        final boolean backward;
+        /**
+         * The crates and the keeper reachability of the state being expanded
+         */
+        final SearchState state;
+        /**
+         * The estimated distance of a crate in each cell from the other end of the search
+         */
+        final int[] distances;
+        /**
+         * The PI-corral pruning of the forward half, null for the backward one
+         */
+        final CorralPruner corrals;
+        /**
+         * The diamonds
+         */
+        final boolean[] goals;
+        int expanded;
+        /**
+         * The most promising node found so far
+         */
+        SearchNode best;
+
+        Half(Search search, boolean backward) {
+            this.search = search;
+            this.backward = backward;
+
+            int cells = analysis.getCellCount();
+            state = new SearchState(analysis);
+            distances = backward ? startDistances(search.start) : null;
+            corrals = backward ? null : new CorralPruner(analysis);
+            goals = new boolean[cells];
+            for (int cell = 0; cell < cells; cell++) {
+                goals[cell] = search.start.isGoal(cell);
+            }
+        }
+
+        void run() {
+            try {
+                PriorityQueue<SearchNode> open = new PriorityQueue<>();
+                for (SearchNode root : roots()) {
+                    if (search.reach(root)) {
+                        open.add(root);
+                    }
+                }
+
+                while (!open.isEmpty()) {
+                    if (expanded % CHECK_INTERVAL == 0) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            search.cancelled = true;
+                            return;
+                        }
+                        if (search.isOver() || System.nanoTime() > search.deadline) {
+                            return;
+                        }
+                    }
+
+                    SearchNode node = open.poll();
+                    expanded++;
+                    if (backward) {
+                        expandPulls(node, open);
+                    } else {
+                        expandPushes(node, open);
+                    }
+
+                    if (search.meeting.get() != null) {
+                        return;
+                    }
+                }
+            } finally {
+                search.finish();
+            }
+        }
+
+        /**
+         * Returns the starting state of the forward half, or one state with a crate on every diamond
+         * for each area the keeper can be in.
+         */
+        private List<SearchNode> roots() {
+            List<SearchNode> roots = new ArrayList<>();
+            Board start = search.start;
+            if (!backward) {
+                int[] crates = new int[start.getCrateCount()];
+                for (int i = 0; i < crates.length; i++) {
+                    crates[i] = start.getCrate(i);
+                }
+
+                best = newNode(crates, start.getKeeper(), null, -1, null);
+                roots.add(best);
+                return roots;
+            }
+
+            int[] goals = new int[start.getCrateCount()];
+            int count = 0;
+            for (int cell = 0; cell < start.getCellCount(); cell++) {
+                if (start.isGoal(cell)) {
+                    goals[count++] = cell;
+                }
+            }
+
+            // The keeper can end up in any area left free by the crates on the diamonds.
+            List<Integer> areas = new ArrayList<>();
+            state.setOccupied(goals, true);
+            int mark = state.nextMark();
+            for (int cell = 0; cell < start.getCellCount(); cell++) {
+                if (!start.isWall(cell) && !state.occupied[cell] && state.reached[cell] != mark) {
+                    state.explore(cell, mark);
+                    areas.add(cell);
+                }
+            }
+            state.setOccupied(goals, false);
+
+            for (int keeper : areas) {
+                roots.add(newNode(goals, keeper, null, -1, null));
+            }
+
+            return roots;
+        }
+
+        /**
+         * Pushes every crate the keeper can reach, as the forward search of {@link PushSolver} does,
+         * only into the PI-corral of the node if it has one.
+         */
+        private void expandPushes(SearchNode node, PriorityQueue<SearchNode> open) {
+            state.setOccupied(node.crates, true);
+            int mark = state.nextMark();
+            state.explore(node.keeper, mark);
+            boolean restricted = corrals.restrict(node.crates, state.occupied, state.reached, mark, goals);
+
+            for (int i = 0; i < node.crates.length && search.meeting.get() == null; i++) {
+                int crate = node.crates[i];
+
+                for (Direction direction : DIRECTIONS) {
+                    int stand = analysis.neighbour(crate, direction.opposite());
+                    int target = analysis.neighbour(crate, direction);
+                    if (stand < 0 || target < 0 || state.reached[stand] != mark || state.occupied[target]
+                            || analysis.isDeadSquare(target)) {
+                        continue;
+                    }
+                    if (restricted && !corrals.allows(crate, direction)) {
+                        continue;
+                    }
+
+                    state.occupied[crate] = false;
+                    state.occupied[target] = true;
+                    int[] moved = SearchState.moveCrate(node.crates, i, target);
+                    SearchNode child = newNode(moved, crate, node, crate, direction);
+                    state.occupied[target] = false;
+                    state.occupied[crate] = true;
+
+                    add(child, open);
+                }
+            }
+
+            state.setOccupied(node.crates, false);
+        }
+
+        /**
+         * Pulls every crate the keeper can reach. A pull in a direction undoes a push in the
+         * opposite one, so the node records the push that the pull undoes.
+         */
+        private void expandPulls(SearchNode node, PriorityQueue<SearchNode> open) {
+            state.setOccupied(node.crates, true);
+            int mark = state.nextMark();
+            state.explore(node.keeper, mark);
+
+            for (int i = 0; i < node.crates.length && search.meeting.get() == null; i++) {
+                int crate = node.crates[i];
+
+                for (Direction push : DIRECTIONS) {
+                    // The keeper stands where the crate was before the push and steps back to where it pushed from.
+                    int stand = analysis.neighbour(crate, push.opposite());
+                    int back = stand < 0 ? -1 : analysis.neighbour(stand, push.opposite());
+                    if (back < 0 || state.reached[stand] != mark || state.occupied[back]) {
+                        continue;
+                    }
+
+                    state.occupied[crate] = false;
+                    state.occupied[stand] = true;
+                    int[] moved = SearchState.moveCrate(node.crates, i, stand);
+                    SearchNode child = newNode(moved, back, node, stand, push);
+                    state.occupied[stand] = false;
+                    state.occupied[crate] = true;
+
+                    add(child, open);
+                }
+            }
+
+            state.setOccupied(node.crates, false);
+        }
+
+        private void add(SearchNode child, PriorityQueue<SearchNode> open) {
+            if (!search.reach(child)) {
+                return;
+            }
+
+            if (child.h < best.h || (child.h == best.h && child.g < best.g)) {
+                best = child;
+            }
+            open.add(child);
+        }
+
+        /**
+         * Creates a node, normalising the keeper position with the crates of the node marked as occupied.
+         */
+        private SearchNode newNode(int[] crates, int keeper, SearchNode parent, int pushedCrate, Direction direction) {
+            int h = 0;
+            for (int crate : crates) {
+                h += backward ? distances[crate] : analysis.getGoalDistance(crate);
+            }
+
+            SearchNode node = new SearchNode(crates, keeper, parent, pushedCrate, direction,
+                    parent == null ? 0 : parent.g + 1, h, backward);
+            if (parent == null) {
+                state.setOccupied(crates, true);
+                node.region = state.region(keeper);
+                state.setOccupied(crates, false);
+            } else {
+                node.region = state.region(keeper);
+            }
+            if (best == null) {
+                best = node;
+            }
+
+            return node;
+        }
+
+        /**
+         * Returns the Manhattan distance of every cell from the nearest crate of the starting position.
+         */
+        private int[] startDistances(Board start) {
+            int columns = start.getColumns();
+            int[] result = new int[start.getCellCount()];
+            Arrays.fill(result, Integer.MAX_VALUE);
+            for (int i = 0; i < start.getCrateCount(); i++) {
+                int crate = start.getCrate(i);
+                for (int cell = 0; cell < result.length; cell++) {
+                    int distance = Math.abs(cell / columns - crate / columns) + Math.abs(cell % columns - crate % columns);
+                    result[cell] = Math.min(result[cell], distance);
+                }
+            }
+
+            return result;
+        }
+    }
+}
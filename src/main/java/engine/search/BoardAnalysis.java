@@ -0,0 +1,179 @@
+package engine.search;
+
+import engine.Board;
+import engine.Direction;
+import engine.LevelLayout;
+
+import java.util.Arrays;
+
+/**
+ * BoardAnalysis holds the information that depends only on the walls and the diamonds of a
+ * {@link Board}, so it is computed once per {@link LevelLayout} and reused for every position
+ * of the level, by every copy of it.
+ * <p>
+ * For every cell it stores the neighbour in each {@link Direction} and the minimum number of
+ * pushes required to bring a crate from that cell to the nearest diamond. Cells from which no
+ * diamond can be reached are dead squares: a crate pushed there can never be moved to a goal.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class BoardAnalysis {
+
+    /**
+     * The distance of a cell from which no diamond can be reached
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * The layout used to compute the analysis
+     */
+    private final LevelLayout layout;
+    /**
+     * The walkable neighbour of every cell, indexed as cell * 4 + direction
+     */
+    private final int[] neighbours;
+    /**
+     * The minimum number of pushes needed to move a crate from a cell to a diamond
+     */
+    private final int[] goalDistances;
+
+    private BoardAnalysis(LevelLayout layout) {
+        this.layout = layout;
+
+        int cells = layout.getCellCount();
+        int columns = layout.getColumns();
+        neighbours = new int[cells * DIRECTIONS.length];
+        for (int cell = 0; cell < cells; cell++) {
+            for (Direction direction : DIRECTIONS) {
+                int row = cell / columns + direction.getRowDelta();
+                int column = cell % columns + direction.getColumnDelta();
+                boolean walkable = layout.contains(row, column) && !layout.isWall(layout.cellOf(row, column));
+                neighbours[cell * DIRECTIONS.length + direction.ordinal()] = walkable ? layout.cellOf(row, column) : -1;
+            }
+        }
+
+        goalDistances = computeGoalDistances(cells);
+    }
+
+    /**
+     * Returns the analysis of the layout of a board, computing it the first time
+     * it is requested for the layout.
+     *
+     * @param board the board to be analysed
+     * @return the analysis of the board layout
+     */
+    public static BoardAnalysis of(Board board) {
+        return of(board.getLayout());
+    }
+
+    /**
+     * Returns the analysis of a layout, computing it the first time it is requested.
+     *
+     * @param layout the layout to be analysed
+     * @return the analysis of the layout
+     */
+    public static BoardAnalysis of(LevelLayout layout) {
+        return layout.getDerived(BoardAnalysis.class, BoardAnalysis::new);
+    }
+
+    /**
+     * Pulls crates backwards from every diamond to find how far each cell is from the nearest goal.
+     *
+     * @param cells the number of cells
+     * @return the goal distance of each cell
+     */
+    private int[] computeGoalDistances(int cells) {
+        int[] distances = new int[cells];
+        Arrays.fill(distances, UNREACHABLE);
+
+        int[] queue = new int[cells];
+        int head = 0;
+        int tail = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (layout.isGoal(cell) && !layout.isWall(cell)) {
+                distances[cell] = 0;
+                queue[tail++] = cell;
+            }
+        }
+
+        while (head < tail) {
+            int cell = queue[head++];
+            for (Direction direction : DIRECTIONS) {
+                // A crate reaches this cell from "previous" when the keeper pushes it from "keeper".
+                int previous = neighbour(cell, direction.opposite());
+                int keeper = previous < 0 ? -1 : neighbour(previous, direction.opposite());
+                if (keeper >= 0 && distances[previous] == UNREACHABLE) {
+                    distances[previous] = distances[cell] + 1;
+                    queue[tail++] = previous;
+                }
+            }
+        }
+
+        return distances;
+    }
+
+    /**
+     * Returns true if this analysis can be used for the given board.
+     *
+     * @param board the board to check
+     * @return true if the board has the same walls and diamonds, false otherwise
+     */
+    public boolean appliesTo(Board board) {
+        return layout.hasSameCells(board.getLayout());
+    }
+
+    public int getCellCount() {
+        return goalDistances.length;
+    }
+
+    /**
+     * Returns the walkable neighbour of a cell.
+     *
+     * @param cell      the source cell
+     * @param direction the direction to follow
+     * @return the neighbour cell, or -1 if it is a wall or it is outside the board
+     */
+    public int neighbour(int cell, Direction direction) {
+        return neighbours[cell * DIRECTIONS.length + direction.ordinal()];
+    }
+
+    /**
+     * Returns the minimum number of pushes needed to bring a crate from a cell to a diamond.
+     *
+     * @param cell the cell index
+     * @return the number of pushes, or {@link #UNREACHABLE}
+     */
+    public int getGoalDistance(int cell) {
+        return goalDistances[cell];
+    }
+
+    /**
+     * Returns true if a crate located in the cell can never reach a diamond.
+     *
+     * @param cell the cell index
+     * @return true if the cell is a dead square, false otherwise
+     */
+    public boolean isDeadSquare(int cell) {
+        return goalDistances[cell] == UNREACHABLE;
+    }
+
+    /**
+     * Returns true if a crate of the board is on a dead square. When every crate has to end up on a
+     * diamond, such a board can never be solved.
+     *
+     * @param board the board to check
+     * @return true if a crate is on a dead square, false otherwise
+     */
+    public boolean hasDeadCrate(Board board) {
+        for (int i = 0; i < board.getCrateCount(); i++) {
+            if (isDeadSquare(board.getCrate(i))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
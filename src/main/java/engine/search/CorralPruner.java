@@ -0,0 +1,261 @@
+package engine.search;
+
+import engine.Board;
+import engine.Direction;
+
+/**
+ * CorralPruner restricts the pushes a search has to try from a position by finding its PI-corrals.
+ * <p>
+ * A corral is an area the keeper cannot reach, enclosed by walls and by the crates on its barrier.
+ * As long as a corral is not solved, i.e. it contains a diamond without a crate or a crate outside a
+ * diamond, some crate of its barrier will have to be pushed into it. A corral is a PI-corral when
+ * <ul>
+ * <li>every push of a barrier crate the keeper can make goes into the corral (the I condition), and</li>
+ * <li>the keeper can reach the cell behind every crate that can be pushed into the corral
+ * (the P condition).</li>
+ * </ul>
+ * Pushes made elsewhere cannot change the corral, so the pushes into a PI-corral can be tried
+ * first and every other push can be skipped: the positions they lead to are reached again after
+ * the corral has been opened. When a position has several PI-corrals, the one with the fewest
+ * pushes is chosen.
+ * <p>
+ * The pruner works on the arrays a push search already keeps for its keeper reachability, so it
+ * can be added as a stage of any search. A pruner is not thread-safe: every search thread needs
+ * its own.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class CorralPruner {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final BoardAnalysis analysis;
+    /**
+     * The corral of every cell, set while the corrals are found
+     */
+    private final int[] corrals;
+    /**
+     * The crates already counted on the barrier of the current corral
+     */
+    private final int[] barrierMarks;
+    /**
+     * The pushes into the chosen PI-corral, marked as cell * 4 + direction
+     */
+    private final int[] allowed;
+    private final int[] queue;
+    private final int[] barrier;
+    private int corralMark;
+    private int barrierMark;
+    private int allowedMark;
+    /**
+     * The mark of the pushes into the chosen PI-corral
+     */
+    private int bestMark;
+    /**
+     * True if the last position has a PI-corral
+     */
+    private boolean restricted;
+    /**
+     * The number of pushes into the chosen PI-corral
+     */
+    private int pushCount;
+
+    /**
+     * Creates a pruner for the boards having the layout described by the analysis.
+     *
+     * @param analysis the analysis of the board layout
+     */
+    public CorralPruner(BoardAnalysis analysis) {
+        this.analysis = analysis;
+
+        int cells = analysis.getCellCount();
+        corrals = new int[cells];
+        barrierMarks = new int[cells];
+        allowed = new int[cells * DIRECTIONS.length];
+        queue = new int[cells];
+        barrier = new int[cells];
+    }
+
+    /**
+     * Looks for a PI-corral in a position.
+     *
+     * @param crates   the cells of the crates
+     * @param occupied true for every cell occupied by a crate
+     * @param reached  the marks of the cells the keeper can reach
+     * @param mark     the mark of the reachable cells in this position
+     * @param goals    true for every cell containing a diamond
+     * @return true if the pushes are restricted, false if every push has to be tried
+     */
+    public boolean restrict(int[] crates, boolean[] occupied, int[] reached, int mark, boolean[] goals) {
+        restricted = false;
+        pushCount = Integer.MAX_VALUE;
+        int firstCorral = corralMark + 1;
+        int best = 0;
+
+        // Every corral borders a crate, so they are found starting next to the crates.
+        for (int crate : crates) {
+            for (Direction direction : DIRECTIONS) {
+                int start = analysis.neighbour(crate, direction);
+                if (start < 0 || occupied[start] || reached[start] == mark || corrals[start] >= firstCorral) {
+                    continue;
+                }
+
+                // The pushes of every corral get a new mark, so those of the best one stay marked.
+                int pushMark = ++allowedMark;
+                int pushes = examine(start, ++corralMark, occupied, reached, mark, goals, pushMark);
+                if (pushes > 0 && pushes < pushCount) {
+                    best = pushMark;
+                    pushCount = pushes;
+                    restricted = true;
+                }
+            }
+        }
+
+        bestMark = best;
+        return restricted;
+    }
+
+    /**
+     * Looks for a PI-corral in a board, computing the keeper reachability.
+     *
+     * @param board the position
+     * @return true if the pushes are restricted, false if every push has to be tried
+     */
+    public boolean restrict(Board board) {
+        int cells = board.getCellCount();
+        int[] crates = new int[board.getCrateCount()];
+        boolean[] occupied = new boolean[cells];
+        boolean[] goals = new boolean[cells];
+        for (int i = 0; i < crates.length; i++) {
+            crates[i] = board.getCrate(i);
+            occupied[crates[i]] = true;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            goals[cell] = board.isGoal(cell);
+        }
+
+        int[] reached = new int[cells];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = board.getKeeper();
+        reached[board.getKeeper()] = 1;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (Direction direction : DIRECTIONS) {
+                int next = analysis.neighbour(cell, direction);
+                if (next >= 0 && !occupied[next] && reached[next] != 1) {
+                    reached[next] = 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return restrict(crates, occupied, reached, 1, goals);
+    }
+
+    /**
+     * Returns true if a push has to be tried in the last position examined.
+     *
+     * @param crate     the cell of the crate
+     * @param direction the direction of the push
+     * @return true if there is no PI-corral or if the push goes into the chosen one
+     */
+    public boolean allows(int crate, Direction direction) {
+        return !restricted || allowed[crate * DIRECTIONS.length + direction.ordinal()] == bestMark;
+    }
+
+    /**
+     * Returns true if the last position examined has a PI-corral.
+     *
+     * @return true if the pushes are restricted
+     */
+    public boolean isRestricted() {
+        return restricted;
+    }
+
+    /**
+     * Returns the number of pushes into the PI-corral chosen in the last position examined.
+     *
+     * @return the number of pushes, or 0 if there is no PI-corral
+     */
+    public int getPushCount() {
+        return restricted ? pushCount : 0;
+    }
+
+    /**
+     * Fills a corral and checks whether it is a PI-corral that is not solved yet.
+     *
+     * @return the number of pushes into the corral, marked with the given mark, or 0 if the
+     * corral is not a PI-corral, if it is solved or if no crate can be pushed into it
+     */
+    private int examine(int start, int corral, boolean[] occupied, int[] reached, int mark, boolean[] goals, int pushMark) {
+        int head = 0;
+        int tail = 0;
+        int barrierSize = 0;
+        int crateMark = ++barrierMark;
+        boolean solved = true;
+
+        corrals[start] = corral;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (goals[cell]) {
+                solved = false;
+            }
+
+            for (Direction direction : DIRECTIONS) {
+                int next = analysis.neighbour(cell, direction);
+                if (next < 0) {
+                    continue;
+                }
+                if (occupied[next]) {
+                    if (barrierMarks[next] != crateMark) {
+                        barrierMarks[next] = crateMark;
+                        barrier[barrierSize++] = next;
+                    }
+                } else if (corrals[next] != corral) {
+                    corrals[next] = corral;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        int pushes = 0;
+        boolean valid = true;
+        for (int i = 0; i < barrierSize && valid; i++) {
+            int crate = barrier[i];
+            if (!goals[crate]) {
+                solved = false;
+            }
+
+            for (Direction direction : DIRECTIONS) {
+                int stand = analysis.neighbour(crate, direction.opposite());
+                int target = analysis.neighbour(crate, direction);
+                if (stand < 0 || target < 0 || occupied[stand]) {
+                    continue;
+                }
+
+                boolean reachable = reached[stand] == mark;
+                boolean inward = !occupied[target] && corrals[target] == corral;
+                if (reachable && !inward || !reachable && inward) {
+                    // A push leaving the corral breaks the I condition, an unreachable push into it the P condition.
+                    valid = false;
+                    break;
+                }
+
+                if (reachable && !analysis.isDeadSquare(target)) {
+                    allowed[crate * DIRECTIONS.length + direction.ordinal()] = pushMark;
+                    pushes++;
+                }
+            }
+        }
+
+        return valid && !solved ? pushes : 0;
+    }
+
+    @Override
+    public String toString() {
+        return restricted ? "PI-corral with " + pushCount + " pushes" : "No PI-corral";
+    }
+}
@@ -0,0 +1,190 @@
+package engine.search;
+
+import engine.Board;
+import engine.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * HintEngine looks for the best next move of a position on a background thread.
+ * <p>
+ * Every request cancels the search that is still running, so the engine can be restarted
+ * after each move of the keeper. The analysis of the level layout is kept as long as the
+ * layout does not change, and every position along a solution found by a previous search
+ * is remembered, so following a hint gives the next one without searching again.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class HintEngine {
+
+    /**
+     * The default time budget of a search, in milliseconds
+     */
+    public static final long DEFAULT_TIME_BUDGET = 2000;
+
+    /**
+     * The executor running the searches
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "HintEngine");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The next move of every position along the solutions already found
+     */
+    private final Map<Board, Direction> solutionMoves = new ConcurrentHashMap<>();
+    /**
+     * The analysis of the current level layout
+     */
+    private volatile BoardAnalysis analysis;
+    /**
+     * The maximum search time in milliseconds
+     */
+    private volatile long timeBudget;
+    /**
+     * The search currently running
+     */
+    private Future<?> pending;
+
+    /**
+     * Creates a hint engine using the default time budget.
+     */
+    public HintEngine() {
+        this(DEFAULT_TIME_BUDGET);
+    }
+
+    /**
+     * Creates a hint engine.
+     *
+     * @param timeBudget the maximum search time in milliseconds
+     */
+    public HintEngine(long timeBudget) {
+        setTimeBudget(timeBudget);
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * Sets the maximum time that a search can take.
+     *
+     * @param timeBudget the maximum search time in milliseconds
+     */
+    public void setTimeBudget(long timeBudget) {
+        if (timeBudget <= 0) {
+            throw new IllegalArgumentException("The time budget must be positive.");
+        }
+
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Starts looking for the best move of a position, cancelling any search still running.
+     * The callback is invoked on the hint thread, unless the search gets cancelled.
+     *
+     * @param board    the position to be analysed
+     * @param callback the callback receiving the result
+     */
+    public synchronized void request(Board board, Consumer<SearchResult> callback) {
+        cancel();
+        pending = executor.submit(() -> {
+            SearchResult result = findHint(board);
+            if (!result.isCancelled() && !Thread.currentThread().isInterrupted()) {
+                callback.accept(result);
+            }
+        });
+    }
+
+    /**
+     * Cancels the search currently running, if any.
+     */
+    public synchronized void cancel() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    /**
+     * Cancels the running search and stops the hint thread.
+     */
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Looks for the best move of a position on the calling thread.
+     *
+     * @param board the position to be analysed
+     * @return the search result
+     */
+    public SearchResult findHint(Board board) {
+        BoardAnalysis current = analysis;
+        if (current == null || !current.appliesTo(board)) {
+            solutionMoves.clear();
+            current = BoardAnalysis.of(board);
+            analysis = current;
+        }
+
+        SearchResult known = followKnownSolution(board);
+        if (known != null) {
+            return known;
+        }
+
+        SearchResult result = new PushSolver(current).solve(board, TimeUnit.MILLISECONDS.toNanos(timeBudget));
+        if (result.isSolved()) {
+            remember(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Rebuilds the remaining moves of a position lying along a solution found earlier.
+     *
+     * @param board the position to look for
+     * @return the solved result, or null if the position is not known
+     */
+    private SearchResult followKnownSolution(Board board) {
+        List<Direction> moves = new ArrayList<>();
+        Board position = board;
+        Direction next = solutionMoves.get(position);
+        // Solutions stored at different times may overlap, so never follow more moves than stored.
+        while (next != null && moves.size() < solutionMoves.size()) {
+            moves.add(next);
+            position = position.move(next);
+            next = position == null ? null : solutionMoves.get(position);
+        }
+
+        if (moves.isEmpty() || position == null || !position.isComplete()) {
+            return null;
+        }
+
+        return new SearchResult(board, moves, true, false, 0);
+    }
+
+    /**
+     * Stores the next move of every position along a solution.
+     *
+     * @param result the solved result
+     */
+    private void remember(SearchResult result) {
+        Board position = result.getBoard();
+        for (Direction move : result.getMoves()) {
+            solutionMoves.put(position, move);
+            position = position.move(move);
+        }
+    }
+}
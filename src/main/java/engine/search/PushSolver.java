@@ -0,0 +1,301 @@
+package engine.search;
+
+import engine.Board;
+import engine.Direction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * PushSolver runs an A* search over crate pushes starting from a {@link Board}.
+ * <p>
+ * Two positions are considered equal when the crates are in the same cells and the keeper
+ * can walk from one position to the other, so every state is identified by the crate cells
+ * and by the smallest cell reachable by the keeper. While a position has a PI-corral, i.e. an
+ * area the keeper cannot reach where every push of the crates around it goes inwards, only
+ * the pushes into it are tried, as chosen by the {@link CorralPruner}. The search stops when
+ * it finds a solution, when the time budget runs out or when the calling thread is interrupted.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class PushSolver {
+
+    /**
+     * The number of expanded states between two checks of the deadline and of the interrupt flag
+     */
+    private static final int CHECK_INTERVAL = 256;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final BoardAnalysis analysis;
+    /**
+     * The pruning stage skipping the pushes that cannot matter while a PI-corral is unsolved
+     */
+    private final CorralPruner corrals;
+    /**
+     * The crates and the keeper reachability of the state being expanded
+     */
+    private final SearchState state;
+
+    /**
+     * Creates a solver for the boards having the layout described by the analysis.
+     *
+     * @param analysis the analysis of the board layout
+     */
+    public PushSolver(BoardAnalysis analysis) {
+        this.analysis = analysis;
+        corrals = new CorralPruner(analysis);
+        state = new SearchState(analysis);
+    }
+
+    /**
+     * Searches for a solution of the board.
+     *
+     * @param start      the board to be solved
+     * @param timeBudget the maximum search time in nanoseconds
+     * @return the search result
+     */
+    public SearchResult solve(Board start, long timeBudget) {
+        long deadline = System.nanoTime() + timeBudget;
+        Goals goals = new Goals(start);
+
+        if (start.isComplete()) {
+            return new SearchResult(start, new ArrayList<Direction>(), true, false, 0);
+        }
+        // A crate on a dead square can never reach a diamond, and its goal distance cannot be added up.
+        if (goals.exact && analysis.hasDeadCrate(start)) {
+            return SearchResult.deadlocked(start);
+        }
+
+        int[] crates = new int[start.getCrateCount()];
+        for (int i = 0; i < crates.length; i++) {
+            crates[i] = start.getCrate(i);
+        }
+
+        SearchNode root = new SearchNode(crates, start.getKeeper(), null, -1, null, 0, goals.estimate(crates), false);
+        state.setOccupied(crates, true);
+        root.region = state.region(start.getKeeper());
+        state.setOccupied(crates, false);
+
+        PriorityQueue<SearchNode> open = new PriorityQueue<>();
+        Set<SearchNode> seen = new HashSet<>();
+        open.add(root);
+        seen.add(root);
+
+        SearchNode best = root;
+        int expanded = 0;
+
+        while (!open.isEmpty()) {
+            if (expanded % CHECK_INTERVAL == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return new SearchResult(start, new ArrayList<Direction>(), false, true, expanded);
+                }
+                if (System.nanoTime() > deadline) {
+                    break;
+                }
+            }
+
+            SearchNode node = open.poll();
+            expanded++;
+
+            state.setOccupied(node.crates, true);
+            int mark = state.nextMark();
+            state.explore(node.keeper, mark);
+            boolean restricted = goals.exact
+                    && corrals.restrict(node.crates, state.occupied, state.reached, mark, goals.cells);
+
+            for (int i = 0; i < node.crates.length; i++) {
+                int crate = node.crates[i];
+
+                for (Direction direction : DIRECTIONS) {
+                    int stand = analysis.neighbour(crate, direction.opposite());
+                    int target = analysis.neighbour(crate, direction);
+                    if (stand < 0 || target < 0 || state.reached[stand] != mark || state.occupied[target]) {
+                        continue;
+                    }
+                    if (restricted && !corrals.allows(crate, direction)) {
+                        continue;
+                    }
+                    if (goals.exact && analysis.isDeadSquare(target)) {
+                        continue;
+                    }
+
+                    int[] childCrates = SearchState.moveCrate(node.crates, i, target);
+                    SearchNode child = new SearchNode(childCrates, crate, node, crate, direction, node.g + 1,
+                            goals.estimate(childCrates), false);
+
+                    state.occupied[crate] = false;
+                    state.occupied[target] = true;
+                    child.region = state.region(crate);
+                    state.occupied[target] = false;
+                    state.occupied[crate] = true;
+
+                    if (!seen.add(child)) {
+                        continue;
+                    }
+
+                    if (goals.isComplete(childCrates)) {
+                        state.setOccupied(node.crates, false);
+                        return new SearchResult(start, toMoves(start, child), true, false, expanded);
+                    }
+
+                    if (child.h < best.h || (child.h == best.h && child.g < best.g)) {
+                        best = child;
+                    }
+                    open.add(child);
+                }
+            }
+
+            state.setOccupied(node.crates, false);
+        }
+
+        return new SearchResult(start, toMoves(start, best), false, false, expanded);
+    }
+
+    /**
+     * Converts the pushes leading to a node into the complete list of keeper moves.
+     */
+    private List<Direction> toMoves(Board start, SearchNode node) {
+        Deque<SearchNode> pushes = new ArrayDeque<>();
+        for (SearchNode n = node; n.parent != null; n = n.parent) {
+            pushes.push(n);
+        }
+
+        int[] crates = new int[pushes.size()];
+        Direction[] directions = new Direction[pushes.size()];
+        int i = 0;
+        for (SearchNode push : pushes) {
+            crates[i] = push.pushedCrate;
+            directions[i++] = push.direction;
+        }
+
+        return toMoves(analysis, start, crates, directions);
+    }
+
+    /**
+     * Converts a sequence of pushes into the complete list of keeper moves, walking the keeper
+     * along the shortest path to the cell behind each crate before pushing it.
+     *
+     * @param analysis   the analysis of the board layout
+     * @param start      the board the pushes are made from
+     * @param crates     the cell of the crate pushed by each push
+     * @param directions the direction of each push
+     * @return the keeper moves
+     */
+    static List<Direction> toMoves(BoardAnalysis analysis, Board start, int[] crates, Direction[] directions) {
+        int[] queue = new int[analysis.getCellCount()];
+        List<Direction> moves = new ArrayList<>();
+        Board board = start;
+        for (int i = 0; i < crates.length; i++) {
+            int stand = analysis.neighbour(crates[i], directions[i].opposite());
+            board = walk(analysis, board, stand, moves, queue);
+            board = board.move(directions[i]);
+            moves.add(directions[i]);
+        }
+
+        return moves;
+    }
+
+    /**
+     * Walks the keeper to the target cell along the shortest path, appending the moves.
+     */
+    private static Board walk(BoardAnalysis analysis, Board board, int target, List<Direction> moves, int[] queue) {
+        int cells = analysis.getCellCount();
+        int[] from = new int[cells];
+        Arrays.fill(from, -1);
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = board.getKeeper();
+        from[board.getKeeper()] = DIRECTIONS.length;
+        while (head < tail && from[target] < 0) {
+            int cell = queue[head++];
+            for (Direction direction : DIRECTIONS) {
+                int next = analysis.neighbour(cell, direction);
+                if (next >= 0 && from[next] < 0 && !board.hasCrate(next)) {
+                    from[next] = direction.ordinal();
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        Deque<Direction> path = new ArrayDeque<>();
+        for (int cell = target; cell != board.getKeeper(); ) {
+            Direction direction = DIRECTIONS[from[cell]];
+            path.push(direction);
+            cell = analysis.neighbour(cell, direction.opposite());
+        }
+
+        for (Direction direction : path) {
+            board = board.move(direction);
+            moves.add(direction);
+        }
+
+        return board;
+    }
+
+    /**
+     * Goals describes when a position is solved and estimates how far a position is from it.
+     */
+    private final class Goals {
+        /**
+         * The number of diamonds
+         */
+        final int count;
+        /**
+         * True when every crate has to end up on a diamond
+         */
+        final boolean exact;
+        final boolean[] cells;
+
+        Goals(Board board) {
+            cells = new boolean[board.getCellCount()];
+            int goals = 0;
+            for (int cell = 0; cell < cells.length; cell++) {
+                if (board.isGoal(cell)) {
+                    cells[cell] = true;
+                    goals++;
+                }
+            }
+
+            count = goals;
+            exact = board.getCrateCount() <= goals;
+        }
+
+        boolean isComplete(int[] crates) {
+            int covered = 0;
+            for (int crate : crates) {
+                if (cells[crate]) {
+                    covered++;
+                }
+            }
+
+            return covered >= count;
+        }
+
+        int estimate(int[] crates) {
+            if (!exact) {
+                int covered = 0;
+                for (int crate : crates) {
+                    if (cells[crate]) {
+                        covered++;
+                    }
+                }
+                return count - covered;
+            }
+
+            int estimate = 0;
+            for (int crate : crates) {
+                estimate += analysis.getGoalDistance(crate);
+            }
+            return estimate;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package engine.search;
+
+import engine.Direction;
+
+import java.util.Arrays;
+
+/**
+ * A node of a push search, identified by the crate cells and by the normalised keeper position.
+ * The push of a forward node leads to it from its parent, the push of a backward node, made by
+ * the pulling half of {@link BidirectionalSolver}, leads from it to its parent.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+final class SearchNode implements Comparable<SearchNode> {
+    final int[] crates;
+    final int keeper;
+    final SearchNode parent;
+    final int pushedCrate;
+    final Direction direction;
+    final int g;
+    final int h;
+    final boolean backward;
+    int region;
+
+    SearchNode(int[] crates, int keeper, SearchNode parent, int pushedCrate, Direction direction, int g, int h,
+               boolean backward) {
+        this.crates = crates;
+        this.keeper = keeper;
+        this.parent = parent;
+        this.pushedCrate = pushedCrate;
+        this.direction = direction;
+        this.g = g;
+        this.h = h;
+        this.backward = backward;
+    }
+
+    @Override
+    public int compareTo(SearchNode other) {
+        int f = g + h;
+        int otherF = other.g + other.h;
+        if (f != otherF) {
+            return f < otherF ? -1 : 1;
+        }
+
+        return Integer.compare(h, other.h);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SearchNode)) {
+            return false;
+        }
+
+        SearchNode other = (SearchNode) o;
+        return region == other.region && Arrays.equals(crates, other.crates);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(crates) + region;
+    }
+}
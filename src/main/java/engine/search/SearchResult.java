@@ -0,0 +1,114 @@
+package engine.search;
+
+import engine.Board;
+import engine.Direction;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SearchResult contains the outcome of a search started from a {@link Board}.
+ * <p>
+ * When the search is solved, the moves lead to a complete position. Otherwise they lead
+ * to the most promising position found before the time budget ran out, and they can
+ * still be used as a hint.
+ */
+public final class SearchResult {
+
+    private final Board board;
+    private final List<Direction> moves;
+    private final boolean solved;
+    private final boolean cancelled;
+    private final int expandedStates;
+    /**
+     * True if the board can never be solved because a crate is on a dead square
+     */
+    private final boolean deadlocked;
+
+    SearchResult(Board board, List<Direction> moves, boolean solved, boolean cancelled, int expandedStates) {
+        this(board, moves, solved, cancelled, expandedStates, false);
+    }
+
+    private SearchResult(Board board, List<Direction> moves, boolean solved, boolean cancelled, int expandedStates,
+                         boolean deadlocked) {
+        this.board = board;
+        this.moves = Collections.unmodifiableList(moves);
+        this.solved = solved;
+        this.cancelled = cancelled;
+        this.expandedStates = expandedStates;
+        this.deadlocked = deadlocked;
+    }
+
+    /**
+     * Returns the result of a board that can never be solved, found without searching.
+     *
+     * @param board the deadlocked board
+     * @return an unsolved result without moves
+     */
+    static SearchResult deadlocked(Board board) {
+        return new SearchResult(board, Collections.<Direction>emptyList(), false, false, 0, true);
+    }
+
+    /**
+     * Returns the board from which the search started.
+     *
+     * @return the starting board
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Returns the keeper moves found by the search.
+     *
+     * @return the list of moves, empty if nothing useful was found
+     */
+    public List<Direction> getMoves() {
+        return moves;
+    }
+
+    /**
+     * Returns the best next move for the keeper.
+     *
+     * @return the next move, or null if no move was found
+     */
+    public Direction getNextMove() {
+        return moves.isEmpty() ? null : moves.get(0);
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public int getExpandedStates() {
+        return expandedStates;
+    }
+
+    /**
+     * Returns true if the board has been found to be lost, e.g. because a crate has been pushed
+     * into a corner without a diamond, so no search can solve it.
+     *
+     * @return true if the board is deadlocked
+     */
+    public boolean isDeadlocked() {
+        return deadlocked;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(moves.size());
+        for (Direction move : moves) {
+            sb.append(move.getSymbol());
+        }
+
+        if (deadlocked) {
+            return "Deadlocked";
+        }
+
+        return (solved ? "Solved" : "Partial") + " [" + expandedStates + " states]: " + sb;
+    }
+}
@@ -0,0 +1,137 @@
+package engine.search;
+
+import engine.Direction;
+
+/**
+ * SearchState holds the arrays a push search uses to track the crates of the state being expanded
+ * and the cells the keeper can reach, so that they are allocated once per search rather than once
+ * per state.
+ * <p>
+ * A cell is reached when its mark equals the mark of the current exploration, so starting a new
+ * exploration does not need to clear the arrays. A state is not thread-safe: every search thread
+ * needs its own.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+final class SearchState {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final BoardAnalysis analysis;
+    /**
+     * The cells currently occupied by a crate
+     */
+    final boolean[] occupied;
+    /**
+     * The cells reached by the keeper in the state being expanded
+     */
+    final int[] reached;
+    /**
+     * The cells reached while normalising the keeper position of a new state
+     */
+    private final int[] scratch;
+    /**
+     * The BFS queue shared by the reachability checks
+     */
+    private final int[] queue;
+    private int reachedMark;
+    private int scratchMark;
+
+    SearchState(BoardAnalysis analysis) {
+        this.analysis = analysis;
+
+        int cells = analysis.getCellCount();
+        occupied = new boolean[cells];
+        reached = new int[cells];
+        scratch = new int[cells];
+        queue = new int[cells];
+    }
+
+    void setOccupied(int[] crates, boolean value) {
+        for (int crate : crates) {
+            occupied[crate] = value;
+        }
+    }
+
+    /**
+     * Returns a new mark for the reached cells, so that the cells marked before are no longer reached.
+     *
+     * @return the mark
+     */
+    int nextMark() {
+        return ++reachedMark;
+    }
+
+    /**
+     * Marks every cell reachable by the keeper as reached.
+     *
+     * @param keeper the keeper cell
+     * @param mark   the value used to mark the reachable cells
+     * @return the smallest reachable cell index
+     */
+    int explore(int keeper, int mark) {
+        return explore(keeper, reached, mark);
+    }
+
+    /**
+     * Returns the normalised keeper position, i.e. the smallest cell reachable by the keeper,
+     * leaving the reached cells unchanged.
+     *
+     * @param keeper the keeper cell
+     * @return the smallest reachable cell index
+     */
+    int region(int keeper) {
+        return explore(keeper, scratch, ++scratchMark);
+    }
+
+    private int explore(int keeper, int[] marks, int mark) {
+        int head = 0;
+        int tail = 0;
+        int min = keeper;
+
+        marks[keeper] = mark;
+        queue[tail++] = keeper;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (cell < min) {
+                min = cell;
+            }
+
+            for (Direction direction : DIRECTIONS) {
+                int next = analysis.neighbour(cell, direction);
+                if (next >= 0 && !occupied[next] && marks[next] != mark) {
+                    marks[next] = mark;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return min;
+    }
+
+    /**
+     * Returns a copy of the crates where the i-th crate has been moved to the target cell,
+     * keeping the array sorted.
+     */
+    static int[] moveCrate(int[] crates, int i, int target) {
+        int[] moved = crates.clone();
+        moved[i] = target;
+
+        // Restore the ordering by shifting the moved crate to its place.
+        while (i > 0 && moved[i - 1] > moved[i]) {
+            int tmp = moved[i - 1];
+            moved[i - 1] = moved[i];
+            moved[i] = tmp;
+            i--;
+        }
+        while (i < moved.length - 1 && moved[i + 1] < moved[i]) {
+            int tmp = moved[i + 1];
+            moved[i + 1] = moved[i];
+            moved[i] = tmp;
+            i++;
+        }
+
+        return moved;
+    }
+}
@@ -0,0 +1,222 @@
+package engine.search;
+
+import engine.Board;
+import engine.Direction;
+import engine.Level;
+import engine.LevelPackParser;
+import engine.cache.AnalysisCache;
+import engine.lurd.LurdCodec;
+import engine.lurd.LurdValidation;
+import engine.lurd.LurdValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SolutionCache keeps the outcome of the {@link PushSolver} in an {@link AnalysisCache}, keyed by the
+ * {@link Board#getContentHash()} of the position solved, so that a position is only searched once
+ * across runs.
+ * <p>
+ * A solution is stored as its moves packed by {@link LurdCodec}, 2 bits each, and it is replayed
+ * before being returned, so a hash collision can never produce a wrong solution. A search that ran
+ * out of time is stored with its time budget, and it is only repeated when a later request has a
+ * larger budget. An entry in an unknown format is treated as missing.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class SolutionCache {
+
+    /**
+     * The kind of the entries of the {@link AnalysisCache}
+     */
+    public static final int KIND = 1;
+
+    private static final byte UNSOLVED = 0;
+    private static final byte SOLVED_PACKED = 2;
+
+    private final AnalysisCache cache;
+    /**
+     * True to search with the {@link BidirectionalSolver}, which uses two threads per search
+     */
+    private final boolean bidirectional;
+
+    /**
+     * Creates a solution cache searching with the {@link PushSolver}.
+     *
+     * @param cache the cache storing the solutions
+     */
+    public SolutionCache(AnalysisCache cache) {
+        this(cache, false);
+    }
+
+    /**
+     * Creates a solution cache.
+     *
+     * @param cache         the cache storing the solutions
+     * @param bidirectional true to search with the {@link BidirectionalSolver}, false to use the {@link PushSolver}
+     */
+    public SolutionCache(AnalysisCache cache, boolean bidirectional) {
+        this.cache = cache;
+        this.bidirectional = bidirectional;
+    }
+
+    /**
+     * Solves a position, or returns the solution found by an earlier search.
+     *
+     * @param board      the position to be solved
+     * @param timeBudget the maximum search time in nanoseconds
+     * @return the search result, with no expanded states if it comes from the cache
+     * @throws IOException if the cache cannot be used
+     */
+    public SearchResult solve(Board board, long timeBudget) throws IOException {
+        SearchResult cached = decode(board, cache.get(board.getContentHash(), KIND), timeBudget);
+        if (cached != null) {
+            return cached;
+        }
+
+        BoardAnalysis analysis = BoardAnalysis.of(board);
+        SearchResult result = bidirectional
+                ? new BidirectionalSolver(analysis).solve(board, timeBudget)
+                : new PushSolver(analysis).solve(board, timeBudget);
+        if (!result.isCancelled()) {
+            cache.put(board.getContentHash(), KIND, encode(result, timeBudget));
+        }
+
+        return result;
+    }
+
+    /**
+     * Encodes a result: a flag, then the time budget of an unsolved search or the moves of a solution.
+     */
+    private static byte[] encode(SearchResult result, long timeBudget) {
+        if (!result.isSolved()) {
+            return ByteBuffer.allocate(9).put(UNSOLVED).putLong(timeBudget).array();
+        }
+
+        byte[] moves = new byte[result.getMoves().size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = LurdCodec.code(result.getMoves().get(i), false);
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(5 + LurdCodec.packedSize(moves.length, false));
+        data.put(SOLVED_PACKED).putInt(moves.length);
+        LurdCodec.pack(moves, 0, moves.length, false, data);
+        return data.array();
+    }
+
+    /**
+     * Decodes a result stored for a position.
+     *
+     * @return the result, or null if nothing usable is stored
+     */
+    private static SearchResult decode(Board board, byte[] data, long timeBudget) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.get() == UNSOLVED) {
+            // A search with a larger budget may still find a solution.
+            boolean enough = buffer.remaining() == 8 && buffer.getLong() >= timeBudget;
+            return enough ? new SearchResult(board, new ArrayList<Direction>(), false, false, 0) : null;
+        }
+
+        if (data[0] != SOLVED_PACKED || buffer.remaining() < 4) {
+            return null;
+        }
+
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() != LurdCodec.packedSize(count, false)) {
+            return null;
+        }
+        byte[] moves = new byte[count];
+        LurdCodec.unpack(buffer, count, false, moves, 0);
+
+        // The moves are only trusted if they solve the position.
+        LurdValidation validation = LurdValidator.validate(board, moves, 0, moves.length, true);
+        if (!validation.isValid() || !validation.isSolved()) {
+            return null;
+        }
+
+        List<Direction> solution = new ArrayList<>(moves.length);
+        for (byte move : moves) {
+            solution.add(LurdCodec.direction(move));
+        }
+
+        return new SearchResult(board, solution, true, false, 0);
+    }
+
+    /**
+     * Solves every level of game files on several threads, using the cache configured by the
+     * "sokoban.cache" system properties, and prints a summary. The time budget of each level, in
+     * milliseconds, can be changed with the "sokoban.solve.budget" system property, and the searches
+     * are bidirectional when the "sokoban.solve.bidirectional" system property is true.
+     *
+     * @param args the paths of the game files
+     * @throws IOException if a game file or the cache cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: SolutionCache <file.skb>...");
+            System.exit(2);
+        }
+
+        long timeBudget = TimeUnit.MILLISECONDS.toNanos(Long.getLong("sokoban.solve.budget", 10000));
+        boolean bidirectional = Boolean.getBoolean("sokoban.solve.bidirectional");
+        List<Level> levels = new ArrayList<>();
+        for (String file : args) {
+            try (InputStream input = Files.newInputStream(Paths.get(file));
+                 LevelPackParser parser = new LevelPackParser(input)) {
+                levels.addAll(parser.readAll());
+            }
+        }
+
+        // A bidirectional search keeps two cores busy.
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / (bidirectional ? 2 : 1));
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "SolutionCache-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        try (AnalysisCache analysisCache = AnalysisCache.fromSystemProperties()) {
+            SolutionCache solutions = new SolutionCache(analysisCache, bidirectional);
+            List<Future<SearchResult>> results = new ArrayList<>(levels.size());
+            for (Level level : levels) {
+                results.add(executor.submit(() -> solutions.solve(level.toBoard(), timeBudget)));
+            }
+
+            int solved = 0;
+            for (int i = 0; i < levels.size(); i++) {
+                SearchResult result = results.get(i).get();
+                System.out.printf("%4d %-30s %s%n", levels.get(i).getIndex(), levels.get(i).getName(), result);
+                solved += result.isSolved() ? 1 : 0;
+            }
+
+            System.out.printf("%d of %d levels solved in %.1f ms%n", solved, levels.size(), (System.nanoTime() - start) / 1e6);
+            System.out.println("Cache: " + analysisCache);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while solving the levels", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot solve the levels", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package engine.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Trace records structured {@link TraceEvent}s into per-thread ring buffers.
+ * <p>
+ * Each record has a fixed size of three longs: the {@link System#nanoTime()} timestamp, the event
+ * ordinal with the first argument, and the other two arguments. Recording only writes into the
+ * ring buffer of the calling thread, so it is lock-free and does not allocate; when tracing is
+ * disabled, it costs a single volatile read. The buffers can be dumped at any time in a
+ * binary form that is decoded offline by {@link TraceDecoder}.
+ * <p>
+ * Tracing is enabled at startup with the "sokoban.trace" system property, and the number of
+ * records kept per thread can be set with "sokoban.trace.size". The buffers of the threads that
+ * have terminated are released once they have been dumped or cleared, and only the most recent of
+ * them are kept when new threads start recording, so short-lived threads like the server connections
+ * do not accumulate buffers.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class Trace {
+
+    /**
+     * The first bytes of every trace dump
+     */
+    static final long MAGIC = 0x534B425452414345L; // "SKBTRACE"
+    /**
+     * The version of the dump format
+     */
+    static final int VERSION = 1;
+    /**
+     * The number of longs in each record
+     */
+    static final int RECORD_LONGS = 3;
+    /**
+     * True if tracing has been enabled through the system property
+     */
+    public static final boolean ENABLED_AT_STARTUP = Boolean.getBoolean("sokoban.trace");
+    /**
+     * The number of records kept for each thread, rounded up to a power of two
+     */
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(16, Integer.getInteger("sokoban.trace.size", 4096)) - 1) << 1;
+    /**
+     * The number of buffers of terminated threads kept until the next dump or clear
+     */
+    static final int RETAINED_TERMINATED = 16;
+
+    /**
+     * The buffers of the threads that recorded an event, from the oldest to the newest
+     */
+    private static final List<Buffer> buffers = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<Buffer> localBuffer = ThreadLocal.withInitial(() -> {
+        release(RETAINED_TERMINATED);
+        Buffer buffer = new Buffer(Thread.currentThread());
+        buffers.add(buffer);
+        return buffer;
+    });
+
+    /**
+     * True if the events are being recorded
+     */
+    private static volatile boolean enabled = ENABLED_AT_STARTUP;
+
+    private Trace() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Trace.enabled = enabled;
+    }
+
+    /**
+     * Records an event with no arguments.
+     *
+     * @param event the event
+     */
+    public static void record(TraceEvent event) {
+        record(event, 0, 0, 0);
+    }
+
+    /**
+     * Records an event with one argument.
+     *
+     * @param event the event
+     * @param a     the first argument
+     */
+    public static void record(TraceEvent event, int a) {
+        record(event, a, 0, 0);
+    }
+
+    /**
+     * Records an event with two arguments.
+     *
+     * @param event the event
+     * @param a     the first argument
+     * @param b     the second argument
+     */
+    public static void record(TraceEvent event, int a, int b) {
+        record(event, a, b, 0);
+    }
+
+    /**
+     * Records an event in the ring buffer of the calling thread, if tracing is enabled.
+     *
+     * @param event the event
+     * @param a     the first argument
+     * @param b     the second argument
+     * @param c     the third argument
+     */
+    public static void record(TraceEvent event, int a, int b, int c) {
+        if (!enabled) {
+            return;
+        }
+
+        localBuffer.get().add(event, a, b, c);
+    }
+
+    /**
+     * Writes the records of every thread to a stream. Records being written while the
+     * dump runs may be incomplete, which is acceptable for a diagnostic tool.
+     *
+     * @param output the destination stream
+     * @throws IOException if the stream cannot be written
+     */
+    public static void dump(OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+        data.writeLong(MAGIC);
+        data.writeInt(VERSION);
+        // Both clocks are written so that the decoder can convert the timestamps to wall clock time.
+        data.writeLong(System.currentTimeMillis());
+        data.writeLong(System.nanoTime());
+
+        // The list may change while the dump runs, so the count has to match a snapshot.
+        Object[] snapshot = buffers.toArray();
+        data.writeInt(snapshot.length);
+        for (Object buffer : snapshot) {
+            ((Buffer) buffer).writeTo(data);
+        }
+
+        data.flush();
+        release(0);
+    }
+
+    /**
+     * Dumps the records to a new file in the "logs" directory placed where the game is executed.
+     *
+     * @return the file containing the dump
+     * @throws IOException if the file cannot be written
+     */
+    public static File dumpToFile() throws IOException {
+        File directory = new File(System.getProperty("user.dir") + "/" + "logs");
+        directory.mkdirs();
+
+        File file = new File(directory, "trace-" + System.currentTimeMillis() + ".bin");
+        try (OutputStream output = new FileOutputStream(file)) {
+            dump(output);
+        }
+
+        return file;
+    }
+
+    /**
+     * Discards the records of every thread.
+     */
+    public static void clear() {
+        release(0);
+        for (Buffer buffer : buffers) {
+            buffer.position = 0;
+        }
+    }
+
+    /**
+     * Returns the number of threads whose records are kept, including the terminated threads
+     * that have not been dumped or cleared yet.
+     *
+     * @return the number of buffers
+     */
+    public static int getBufferCount() {
+        return buffers.size();
+    }
+
+    /**
+     * Releases the buffers of the terminated threads, except for the most recent ones.
+     *
+     * @param retained the number of buffers of terminated threads to keep
+     */
+    private static void release(int retained) {
+        int terminated = 0;
+        for (Buffer buffer : buffers) {
+            if (!buffer.isAlive()) {
+                terminated++;
+            }
+        }
+
+        // The iterator of the list is a snapshot, so the buffers are removed from the list itself.
+        Iterator<Buffer> iterator = buffers.iterator();
+        while (terminated > retained && iterator.hasNext()) {
+            Buffer buffer = iterator.next();
+            if (!buffer.isAlive() && buffers.remove(buffer)) {
+                terminated--;
+            }
+        }
+    }
+
+    /**
+     * Buffer is the ring buffer of a single thread.
+     */
+    private static final class Buffer {
+        /**
+         * The thread writing into the buffer, not kept alive by it
+         */
+        private final WeakReference<Thread> thread;
+        private final long threadId;
+        private final String threadName;
+        private final long[] records = new long[CAPACITY * RECORD_LONGS];
+        /**
+         * The number of records written so far
+         */
+        private long position = 0;
+
+        Buffer(Thread thread) {
+            this.thread = new WeakReference<>(thread);
+            threadId = thread.getId();
+            threadName = thread.getName();
+        }
+
+        boolean isAlive() {
+            Thread owner = thread.get();
+            return owner != null && owner.isAlive();
+        }
+
+        void add(TraceEvent event, int a, int b, int c) {
+            int offset = (int) (position & (CAPACITY - 1)) * RECORD_LONGS;
+            records[offset] = System.nanoTime();
+            records[offset + 1] = ((long) event.ordinal() << 32) | (a & 0xFFFFFFFFL);
+            records[offset + 2] = ((long) b << 32) | (c & 0xFFFFFFFFL);
+            position++;
+        }
+
+        void writeTo(DataOutputStream data) throws IOException {
+            long written = position;
+            int count = (int) Math.min(written, CAPACITY);
+
+            data.writeLong(threadId);
+            data.writeUTF(threadName);
+            data.writeInt(count);
+
+            // Write the records from the oldest to the newest.
+            for (long i = written - count; i < written; i++) {
+                int offset = (int) (i & (CAPACITY - 1)) * RECORD_LONGS;
+                data.writeLong(records[offset]);
+                data.writeLong(records[offset + 1]);
+                data.writeLong(records[offset + 2]);
+            }
+        }
+    }
+}
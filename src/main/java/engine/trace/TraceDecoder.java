@@ -0,0 +1,88 @@
+package engine.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TraceDecoder converts a binary dump written by {@link Trace#dump} into text.
+ * <p>
+ * Usage: {@code java engine.trace.TraceDecoder <trace file>...}
+ */
+public final class TraceDecoder {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss.SSSSSS").withZone(ZoneId.systemDefault());
+
+    private TraceDecoder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: TraceDecoder <trace file>...");
+            System.exit(1);
+        }
+
+        for (String file : args) {
+            try (InputStream input = new FileInputStream(file)) {
+                decode(input, System.out);
+            }
+        }
+    }
+
+    /**
+     * Decodes a trace dump, printing one line per record.
+     *
+     * @param input  the stream containing the dump
+     * @param output the stream receiving the decoded records
+     * @throws IOException if the dump cannot be read or it is not a valid trace
+     */
+    public static void decode(InputStream input, PrintStream output) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+        if (data.readLong() != Trace.MAGIC) {
+            throw new IOException("Not a trace file.");
+        }
+
+        int version = data.readInt();
+        if (version != Trace.VERSION) {
+            throw new IOException("Unsupported trace version: " + version);
+        }
+
+        long dumpMillis = data.readLong();
+        long dumpNanos = data.readLong();
+        int threads = data.readInt();
+
+        for (int t = 0; t < threads; t++) {
+            long threadId = data.readLong();
+            String threadName = data.readUTF();
+            int count = data.readInt();
+
+            output.printf("Thread %d [%s]: %d records%n", threadId, threadName, count);
+            for (int i = 0; i < count; i++) {
+                long nanos = data.readLong();
+                long first = data.readLong();
+                long second = data.readLong();
+
+                TraceEvent event = TraceEvent.fromOrdinal((int) (first >>> 32));
+                int a = (int) first;
+                int b = (int) (second >>> 32);
+                int c = (int) second;
+
+                // Convert the nanoTime timestamp to wall clock time using the clocks read at dump time.
+                long micros = TimeUnit.MILLISECONDS.toMicros(dumpMillis) - TimeUnit.NANOSECONDS.toMicros(dumpNanos - nanos);
+                Instant time = Instant.ofEpochSecond(0, TimeUnit.MICROSECONDS.toNanos(micros));
+
+                output.printf("%s %s %s%n", TIMESTAMP_FORMAT.format(time),
+                        event == null ? "UNKNOWN" : event.name(),
+                        event == null ? "a=" + a + " b=" + b + " c=" + c : event.describe(a, b, c));
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package engine.trace;
+
+import engine.Direction;
+import engine.GameObject;
+import javafx.scene.input.KeyCode;
+
+/**
+ * TraceEvent lists the events that can be recorded by {@link Trace}.
+ * <p>
+ * Every record carries three int arguments, whose meaning depends on the event.
+ * The ordinal of each event is written in the trace dumps, so new events must
+ * only be appended at the end of the list.
+ */
+public enum TraceEvent {
+    /**
+     * A key has been handled: a = key code ordinal
+     */
+    KEY_PRESSED,
+    /**
+     * The keeper tried to move: a = row, b = column, c = direction ordinal << 8 | target object ordinal
+     */
+    MOVE,
+    /**
+     * A level has been completed: a = level index, b = moves count
+     */
+    LEVEL_COMPLETE,
+    /**
+     * A point outside the grid has been requested: a = first coordinate, b = second coordinate
+     */
+    OUT_OF_BOUNDS,
+    /**
+     * A level has been created: a = level index, b = rows, c = columns
+     */
+    LEVEL_CREATED,
+    /**
+     * A hint has been found: a = expanded states, b = 1 if solved, c = direction ordinal or -1
+     */
+    HINT_FOUND,
+    /**
+     * A level has been chosen from the level list: a = level index
+     */
+    LEVEL_SELECTED;
+
+    private static final TraceEvent[] EVENTS = values();
+
+    /**
+     * Returns the event with the given ordinal.
+     *
+     * @param ordinal the ordinal read from a trace dump
+     * @return the event, or null if unknown
+     */
+    public static TraceEvent fromOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < EVENTS.length ? EVENTS[ordinal] : null;
+    }
+
+    /**
+     * Returns a human readable description of the event arguments.
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @param c the third argument
+     * @return the description of the arguments
+     */
+    public String describe(int a, int b, int c) {
+        switch (this) {
+            case KEY_PRESSED:
+                return "key=" + KeyCode.values()[a];
+
+            case MOVE:
+                return String.format("keeper=[%d:%d] direction=%s target=%s",
+                        a, b, Direction.values()[c >> 8], GameObject.values()[c & 0xFF]);
+
+            case LEVEL_COMPLETE:
+                return "level=" + a + " moves=" + b;
+
+            case OUT_OF_BOUNDS:
+                return String.format("point=[%d:%d]", a, b);
+
+            case LEVEL_CREATED:
+                return "level=" + a + " rows=" + b + " columns=" + c;
+
+            case HINT_FOUND:
+                return "states=" + a + " solved=" + (b == 1) + " move=" + (c < 0 ? "none" : Direction.values()[c]);
+
+            case LEVEL_SELECTED:
+                return "level=" + a;
+
+            default:
+                return "a=" + a + " b=" + b + " c=" + c;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package engine.validation;
+
+/**
+ * LevelCheck lists the checks performed by {@link PackValidator} on every level.
+ */
+public enum LevelCheck {
+    /**
+     * The level has a name but no rows
+     */
+    EMPTY(Severity.ERROR),
+    /**
+     * Every row must be as wide as the first one
+     */
+    RECTANGULAR(Severity.ERROR),
+    /**
+     * There must be exactly one warehouse keeper
+     */
+    KEEPER(Severity.ERROR),
+    /**
+     * There must be at least as many crates as diamonds
+     */
+    CRATES(Severity.ERROR),
+    /**
+     * The keeper must be able to walk to every diamond, ignoring the crates
+     */
+    REACHABLE_GOALS(Severity.ERROR),
+    /**
+     * The area of the keeper must be enclosed by walls
+     */
+    ENCLOSED(Severity.ERROR),
+    /**
+     * A line between the rows is not a level row and it is ignored by the game
+     */
+    SKIPPED_LINE(Severity.WARNING),
+    /**
+     * A row contains a symbol that is not a game object, which the game turns into a wall
+     */
+    UNKNOWN_SYMBOL(Severity.WARNING);
+
+    /**
+     * The severity of the issues found by a check
+     */
+    public enum Severity {
+        ERROR, WARNING
+    }
+
+    private final Severity severity;
+
+    LevelCheck(Severity severity) {
+        this.severity = severity;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+}
@@ -0,0 +1,279 @@
+package engine.validation;
+
+import engine.LevelPackParser;
+import engine.RawLevel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PackValidator checks every level of a game file before it is played, reporting the
+ * problems the game would otherwise ignore or only find at play time.
+ * <p>
+ * The game file is read as a stream by a {@link LevelPackParser} and each level is checked
+ * on a pool of threads as soon as it has been read, so large packs are validated at the speed
+ * of the parser. The checks are listed by {@link LevelCheck}.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class PackValidator {
+
+    /**
+     * The symbols the game recognises in a level row, in either case
+     */
+    private static final String KNOWN_SYMBOLS = "W CDSO=";
+    private static final int[][] STEPS = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
+
+    private final int threads;
+
+    /**
+     * Creates a validator using one thread per processor.
+     */
+    public PackValidator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a validator.
+     *
+     * @param threads the number of threads checking the levels
+     */
+    public PackValidator(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Validates a game file.
+     *
+     * @param input  the stream containing the game file
+     * @param source the name of the game file used in the report
+     * @return the report
+     * @throws IOException if the game file cannot be read
+     */
+    public ValidationReport validate(InputStream input, String source) throws IOException {
+        long start = System.nanoTime();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "PackValidator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (LevelPackParser parser = new LevelPackParser(input)) {
+            List<Future<List<ValidationIssue>>> results = new ArrayList<>();
+            for (RawLevel level = parser.nextRawLevel(); level != null; level = parser.nextRawLevel()) {
+                RawLevel checked = level;
+                results.add(executor.submit(() -> validateLevel(checked)));
+            }
+
+            List<ValidationIssue> issues = new ArrayList<>();
+            for (Future<List<ValidationIssue>> result : results) {
+                issues.addAll(result.get());
+            }
+
+            return new ValidationReport(source, parser.getMapSetName(), results.size(), issues, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while validating " + source, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot validate " + source, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks a single level.
+     *
+     * @param level the level as read from the game file
+     * @return the issues found, sorted by line
+     */
+    public static List<ValidationIssue> validateLevel(RawLevel level) {
+        List<ValidationIssue> issues = new ArrayList<>();
+        List<String> rows = level.getRows();
+
+        for (int i = 0; i < level.getSkippedLines().size(); i++) {
+            issues.add(issue(level, LevelCheck.SKIPPED_LINE, level.getSkippedLineNumbers().get(i),
+                    "Ignored line: " + level.getSkippedLines().get(i).trim()));
+        }
+
+        if (rows.isEmpty()) {
+            issues.add(issue(level, LevelCheck.EMPTY, 0, "The level has no rows"));
+            return sortByLine(issues);
+        }
+
+        int width = rows.get(0).length();
+        int keepers = 0;
+        int crates = 0;
+        int goals = 0;
+        int keeperRow = -1;
+        int keeperCol = -1;
+
+        for (int row = 0; row < rows.size(); row++) {
+            String line = rows.get(row);
+            if (line.length() != width) {
+                issues.add(issue(level, LevelCheck.RECTANGULAR, level.getLineOf(row),
+                        "The row is " + line.length() + " wide instead of " + width));
+            }
+
+            boolean unknownReported = false;
+            for (int col = 0; col < line.length(); col++) {
+                char symbol = Character.toUpperCase(line.charAt(col));
+                switch (symbol) {
+                    case 'S':
+                        keepers++;
+                        keeperRow = row;
+                        keeperCol = col;
+                        break;
+                    case 'C':
+                        crates++;
+                        break;
+                    case 'D':
+                        goals++;
+                        break;
+                    case 'O':
+                        crates++;
+                        goals++;
+                        break;
+                    default:
+                        if (KNOWN_SYMBOLS.indexOf(symbol) < 0 && !unknownReported) {
+                            unknownReported = true;
+                            issues.add(issue(level, LevelCheck.UNKNOWN_SYMBOL, level.getLineOf(row),
+                                    "Unknown symbol '" + line.charAt(col) + "' at column " + (col + 1)));
+                        }
+                }
+            }
+        }
+
+        if (keepers != 1) {
+            issues.add(issue(level, LevelCheck.KEEPER, 0, "Found " + keepers + " keepers instead of 1"));
+        }
+        if (crates < goals) {
+            issues.add(issue(level, LevelCheck.CRATES, 0, "Found " + crates + " crates for " + goals + " diamonds"));
+        }
+        if (keepers == 1) {
+            checkKeeperArea(level, keeperRow, keeperCol, goals, issues);
+        }
+
+        return sortByLine(issues);
+    }
+
+    /**
+     * Walks from the keeper through every cell that is not a wall, ignoring the crates,
+     * to check that the area is enclosed and that it contains every diamond.
+     */
+    private static void checkKeeperArea(RawLevel level, int keeperRow, int keeperCol, int goals,
+                                        List<ValidationIssue> issues) {
+        List<String> rows = level.getRows();
+        boolean[][] visited = new boolean[rows.size()][];
+        for (int row = 0; row < rows.size(); row++) {
+            visited[row] = new boolean[rows.get(row).length()];
+        }
+
+        int[] queue = new int[rows.size() * 2 * maxWidth(rows) + 2];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = keeperRow;
+        queue[tail++] = keeperCol;
+        visited[keeperRow][keeperCol] = true;
+
+        int goalsReached = 0;
+        int openRow = -1;
+        while (head < tail) {
+            int row = queue[head++];
+            int col = queue[head++];
+            char symbol = Character.toUpperCase(rows.get(row).charAt(col));
+            if (symbol == 'D' || symbol == 'O') {
+                goalsReached++;
+            }
+
+            for (int[] step : STEPS) {
+                int nextRow = row + step[0];
+                int nextCol = col + step[1];
+
+                // Walking off the rows means the area is open.
+                if (nextRow < 0 || nextRow >= rows.size() || nextCol < 0 || nextCol >= rows.get(nextRow).length()) {
+                    if (openRow < 0) {
+                        openRow = row;
+                    }
+                    continue;
+                }
+
+                if (!visited[nextRow][nextCol] && isWalkable(Character.toUpperCase(rows.get(nextRow).charAt(nextCol)))) {
+                    visited[nextRow][nextCol] = true;
+                    queue[tail++] = nextRow;
+                    queue[tail++] = nextCol;
+                }
+            }
+        }
+
+        if (openRow >= 0) {
+            issues.add(issue(level, LevelCheck.ENCLOSED, level.getLineOf(openRow),
+                    "The keeper can walk off the level"));
+        }
+        if (goalsReached < goals) {
+            issues.add(issue(level, LevelCheck.REACHABLE_GOALS, 0,
+                    (goals - goalsReached) + " of " + goals + " diamonds cannot be reached by the keeper"));
+        }
+    }
+
+    private static boolean isWalkable(char symbol) {
+        return symbol == ' ' || symbol == 'S' || symbol == 'C' || symbol == 'D' || symbol == 'O';
+    }
+
+    private static int maxWidth(List<String> rows) {
+        int width = 0;
+        for (String row : rows) {
+            width = Math.max(width, row.length());
+        }
+
+        return width;
+    }
+
+    private static ValidationIssue issue(RawLevel level, LevelCheck check, int line, String message) {
+        return new ValidationIssue(level.getIndex(), level.getName(), check, line, message);
+    }
+
+    private static List<ValidationIssue> sortByLine(List<ValidationIssue> issues) {
+        issues.sort((a, b) -> Integer.compare(a.getLine(), b.getLine()));
+        return issues;
+    }
+
+    /**
+     * Validates game files and prints a JSON report for each of them, one per line.
+     * The exit status is 1 if any game file contains errors.
+     *
+     * @param args the paths of the game files
+     * @throws IOException if a game file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: PackValidator <file.skb>...");
+            System.exit(2);
+        }
+
+        PackValidator validator = new PackValidator();
+        boolean valid = true;
+        for (String file : args) {
+            Path path = Paths.get(file);
+            try (InputStream input = Files.newInputStream(path)) {
+                ValidationReport report = validator.validate(input, path.toString());
+                System.out.println(report.toJson());
+                valid &= report.isValid();
+            }
+        }
+
+        System.exit(valid ? 0 : 1);
+    }
+}
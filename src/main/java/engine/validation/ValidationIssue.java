@@ -0,0 +1,76 @@
+package engine.validation;
+
+/**
+ * ValidationIssue describes a problem found in a level by {@link PackValidator}.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class ValidationIssue {
+
+    private final int levelIndex;
+    private final String levelName;
+    private final LevelCheck check;
+    /**
+     * The line of the game file the issue refers to, or 0 if it refers to the whole level
+     */
+    private final int line;
+    private final String message;
+
+    ValidationIssue(int levelIndex, String levelName, LevelCheck check, int line, String message) {
+        this.levelIndex = levelIndex;
+        this.levelName = levelName;
+        this.check = check;
+        this.line = line;
+        this.message = message;
+    }
+
+    public int getLevelIndex() {
+        return levelIndex;
+    }
+
+    public String getLevelName() {
+        return levelName;
+    }
+
+    public LevelCheck getCheck() {
+        return check;
+    }
+
+    public LevelCheck.Severity getSeverity() {
+        return check.getSeverity();
+    }
+
+    /**
+     * Returns the line of the game file the issue refers to.
+     *
+     * @return the line number, or 0 if the issue refers to the whole level
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the issue as a JSON object.
+     *
+     * @return the JSON representation
+     */
+    public String toJson() {
+        return "{\"level\":" + levelIndex
+                + ",\"name\":" + ValidationReport.quote(levelName)
+                + ",\"check\":\"" + check + "\""
+                + ",\"severity\":\"" + getSeverity() + "\""
+                + ",\"line\":" + line
+                + ",\"message\":" + ValidationReport.quote(message) + "}";
+    }
+
+    @Override
+    public String toString() {
+        String location = line > 0 ? "line " + line : "level " + levelIndex;
+        return String.format("%s %s (%s, %s): %s", getSeverity(), check, location, levelName, message);
+    }
+}
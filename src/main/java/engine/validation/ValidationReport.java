@@ -0,0 +1,142 @@
+package engine.validation;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ValidationReport holds the outcome of the validation of a game file, and converts
+ * it to JSON so that it can be processed by other tools.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class ValidationReport {
+
+    /**
+     * The name of the validated game file
+     */
+    private final String source;
+    private final String mapSetName;
+    private final int levelCount;
+    /**
+     * The issues, sorted by level and line
+     */
+    private final List<ValidationIssue> issues;
+    /**
+     * The time spent in nanoseconds
+     */
+    private final long elapsed;
+
+    ValidationReport(String source, String mapSetName, int levelCount, List<ValidationIssue> issues, long elapsed) {
+        this.source = source;
+        this.mapSetName = mapSetName;
+        this.levelCount = levelCount;
+        this.issues = Collections.unmodifiableList(issues);
+        this.elapsed = elapsed;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getMapSetName() {
+        return mapSetName;
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    public List<ValidationIssue> getIssues() {
+        return issues;
+    }
+
+    public long getErrorCount() {
+        return count(LevelCheck.Severity.ERROR);
+    }
+
+    public long getWarningCount() {
+        return count(LevelCheck.Severity.WARNING);
+    }
+
+    /**
+     * Returns true if no error has been found. Warnings do not make a game file invalid.
+     *
+     * @return true if the game file is valid
+     */
+    public boolean isValid() {
+        return getErrorCount() == 0;
+    }
+
+    private long count(LevelCheck.Severity severity) {
+        return issues.stream().filter(issue -> issue.getSeverity() == severity).count();
+    }
+
+    /**
+     * Returns the report as a JSON object.
+     *
+     * @return the JSON representation
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(128 + issues.size() * 128);
+        sb.append("{\"source\":").append(quote(source))
+                .append(",\"mapSetName\":").append(quote(mapSetName))
+                .append(",\"levels\":").append(levelCount)
+                .append(",\"valid\":").append(isValid())
+                .append(",\"errors\":").append(getErrorCount())
+                .append(",\"warnings\":").append(getWarningCount())
+                .append(",\"elapsedMillis\":").append(elapsed / 1_000_000)
+                .append(",\"issues\":[");
+
+        for (int i = 0; i < issues.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(issues.get(i).toJson());
+        }
+
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Returns a string as a JSON string literal.
+     *
+     * @param value the string, or null
+     * @return the quoted and escaped string, or null
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+
+        return sb.append('"').toString();
+    }
+}
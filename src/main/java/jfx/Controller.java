@@ -1,14 +1,30 @@
 package jfx;
 
+import engine.Board;
+import engine.Direction;
+import engine.EngineThread;
 import engine.GameEngine;
-import engine.GameObject;
+import engine.GameFileWatcher;
+import engine.GameSnapshot;
 import engine.Level;
+import engine.LevelPackDiff;
+import engine.events.RenderEvent;
+import engine.metrics.EngineMetrics;
+import engine.replay.ReplayRecorder;
+import engine.search.HintEngine;
+import engine.search.SearchResult;
+import engine.trace.Trace;
+import engine.trace.TraceEvent;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
 import javafx.scene.control.MenuBar;
 import javafx.scene.effect.Effect;
 import javafx.scene.effect.MotionBlur;
+import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.GridPane;
@@ -23,17 +39,84 @@ import java.awt.*;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class Controller {
 
     public MenuBar menu;
     public GridPane gameGrid;
+    public Label statusBar;
     private Stage primaryStage;
-    private GameEngine gameEngine;
+    /**
+     * The thread driving the engine of the current game, or null until the first level is ready
+     */
+    private volatile EngineThread engineThread;
+    /**
+     * The part of the level shown in the game grid
+     */
+    private Viewport viewport;
     private File saveFile;
+    /**
+     * The background worker looking for hints. The time budget, in milliseconds,
+     * can be changed with the "sokoban.hint.budget" system property.
+     */
+    private final HintEngine hintEngine = new HintEngine(Long.getLong("sokoban.hint.budget", HintEngine.DEFAULT_TIME_BUDGET));
+    /**
+     * The thumbnails shown when choosing a level
+     */
+    private final ThumbnailCache thumbnails = ThumbnailCache.fromSystemProperty();
+    /**
+     * The frame-time statistics of the render loop
+     */
+    private final FrameStats frameStats = new FrameStats();
+    /**
+     * True if the grid has to be rendered in the next frame
+     */
+    private boolean renderRequested = false;
+    /**
+     * The last snapshot rendered, or null
+     */
+    private GameSnapshot renderedSnapshot;
+    /**
+     * The executor parsing the game files
+     */
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LevelLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The task loading the current game file
+     */
+    private LevelLoadTask loadTask;
+    /**
+     * True until the first level of the game file being loaded is ready
+     */
+    private boolean awaitingFirstLevel = false;
+    /**
+     * True if the hints are shown
+     */
+    private boolean hintsActive = false;
+    /**
+     * The cell where the keeper should move next, as (row, column)
+     */
+    private Point hintedCell;
+    /**
+     * The watcher reloading the game file when it changes on disk, or null
+     */
+    private GameFileWatcher fileWatcher;
+    /**
+     * The recorder of the current game, or null if not recording. It is called on the engine thread.
+     */
+    private ReplayRecorder replayRecorder;
 
     /**
      * Loads the default game file.
@@ -42,29 +125,231 @@ public class Controller {
      */
     void loadDefaultSaveFile(Stage primaryStage) {
         this.primaryStage = primaryStage;
+        viewport = Viewport.fromSystemProperty(gameGrid);
         InputStream in = getClass().getClassLoader().getResourceAsStream("level/SampleGame.skb");
-        initializeGame(in);
+        initializeGame(in, -1);
         setEventFilter();
+        startRenderLoop();
     }
 
     /**
      * Initializes the game using the provided game file.
+     * The file is parsed in the background and the game starts as soon as the first level is ready.
      *
      * @param input the game file to be loaded
+     * @param size  the size of the game file in bytes, or -1 if unknown
+     */
+    private void initializeGame(InputStream input, long size) {
+        stopLoading();
+        stopWatching();
+
+        LevelLoadTask task = new LevelLoadTask(input, size, this::levelsLoaded);
+        task.setOnSucceeded(event -> loadingFinished(task, task.getValue() == 0 ? "The game file does not contain any level." : task.getMessage()));
+        task.setOnCancelled(event -> loadingFinished(task, "Loading cancelled."));
+        task.setOnFailed(event -> loadingFinished(task, "Cannot load the game file: " + task.getException()));
+
+        statusBar.textProperty().bind(task.messageProperty());
+        awaitingFirstLevel = true;
+        loadTask = task;
+        loadExecutor.submit(task);
+    }
+
+    /**
+     * Receives the levels parsed by the {@link LevelLoadTask}, starting the game with the first one.
+     *
+     * @param mapSetName the map set name
+     * @param levels     the levels parsed
+     */
+    private void levelsLoaded(String mapSetName, List<Level> levels) {
+        if (!awaitingFirstLevel) {
+            engineThread.submit(engine -> engine.addLevels(levels));
+            return;
+        }
+
+        awaitingFirstLevel = false;
+        // The debug mode belongs to the engine, so carry it over to the new one.
+        boolean debug = engineThread != null && engineThread.getSnapshot().isDebugActive();
+        stopEngine();
+
+        GameEngine gameEngine = new GameEngine(mapSetName, levels, true);
+        gameEngine.setLoading(true);
+        if (debug) {
+            gameEngine.toggleDebug();
+        }
+        replayRecorder = ReplayRecorder.record(gameEngine, mapSetName == null ? "game" : mapSetName);
+        engineThread = new EngineThread(gameEngine);
+        thumbnails.clear();
+        requestRender();
+    }
+
+    /**
+     * Shows the outcome of the loading in the status bar and lets the engine complete the game
+     * after the last level loaded.
+     *
+     * @param task    the task that finished
+     * @param message the message to be shown
+     */
+    private void loadingFinished(LevelLoadTask task, String message) {
+        if (task != loadTask) {
+            // A newer game file is being loaded, the outcome of this one no longer matters.
+            return;
+        }
+
+        statusBar.textProperty().unbind();
+        statusBar.setText(message);
+        if (!awaitingFirstLevel && engineThread != null) {
+            engineThread.submit(engine -> engine.setLoading(false));
+        }
+    }
+
+    /**
+     * Stops the thread driving the engine of the current game, once the moves already made
+     * have been executed, then writes the replay of the game and closes it, if recording.
      */
-    private void initializeGame(InputStream input) {
-        gameEngine = new GameEngine(input, true);
-        reloadGrid();
+    private void stopEngine() {
+        if (engineThread == null) {
+            return;
+        }
+
+        engineThread.close();
+        if (replayRecorder != null) {
+            try {
+                replayRecorder.close();
+            } catch (IOException e) {
+                engineThread.getLogger().warning("Cannot close the replay: " + e);
+            }
+            replayRecorder = null;
+        }
+        engineThread = null;
+        renderedSnapshot = null;
     }
 
     /**
-     * Adds the event filter to handle {@link KeyEvent}s passing them to {@link GameEngine}.
+     * Cancels the loading of the current game file, if still running.
+     */
+    private void stopLoading() {
+        if (loadTask != null && loadTask.isRunning()) {
+            loadTask.cancel();
+        }
+    }
+
+    /**
+     * Restarts the hint search from a position, if the hints are active.
+     * The search runs on the {@link HintEngine} thread and the result is shown on the FX thread.
+     *
+     * @param snapshot the state of the game, or null
+     */
+    private void requestHint(GameSnapshot snapshot) {
+        hintedCell = null;
+        Board board = snapshot == null ? null : snapshot.getBoard();
+        if (!hintsActive || board == null) {
+            hintEngine.cancel();
+            return;
+        }
+
+        hintEngine.request(board, result -> Platform.runLater(() -> showHint(result)));
+    }
+
+    /**
+     * Highlights the cell where the keeper should move, unless the position changed in the meantime.
+     *
+     * @param result the result of the hint search
+     */
+    private void showHint(SearchResult result) {
+        GameSnapshot snapshot = engineThread == null ? null : engineThread.getSnapshot();
+        if (!hintsActive || snapshot == null || !result.getBoard().equals(snapshot.getBoard())) {
+            return;
+        }
+
+        Direction move = result.getNextMove();
+        if (move != null) {
+            Board board = result.getBoard();
+            int row = board.getKeeper() / board.getColumns() + move.getRowDelta();
+            int col = board.getKeeper() % board.getColumns() + move.getColumnDelta();
+            hintedCell = new Point(row, col);
+        }
+
+        Trace.record(TraceEvent.HINT_FOUND, result.getExpandedStates(), result.isSolved() ? 1 : 0,
+                move == null ? -1 : move.ordinal());
+
+        requestRender();
+    }
+
+    /**
+     * Adds the event filter to handle {@link KeyEvent}s, passing them to the engine thread.
      */
     private void setEventFilter() {
-        primaryStage.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
-            gameEngine.handleKey(event.getCode());
-            reloadGrid();
-        });
+        primaryStage.addEventFilter(KeyEvent.KEY_PRESSED, event -> submitKey(event.getCode()));
+    }
+
+    /**
+     * Queues a key to be handled by the {@link GameEngine} on its own thread. It can be called
+     * from any thread, e.g. to script the input. Keys pressed before the first level is ready are ignored.
+     *
+     * @param code the keyboard key code
+     */
+    void submitKey(KeyCode code) {
+        EngineThread thread = engineThread;
+        if (thread != null) {
+            thread.submitKey(code);
+        }
+    }
+
+    /**
+     * Asks for the grid to be rendered in the next frame.
+     */
+    private void requestRender() {
+        renderRequested = true;
+    }
+
+    /**
+     * Starts the render loop. At every pulse the latest snapshot published by the engine thread
+     * is rendered, if it changed, so a slow frame never delays the moves: it only skips the
+     * positions published in the meantime.
+     */
+    private void startRenderLoop() {
+        new AnimationTimer() {
+            /**
+             * The time of the last statistics report in nanoseconds
+             */
+            private long lastReport = 0;
+
+            @Override
+            public void handle(long now) {
+                frameStats.pulse(now);
+
+                GameSnapshot snapshot = engineThread == null ? null : engineThread.getSnapshot();
+                if (snapshot != null && snapshot != renderedSnapshot) {
+                    if (renderedSnapshot != null) {
+                        frameStats.inputsApplied((int) (snapshot.getCommandCount() - renderedSnapshot.getCommandCount()));
+                    }
+
+                    Board board = snapshot.getBoard();
+                    if (renderedSnapshot == null || board == null || !board.equals(renderedSnapshot.getBoard())) {
+                        requestHint(snapshot);
+                    }
+                    renderRequested = true;
+                }
+
+                if (renderRequested && snapshot != null) {
+                    renderRequested = false;
+                    renderedSnapshot = snapshot;
+                    long start = System.nanoTime();
+                    reloadGrid(snapshot);
+                    long renderTime = System.nanoTime() - start;
+                    frameStats.rendered(renderTime);
+                    EngineMetrics.get().recordRender(renderTime);
+                }
+
+                if (now - lastReport >= TimeUnit.SECONDS.toNanos(1)) {
+                    if (snapshot != null && snapshot.isDebugActive()) {
+                        engineThread.getLogger().info(frameStats.toString());
+                    }
+                    frameStats.reset();
+                    lastReport = now;
+                }
+            }
+        }.start();
     }
 
     /**
@@ -78,40 +363,115 @@ public class Controller {
         saveFile = fileChooser.showOpenDialog(primaryStage);
 
         if (saveFile != null) {
-            if (GameEngine.isDebugActive()) {
-                GameEngine.logger.info("Loading save file: " + saveFile.getName());
+            if (engineThread != null && engineThread.getSnapshot().isDebugActive()) {
+                engineThread.getLogger().info("Loading save file: " + saveFile.getName());
             }
-            initializeGame(new FileInputStream(saveFile));
+            initializeGame(new FileInputStream(saveFile), saveFile.length());
+            watchGameFile(saveFile.toPath());
         }
 
     }
 
     /**
-     * Reloads the grid using the {@link Level} iterator.
+     * Starts watching a game file, so that it is reloaded every time it changes on disk.
+     *
+     * @param file the game file
      */
-    private void reloadGrid() {
-        if (gameEngine.isGameComplete()) {
-            // TODO: fix last move of the game.
-            showVictoryMessage();
+    private void watchGameFile(Path file) {
+        try {
+            fileWatcher = new GameFileWatcher(file, GameFileWatcher.DEFAULT_QUIET_PERIOD,
+                    () -> Platform.runLater(() -> reloadGameFile(file)));
+        } catch (IOException e) {
+            statusBar.setText("Cannot watch the game file: " + e);
+        }
+    }
+
+    /**
+     * Stops watching the current game file, if any.
+     */
+    private void stopWatching() {
+        if (fileWatcher == null) {
             return;
         }
 
-        Level currentLevel = gameEngine.getCurrentLevel();
-        Level.LevelIterator levelGridIterator = (Level.LevelIterator) currentLevel.iterator();
+        try {
+            fileWatcher.close();
+        } catch (IOException e) {
+            statusBar.setText("Cannot stop watching the game file: " + e);
+        }
+        fileWatcher = null;
+    }
 
-        gameGrid.getChildren().clear();
+    /**
+     * Reloads the game file after it changed on disk. Only the levels whose text changed are
+     * parsed again, in the background, and the current level keeps its position if it did not change.
+     *
+     * @param file the game file
+     */
+    private void reloadGameFile(Path file) {
+        if (engineThread == null || fileWatcher == null || !file.toAbsolutePath().equals(fileWatcher.getFile())
+                || (loadTask != null && loadTask.isRunning())) {
+            return;
+        }
 
-        while (levelGridIterator.hasNext()) {
-            addObjectToGrid(levelGridIterator.next(), levelGridIterator.getCurrentPosition());
+        EngineThread thread = engineThread;
+        List<Level> previous = thread.getSnapshot().getLevels();
+        loadExecutor.submit(() -> {
+            long start = System.nanoTime();
+            try (InputStream input = Files.newInputStream(file)) {
+                LevelPackDiff diff = LevelPackDiff.compute(previous, input);
+                long elapsed = System.nanoTime() - start;
+                if (diff.getLevels().isEmpty()) {
+                    return;
+                }
+
+                // Ignored if another game has been loaded in the meantime.
+                thread.submit(engine -> {
+                    boolean kept = engine.replaceLevels(diff.getLevels());
+                    Platform.runLater(() -> statusBar.setText(String.format("Reloaded in %.1f ms - %s%s",
+                            elapsed / 1e6, diff, kept ? "" : " - current level restarted")));
+                });
+            } catch (IOException | RuntimeException e) {
+                Platform.runLater(() -> statusBar.setText("Cannot reload the game file: " + e));
+            }
+        });
+    }
+
+    /**
+     * Renders the part of the current {@link Level} visible through the {@link Viewport}.
+     * The window is only resized when the number of visible cells changes.
+     *
+     * @param snapshot the state of the game to be rendered
+     */
+    private void reloadGrid(GameSnapshot snapshot) {
+        if (snapshot.isGameComplete()) {
+            // TODO: fix last move of the game.
+            showVictoryMessage(snapshot);
+            return;
+        }
+        if (snapshot.getBoard() == null) {
+            // The next level is still being loaded.
+            return;
+        }
+
+        RenderEvent event = new RenderEvent();
+        event.begin();
+
+        if (viewport.render(snapshot.getBoard(), hintedCell, snapshot.isDebugActive())) {
+            gameGrid.autosize();
+            primaryStage.sizeToScene();
         }
 
-        gameGrid.autosize();
-        primaryStage.sizeToScene();
+        if (event.shouldCommit()) {
+            event.levelIndex = snapshot.getLevelIndex();
+            event.cellsRendered = viewport.getTileCount();
+            event.commit();
+        }
     }
 
-    private void showVictoryMessage() {
+    private void showVictoryMessage(GameSnapshot snapshot) {
         String dialogTitle = "Game Over!";
-        String dialogMessage = "You completed " + gameEngine.getMapSetName() + " in " + gameEngine.getMovesCount() + " moves!";
+        String dialogMessage = "You completed " + snapshot.getMapSetName() + " in " + snapshot.getMovesCount() + " moves!";
         MotionBlur mb = new MotionBlur(2, 3);
 
         newDialog(dialogTitle, dialogMessage, mb);
@@ -142,20 +502,12 @@ public class Controller {
         dialog.show();
     }
 
-    /**
-     * Adds an object to the specified grid position.
-     * It first converts a {@link GameObject} into a {@link javafx.scene.shape.Rectangle},
-     * then adds the new rectangle into the specified location.
-     *
-     * @param gameObject the game object to be added into the grid
-     * @param location   the location where the game object will be added
-     */
-    private void addObjectToGrid(GameObject gameObject, Point location) {
-        GraphicObject graphicObject = new GraphicObject(gameObject);
-        gameGrid.add(graphicObject, location.y, location.x);
-    }
-
     public void closeGame(ActionEvent actionEvent) {
+        stopLoading();
+        stopWatching();
+        stopEngine();
+        hintEngine.shutdown();
+        thumbnails.shutdown();
         System.exit(0);
     }
 
@@ -171,12 +523,50 @@ public class Controller {
         }
     }
 
+    /**
+     * Cancels the loading of the current game file.
+     *
+     * @param actionEvent the event triggered when the menu item is pressed.
+     */
+    public void cancelLoading(ActionEvent actionEvent) {
+        stopLoading();
+    }
+
+    /**
+     * Takes back the last move made in the current level.
+     *
+     * @param actionEvent the event triggered when the menu item is pressed.
+     */
     public void undo(ActionEvent actionEvent) {
-        // TODO
+        if (engineThread != null) {
+            engineThread.submit(GameEngine::undo);
+        }
     }
 
+    /**
+     * Shows the levels of the game file, so that the player can choose which one to play.
+     *
+     * @param actionEvent the event triggered when the menu item is pressed.
+     */
+    public void selectLevel(ActionEvent actionEvent) {
+        EngineThread thread = engineThread;
+        if (thread == null || thread.getSnapshot().getLevels().isEmpty()) {
+            return;
+        }
+
+        new LevelSelectView(primaryStage, thread.getSnapshot(), thumbnails,
+                index -> thread.submit(engine -> engine.selectLevel(index))).show();
+    }
+
+    /**
+     * Restarts the current level.
+     *
+     * @param actionEvent the event triggered when the menu item is pressed.
+     */
     public void resetLevel(ActionEvent actionEvent) {
-//        initializeGame(saveFile);
+        if (engineThread != null) {
+            engineThread.submit(GameEngine::resetLevel);
+        }
     }
 
     public void showAbout(ActionEvent actionEvent) {
@@ -187,13 +577,44 @@ public class Controller {
     }
 
     /**
-     * Toggles the debug mode.
+     * Toggles the debug mode. Tracing is active while debugging, or if enabled at startup.
      *
      * @param actionEvent the event triggered when the menu item is pressed.
      */
     public void toggleDebug(ActionEvent actionEvent) {
-        gameEngine.toggleDebug();
-        reloadGrid();
+        if (engineThread == null) {
+            return;
+        }
+
+        engineThread.submit(engine -> {
+            engine.toggleDebug();
+            Trace.setEnabled(engine.isDebugActive() || Trace.ENABLED_AT_STARTUP);
+        });
+    }
+
+    /**
+     * Dumps the trace records to a file in the logs directory.
+     *
+     * @param actionEvent the event triggered when the menu item is pressed.
+     */
+    public void dumpTrace(ActionEvent actionEvent) {
+        try {
+            File file = Trace.dumpToFile();
+            newDialog("Trace dumped", "Trace saved to:\n" + file.getAbsolutePath(), null);
+        } catch (IOException e) {
+            newDialog("Trace not dumped", "Cannot write the trace file:\n" + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Toggles the hints. While active, the cell where the keeper should move next is highlighted.
+     *
+     * @param actionEvent the event triggered when the menu item is pressed.
+     */
+    public void toggleHints(ActionEvent actionEvent) {
+        hintsActive = !hintsActive;
+        requestHint(renderedSnapshot);
+        requestRender();
     }
 
     /**
@@ -202,10 +623,16 @@ public class Controller {
      * @param actionEvent the event triggered when the menu item is pressed.
      */
     public void toggleMusic(ActionEvent actionEvent) {
-        if (!gameEngine.isPlayingMusic()) {
-            gameEngine.playMusic();
-        } else {
-            gameEngine.stopMusic();
+        if (engineThread == null) {
+            return;
         }
+
+        engineThread.submit(engine -> {
+            if (!engine.isPlayingMusic()) {
+                engine.playMusic();
+            } else {
+                engine.stopMusic();
+            }
+        });
     }
 }
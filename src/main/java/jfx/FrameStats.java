@@ -0,0 +1,121 @@
+package jfx;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FrameStats collects the frame-time statistics of the render loop.
+ * <p>
+ * It records the time between two pulses, the time spent rendering the grid and
+ * the number of inputs applied in each frame. It is only used on the FX thread.
+ */
+class FrameStats {
+
+    /**
+     * The time of the last pulse in nanoseconds
+     */
+    private long lastPulse = 0;
+    /**
+     * The number of frames measured
+     */
+    private long frames = 0;
+    /**
+     * The total and maximum time between two pulses in nanoseconds
+     */
+    private long frameTimeTotal = 0;
+    private long frameTimeMax = 0;
+    /**
+     * The number of frames in which the grid has been rendered
+     */
+    private long renders = 0;
+    /**
+     * The total and maximum render time in nanoseconds
+     */
+    private long renderTimeTotal = 0;
+    private long renderTimeMax = 0;
+    /**
+     * The number of inputs applied, and the maximum applied in a single frame
+     */
+    private long inputs = 0;
+    private int inputsMax = 0;
+
+    /**
+     * Records the start of a new frame.
+     *
+     * @param now the pulse time in nanoseconds
+     */
+    void pulse(long now) {
+        if (lastPulse != 0) {
+            long frameTime = now - lastPulse;
+            frames++;
+            frameTimeTotal += frameTime;
+            frameTimeMax = Math.max(frameTimeMax, frameTime);
+        }
+
+        lastPulse = now;
+    }
+
+    /**
+     * Records the inputs applied in the current frame.
+     *
+     * @param count the number of inputs
+     */
+    void inputsApplied(int count) {
+        inputs += count;
+        inputsMax = Math.max(inputsMax, count);
+    }
+
+    /**
+     * Records a render of the grid.
+     *
+     * @param renderTime the render time in nanoseconds
+     */
+    void rendered(long renderTime) {
+        renders++;
+        renderTimeTotal += renderTime;
+        renderTimeMax = Math.max(renderTimeMax, renderTime);
+    }
+
+    /**
+     * Returns the average time between two frames.
+     *
+     * @return the average frame time in milliseconds
+     */
+    double getAverageFrameTime() {
+        return frames == 0 ? 0 : toMillis(frameTimeTotal) / frames;
+    }
+
+    /**
+     * Returns the average time spent rendering the grid.
+     *
+     * @return the average render time in milliseconds
+     */
+    double getAverageRenderTime() {
+        return renders == 0 ? 0 : toMillis(renderTimeTotal) / renders;
+    }
+
+    /**
+     * Clears the statistics, keeping the last pulse time.
+     */
+    void reset() {
+        frames = 0;
+        frameTimeTotal = 0;
+        frameTimeMax = 0;
+        renders = 0;
+        renderTimeTotal = 0;
+        renderTimeMax = 0;
+        inputs = 0;
+        inputsMax = 0;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Frames: %d (avg %.2f ms, max %.2f ms) - Renders: %d (avg %.2f ms, max %.2f ms) - Inputs: %d (max %d per frame)",
+                frames, getAverageFrameTime(), toMillis(frameTimeMax),
+                renders, getAverageRenderTime(), toMillis(renderTimeMax),
+                inputs, inputsMax);
+    }
+}
@@ -1,21 +1,62 @@
 package jfx;
 
+import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
 import javafx.animation.Timeline;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
-import engine.GameEngine;
+import engine.GameLogger;
 import engine.GameObject;
 
 /**
  * GraphicObject is used to populate the game grid.
  * It creates {@link Rectangle} from {@link GameObject}.
+ * <p>
+ * A graphic object can be reused to show a different game object, so that the
+ * {@link Viewport} can keep a fixed pool of tiles while the camera scrolls.
  */
 class GraphicObject extends Rectangle {
 
-    GraphicObject(GameObject obj) {
+    private static final GameLogger logger = new GameLogger("GraphicObject");
+
+    /**
+     * The game object shown, or null if nothing has been shown yet
+     */
+    private GameObject shown;
+    /**
+     * True if the object is shown in debug mode
+     */
+    private boolean debug;
+    /**
+     * True if the object is highlighted by a hint
+     */
+    private boolean highlighted;
+    /**
+     * The transition making the diamonds blink in debug mode, created the first time it is needed
+     */
+    private FadeTransition blink;
+
+    /**
+     * Creates an empty tile.
+     */
+    GraphicObject() {
+        this.setHeight(30);
+        this.setWidth(30);
+    }
+
+    /**
+     * Shows a game object in this tile. Nothing changes if the object is already shown.
+     *
+     * @param obj   the game object
+     * @param debug true if the debug mode is active
+     */
+    void show(GameObject obj, boolean debug) {
+        if (obj == shown && debug == this.debug) {
+            return;
+        }
+
         Paint color;
         switch (obj) {
             case WALL:
@@ -28,17 +69,6 @@ class GraphicObject extends Rectangle {
 
             case DIAMOND:
                 color = Color.DEEPSKYBLUE;
-
-                // TODO: fix memory leak.
-                if (GameEngine.isDebugActive()) {
-                    FadeTransition ft = new FadeTransition(Duration.millis(1000), this);
-                    ft.setFromValue(1.0);
-                    ft.setToValue(0.2);
-                    ft.setCycleCount(Timeline.INDEFINITE);
-                    ft.setAutoReverse(true);
-                    ft.play();
-                }
-
                 break;
 
             case KEEPER:
@@ -55,23 +85,77 @@ class GraphicObject extends Rectangle {
 
             default:
                 String message = "Error in Level constructor. Object not recognized.";
-                GameEngine.logger.severe(message);
+                logger.severe(message);
                 throw new AssertionError(message);
         }
 
+        shown = obj;
+        this.debug = debug;
         this.setFill(color);
-        this.setHeight(30);
-        this.setWidth(30);
 
-        if (obj != GameObject.WALL) {
-            this.setArcHeight(50);
-            this.setArcWidth(50);
+        double arc = obj != GameObject.WALL ? 50 : 0;
+        this.setArcHeight(arc);
+        this.setArcWidth(arc);
+
+        if (obj == GameObject.DIAMOND && debug) {
+            startBlinking();
+        } else {
+            stopBlinking();
         }
 
-        if (GameEngine.isDebugActive()) {
+        updateStroke();
+    }
+
+    /**
+     * Highlights this tile, e.g. to show where the keeper should move next.
+     *
+     * @param highlighted true to highlight the tile
+     */
+    void setHighlighted(boolean highlighted) {
+        if (this.highlighted != highlighted) {
+            this.highlighted = highlighted;
+            updateStroke();
+        }
+    }
+
+    /**
+     * Stops the animations of this tile before it is removed from the grid.
+     */
+    void release() {
+        stopBlinking();
+        shown = null;
+    }
+
+    private void updateStroke() {
+        if (highlighted) {
+            this.setStroke(Color.LIMEGREEN);
+            this.setStrokeWidth(3);
+        } else if (debug) {
             this.setStroke(Color.RED);
             this.setStrokeWidth(0.25);
+        } else {
+            this.setStroke(null);
         }
     }
 
+    private void startBlinking() {
+        if (blink == null) {
+            blink = new FadeTransition(Duration.millis(1000), this);
+            blink.setFromValue(1.0);
+            blink.setToValue(0.2);
+            blink.setCycleCount(Timeline.INDEFINITE);
+            blink.setAutoReverse(true);
+        }
+
+        if (blink.getStatus() != Animation.Status.RUNNING) {
+            blink.play();
+        }
+    }
+
+    private void stopBlinking() {
+        if (blink != null && blink.getStatus() != Animation.Status.STOPPED) {
+            blink.stop();
+            this.setOpacity(1.0);
+        }
+    }
 }
@@ -0,0 +1,90 @@
+package jfx;
+
+import engine.Level;
+import engine.LevelPackParser;
+import engine.metrics.EngineMetrics;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * LevelLoadTask parses a game file in the background.
+ * <p>
+ * The parsed levels are handed over to the FX thread in batches: the first level is delivered
+ * as soon as it is ready, so the game can start while the rest of the file is still being read.
+ * The task reports the number of levels parsed and the bytes read through its message and
+ * progress properties, and it stops at the next level when cancelled.
+ */
+class LevelLoadTask extends Task<Integer> {
+
+    /**
+     * The maximum number of levels delivered to the FX thread at once
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final InputStream input;
+    /**
+     * The size of the game file in bytes, or -1 if unknown
+     */
+    private final long totalBytes;
+    /**
+     * The consumer receiving the map set name and each batch of levels on the FX thread
+     */
+    private final BiConsumer<String, List<Level>> onLevelsParsed;
+
+    /**
+     * Creates the task.
+     *
+     * @param input          the stream containing the game levels
+     * @param totalBytes     the size of the stream in bytes, or -1 if unknown
+     * @param onLevelsParsed the consumer receiving the parsed levels on the FX thread
+     */
+    LevelLoadTask(InputStream input, long totalBytes, BiConsumer<String, List<Level>> onLevelsParsed) {
+        this.input = input;
+        this.totalBytes = totalBytes;
+        this.onLevelsParsed = onLevelsParsed;
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        long start = System.nanoTime();
+        try (LevelPackParser parser = new LevelPackParser(input)) {
+            List<Level> batch = new ArrayList<>();
+
+            for (Level level = parser.nextLevel(); level != null && !isCancelled(); level = parser.nextLevel()) {
+                batch.add(level);
+
+                // Deliver the first level immediately, then the others in batches.
+                if (parser.getLevelsParsed() == 1 || batch.size() == BATCH_SIZE) {
+                    deliver(parser.getMapSetName(), batch);
+                    batch = new ArrayList<>();
+                }
+
+                updateProgress(parser.getBytesRead(), totalBytes);
+                updateMessage(String.format("Loading: %d levels, %d bytes read", parser.getLevelsParsed(), parser.getBytesRead()));
+            }
+
+            if (!batch.isEmpty() && !isCancelled()) {
+                deliver(parser.getMapSetName(), batch);
+            }
+
+            if (!isCancelled()) {
+                EngineMetrics.get().recordPackLoaded(System.nanoTime() - start);
+            }
+            updateMessage(String.format("Loaded %d levels", parser.getLevelsParsed()));
+            return parser.getLevelsParsed();
+        }
+    }
+
+    private void deliver(String mapSetName, List<Level> batch) {
+        Platform.runLater(() -> {
+            if (!isCancelled()) {
+                onLevelsParsed.accept(mapSetName, batch);
+            }
+        });
+    }
+}
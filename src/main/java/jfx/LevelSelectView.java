@@ -0,0 +1,146 @@
+package jfx;
+
+import engine.GameSnapshot;
+import engine.Level;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.Scene;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * LevelSelectView shows the levels of the game file with their thumbnails, so that
+ * the player can jump to any of them.
+ * <p>
+ * The list is virtualised: only the rows on screen exist, and each of them asks the
+ * {@link ThumbnailCache} for the thumbnail of its level when it becomes visible. The view
+ * therefore opens immediately even for game files containing thousands of levels.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+class LevelSelectView {
+
+    private final Stage stage;
+
+    /**
+     * Creates the view.
+     *
+     * @param owner      the window owning the view
+     * @param snapshot   the state of the game, containing the levels
+     * @param thumbnails the cache of the thumbnails
+     * @param onSelected the consumer receiving the index of the level chosen
+     */
+    LevelSelectView(Stage owner, GameSnapshot snapshot, ThumbnailCache thumbnails, IntConsumer onSelected) {
+        List<Level> levels = new ArrayList<>(snapshot.getLevels());
+
+        ObservableList<Level> items = FXCollections.observableList(levels);
+        ListView<Level> list = new ListView<>(items);
+        list.setFixedCellSize(ThumbnailCache.THUMBNAIL_SIZE + 8);
+        list.setCellFactory(view -> new LevelCell(thumbnails));
+
+        int currentIndex = snapshot.getLevelIndex();
+        if (currentIndex > 0) {
+            list.getSelectionModel().select(currentIndex - 1);
+            list.scrollTo(currentIndex - 1);
+        }
+
+        stage = new Stage();
+        stage.initModality(Modality.APPLICATION_MODAL);
+        stage.initOwner(owner);
+        stage.setTitle("Select level - " + snapshot.getMapSetName());
+
+        Runnable choose = () -> {
+            Level level = list.getSelectionModel().getSelectedItem();
+            if (level != null) {
+                stage.close();
+                onSelected.accept(level.getIndex());
+            }
+        };
+
+        list.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                choose.run();
+            }
+        });
+        list.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ENTER) {
+                choose.run();
+            } else if (event.getCode() == KeyCode.ESCAPE) {
+                stage.close();
+            }
+        });
+
+        stage.setScene(new Scene(list, 360, 480));
+    }
+
+    /**
+     * Shows the view.
+     */
+    void show() {
+        stage.show();
+    }
+
+    /**
+     * LevelCell shows a level with its thumbnail, requesting the thumbnail when the level
+     * becomes visible and cancelling the request when it scrolls away before being rendered.
+     */
+    private static class LevelCell extends ListCell<Level> {
+
+        private final ThumbnailCache thumbnails;
+        private final ImageView thumbnail = new ImageView();
+        private final StackPane frame = new StackPane(thumbnail);
+        /**
+         * The level whose thumbnail is being rendered, or null
+         */
+        private Level requested;
+
+        LevelCell(ThumbnailCache thumbnails) {
+            this.thumbnails = thumbnails;
+            frame.setMinSize(ThumbnailCache.THUMBNAIL_SIZE, ThumbnailCache.THUMBNAIL_SIZE);
+            frame.setPrefSize(ThumbnailCache.THUMBNAIL_SIZE, ThumbnailCache.THUMBNAIL_SIZE);
+        }
+
+        @Override
+        protected void updateItem(Level level, boolean empty) {
+            super.updateItem(level, empty);
+
+            if (requested != null && requested != level) {
+                thumbnails.cancel(requested);
+                requested = null;
+            }
+
+            if (empty || level == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+
+            setText(String.format("%d. %s%n%d x %d", level.getIndex(), level.getName(),
+                    level.getLayout().getColumns(), level.getLayout().getRows()));
+            setGraphic(frame);
+
+            Image image = thumbnails.get(level);
+            thumbnail.setImage(image);
+            if (image == null && requested != level) {
+                requested = level;
+                thumbnails.request(level, rendered -> {
+                    if (requested == level) {
+                        requested = null;
+                        thumbnail.setImage(rendered);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package jfx;
+
+import engine.GameObject;
+import engine.Level;
+import engine.LevelLayout;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * ThumbnailCache renders the thumbnails of the levels in the background and keeps the most
+ * recently used ones in memory.
+ * <p>
+ * Thumbnails are only rendered when requested, e.g. when a level becomes visible in the
+ * {@link LevelSelectView}, and the most recent requests are rendered first, so the levels on
+ * screen are shown quickly while scrolling through a big game file. A request can be cancelled
+ * when its level scrolls out of view before it has been rendered.
+ * <p>
+ * The thumbnails are keyed by {@link LevelLayout}, which is shared by every copy of a level.
+ * The cache is only used on the FX thread, while the images are rendered by a pool of daemon threads.
+ * The number of thumbnails kept can be changed with the "sokoban.thumbnails" system property.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+class ThumbnailCache {
+
+    static final int DEFAULT_CAPACITY = 256;
+    /**
+     * The maximum width and height of a thumbnail in pixels
+     */
+    static final int THUMBNAIL_SIZE = 96;
+
+    /**
+     * The thumbnails rendered, least recently used first
+     */
+    private final Map<LevelLayout, Image> images;
+    /**
+     * The thumbnails being rendered
+     */
+    private final Map<LevelLayout, Future<?>> pending = new HashMap<>();
+    /**
+     * The consumer waiting for each thumbnail being rendered
+     */
+    private final Map<LevelLayout, Consumer<Image>> waiting = new HashMap<>();
+    /**
+     * The executor rendering the thumbnails, newest request first
+     */
+    private final ExecutorService renderer;
+    /**
+     * The executor running the code of the cache on the FX thread
+     */
+    private final Executor fxThread;
+    /**
+     * Incremented by {@link #clear()}, so that the thumbnails requested before are discarded
+     */
+    private int generation = 0;
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the maximum number of thumbnails kept in memory
+     */
+    ThumbnailCache(int capacity) {
+        this(capacity, Platform::runLater);
+    }
+
+    /**
+     * Creates a cache handing the rendered thumbnails to the given executor.
+     *
+     * @param capacity the maximum number of thumbnails kept in memory
+     * @param fxThread the executor of the thread using the cache
+     */
+    ThumbnailCache(int capacity, Executor fxThread) {
+        this.fxThread = fxThread;
+        images = new LinkedHashMap<LevelLayout, Image>(Math.min(capacity, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LevelLayout, Image> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        // Keep a core free for the FX thread when possible.
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger threadCount = new AtomicInteger();
+        renderer = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingDeque<Runnable>() {
+            @Override
+            public boolean offer(Runnable task) {
+                // The newest request is the most likely to be on screen.
+                return offerFirst(task);
+            }
+        }, task -> {
+            Thread thread = new Thread(task, "ThumbnailRenderer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a cache sized by the "sokoban.thumbnails" system property.
+     *
+     * @return the cache
+     */
+    static ThumbnailCache fromSystemProperty() {
+        return new ThumbnailCache(Math.max(1, Integer.getInteger("sokoban.thumbnails", DEFAULT_CAPACITY)));
+    }
+
+    /**
+     * Returns the thumbnail of a level if it has already been rendered.
+     *
+     * @param level the level
+     * @return the thumbnail, or null if not rendered yet
+     */
+    Image get(Level level) {
+        return images.get(level.getLayout());
+    }
+
+    /**
+     * Renders the thumbnail of a level in the background. The consumer is called on the FX thread,
+     * immediately if the thumbnail has already been rendered. A new request for the same level
+     * replaces the consumer of the previous one.
+     *
+     * @param level   the level, which must not be modified while rendering
+     * @param onReady the consumer receiving the thumbnail
+     */
+    void request(Level level, Consumer<Image> onReady) {
+        LevelLayout layout = level.getLayout();
+        Image image = images.get(layout);
+        if (image != null) {
+            onReady.accept(image);
+            return;
+        }
+
+        waiting.put(layout, onReady);
+        if (!pending.containsKey(layout)) {
+            int requested = generation;
+            pending.put(layout, renderer.submit(() -> {
+                WritableImage thumbnail = render(level, THUMBNAIL_SIZE);
+                fxThread.execute(() -> rendered(layout, thumbnail, requested));
+            }));
+        }
+    }
+
+    /**
+     * Cancels the request for the thumbnail of a level, if it has not been rendered yet.
+     *
+     * @param level the level
+     */
+    void cancel(Level level) {
+        LevelLayout layout = level.getLayout();
+        waiting.remove(layout);
+
+        Future<?> task = pending.remove(layout);
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Cancels all the requests and removes every thumbnail, e.g. when a new game file is loaded.
+     */
+    void clear() {
+        generation++;
+        for (Future<?> task : pending.values()) {
+            task.cancel(false);
+        }
+
+        pending.clear();
+        waiting.clear();
+        images.clear();
+    }
+
+    /**
+     * Stops the threads rendering the thumbnails.
+     */
+    void shutdown() {
+        clear();
+        renderer.shutdownNow();
+    }
+
+    private void rendered(LevelLayout layout, Image thumbnail, int requested) {
+        if (requested != generation) {
+            // Rendered for a game file that has been replaced since.
+            return;
+        }
+
+        // A cancelled thumbnail is cached anyway, as the level may scroll back into view.
+        pending.remove(layout);
+        images.put(layout, thumbnail);
+
+        Consumer<Image> onReady = waiting.remove(layout);
+        if (onReady != null) {
+            onReady.accept(thumbnail);
+        }
+    }
+
+    /**
+     * Renders the thumbnail of a level. Each cell is drawn as a square of pixels if the level
+     * is smaller than the thumbnail, otherwise one cell is sampled per pixel.
+     *
+     * @param level   the level
+     * @param maxSize the maximum width and height of the thumbnail
+     * @return the thumbnail
+     */
+    static WritableImage render(Level level, int maxSize) {
+        LevelLayout layout = level.getLayout();
+        int rows = layout.getRows();
+        int columns = layout.getColumns();
+
+        int longestSide = Math.max(rows, columns);
+        int width;
+        int height;
+        if (longestSide <= maxSize) {
+            int scale = maxSize / longestSide;
+            width = columns * scale;
+            height = rows * scale;
+        } else {
+            width = Math.max(1, columns * maxSize / longestSide);
+            height = Math.max(1, rows * maxSize / longestSide);
+        }
+
+        // Only read the cells that end up in the thumbnail: all of them for a small level,
+        // one per pixel for a big one.
+        int sampledRows = Math.min(rows, height);
+        int sampledColumns = Math.min(columns, width);
+        int[] cells = new int[sampledRows * sampledColumns];
+        for (int row = 0; row < sampledRows; row++) {
+            for (int col = 0; col < sampledColumns; col++) {
+                GameObject object = level.getDisplayedObject(row * rows / sampledRows, col * columns / sampledColumns);
+                cells[row * sampledColumns + col] = colorOf(object);
+            }
+        }
+
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int rowOffset = y * sampledRows / height * sampledColumns;
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = cells[rowOffset + x * sampledColumns / width];
+            }
+        }
+
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * Returns the colour of a game object as shown by {@link GraphicObject}.
+     *
+     * @param object the game object, or null outside the raw level rows
+     * @return the colour as ARGB
+     */
+    private static int colorOf(GameObject object) {
+        if (object == null) {
+            return 0xFF000000;
+        }
+
+        switch (object) {
+            case CRATE:
+                return 0xFFFFA500;
+            case DIAMOND:
+                return 0xFF00BFFF;
+            case KEEPER:
+                return 0xFFFF0000;
+            case FLOOR:
+                return 0xFFFFFFFF;
+            case CRATE_ON_DIAMOND:
+                return 0xFF008B8B;
+            default:
+                return 0xFF000000;
+        }
+    }
+}
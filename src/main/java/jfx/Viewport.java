@@ -0,0 +1,199 @@
+package jfx;
+
+import engine.Board;
+import engine.GameObject;
+import engine.Level;
+import engine.LevelLayout;
+import javafx.scene.layout.GridPane;
+
+import java.awt.*;
+
+/**
+ * Viewport renders the part of a {@link Level} visible through a camera following the keeper,
+ * reading the position from a {@link Board} snapshot.
+ * <p>
+ * The grid contains a fixed pool of {@link GraphicObject} tiles, one per visible cell, which are
+ * repainted as the camera scrolls instead of being created again. The cost of a render therefore
+ * depends on the size of the viewport rather than on the size of the level, and the window keeps
+ * the same size however big the level is. Levels smaller than the viewport are shown whole.
+ * <p>
+ * The maximum size of the viewport can be changed with the "sokoban.viewport" system property,
+ * expressed as ROWSxCOLUMNS, e.g. "20x30". It is only used on the FX thread.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+class Viewport {
+
+    static final int DEFAULT_ROWS = 20;
+    static final int DEFAULT_COLUMNS = 30;
+    /**
+     * The number of cells kept between the keeper and the edge of the viewport before it scrolls
+     */
+    static final int MARGIN = 3;
+
+    /**
+     * The grid containing the tiles
+     */
+    private final GridPane grid;
+    /**
+     * The maximum number of rows and columns shown
+     */
+    private final int maxRows;
+    private final int maxColumns;
+    /**
+     * The tiles of the visible cells, in row-major order
+     */
+    private GraphicObject[] tiles = new GraphicObject[0];
+    /**
+     * The number of rows and columns shown
+     */
+    private int rows = 0;
+    private int columns = 0;
+    /**
+     * The level cell shown in the top left corner of the viewport
+     */
+    private int top = 0;
+    private int left = 0;
+    /**
+     * The layout of the level shown, used to detect a new level
+     */
+    private LevelLayout layout;
+
+    /**
+     * Creates a viewport.
+     *
+     * @param grid       the grid where the tiles are added
+     * @param maxRows    the maximum number of rows shown
+     * @param maxColumns the maximum number of columns shown
+     */
+    Viewport(GridPane grid, int maxRows, int maxColumns) {
+        if (maxRows <= 0 || maxColumns <= 0) {
+            throw new IllegalArgumentException("The viewport must have at least one cell: " + maxRows + "x" + maxColumns);
+        }
+
+        this.grid = grid;
+        this.maxRows = maxRows;
+        this.maxColumns = maxColumns;
+    }
+
+    /**
+     * Creates a viewport sized by the "sokoban.viewport" system property.
+     *
+     * @param grid the grid where the tiles are added
+     * @return the viewport
+     */
+    static Viewport fromSystemProperty(GridPane grid) {
+        String size = System.getProperty("sokoban.viewport");
+        if (size != null) {
+            String[] parts = size.toLowerCase().split("x");
+            try {
+                if (parts.length == 2) {
+                    return new Viewport(grid, Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+                }
+            } catch (IllegalArgumentException e) {
+                // Fall back to the default size.
+            }
+        }
+
+        return new Viewport(grid, DEFAULT_ROWS, DEFAULT_COLUMNS);
+    }
+
+    /**
+     * Renders the visible part of a position, moving the camera to keep the keeper in view.
+     *
+     * @param board       the position to be rendered
+     * @param hintedCell  the cell to be highlighted as (row, column), or null
+     * @param debug       true if the debug mode is active
+     * @return true if the number of visible cells changed, so the window has to be resized
+     */
+    boolean render(Board board, Point hintedCell, boolean debug) {
+        boolean resized = false;
+        boolean newLevel = board.getLayout() != layout;
+
+        if (newLevel) {
+            layout = board.getLayout();
+            int visibleRows = Math.min(maxRows, layout.getRows());
+            int visibleColumns = Math.min(maxColumns, layout.getColumns());
+            if (visibleRows != rows || visibleColumns != columns) {
+                resize(visibleRows, visibleColumns);
+                resized = true;
+            }
+        }
+
+        top = follow(top, board.getKeeper() / layout.getColumns(), rows, layout.getRows(), newLevel);
+        left = follow(left, board.getKeeper() % layout.getColumns(), columns, layout.getColumns(), newLevel);
+
+        int firstRow = top;
+        int firstColumn = left;
+        board.forEachCell(firstRow, firstRow + rows, firstColumn, firstColumn + columns, (row, col, object) -> {
+            GraphicObject tile = tiles[(row - firstRow) * columns + col - firstColumn];
+
+            // Cells outside the raw level rows cannot be walked on.
+            tile.show(object == null ? GameObject.WALL : object, debug);
+            tile.setHighlighted(hintedCell != null && hintedCell.x == row && hintedCell.y == col);
+        });
+
+        return resized;
+    }
+
+    /**
+     * Returns the number of tiles in the grid.
+     *
+     * @return the number of tiles
+     */
+    int getTileCount() {
+        return tiles.length;
+    }
+
+    /**
+     * Moves the camera along one axis so that the keeper stays at least {@link #MARGIN} cells
+     * away from the edges of the viewport, without showing anything outside the level.
+     *
+     * @param origin   the first visible cell
+     * @param position the keeper position
+     * @param size     the number of visible cells
+     * @param total    the number of cells of the level
+     * @param centre   true to centre the keeper, e.g. when a level starts
+     * @return the new first visible cell
+     */
+    static int follow(int origin, int position, int size, int total, boolean centre) {
+        if (total <= size) {
+            return 0;
+        }
+
+        int margin = Math.min(MARGIN, (size - 1) / 2);
+        if (centre) {
+            origin = position - size / 2;
+        } else if (position < origin + margin) {
+            origin = position - margin;
+        } else if (position > origin + size - 1 - margin) {
+            origin = position - size + 1 + margin;
+        }
+
+        return Math.max(0, Math.min(origin, total - size));
+    }
+
+    /**
+     * Changes the number of visible cells, reusing the existing tiles.
+     */
+    private void resize(int visibleRows, int visibleColumns) {
+        GraphicObject[] resized = new GraphicObject[visibleRows * visibleColumns];
+        System.arraycopy(tiles, 0, resized, 0, Math.min(tiles.length, resized.length));
+        for (int i = resized.length; i < tiles.length; i++) {
+            tiles[i].release();
+        }
+
+        grid.getChildren().clear();
+        for (int i = 0; i < resized.length; i++) {
+            if (resized[i] == null) {
+                resized[i] = new GraphicObject();
+            }
+            grid.add(resized[i], i % visibleColumns, i / visibleColumns);
+        }
+
+        tiles = resized;
+        rows = visibleRows;
+        columns = visibleColumns;
+    }
+}
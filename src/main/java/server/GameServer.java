@@ -0,0 +1,295 @@
+package server;
+
+import engine.GameLogger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameServer runs the game without the user interface, letting many clients play at the
+ * same time over a line based TCP protocol. Every connection is a {@link GameSession}.
+ * <p>
+ * Each session is handled by its own thread, blocking on the socket while the client is
+ * thinking. On Java 21 or newer the sessions run on virtual threads, so idle sessions cost
+ * little more than their game state; on older runtimes they fall back to platform threads
+ * with a small stack. The parsed level packs are shared by all the sessions.
+ * <p>
+ * The server listens on the loopback interface only, e.g.
+ * {@code java -cp SokobanFX.jar server.GameServer 7777 path/to/packs}.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class GameServer implements Closeable {
+
+    /**
+     * The default port
+     */
+    public static final int DEFAULT_PORT = 7777;
+    /**
+     * The stack size of the platform threads used for the sessions
+     */
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+    /**
+     * The maximum number of characters of a command, longer lines are rejected
+     */
+    public static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final GameLogger logger = new GameLogger("GameServer");
+    /**
+     * The registry providing the level packs to the sessions
+     */
+    private final PackRegistry registry;
+    /**
+     * The executor running one task per session
+     */
+    private final ExecutorService sessions = newSessionExecutor("session");
+    /**
+     * The number of sessions currently open
+     */
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    /**
+     * The number of sessions opened since the server started
+     */
+    private final AtomicLong totalSessions = new AtomicLong();
+    /**
+     * The sockets of the open sessions, closed when the server stops
+     */
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+
+    /**
+     * Creates the server and starts accepting connections.
+     *
+     * @param port     the port to listen on, or 0 to pick a free one
+     * @param registry the registry providing the level packs
+     * @throws IOException if the port cannot be opened
+     */
+    public GameServer(int port, PackRegistry registry) throws IOException {
+        this.registry = registry;
+
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+
+        acceptor = new Thread(this::acceptConnections, "GameServer-acceptor");
+        acceptor.start();
+        logger.info("Listening on port " + getPort());
+    }
+
+    /**
+     * Creates an executor running every task on a new thread: a virtual thread when the
+     * runtime supports them, a daemon platform thread with a small stack otherwise.
+     *
+     * @param name the prefix of the thread names
+     * @return the executor
+     */
+    public static ExecutorService newSessionExecutor(String name) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, name + "-" + threadCount.incrementAndGet(), PLATFORM_STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of sessions currently open.
+     *
+     * @return the number of open sessions
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Returns the number of sessions opened since the server started.
+     *
+     * @return the number of sessions
+     */
+    public long getTotalSessions() {
+        return totalSessions.get();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                clients.add(socket);
+                try {
+                    sessions.execute(() -> serve(socket));
+                } catch (RejectedExecutionException e) {
+                    clients.remove(socket);
+                    socket.close();
+                }
+            } catch (SocketException e) {
+                // The server socket has been closed.
+            } catch (IOException e) {
+                logger.warning("Cannot accept a connection: " + e);
+            }
+        }
+    }
+
+    /**
+     * Runs a session until the client quits or disconnects.
+     *
+     * @param socket the client socket
+     */
+    private void serve(Socket socket) {
+        activeSessions.incrementAndGet();
+        totalSessions.incrementAndGet();
+        GameSession session = new GameSession(registry);
+
+        try (Socket client = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)) {
+            client.setTcpNoDelay(true);
+
+            StringBuilder buffer = new StringBuilder();
+            for (String line = readLine(in, buffer); line != null; line = readLine(in, buffer)) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                String reply;
+                if (line.length() > MAX_LINE_LENGTH) {
+                    reply = "ERR line longer than " + MAX_LINE_LENGTH + " characters";
+                } else {
+                    reply = execute(session, line);
+                }
+                out.write(reply);
+                out.write('\n');
+                out.flush();
+
+                if (GameSession.BYE.equals(reply)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // The client disconnected abruptly, nothing to clean up but the socket.
+        } finally {
+            closeSession(session);
+            clients.remove(socket);
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Executes a command, turning the failures of the session into an error reply so that they
+     * do not close the connection.
+     */
+    private String execute(GameSession session, String line) {
+        try {
+            return session.execute(line);
+        } catch (RuntimeException e) {
+            logger.warning("Cannot execute the command: " + e);
+            return "ERR " + e;
+        }
+    }
+
+    /**
+     * Reads a line, ended by a line feed optionally preceded by a carriage return. The characters
+     * exceeding {@link #MAX_LINE_LENGTH} are skipped, so a line longer than the limit is returned
+     * with one character more than the limit.
+     *
+     * @param in     the reader
+     * @param buffer the buffer reused for every line
+     * @return the line, or null at the end of the stream
+     * @throws IOException if the reader cannot be read
+     */
+    private static String readLine(Reader in, StringBuilder buffer) throws IOException {
+        buffer.setLength(0);
+        int c = in.read();
+        if (c < 0) {
+            return null;
+        }
+
+        for (; c >= 0 && c != '\n'; c = in.read()) {
+            if (buffer.length() <= MAX_LINE_LENGTH) {
+                buffer.append((char) c);
+            }
+        }
+
+        int length = buffer.length();
+        if (length > 0 && length <= MAX_LINE_LENGTH && buffer.charAt(length - 1) == '\r') {
+            buffer.setLength(length - 1);
+        }
+        return buffer.toString();
+    }
+
+    private void closeSession(GameSession session) {
+        try {
+            session.close();
+        } catch (IOException e) {
+            logger.warning("Cannot close a session: " + e);
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes the open sessions.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdown();
+
+        // Blocked socket reads cannot be interrupted, so close the sockets to end the sessions.
+        for (Socket client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                logger.warning("Cannot close a client socket: " + e);
+            }
+        }
+
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path directory = args.length > 1 ? Paths.get(args[1]) : null;
+
+        new GameServer(port, new PackRegistry(directory));
+    }
+}
@@ -0,0 +1,183 @@
+package server;
+
+import engine.GameEngine;
+import engine.Level;
+import engine.lurd.LurdCodec;
+import engine.replay.ReplayRecorder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * GameSession holds the state of a game played through the server and executes
+ * the commands of the line protocol, one command per line:
+ * <ul>
+ * <li>{@code LOAD <pack>} starts the first level of a pack</li>
+ * <li>{@code MOVE <lurd>} moves the keeper, one LURD symbol per step, optionally run-length encoded,
+ * up to {@link #MAX_MOVES} moves</li>
+ * <li>{@code UNDO} takes back the last move of the current level</li>
+ * <li>{@code RESET} restarts the current level</li>
+ * <li>{@code STATE} returns the current level, with its rows separated by '/'</li>
+ * <li>{@code QUIT} closes the session</li>
+ * </ul>
+ * Every command is answered with a single line starting with {@code OK} or {@code ERR},
+ * or with {@link #BYE} after {@code QUIT}. A session is used by one thread at a time.
+ * <p>
+ * When replay recording is enabled, every pack loaded is recorded in a new replay.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class GameSession implements Closeable {
+
+    /**
+     * The reply to the QUIT command
+     */
+    public static final String BYE = "BYE";
+    /**
+     * The maximum number of moves of a single MOVE command, including the repeated ones
+     */
+    public static final int MAX_MOVES = 64 * 1024;
+
+    /**
+     * The registry providing the level packs
+     */
+    private final PackRegistry registry;
+    /**
+     * The engine of the pack being played, or null if no pack has been loaded
+     */
+    private GameEngine engine;
+    /**
+     * The pack being played
+     */
+    private LevelPack pack;
+    /**
+     * The recorder of the pack being played, or null if not recording
+     */
+    private ReplayRecorder recorder;
+
+    /**
+     * Creates a session.
+     *
+     * @param registry the registry providing the level packs
+     */
+    public GameSession(PackRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Executes a command.
+     *
+     * @param line the command line
+     * @return the reply
+     */
+    public String execute(String line) {
+        String[] parts = line.trim().split("\\s+", 2);
+        String command = parts[0].toUpperCase(Locale.ROOT);
+        String argument = parts.length > 1 ? parts[1] : "";
+
+        switch (command) {
+            case "LOAD":
+                return load(argument);
+
+            case "QUIT":
+                return BYE;
+
+            case "MOVE":
+            case "UNDO":
+            case "RESET":
+            case "STATE":
+                if (engine == null) {
+                    return "ERR no pack loaded";
+                }
+                break;
+
+            default:
+                return "ERR unknown command: " + parts[0];
+        }
+
+        switch (command) {
+            case "MOVE":
+                return move(argument);
+
+            case "UNDO":
+                boolean undone = engine.undo();
+                return "OK undone=" + undone + " moves=" + engine.getMovesCount();
+
+            case "RESET":
+                engine.resetLevel();
+                return "OK " + progress();
+
+            default:
+                return "OK " + progress() + " board=" + board();
+        }
+    }
+
+    private String load(String name) {
+        if (name.isEmpty()) {
+            return "ERR missing pack name";
+        }
+
+        try {
+            LevelPack loaded = registry.get(name);
+            // The engine is created first, so that a pack it rejects leaves the current game untouched.
+            GameEngine started = new GameEngine(loaded.getMapSetName(), loaded.getLevels(), false);
+            close();
+            pack = loaded;
+            engine = started;
+        } catch (IOException e) {
+            return "ERR " + e.getMessage();
+        }
+
+        recorder = ReplayRecorder.record(engine, pack.getName());
+        return "OK pack=" + pack.getName() + " levels=" + pack.getLevels().size() + " " + progress();
+    }
+
+    private String move(String symbols) {
+        if (symbols.isEmpty()) {
+            return "ERR missing moves";
+        }
+
+        // Parse every symbol first, so that a bad command does not move the keeper at all.
+        byte[] moves;
+        try {
+            moves = LurdCodec.parse(symbols, MAX_MOVES);
+        } catch (IllegalArgumentException e) {
+            return "ERR invalid moves: " + e.getMessage();
+        }
+
+        int moved = engine.play(moves, 0, moves.length);
+        return "OK moved=" + moved + " " + progress();
+    }
+
+    private String progress() {
+        Level level = engine.getCurrentLevel();
+        int index = level == null ? pack.getLevels().size() : level.getIndex();
+        return "level=" + index + " moves=" + engine.getMovesCount() + " complete=" + engine.isGameComplete();
+    }
+
+    private String board() {
+        Level level = engine.getCurrentLevel();
+        if (level == null) {
+            return "";
+        }
+
+        String rows = level.toBoard().toString();
+        return rows.substring(0, rows.length() - 1).replace('\n', '/');
+    }
+
+    /**
+     * Stops recording the current game, if recording.
+     *
+     * @throws IOException if the replay cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (recorder != null) {
+            ReplayRecorder closing = recorder;
+            recorder = null;
+            closing.close();
+        }
+    }
+}
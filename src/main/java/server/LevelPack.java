@@ -0,0 +1,65 @@
+package server;
+
+import engine.Level;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * LevelPack holds the levels parsed from a game file.
+ * <p>
+ * The levels are never played directly, every {@link engine.GameEngine} plays a copy of
+ * its current level, so a single pack is shared by all the sessions that load it.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public final class LevelPack {
+
+    /**
+     * The name used to load the pack
+     */
+    private final String name;
+    /**
+     * The map set name read from the game file
+     */
+    private final String mapSetName;
+    /**
+     * The parsed levels
+     */
+    private final List<Level> levels;
+
+    /**
+     * Creates the pack.
+     *
+     * @param name       the name used to load the pack
+     * @param mapSetName the map set name read from the game file
+     * @param levels     the parsed levels, at least one
+     */
+    LevelPack(String name, String mapSetName, List<Level> levels) {
+        if (levels.isEmpty()) {
+            throw new IllegalArgumentException("The pack " + name + " does not contain any level.");
+        }
+
+        this.name = name;
+        this.mapSetName = mapSetName;
+        this.levels = Collections.unmodifiableList(levels);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMapSetName() {
+        return mapSetName;
+    }
+
+    /**
+     * Returns the levels of this pack.
+     *
+     * @return the unmodifiable list of levels
+     */
+    public List<Level> getLevels() {
+        return levels;
+    }
+}
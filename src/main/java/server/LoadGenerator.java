@@ -0,0 +1,161 @@
+package server;
+
+import engine.Direction;
+import engine.metrics.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadGenerator opens many concurrent sessions on a {@link GameServer} and plays random
+ * moves on each of them, then reports the throughput and the latency of the requests.
+ * <p>
+ * Usage: {@code LoadGenerator [clients] [requests per client] [pack] [port]}.
+ * Every client loads the pack, then sends single step moves, undoing one move every ten
+ * requests and resetting the level every few hundreds.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class LoadGenerator {
+
+    private final int port;
+    private final String pack;
+    private final int requestsPerClient;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder failedClients = new LongAdder();
+
+    /**
+     * Creates the generator.
+     *
+     * @param port              the port of the server on the loopback interface
+     * @param pack              the pack loaded by every client
+     * @param requestsPerClient the number of requests sent by every client after loading the pack
+     */
+    public LoadGenerator(int port, String pack, int requestsPerClient) {
+        this.port = port;
+        this.pack = pack;
+        this.requestsPerClient = requestsPerClient;
+    }
+
+    /**
+     * Runs the clients and waits for all of them to finish.
+     *
+     * @param clients the number of concurrent clients
+     * @return the time spent in nanoseconds
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public long run(int clients) throws InterruptedException {
+        ExecutorService executor = GameServer.newSessionExecutor("client");
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int i = 0; i < clients; i++) {
+            long seed = i;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    play(new Random(seed));
+                } catch (IOException e) {
+                    failedClients.increment();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private void play(Random random) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            socket.setTcpNoDelay(true);
+            request(in, out, "LOAD " + pack);
+
+            Direction[] directions = Direction.values();
+            for (int i = 1; i <= requestsPerClient; i++) {
+                String command;
+                if (i % 250 == 0) {
+                    command = "RESET";
+                } else if (i % 10 == 0) {
+                    command = "UNDO";
+                } else {
+                    command = "MOVE " + directions[random.nextInt(directions.length)].getSymbol();
+                }
+                request(in, out, command);
+            }
+
+            request(in, out, "QUIT");
+        }
+    }
+
+    private void request(BufferedReader in, Writer out, String command) throws IOException {
+        long start = System.nanoTime();
+        out.write(command);
+        out.write('\n');
+        out.flush();
+
+        String reply = in.readLine();
+        latency.record(System.nanoTime() - start);
+
+        if (reply == null) {
+            throw new IOException("The server closed the connection");
+        }
+        if (reply.startsWith("ERR")) {
+            errors.increment();
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getFailedClients() {
+        return failedClients.sum();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        String pack = args.length > 2 ? args[2] : "SampleGame";
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : GameServer.DEFAULT_PORT;
+
+        LoadGenerator generator = new LoadGenerator(port, pack, requests);
+        long elapsed = generator.run(clients);
+
+        LatencyHistogram latency = generator.getLatency();
+        double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%d clients, %d requests in %.2f s: %.0f requests/s%n",
+                clients, latency.getCount(), seconds, latency.getCount() / seconds);
+        System.out.printf("Latency (us): mean %.1f, p50 %d, p99 %d, max %d%n",
+                latency.getMean() / 1000, latency.getPercentile(50) / 1000,
+                latency.getPercentile(99) / 1000, latency.getMax() / 1000);
+        System.out.printf("Errors: %d, failed clients: %d%n", generator.getErrors(), generator.getFailedClients());
+    }
+}
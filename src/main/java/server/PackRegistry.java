@@ -0,0 +1,108 @@
+package server;
+
+import engine.Level;
+import engine.LevelPackParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * PackRegistry loads the level packs requested by the sessions and keeps them in memory,
+ * so every pack is parsed once no matter how many sessions play it.
+ * <p>
+ * Packs are read from a directory, or from the levels bundled with the game when no
+ * directory is given. The name of a pack is the name of its file without the extension.
+ *
+ * @author Stefano Frazzetto
+ * @since 2.4.0
+ */
+public class PackRegistry {
+
+    /**
+     * The extension of the game files
+     */
+    private static final String EXTENSION = ".skb";
+    /**
+     * The valid pack names, which cannot point outside the packs directory
+     */
+    private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    /**
+     * The directory containing the packs, or null to use the bundled levels
+     */
+    private final Path directory;
+    /**
+     * The packs loaded so far
+     */
+    private final ConcurrentMap<String, LevelPack> packs = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a registry reading the packs from a directory.
+     *
+     * @param directory the directory containing the packs, or null to use the bundled levels
+     */
+    public PackRegistry(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns a pack, loading it the first time it is requested. Sessions requesting
+     * a pack while it is being loaded wait for it instead of parsing it again.
+     *
+     * @param name the name of the pack
+     * @return the pack
+     * @throws IOException if the pack does not exist or cannot be read
+     */
+    public LevelPack get(String name) throws IOException {
+        if (!VALID_NAME.matcher(name).matches() || name.startsWith(".")) {
+            throw new IOException("Invalid pack name: " + name);
+        }
+
+        try {
+            return packs.computeIfAbsent(name, this::load);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns the number of packs loaded.
+     *
+     * @return the number of packs in memory
+     */
+    public int size() {
+        return packs.size();
+    }
+
+    private LevelPack load(String name) {
+        try (InputStream input = open(name);
+             LevelPackParser parser = new LevelPackParser(input)) {
+            List<Level> levels = parser.readAll();
+            return new LevelPack(name, parser.getMapSetName(), levels);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalArgumentException e) {
+            throw new UncheckedIOException(new IOException(e.getMessage(), e));
+        }
+    }
+
+    private InputStream open(String name) throws IOException {
+        if (directory != null) {
+            return Files.newInputStream(directory.resolve(name + EXTENSION));
+        }
+
+        InputStream input = getClass().getClassLoader().getResourceAsStream("level/" + name + EXTENSION);
+        if (input == null) {
+            throw new IOException("Pack not found: " + name);
+        }
+
+        return input;
+    }
+}
@@ -0,0 +1,163 @@
+import engine.Board;
+import engine.Level;
+import engine.cache.AnalysisCache;
+import engine.search.SearchResult;
+import engine.search.SolutionCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisCacheTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("analysis.cache");
+        try (AnalysisCache cache = AnalysisCache.open(file, 1 << 20, 16)) {
+            cache.put(42, 1, bytes("first"));
+            cache.put(42, 2, bytes("other kind"));
+            cache.put(42, 1, bytes("replaced"));
+            assertArrayEquals(bytes("replaced"), cache.get(42, 1));
+            assertNull(cache.get(43, 1));
+        }
+
+        try (AnalysisCache cache = AnalysisCache.open(file, 1 << 20, 16)) {
+            assertEquals(2, cache.size());
+            assertArrayEquals(bytes("replaced"), cache.get(42, 1));
+            assertArrayEquals(bytes("other kind"), cache.get(42, 2));
+            assertEquals(2, cache.getFileHits());
+        }
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("analysis.cache");
+        long validSize;
+        try (AnalysisCache cache = AnalysisCache.open(file, 1 << 20, 16)) {
+            cache.put(1, 1, bytes("kept"));
+            validSize = cache.getFileSize();
+            cache.put(2, 1, bytes("lost in a crash"));
+        }
+
+        // Cut the last record in half, as if the process stopped while appending it.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(validSize + 10);
+        }
+
+        try (AnalysisCache cache = AnalysisCache.open(file, 1 << 20, 16)) {
+            assertEquals(validSize, cache.getFileSize());
+            assertArrayEquals(bytes("kept"), cache.get(1, 1));
+            assertNull(cache.get(2, 1));
+
+            cache.put(3, 1, bytes("appended after the repair"));
+        }
+
+        try (AnalysisCache cache = AnalysisCache.open(file, 1 << 20, 16)) {
+            assertArrayEquals(bytes("appended after the repair"), cache.get(3, 1));
+        }
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("analysis.cache");
+        long maxBytes = 4096;
+        byte[] data = new byte[100];
+
+        try (AnalysisCache cache = AnalysisCache.open(file, maxBytes, 4)) {
+            for (int i = 0; i < 200; i++) {
+                Arrays.fill(data, (byte) i);
+                cache.put(i, 1, data);
+                // Keep the first entry in use, so that it survives the compactions.
+                assertTrue(cache.get(0, 1) != null);
+                assertTrue("The cache file is too big", cache.getFileSize() <= maxBytes);
+            }
+
+            assertTrue(cache.getEvictions() > 0);
+            Arrays.fill(data, (byte) 199);
+            assertArrayEquals(data, cache.get(199, 1));
+        }
+
+        try (AnalysisCache cache = AnalysisCache.open(file, maxBytes, 4)) {
+            Arrays.fill(data, (byte) 0);
+            assertArrayEquals("The most recently used entry has been evicted", data, cache.get(0, 1));
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("analysis.cache");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try (AnalysisCache cache = AnalysisCache.open(file, 64 * 1024, 32)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        long key = thread * 1000 + i % 50;
+                        byte[] stored = cache.computeIfAbsent(key, 1, () -> bytes("value " + key));
+                        assertArrayEquals(bytes("value " + key), stored);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            assertEquals(200, cache.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSolutionCache() throws IOException {
+        Level level = new Level("Corridor", 1, Arrays.asList(
+                "WWWWWWW",
+                "WS C DW",
+                "WWWWWWW"));
+        Board board = level.toBoard();
+        assertEquals("The initial position should have the hash of the level",
+                level.getLayout().getContentHash(), board.getContentHash());
+
+        Path file = folder.getRoot().toPath().resolve("analysis.cache");
+        long budget = TimeUnit.SECONDS.toNanos(5);
+        try (AnalysisCache cache = AnalysisCache.open(file, 1 << 20, 16)) {
+            SearchResult first = new SolutionCache(cache).solve(board, budget);
+            assertTrue(first.isSolved());
+            assertTrue(first.getExpandedStates() > 0);
+        }
+
+        try (AnalysisCache cache = AnalysisCache.open(file, 1 << 20, 16)) {
+            SearchResult cached = new SolutionCache(cache).solve(level.toBoard(), budget);
+            assertTrue(cached.isSolved());
+            assertEquals("The solution should come from the cache", 0, cached.getExpandedStates());
+            assertEquals("rrr", cached.toString().substring(cached.toString().length() - 3));
+        }
+    }
+}
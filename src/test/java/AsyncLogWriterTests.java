@@ -0,0 +1,60 @@
+import engine.AsyncLogWriter;
+import engine.GameLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncLogWriterTests {
+
+    private StringWriter output;
+    private AsyncLogWriter writer;
+
+    @Before
+    public void setUp() {
+        output = new StringWriter();
+        writer = new AsyncLogWriter(output, 64);
+    }
+
+    @After
+    public void tearDown() {
+        writer.close();
+    }
+
+    @Test
+    public void testMessageFormat() {
+        new GameLogger("TestLogger", writer).warning("Something happened");
+        writer.flush();
+
+        String line = output.toString();
+        assertTrue("Wrong line: " + line, line.matches("\\d{2}/\\d{2}/\\d{4} \\d{2}:\\d{2}:\\d{2}\\.\\d{3} \\[WARNING\\] TestLogger -- Something happened\n"));
+    }
+
+    @Test
+    public void testConcurrentLoggers() throws InterruptedException {
+        int threads = 4;
+        int messages = 1000;
+        Thread[] producers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            GameLogger logger = new GameLogger("Logger-" + t, writer);
+            producers[t] = new Thread(() -> {
+                for (int i = 0; i < messages; i++) {
+                    logger.info("Message " + i);
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        writer.flush();
+
+        int lines = output.toString().split("\n").length;
+        assertEquals("Every message should be either written or dropped", threads * messages, lines + writer.getDropped());
+    }
+}
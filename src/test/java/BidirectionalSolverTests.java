@@ -0,0 +1,111 @@
+import engine.Board;
+import engine.Direction;
+import engine.Level;
+import engine.search.BidirectionalSolver;
+import engine.search.BoardAnalysis;
+import engine.search.PushSolver;
+import engine.search.SearchResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class BidirectionalSolverTests {
+
+    private static final long BUDGET = TimeUnit.SECONDS.toNanos(5);
+
+    private static SearchResult solve(String... rows) {
+        Board board = new Level("Test", 1, Arrays.asList(rows)).toBoard();
+        return new BidirectionalSolver(BoardAnalysis.of(board)).solve(board, BUDGET);
+    }
+
+    private static void assertSolves(SearchResult result) {
+        assertTrue("The level has not been solved: " + result, result.isSolved());
+
+        Board board = result.getBoard();
+        for (Direction move : result.getMoves()) {
+            board = board.move(move);
+            assertNotNull("The solution contains an illegal move", board);
+        }
+        assertTrue("The solution does not complete the level", board.isComplete());
+    }
+
+    @Test
+    public void testGoalRoom() {
+        SearchResult result = solve(
+                "WWWWWWWW",
+                "WDD  WWW",
+                "WDD    W",
+                "WW C C W",
+                "W  S   W",
+                "W  C C W",
+                "W      W",
+                "WWWWWWWW");
+        assertSolves(result);
+
+        Board board = result.getBoard();
+        SearchResult forward = new PushSolver(BoardAnalysis.of(board)).solve(board, BUDGET);
+        assertTrue(forward.isSolved());
+        assertTrue("Pulling the crates out of the goal room should need fewer states",
+                result.getExpandedStates() < forward.getExpandedStates());
+    }
+
+    @Test
+    public void testCorridor() {
+        SearchResult result = solve(
+                "WWWWWWW",
+                "WS C DW",
+                "WWWWWWW");
+        assertSolves(result);
+        assertEquals(Arrays.asList(Direction.RIGHT, Direction.RIGHT, Direction.RIGHT), result.getMoves());
+    }
+
+    @Test
+    public void testUnsolvable() {
+        // Neither crate is on a dead square, but each one blocks the only push of the other.
+        SearchResult result = solve(
+                "WWWWWWWW",
+                "WD CC DW",
+                "W      W",
+                "W  S   W",
+                "WWWWWWWW");
+        assertFalse(result.isSolved());
+        assertFalse("The crates are not on dead squares", result.isDeadlocked());
+        assertFalse("The search should end by running out of states", result.isCancelled());
+        assertTrue("The search should have expanded the starting state", result.getExpandedStates() > 0);
+    }
+
+    @Test
+    public void testMoreCratesThanGoals() {
+        assertSolves(solve(
+                "WWWWWWWW",
+                "WS C DCW",
+                "WWWWWWWW"));
+    }
+
+    @Test
+    public void testDeadCrate() {
+        // The crate in the corner can never leave it, so no search is needed.
+        Board board = new Level("Test", 1, Arrays.asList(
+                "WWWWWW",
+                "WC   W",
+                "W  S W",
+                "W  CDW",
+                "W   DW",
+                "WWWWWW")).toBoard();
+        BoardAnalysis analysis = BoardAnalysis.of(board);
+
+        for (SearchResult result : Arrays.asList(new BidirectionalSolver(analysis).solve(board, BUDGET),
+                new PushSolver(analysis).solve(board, BUDGET))) {
+            assertTrue(result.isDeadlocked());
+            assertFalse(result.isSolved());
+            assertTrue(result.getMoves().isEmpty());
+            assertEquals(0, result.getExpandedStates());
+        }
+    }
+}
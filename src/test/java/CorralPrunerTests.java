@@ -0,0 +1,88 @@
+import engine.Board;
+import engine.Direction;
+import engine.Level;
+import engine.search.BoardAnalysis;
+import engine.search.CorralPruner;
+import engine.search.PushSolver;
+import engine.search.SearchResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class CorralPrunerTests {
+
+    private static Board board(String... rows) {
+        return new Level("Test", 1, Arrays.asList(rows)).toBoard();
+    }
+
+    @Test
+    public void testCorridorCorral() {
+        Board board = board(
+                "WWWWWWW",
+                "WS C DW",
+                "WWWWWWW");
+        CorralPruner pruner = new CorralPruner(BoardAnalysis.of(board));
+
+        assertTrue("The diamond behind the crate is in a PI-corral", pruner.restrict(board));
+        assertEquals(1, pruner.getPushCount());
+        int crate = board.cellOf(1, 3);
+        assertTrue(pruner.allows(crate, Direction.RIGHT));
+        assertFalse(pruner.allows(crate, Direction.LEFT));
+    }
+
+    @Test
+    public void testSolvedCorral() {
+        Board board = board(
+                "WWWWWW",
+                "WS O W",
+                "WWWWWW");
+        CorralPruner pruner = new CorralPruner(BoardAnalysis.of(board));
+
+        assertFalse("A corral without work should not restrict the pushes", pruner.restrict(board));
+        assertTrue(pruner.allows(board.cellOf(1, 3), Direction.RIGHT));
+    }
+
+    @Test
+    public void testPushOutOfTheCorral() {
+        // The crate can also be pushed down, out of the corral on its right.
+        Board board = board(
+                "WWWWWWW",
+                "W   WWW",
+                "W W WWW",
+                "WS C DW",
+                "WWW WWW",
+                "WWWWWWW");
+        CorralPruner pruner = new CorralPruner(BoardAnalysis.of(board));
+
+        assertFalse(pruner.restrict(board));
+        assertEquals(0, pruner.getPushCount());
+    }
+
+    @Test
+    public void testPrunedSearch() {
+        // The crate on the left seals the goal room, so its push is the only one tried at first.
+        Board board = board(
+                "WWWWWWWWW",
+                "WWWWW   W",
+                "WDD C C W",
+                "WWWWWS  W",
+                "WWWWW   W",
+                "WWWWWWWWW");
+        assertTrue(new CorralPruner(BoardAnalysis.of(board)).restrict(board));
+
+        SearchResult result = new PushSolver(BoardAnalysis.of(board)).solve(board, TimeUnit.SECONDS.toNanos(5));
+        assertTrue(result.isSolved());
+
+        for (Direction move : result.getMoves()) {
+            board = board.move(move);
+            assertNotNull(board);
+        }
+        assertTrue(board.isComplete());
+    }
+}
@@ -0,0 +1,59 @@
+import engine.GameEngine;
+import engine.metrics.EngineMetrics;
+import engine.metrics.LatencyHistogram;
+import javafx.scene.input.KeyCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EngineMetricsTests {
+
+    private EngineMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = EngineMetrics.get();
+        metrics.reset();
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000_000, histogram.getMax());
+
+        long median = histogram.getPercentile(50);
+        assertTrue("Median out of range: " + median, median >= 500_000 && median <= 500_000 * 1.125);
+        long p99 = histogram.getPercentile(99);
+        assertTrue("99th percentile out of range: " + p99, p99 >= 990_000 && p99 <= 1000_000);
+    }
+
+    @Test
+    public void testMovesAreCounted() {
+        GameEngine engine = new GameEngine(getClass().getResourceAsStream("debugLevel.skb"), false);
+        engine.handleKey(KeyCode.LEFT);
+        engine.handleKey(KeyCode.RIGHT);
+        engine.handleKey(KeyCode.RIGHT);
+
+        assertEquals("Moving into a wall is not a move", 2, metrics.getMoves());
+        assertEquals(1, metrics.getPushes());
+        assertEquals(3, metrics.getMoveTime().getCount());
+        assertEquals(1, metrics.getLevelsCompleted());
+    }
+
+    @Test
+    public void testRegisteredOverJmx() throws MalformedObjectNameException {
+        assertTrue("The MBean is not registered",
+                ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(EngineMetrics.OBJECT_NAME)));
+    }
+}
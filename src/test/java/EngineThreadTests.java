@@ -0,0 +1,120 @@
+import engine.Board;
+import engine.Direction;
+import engine.EngineThread;
+import engine.GameEngine;
+import engine.GameSnapshot;
+import engine.Level;
+import engine.LevelPackParser;
+import javafx.scene.input.KeyCode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EngineThreadTests {
+
+    private EngineThread thread;
+
+    @Before
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("debugGame.skb");
+             LevelPackParser parser = new LevelPackParser(in)) {
+            List<Level> levels = parser.readAll();
+            thread = new EngineThread(new GameEngine(parser.getMapSetName(), levels, false));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        thread.close();
+    }
+
+    @Test
+    public void testInitialSnapshot() {
+        GameSnapshot snapshot = thread.getSnapshot();
+        assertEquals(0, snapshot.getVersion());
+        assertEquals(1, snapshot.getLevelIndex());
+        assertEquals(0, snapshot.getMovesCount());
+        assertFalse(snapshot.getLevels().isEmpty());
+    }
+
+    @Test
+    public void testCommands() throws InterruptedException {
+        GameSnapshot before = thread.getSnapshot();
+        thread.submitKey(KeyCode.RIGHT);
+        thread.submit(GameEngine::undo);
+        thread.submitKey(KeyCode.RIGHT);
+        GameSnapshot after = thread.sync();
+
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(1, after.getMovesCount());
+        assertNotEquals("The snapshot did not change", before.getBoard(), after.getBoard());
+        assertEquals("A published snapshot must never change", 0, before.getMovesCount());
+    }
+
+    @Test
+    public void testFailingCommand() throws InterruptedException {
+        thread.submit(engine -> {
+            throw new IllegalStateException("Expected by the test");
+        });
+        thread.submitKey(KeyCode.RIGHT);
+
+        assertEquals("The thread should survive a failing command", 1, thread.sync().getMovesCount());
+    }
+
+    @Test
+    public void testClose() {
+        thread.submitKey(KeyCode.RIGHT);
+        thread.close();
+
+        assertEquals("The queued commands should be executed before closing", 1, thread.getSnapshot().getMovesCount());
+        assertFalse(thread.submitKey(KeyCode.RIGHT));
+    }
+
+    @Test
+    public void testConcurrentReader() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        // The reader samples the snapshots while the engine runs at full speed.
+        Thread reader = new Thread(() -> {
+            long lastVersion = -1;
+            while (running.get()) {
+                GameSnapshot snapshot = thread.getSnapshot();
+                Board board = snapshot.getBoard();
+                if (snapshot.getVersion() < lastVersion) {
+                    failure.set("The versions went back from " + lastVersion + " to " + snapshot.getVersion());
+                } else if (board != null && board.getCrateCount() != snapshot.getLevels().get(0).toBoard().getCrateCount()
+                        && snapshot.getLevelIndex() == 1) {
+                    failure.set("Inconsistent snapshot " + snapshot.getVersion());
+                }
+                lastVersion = snapshot.getVersion();
+            }
+        });
+        reader.start();
+
+        Direction[] moves = {Direction.RIGHT, Direction.LEFT};
+        for (int i = 0; i < 20000; i++) {
+            Direction direction = moves[i % 2];
+            thread.submit(engine -> engine.move(direction));
+        }
+        GameSnapshot last = thread.sync();
+        running.set(false);
+        reader.join();
+
+        assertNull(failure.get(), failure.get());
+        assertEquals(20000, last.getCommandCount() - 1);
+        assertTrue("The snapshots should be published in batches", last.getVersion() < 20000);
+    }
+}
@@ -1,6 +1,8 @@
 import javafx.application.Application;
 import javafx.scene.input.KeyCode;
 import javafx.stage.Stage;
+import engine.Board;
+import engine.Direction;
 import engine.GameEngine;
 import engine.Level;
 import org.junit.Before;
@@ -12,6 +14,8 @@ import java.awt.*;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
@@ -66,6 +70,65 @@ public class GameEngineTests extends Application {
         assertTrue("The game is not complete", engine.isGameComplete());
     }
 
+    @Test
+    public void testUndo() {
+        assertFalse("There should be nothing to undo", engine.undo());
+        Board initial = level.toBoard();
+
+        engine.handleKey(KeyCode.RIGHT);
+        assertTrue("The move has not been undone", engine.undo());
+        assertTrue("The moves count has not been updated", engine.getMovesCount() == 0);
+        assertTrue("The level has changed", engine.getCurrentLevel().toBoard().equals(initial));
+    }
+
+    @Test
+    public void testSelectLevel() {
+        engine.handleKey(KeyCode.RIGHT);
+        engine.handleKey(KeyCode.RIGHT);
+        assertTrue("The game is not complete", engine.isGameComplete());
+
+        engine.selectLevel(1);
+        assertFalse("The game should not be complete", engine.isGameComplete());
+        assertTrue("The level has not been restarted", engine.getCurrentLevel().toBoard().equals(engine.getLevel(1).toBoard()));
+        assertFalse("The selected level should be a copy", engine.getCurrentLevel() == engine.getLevel(1));
+    }
+
+    @Test
+    public void testLevelsAddedAfterLastLevel() {
+        GameEngine loading = new GameEngine("Loading", Collections.singletonList(level), false);
+        loading.setLoading(true);
+        loading.handleKey(KeyCode.RIGHT);
+        loading.handleKey(KeyCode.RIGHT);
+        assertFalse("The game should wait for the levels being loaded", loading.isGameComplete());
+        assertTrue("There should be no level to play yet", loading.getCurrentLevel() == null);
+        assertFalse("The keeper should not move without a level", loading.move(Direction.RIGHT));
+
+        Level second = new Level("Second", 2, Arrays.asList(
+                "WWWWWW",
+                "WS CDW",
+                "WWWWWW"));
+        loading.addLevels(Collections.singletonList(second));
+        assertFalse("The game should not be complete", loading.isGameComplete());
+        assertTrue("The added level has not been started", loading.getCurrentLevel().toBoard().equals(second.toBoard()));
+
+        loading.setLoading(false);
+        loading.handleKey(KeyCode.RIGHT);
+        loading.handleKey(KeyCode.RIGHT);
+        assertTrue("The game should be complete after the last level", loading.isGameComplete());
+    }
+
+    @Test
+    public void testLoadingFinishedAfterLastLevel() {
+        GameEngine loading = new GameEngine("Loading", Collections.singletonList(level), false);
+        loading.setLoading(true);
+        loading.handleKey(KeyCode.RIGHT);
+        loading.handleKey(KeyCode.RIGHT);
+        assertFalse(loading.isGameComplete());
+
+        loading.setLoading(false);
+        assertTrue("The game should be complete once nothing else is loaded", loading.isGameComplete());
+    }
+
     @BeforeClass
     public static void initJFX() {
         Thread t = new Thread("JavaFX Init Thread") {
@@ -4,7 +4,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.awt.*;
+import java.util.Iterator;
+import java.util.stream.StreamSupport;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -50,4 +53,40 @@ public class GameGridTests {
     public void testDimension() {
         assertTrue("The grid dimension is wrong", grid.getDimension().equals(new Dimension(columns, rows)));
     }
+
+    @Test
+    public void testIterator() {
+        grid.putGameObjectAt(GameObject.CRATE, 1, 0);
+        grid.putGameObjectAt(GameObject.KEEPER, 0, 1);
+
+        Iterator<GameObject> iterator = grid.iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            GameObject object = iterator.next();
+            if (count == 1) {
+                assertEquals("The grid is not iterated in row-major order", GameObject.CRATE, object);
+            } else if (count == columns) {
+                assertEquals("The grid is not iterated in row-major order", GameObject.KEEPER, object);
+            }
+            count++;
+        }
+
+        assertEquals(rows * columns, count);
+    }
+
+    @Test
+    public void testSpliterator() {
+        grid.putGameObjectAt(GameObject.CRATE, columns - 1, rows - 1);
+        grid.putGameObjectAt(GameObject.CRATE, 0, 0);
+
+        assertEquals(rows * columns, grid.spliterator().estimateSize());
+        assertEquals(2, StreamSupport.stream(grid.spliterator(), true).filter(o -> o == GameObject.CRATE).count());
+
+        int[] visited = new int[1];
+        grid.spliterator().forEachRemaining((row, col, object) -> {
+            assertEquals(grid.getGameObjectAt(col, row), object);
+            visited[0]++;
+        });
+        assertEquals(rows * columns, visited[0]);
+    }
 }
@@ -0,0 +1,129 @@
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import server.GameServer;
+import server.GameSession;
+import server.PackRegistry;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GameServerTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PackRegistry registry;
+    private GameSession session;
+
+    @Before
+    public void setUp() throws Exception {
+        Path directory = Paths.get(getClass().getResource("debugLevel.skb").toURI()).getParent();
+        registry = new PackRegistry(directory);
+        session = new GameSession(registry);
+    }
+
+    @Test
+    public void testLoadAndMove() {
+        assertEquals("OK pack=debugLevel levels=1 level=1 moves=0 complete=false", session.execute("LOAD debugLevel"));
+        assertEquals("OK moved=1 level=1 moves=1 complete=false", session.execute("MOVE r"));
+        assertEquals("OK moved=1 level=1 moves=2 complete=true", session.execute("move R"));
+    }
+
+    @Test
+    public void testUndoAndReset() {
+        session.execute("LOAD debugLevel");
+        String initialState = session.execute("STATE");
+
+        session.execute("MOVE r");
+        assertEquals("OK undone=true moves=0", session.execute("UNDO"));
+        assertEquals("OK undone=false moves=0", session.execute("UNDO"));
+        assertEquals(initialState, session.execute("STATE"));
+
+        session.execute("MOVE l");
+        assertEquals("OK level=1 moves=0 complete=false", session.execute("RESET"));
+        assertEquals(initialState, session.execute("STATE"));
+    }
+
+    @Test
+    public void testErrors() {
+        assertTrue(session.execute("MOVE r").startsWith("ERR"));
+        assertTrue(session.execute("LOAD ../debugLevel").startsWith("ERR"));
+        assertTrue(session.execute("LOAD missing").startsWith("ERR"));
+        assertTrue(session.execute("JUMP").startsWith("ERR"));
+
+        session.execute("LOAD debugLevel");
+        assertTrue("Invalid moves should be rejected", session.execute("MOVE rx").startsWith("ERR"));
+        assertTrue("Too many moves should be rejected", session.execute("MOVE 2000000000r").startsWith("ERR"));
+        assertTrue(session.execute("MOVE " + (GameSession.MAX_MOVES + 1) + "l").startsWith("ERR"));
+        assertTrue(session.execute("STATE").contains("moves=0"));
+        assertEquals(GameSession.BYE, session.execute("QUIT"));
+    }
+
+    @Test
+    public void testSessionsSharePacks() {
+        GameSession other = new GameSession(registry);
+        session.execute("LOAD debugLevel");
+        other.execute("LOAD debugLevel");
+        String initialState = other.execute("STATE");
+
+        session.execute("MOVE rr");
+        assertEquals("The pack should be parsed once", 1, registry.size());
+        assertEquals("A session changed the level of another one", initialState, other.execute("STATE"));
+    }
+
+    @Test
+    public void testServer() throws Exception {
+        try (GameServer server = new GameServer(0, registry);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("LOAD debugLevel\nMOVE rr\nQUIT\n");
+            out.flush();
+
+            assertTrue(in.readLine().startsWith("OK pack=debugLevel"));
+            assertEquals("OK moved=2 level=1 moves=2 complete=true", in.readLine());
+            assertEquals(GameSession.BYE, in.readLine());
+        }
+    }
+
+    @Test
+    public void testServerRejectsBadLines() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Files.write(directory.resolve("empty.skb"), Arrays.asList("MapSetName: No levels"), StandardCharsets.UTF_8);
+        Files.copy(getClass().getResourceAsStream("debugLevel.skb"), directory.resolve("debugLevel.skb"));
+
+        StringBuilder longLine = new StringBuilder("MOVE ");
+        while (longLine.length() <= GameServer.MAX_LINE_LENGTH) {
+            longLine.append('r');
+        }
+
+        try (GameServer server = new GameServer(0, new PackRegistry(directory));
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("LOAD debugLevel\r\n" + longLine + "\nLOAD empty\nMOVE r\nQUIT\n");
+            out.flush();
+
+            assertTrue(in.readLine().startsWith("OK pack=debugLevel"));
+            assertTrue("A line over the limit should be rejected", in.readLine().startsWith("ERR line longer"));
+            assertTrue("A pack without levels should be rejected", in.readLine().startsWith("ERR"));
+            assertEquals("The connection should survive the errors",
+                    "OK moved=1 level=1 moves=1 complete=false", in.readLine());
+            assertEquals(GameSession.BYE, in.readLine());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import engine.Board;
+import engine.Direction;
+import engine.GameEngine;
+import engine.search.HintEngine;
+import engine.search.SearchResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class HintEngineTests {
+
+    private GameEngine engine;
+    private HintEngine hintEngine;
+
+    @Before
+    public void setUp() {
+        InputStream in = getClass().getResourceAsStream("debugLevel.skb");
+        engine = new GameEngine(in, false);
+        hintEngine = new HintEngine(1000);
+    }
+
+    @Test
+    public void testFindHint() {
+        SearchResult result = hintEngine.findHint(engine.getCurrentLevel().toBoard());
+
+        assertTrue("The level has not been solved", result.isSolved());
+        assertEquals("The keeper should push the crate right", Direction.RIGHT, result.getNextMove());
+    }
+
+    @Test
+    public void testSolutionCompletesTheLevel() {
+        SearchResult result = hintEngine.findHint(engine.getCurrentLevel().toBoard());
+
+        for (Direction move : result.getMoves()) {
+            engine.handleKey(move.getKeyCode());
+        }
+
+        assertTrue("The game is not complete", engine.isGameComplete());
+    }
+
+    @Test
+    public void testKnownSolutionIsReused() {
+        Board board = engine.getCurrentLevel().toBoard();
+        SearchResult first = hintEngine.findHint(board);
+
+        Board next = board.move(first.getNextMove());
+        SearchResult second = hintEngine.findHint(next);
+
+        assertTrue("The level has not been solved", second.isSolved());
+        assertEquals("The position should not be searched again", 0, second.getExpandedStates());
+        assertEquals(first.getMoves().subList(1, first.getMoves().size()), second.getMoves());
+    }
+
+    @Test
+    public void testRequestRunsInBackground() throws InterruptedException {
+        AtomicReference<SearchResult> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        hintEngine.request(engine.getCurrentLevel().toBoard(), r -> {
+            result.set(r);
+            done.countDown();
+        });
+
+        assertTrue("The hint has not been delivered", done.await(5, TimeUnit.SECONDS));
+        assertNotNull(result.get().getNextMove());
+        hintEngine.shutdown();
+    }
+}
@@ -1,3 +1,5 @@
+import jfx.ThumbnailCacheTests;
+import jfx.ViewportTests;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -6,7 +8,27 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
         GameEngineTests.class,
         LevelTests.class,
-        GameGridTests.class
+        GameGridTests.class,
+        HintEngineTests.class,
+        LevelPackParserTests.class,
+        AsyncLogWriterTests.class,
+        TraceTests.class,
+        EngineMetricsTests.class,
+        GameServerTests.class,
+        ReplayTests.class,
+        LevelGeneratorTests.class,
+        PackValidatorTests.class,
+        LevelLibraryTests.class,
+        LevelFingerprintTests.class,
+        LevelPackDiffTests.class,
+        EngineThreadTests.class,
+        AnalysisCacheTests.class,
+        LurdCodecTests.class,
+        BidirectionalSolverTests.class,
+        CorralPrunerTests.class,
+        ReplayHeatmapTests.class,
+        ThumbnailCacheTests.class,
+        ViewportTests.class
 })
 
 public class JUnitTestSuite {
@@ -0,0 +1,94 @@
+import engine.Level;
+import engine.LevelFingerprint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class LevelFingerprintTests {
+
+    private static final List<String> LEVEL = Arrays.asList(
+            "WWWWWWW",
+            "WS    W",
+            "W CWD W",
+            "W   D W",
+            "W C   W",
+            "WWWWWWW");
+
+    private static List<String> rotate(List<String> rows) {
+        List<String> rotated = new ArrayList<>();
+        for (int col = 0; col < rows.get(0).length(); col++) {
+            StringBuilder row = new StringBuilder();
+            for (int r = rows.size() - 1; r >= 0; r--) {
+                row.append(rows.get(r).charAt(col));
+            }
+            rotated.add(row.toString());
+        }
+        return rotated;
+    }
+
+    private static List<String> mirror(List<String> rows) {
+        List<String> mirrored = new ArrayList<>();
+        for (String row : rows) {
+            mirrored.add(new StringBuilder(row).reverse().toString());
+        }
+        return mirrored;
+    }
+
+    @Test
+    public void testSymmetries() {
+        LevelFingerprint expected = LevelFingerprint.of(LEVEL);
+        List<String> rows = LEVEL;
+
+        for (int i = 0; i < 4; i++) {
+            rows = rotate(rows);
+            assertEquals("Rotation " + (i + 1), expected, LevelFingerprint.of(rows));
+            assertEquals("Reflection " + (i + 1), expected, LevelFingerprint.of(mirror(rows)));
+        }
+    }
+
+    @Test
+    public void testPaddingAndKeeper() {
+        List<String> padded = Arrays.asList(
+                "WWWWWWWWWW",
+                "WWWWWWWWWW",
+                "WWWWWWWWWW",
+                "WW    WWWW",
+                "WW W WWWWW",
+                "WWWWWWWWWW",
+                "WWWWWWWWWW");
+        List<String> walled = new ArrayList<>(padded.subList(0, 2));
+        for (String row : LEVEL) {
+            walled.add("WW" + row + "W");
+        }
+
+        List<String> moved = new ArrayList<>(LEVEL);
+        moved.set(1, "W    SW");
+
+        LevelFingerprint expected = LevelFingerprint.of(LEVEL);
+        assertEquals("Extra walls should not matter", expected, LevelFingerprint.of(walled));
+        assertEquals("The keeper can walk between the two cells", expected, LevelFingerprint.of(moved));
+        assertNotEquals(expected, LevelFingerprint.of(padded));
+    }
+
+    @Test
+    public void testDifferentLevels() {
+        List<String> pushed = new ArrayList<>(LEVEL);
+        pushed.set(4, "W  C  W");
+
+        assertNotEquals(LevelFingerprint.of(LEVEL), LevelFingerprint.of(pushed));
+        assertNotEquals(LevelFingerprint.of(LEVEL).getHash(), LevelFingerprint.of(pushed).getHash());
+    }
+
+    @Test
+    public void testSources() {
+        Level level = new Level("Fingerprint", 1, LEVEL);
+
+        assertEquals(LevelFingerprint.of(LEVEL), LevelFingerprint.of(level));
+        assertEquals(LevelFingerprint.of(level), LevelFingerprint.of(level.getLayout()));
+    }
+}
@@ -0,0 +1,75 @@
+import engine.Level;
+import engine.LevelPackParser;
+import engine.LevelPackWriter;
+import engine.generator.GeneratedLevel;
+import engine.generator.LevelGenerator;
+import engine.search.BoardAnalysis;
+import engine.search.PushSolver;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LevelGeneratorTests {
+
+    private static List<Level> levelsOf(List<GeneratedLevel> generated) {
+        List<Level> levels = new ArrayList<>();
+        for (GeneratedLevel level : generated) {
+            levels.add(level.getLevel());
+        }
+        return levels;
+    }
+
+    @Test
+    public void testReproducible() throws InterruptedException {
+        LevelGenerator single = new LevelGenerator(8, 9, 2, 7);
+        single.setThreads(1);
+        LevelGenerator parallel = new LevelGenerator(8, 9, 2, 7);
+        parallel.setThreads(4);
+
+        List<GeneratedLevel> expected = single.generate(20);
+        List<GeneratedLevel> actual = parallel.generate(20);
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("The levels depend on the threads", expected.get(i).getLevel().toBoard(), actual.get(i).getLevel().toBoard());
+        }
+    }
+
+    @Test
+    public void testSolvable() throws InterruptedException {
+        LevelGenerator generator = new LevelGenerator(8, 9, 2, 11);
+        generator.setSolverBudget(TimeUnit.SECONDS.toNanos(2));
+
+        for (GeneratedLevel generated : generator.generate(5)) {
+            assertTrue("The difficulty has not been measured by the solver", generated.isSolved());
+            assertFalse("The level is already complete", generated.getLevel().toBoard().isComplete());
+            assertTrue(generated.getPushes() > 0);
+        }
+    }
+
+    @Test
+    public void testWriteAndParse() throws InterruptedException, IOException {
+        List<Level> levels = levelsOf(new LevelGenerator(9, 10, 3, 3).generate(10));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        LevelPackWriter.write(output, "Generated", levels);
+        LevelPackParser parser = new LevelPackParser(new ByteArrayInputStream(output.toByteArray()));
+        List<Level> parsed = parser.readAll();
+
+        assertEquals("Generated", parser.getMapSetName());
+        assertEquals(levels.size(), parsed.size());
+        for (int i = 0; i < levels.size(); i++) {
+            assertEquals(levels.get(i).getName(), parsed.get(i).getName());
+            assertEquals("The level changed once written", levels.get(i).toBoard(), parsed.get(i).toBoard());
+            assertTrue(new PushSolver(BoardAnalysis.of(parsed.get(i).toBoard())).solve(parsed.get(i).toBoard(), TimeUnit.SECONDS.toNanos(2)).isSolved());
+        }
+    }
+}
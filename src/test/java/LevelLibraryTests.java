@@ -0,0 +1,169 @@
+import engine.Level;
+import engine.LevelPackParser;
+import engine.library.LevelInfo;
+import engine.library.LevelLibrary;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LevelLibraryTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private Path catalog;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("library").toPath();
+        catalog = folder.getRoot().toPath().resolve("catalog");
+        Files.createDirectories(root.resolve("more"));
+
+        try (InputStream in = getClass().getResourceAsStream("debugGame.skb")) {
+            Files.copy(in, root.resolve("debugGame.skb"));
+        }
+        try (InputStream in = getClass().getResourceAsStream("debugLevel.skb")) {
+            Files.copy(in, root.resolve("more/debugLevel.skb"));
+        }
+        Files.write(root.resolve("notes.txt"), "Not a game file".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private LevelLibrary refresh() throws IOException {
+        LevelLibrary library = new LevelLibrary(root, catalog, 2);
+        library.refresh();
+        return library;
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        LevelLibrary library = refresh();
+
+        assertEquals(2, library.getPacks().size());
+        assertEquals(6, library.getLevels().size());
+        assertEquals(2, library.getFilesIndexed());
+        assertTrue("The catalog has not been written", Files.exists(catalog));
+
+        LevelInfo level = library.search("more/").get(0);
+        assertEquals("more/debugLevel.skb", level.getPath());
+        assertEquals(20, level.getColumns());
+        assertEquals(3, level.getRows());
+        assertEquals(1, level.getCrates());
+    }
+
+    @Test
+    public void testContentHash() throws IOException {
+        LevelLibrary library = refresh();
+
+        try (InputStream in = getClass().getResourceAsStream("debugGame.skb")) {
+            List<Level> levels = new LevelPackParser(in).readAll();
+            List<LevelInfo> indexed = library.search("debugGame");
+            assertEquals(levels.size(), indexed.size());
+
+            for (int i = 0; i < levels.size(); i++) {
+                assertEquals("Wrong hash for level " + (i + 1),
+                        levels.get(i).getLayout().getContentHash(), indexed.get(i).getContentHash());
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalRefresh() throws IOException {
+        refresh();
+
+        LevelLibrary loaded = new LevelLibrary(root, catalog, 2);
+        loaded.load();
+        assertEquals("The catalog should be searchable without a refresh", 6, loaded.getLevels().size());
+
+        LevelLibrary unchanged = refresh();
+        assertEquals("Unchanged files should not be indexed again", 0, unchanged.getFilesIndexed());
+        assertEquals(6, unchanged.getLevels().size());
+
+        Path changed = root.resolve("more/debugLevel.skb");
+        Files.copy(root.resolve("debugGame.skb"), changed, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+        Files.delete(root.resolve("debugGame.skb"));
+
+        LevelLibrary updated = refresh();
+        assertEquals(1, updated.getFilesIndexed());
+        assertEquals(1, updated.getFilesRemoved());
+        assertEquals(5, updated.getLevels().size());
+    }
+
+    @Test
+    public void testCorruptCatalog() throws IOException {
+        for (int[] counts : new int[][]{{-1, 0}, {Integer.MAX_VALUE, 0}, {1, -5}, {1, Integer.MAX_VALUE}}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeLong(0x534B424341544C47L);
+            data.writeInt(2);
+            data.writeInt(counts[0]);
+            data.writeUTF("debugGame.skb");
+            data.writeLong(0);
+            data.writeLong(0);
+            data.writeBoolean(false);
+            data.writeBoolean(false);
+            data.writeInt(counts[1]);
+            Files.write(catalog, bytes.toByteArray());
+
+            LevelLibrary loaded = new LevelLibrary(root, catalog, 2);
+            loaded.load();
+            assertEquals("A corrupt catalog should be ignored", 0, loaded.getLevels().size());
+
+            LevelLibrary refreshed = refresh();
+            assertEquals("The library should be indexed again", 2, refreshed.getFilesIndexed());
+            assertEquals(6, refreshed.getLevels().size());
+        }
+    }
+
+    @Test
+    public void testDuplicates() throws IOException {
+        // The debug level is a corridor: keeper, floor, crate, diamond, then floor up to the wall.
+        List<String> rotated = new ArrayList<>(Arrays.asList("MapSetName: Rotated", "LevelName: Rotated", "WWW"));
+        for (char cell : "S CD              ".toCharArray()) {
+            rotated.add("W" + cell + "W");
+        }
+        rotated.add("WWW");
+        Files.write(root.resolve("more/rotated.skb"), rotated);
+        LevelLibrary library = refresh();
+
+        List<List<LevelInfo>> duplicates = library.findDuplicates();
+        boolean rotatedFound = false;
+        for (List<LevelInfo> group : duplicates) {
+            for (LevelInfo level : group) {
+                assertEquals(group.get(0).getFingerprint(), level.getFingerprint());
+                rotatedFound |= level.getName().equals("Rotated");
+            }
+        }
+
+        assertTrue("The rotated copy of the debug level has not been found", rotatedFound);
+    }
+
+    @Test
+    public void testSearch() throws IOException {
+        LevelLibrary library = refresh();
+
+        assertEquals(6, library.search("").size());
+        assertEquals(6, library.search("JUST this").size());
+        assertEquals(1, library.search("just debuglevel").size());
+        assertEquals(0, library.search("missing").size());
+        assertEquals(4, library.filter(level -> level.getDiamonds() == 1).size());
+    }
+}
@@ -0,0 +1,106 @@
+import engine.Direction;
+import engine.GameEngine;
+import engine.GameFileWatcher;
+import engine.Level;
+import engine.LevelPackDiff;
+import engine.LevelPackParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LevelPackDiffTests {
+
+    private static final String FIRST = "LevelName: First\nWWWWWW\nWS CDW\nWWWWWW\n";
+    private static final String SECOND = "LevelName: Second\nWWWWWWW\nWS C DW\nWWWWWWW\n";
+    private static final String THIRD = "LevelName: Third\nWWWWWWWW\nWS C  DW\nWWWWWWWW\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static InputStream pack(String... levels) {
+        return new ByteArrayInputStream(("MapSetName: Diff\n" + String.join("\n", levels)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Level> load(String... levels) throws IOException {
+        return new LevelPackParser(pack(levels)).readAll();
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        List<Level> previous = load(FIRST, SECOND);
+        LevelPackDiff diff = LevelPackDiff.compute(previous, pack(FIRST, SECOND));
+
+        assertTrue(diff.toString(), diff.isUnchanged());
+        assertSame(previous.get(0), diff.getLevels().get(0));
+        assertSame(previous.get(1), diff.getLevels().get(1));
+    }
+
+    @Test
+    public void testChanges() throws IOException {
+        List<Level> previous = load(FIRST, SECOND, THIRD);
+        String edited = SECOND.replace("WS C DW", "WSC  DW");
+        LevelPackDiff diff = LevelPackDiff.compute(previous, pack(FIRST, THIRD, edited));
+
+        assertEquals(1, diff.getKept());
+        assertEquals(1, diff.getMoved());
+        assertEquals(1, diff.getParsed());
+        assertEquals(1, diff.getRemoved());
+        assertSame(previous.get(0), diff.getLevels().get(0));
+
+        Level moved = diff.getLevels().get(1);
+        assertEquals(2, moved.getIndex());
+        assertEquals("Third", moved.getName());
+        assertEquals(previous.get(2).getLayout().getContentHash(), moved.getLayout().getContentHash());
+        assertEquals(3, diff.getLevels().get(2).getIndex());
+    }
+
+    @Test
+    public void testReplaceLevels() throws IOException {
+        List<Level> previous = load(FIRST, SECOND);
+        GameEngine engine = new GameEngine("Diff", previous, false);
+        engine.move(Direction.RIGHT);
+
+        // A level inserted before the current one moves it, but it keeps its position and moves.
+        assertTrue(engine.replaceLevels(LevelPackDiff.compute(previous, pack(THIRD, FIRST, SECOND)).getLevels()));
+        assertEquals(2, engine.getCurrentLevel().getIndex());
+        assertEquals(1, engine.getMovesCount());
+        assertTrue("The move should still be undoable", engine.undo());
+
+        // Editing the current level restarts it.
+        engine.move(Direction.RIGHT);
+        List<Level> current = engine.getLevels();
+        String edited = FIRST.replace("WS CDW", "W SCDW");
+        assertFalse(engine.replaceLevels(LevelPackDiff.compute(current, pack(THIRD, edited, SECOND)).getLevels()));
+        assertEquals(2, engine.getCurrentLevel().getIndex());
+        assertEquals(0, engine.getMovesCount());
+    }
+
+    @Test
+    public void testWatcher() throws IOException, InterruptedException {
+        Path file = folder.newFile("watched.skb").toPath();
+        Files.write(file, FIRST.getBytes(StandardCharsets.UTF_8));
+        CountDownLatch changed = new CountDownLatch(1);
+
+        try (GameFileWatcher watcher = new GameFileWatcher(file, 50, changed::countDown)) {
+            assertEquals(file, watcher.getFile());
+            Files.write(folder.getRoot().toPath().resolve("other.skb"), SECOND.getBytes(StandardCharsets.UTF_8));
+            Files.write(file, SECOND.getBytes(StandardCharsets.UTF_8));
+            assertTrue("The change has not been noticed", changed.await(15, TimeUnit.SECONDS));
+        }
+    }
+}
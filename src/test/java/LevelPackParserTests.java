@@ -0,0 +1,40 @@
+import engine.Level;
+import engine.LevelPackParser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LevelPackParserTests {
+
+    private LevelPackParser parser;
+
+    @Before
+    public void setUp() {
+        InputStream in = getClass().getResourceAsStream("debugGame.skb");
+        parser = new LevelPackParser(in);
+    }
+
+    @Test
+    public void testNextLevel() throws IOException {
+        Level level = parser.nextLevel();
+
+        assertNotNull("The first level has not been parsed", level);
+        assertEquals("Just this level", level.getName());
+        assertEquals("Game debug!", parser.getMapSetName());
+        assertEquals(1, parser.getLevelsParsed());
+        assertTrue("No bytes have been read", parser.getBytesRead() > 0);
+    }
+
+    @Test
+    public void testReadAll() throws IOException {
+        assertEquals("Wrong number of levels", 5, parser.readAll().size());
+        assertNull("There should be no more levels", parser.nextLevel());
+    }
+}
@@ -1,3 +1,6 @@
+import engine.CellSpliterator;
+import engine.Direction;
+import engine.GameEngine;
 import engine.GameObject;
 import engine.Level;
 import org.junit.Before;
@@ -6,8 +9,14 @@ import org.junit.Test;
 import java.awt.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.stream.StreamSupport;
 
+import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.assertFalse;
 
 public class LevelTests {
 
@@ -41,4 +50,105 @@ public class LevelTests {
 
         assertTrue("GameObjects are not equal", go == GameObject.WALL);
     }
+
+    @Test
+    public void testSnapshotsShareLayout() {
+        assertTrue("The snapshot does not share the level layout", level.toBoard().getLayout() == level.getLayout());
+    }
+
+    @Test
+    public void testForEachCell() {
+        int[] visited = new int[1];
+        level.forEachCell((row, column, object) -> {
+            assertEquals("Cell [" + row + ":" + column + "]", level.getDisplayedObject(row, column), object);
+            assertEquals("The cells are not visited in row-major order",
+                    visited[0]++, row * level.getLayout().getColumns() + column);
+        });
+        assertEquals(level.getLayout().getCellCount(), visited[0]);
+
+        visited[0] = 0;
+        level.forEachCell(1, 3, 2, 4, (row, column, object) -> {
+            assertTrue("Cell [" + row + ":" + column + "] is outside the rectangle",
+                    row >= 1 && row < 3 && column >= 2 && column < 4);
+            assertEquals(level.getDisplayedObject(row, column), object);
+            visited[0]++;
+        });
+        assertEquals(4, visited[0]);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testForEachCellOutOfBounds() {
+        level.forEachCell(0, level.getLayout().getRows() + 1, 0, 1, (row, column, object) -> {
+        });
+    }
+
+    @Test
+    public void testIterator() {
+        Level.LevelIterator iterator = level.iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            GameObject object = iterator.next();
+            assertEquals(level.getDisplayedObject(iterator.getRow(), iterator.getColumn()), object);
+            count++;
+        }
+
+        assertEquals(level.getLayout().getCellCount(), count);
+    }
+
+    @Test
+    public void testSpliterator() {
+        long crates = StreamSupport.stream(level.spliterator(), true)
+                .filter(o -> o == GameObject.CRATE || o == GameObject.CRATE_ON_DIAMOND)
+                .count();
+        assertEquals(level.toBoard().getCrateCount(), crates);
+
+        CellSpliterator first = level.spliterator();
+        CellSpliterator second = first.trySplit();
+        assertTrue("A level with several rows should be split", second != null);
+        assertEquals(0, second.estimateSize() % level.getLayout().getColumns());
+        assertEquals(level.getLayout().getCellCount(), first.estimateSize() + second.estimateSize());
+    }
+
+    @Test
+    public void testCrateIndex() {
+        // The only way into the bottom pocket is pushing a crate down from the cell above it, which
+        // needs the keeper two cells above the pocket, on a wall. The diamond in the pocket can
+        // never be covered, so the random walk never completes the level.
+        Level crowded = new Level("Crowded", 1, Arrays.asList(
+                "WWWWWWWWWWWW",
+                "WS C C C CDW",
+                "W C C C C DW",
+                "W  C C C CDW",
+                "WWC C C C DW",
+                "W         DW",
+                "WDWWWWWWWWWW",
+                "WWWWWWWWWWWW"));
+        GameEngine crowdedEngine = new GameEngine("Crowded", Collections.singletonList(crowded), false);
+        Direction[] directions = Direction.values();
+        Random random = new Random(42);
+
+        for (int step = 0; step < 2000; step++) {
+            if (random.nextInt(4) == 0) {
+                crowdedEngine.undo();
+            } else {
+                crowdedEngine.move(directions[random.nextInt(directions.length)]);
+            }
+
+            assertFalse(crowdedEngine.isGameComplete());
+            Level current = crowdedEngine.getCurrentLevel();
+            assertEquals(16, current.getCrateCount());
+            for (int crate = 0; crate < current.getCrateCount(); crate++) {
+                assertEquals("The reverse map is out of date", crate, current.indexOfCrate(current.getCrate(crate)));
+            }
+
+            int[] crates = new int[1];
+            current.forEachCell((row, column, object) -> {
+                boolean hasCrate = current.indexOfCrate(current.getLayout().cellOf(row, column)) >= 0;
+                assertEquals("Cell [" + row + ":" + column + "]",
+                        object == GameObject.CRATE || object == GameObject.CRATE_ON_DIAMOND, hasCrate);
+                crates[0] += hasCrate ? 1 : 0;
+            });
+            assertEquals(16, crates[0]);
+        }
+    }
 }
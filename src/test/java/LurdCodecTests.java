@@ -0,0 +1,144 @@
+import engine.Level;
+import engine.lurd.LurdCodec;
+import engine.lurd.LurdValidation;
+import engine.lurd.LurdValidator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LurdCodecTests {
+
+    private static final Level CORRIDOR = new Level("Corridor", 1, Arrays.asList(
+            "WWWWWWW",
+            "WS C DW",
+            "WWWWWWW"));
+
+    private static byte[] parse(String text) {
+        return LurdCodec.parse(text, 10000);
+    }
+
+    private static byte[] randomMoves(Random random, int count) {
+        byte[] moves = new byte[count];
+        for (int i = 0; i < count; i++) {
+            moves[i] = (byte) random.nextInt(8);
+        }
+
+        return moves;
+    }
+
+    @Test
+    public void testText() {
+        byte[] moves = parse("lurdLURD");
+        assertEquals(8, moves.length);
+        assertEquals("lurdLURD", LurdCodec.toText(moves));
+        assertTrue(LurdCodec.isPush(moves[4]));
+        assertFalse(LurdCodec.isPush(moves[0]));
+
+        try {
+            parse("rrx");
+            fail("An invalid symbol should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("position 2"));
+        }
+    }
+
+    @Test
+    public void testRunLength() {
+        assertEquals("rrrrUUUuu", LurdCodec.toText(parse("4r3U2u")));
+        assertEquals("rrrrUUUuu", LurdCodec.toText(parse("4r 3U\nuu")));
+        assertEquals("4r3Uuu", LurdCodec.toRunLength(parse("rrrrUUUuu")));
+
+        byte[] moves = randomMoves(new Random(7), 5000);
+        assertArrayEquals(moves, parse(LurdCodec.toRunLength(moves)));
+
+        try {
+            parse("rr3");
+            fail("A trailing count should be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+
+        assertEquals(10, LurdCodec.parse("4r3U3u", 10).length);
+        for (String tooLong : Arrays.asList("4r3U4u", "rrrrrrrrrrr", "2000000000r", "99999999999999999999r")) {
+            try {
+                LurdCodec.parse(tooLong, 10);
+                fail("More than 10 moves should be rejected: " + tooLong);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("more than 10 moves"));
+            }
+        }
+    }
+
+    @Test
+    public void testPacking() {
+        Random random = new Random(11);
+        for (int count = 0; count < 40; count++) {
+            byte[] moves = randomMoves(random, count);
+
+            byte[] packed = new byte[LurdCodec.packedSize(count, true)];
+            assertEquals(packed.length, LurdCodec.pack3(moves, 0, count, packed, 0));
+            byte[] unpacked = new byte[count];
+            LurdCodec.unpack3(packed, 0, count, unpacked, 0);
+            assertArrayEquals(moves, unpacked);
+
+            packed = new byte[LurdCodec.packedSize(count, false)];
+            assertEquals(packed.length, LurdCodec.pack2(moves, 0, count, packed, 0));
+            LurdCodec.unpack2(packed, 0, count, unpacked, 0);
+            for (int i = 0; i < count; i++) {
+                assertEquals("Only the direction should be kept", moves[i] & 3, unpacked[i]);
+            }
+
+            assertArrayEquals(moves, LurdCodec.fromBinary(LurdCodec.toBinary(moves, true)));
+        }
+    }
+
+    @Test
+    public void testByteBuffer() {
+        byte[] moves = randomMoves(new Random(13), 1001);
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(400), ByteBuffer.allocateDirect(400)}) {
+            buffer.put((byte) 99);
+            LurdCodec.pack(moves, 0, moves.length, true, buffer);
+            assertEquals(1 + LurdCodec.packedSize(moves.length, true), buffer.position());
+
+            buffer.flip();
+            assertEquals(99, buffer.get());
+            byte[] unpacked = new byte[moves.length];
+            LurdCodec.unpack(buffer, moves.length, true, unpacked, 0);
+            assertArrayEquals(moves, unpacked);
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test
+    public void testValidator() {
+        LurdValidation solved = LurdValidator.validate(CORRIDOR, parse("rRR"));
+        assertTrue(solved.isValid());
+        assertTrue(solved.isSolved());
+        assertEquals(2, solved.getPushes());
+
+        LurdValidation wrongPush = LurdValidator.validate(CORRIDOR, parse("rrR"));
+        assertEquals(1, wrongPush.getErrorIndex());
+        assertFalse(wrongPush.isSolved());
+
+        LurdValidation blocked = LurdValidator.validate(CORRIDOR, parse("rRRR"));
+        assertEquals(3, blocked.getErrorIndex());
+        assertEquals(3, blocked.getMovesApplied());
+        assertTrue("The moves applied solve the level", blocked.isSolved());
+
+        assertEquals(0, LurdValidator.validate(CORRIDOR, parse("u")).getErrorIndex());
+
+        // The pushes dropped by the 2-bit form are restored by replaying the moves.
+        byte[] moves = parse("rrr");
+        LurdValidation restored = LurdValidator.validate(CORRIDOR.toBoard(), moves, 0, moves.length, true);
+        assertTrue(restored.isSolved());
+        assertEquals("rRR", LurdCodec.toText(moves));
+    }
+}
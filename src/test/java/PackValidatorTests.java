@@ -0,0 +1,92 @@
+import engine.validation.LevelCheck;
+import engine.validation.PackValidator;
+import engine.validation.ValidationIssue;
+import engine.validation.ValidationReport;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PackValidatorTests {
+
+    private static final String BROKEN_PACK = "MapSetName: Broken\n"
+            + "LevelName: Valid\n"
+            + "WWWWW\n"
+            + "WSCDW\n"
+            + "WWWWW\n"
+            + "\n"
+            + "LevelName: Broken\n"
+            + "Author: nobody\n"
+            + "WWWWWW\n"
+            + "WSSCDW\n"
+            + "W   W\n"
+            + "WWWWWW\n";
+
+    private ValidationReport validate(String pack) throws IOException {
+        InputStream in = new ByteArrayInputStream(pack.getBytes(StandardCharsets.UTF_8));
+        return new PackValidator(2).validate(in, "inline");
+    }
+
+    @Test
+    public void testValidLevel() throws IOException {
+        ValidationReport report = validate("MapSetName: Fine\nLevelName: One\nWWWWW\nwSCDw\nWWWWW\n");
+
+        assertTrue(report.getIssues().toString(), report.isValid());
+        assertEquals(0, report.getWarningCount());
+        assertEquals(1, report.getLevelCount());
+        assertEquals("Fine", report.getMapSetName());
+    }
+
+    @Test
+    public void testBrokenLevel() throws IOException {
+        ValidationReport report = validate(BROKEN_PACK);
+
+        assertFalse(report.isValid());
+        assertEquals(2, report.getLevelCount());
+
+        Set<LevelCheck> failed = EnumSet.noneOf(LevelCheck.class);
+        for (ValidationIssue issue : report.getIssues()) {
+            assertEquals("Only the second level is broken", "Broken", issue.getLevelName());
+            failed.add(issue.getCheck());
+        }
+
+        assertEquals(EnumSet.of(LevelCheck.SKIPPED_LINE, LevelCheck.RECTANGULAR, LevelCheck.KEEPER), failed);
+        assertEquals(1, report.getWarningCount());
+        assertEquals(0, report.getIssues().get(0).getLine());
+        assertEquals(8, report.getIssues().get(1).getLine());
+        assertEquals(11, report.getIssues().get(2).getLine());
+    }
+
+    @Test
+    public void testOpenLevel() throws IOException {
+        ValidationReport report = validate("MapSetName: Open\nLevelName: Open\nWW WW\nWSD W\nWWWWW\nLevelName: Walled\n"
+                + "WWWWWW\nWSCWDW\nWWWWWW\n");
+
+        Set<LevelCheck> failed = EnumSet.noneOf(LevelCheck.class);
+        for (ValidationIssue issue : report.getIssues()) {
+            failed.add(issue.getCheck());
+            if (issue.getCheck() == LevelCheck.ENCLOSED) {
+                assertEquals("The gap is in the first row", 3, issue.getLine());
+            }
+        }
+
+        assertEquals(EnumSet.of(LevelCheck.CRATES, LevelCheck.ENCLOSED, LevelCheck.REACHABLE_GOALS), failed);
+    }
+
+    @Test
+    public void testJson() throws IOException {
+        String json = validate(BROKEN_PACK).toJson();
+
+        assertTrue(json, json.startsWith("{"));
+        assertTrue(json, json.contains("\"check\":\"KEEPER\""));
+        assertTrue(json, json.contains("\"valid\":false"));
+    }
+}
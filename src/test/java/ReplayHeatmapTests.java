@@ -0,0 +1,97 @@
+import engine.Direction;
+import engine.GameEngine;
+import engine.Level;
+import engine.LevelLayout;
+import engine.replay.ReplayHeatmap;
+import engine.replay.ReplayRecorder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReplayHeatmapTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GameEngine newEngine() {
+        return new GameEngine(getClass().getResourceAsStream("debugGame.skb"), false);
+    }
+
+    private void record(GameEngine engine, String name, Direction... moves) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name + ReplayRecorder.EXTENSION);
+        try (ReplayRecorder recorder = new ReplayRecorder(file, engine.getCurrentLevel(), 0)) {
+            engine.addMoveListener(recorder);
+            for (Direction move : moves) {
+                if (move == null) {
+                    engine.resetLevel();
+                } else {
+                    engine.move(move);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAggregate() throws IOException {
+        GameEngine engine = newEngine();
+        Level level = new Level(engine.getCurrentLevel().getLayout());
+
+        // A step right, a restart, then the crate is pushed on the diamond.
+        Direction[] solved = {Direction.RIGHT, null, Direction.LEFT, Direction.LEFT, Direction.LEFT,
+                Direction.LEFT, Direction.LEFT};
+        record(engine, "solved", solved);
+        // One push, then the player gives up.
+        record(newEngine(), "stuck", Direction.LEFT, Direction.LEFT, Direction.LEFT);
+        Files.write(folder.getRoot().toPath().resolve("broken" + ReplayRecorder.EXTENSION),
+                "not a replay".getBytes(StandardCharsets.UTF_8));
+
+        ReplayHeatmap heatmap = ReplayHeatmap.aggregate(level, folder.getRoot().toPath(), 2);
+        assertEquals(2, heatmap.getReplays());
+        assertEquals(1, heatmap.getUnreadable());
+        assertEquals(2, heatmap.getSessions());
+        assertEquals(1, heatmap.getCompleted());
+        assertEquals(1, heatmap.getStuck());
+        assertEquals(1, heatmap.getRestarts());
+        assertEquals(0, heatmap.getDiscarded());
+
+        LevelLayout layout = level.getLayout();
+        long[] visits = heatmap.getVisits();
+        assertEquals("Two session starts and a restart", 3, visits[layout.cellOf(2, 13)]);
+        assertEquals(1, visits[layout.cellOf(2, 14)]);
+        assertEquals(2, visits[layout.cellOf(2, 12)]);
+
+        long[] pushes = heatmap.getPushes();
+        assertEquals(2, pushes[layout.cellOf(2, 10)]);
+        assertEquals(1, pushes[layout.cellOf(2, 8)]);
+        assertEquals(1, heatmap.getRestartCrates()[layout.cellOf(2, 10)]);
+        assertEquals(1, heatmap.getStuckCrates()[layout.cellOf(2, 9)]);
+    }
+
+    @Test
+    public void testDiscardedSession() throws IOException {
+        Level level = new Level(newEngine().getCurrentLevel().getLayout());
+
+        // A replay that does not match the level: the keeper walks down into a wall.
+        Path file = folder.getRoot().toPath().resolve("edited" + ReplayRecorder.EXTENSION);
+        try (ReplayRecorder recorder = new ReplayRecorder(file, level, 0)) {
+            recorder.keeperMoved(Direction.LEFT, false);
+            recorder.keeperMoved(Direction.DOWN, false);
+            recorder.keeperMoved(Direction.LEFT, false);
+        }
+
+        ReplayHeatmap heatmap = ReplayHeatmap.aggregate(level, folder.getRoot().toPath(), 1);
+        assertEquals(1, heatmap.getSessions());
+        assertEquals(1, heatmap.getDiscarded());
+        assertEquals("A discarded session is not stuck", 0, heatmap.getStuck());
+        assertEquals("The moves after the rejected one are ignored", 0,
+                heatmap.getVisits()[level.getLayout().cellOf(2, 11)]);
+        assertEquals(1, heatmap.getVisits()[level.getLayout().cellOf(2, 12)]);
+    }
+}
@@ -0,0 +1,103 @@
+import engine.Direction;
+import engine.GameEngine;
+import engine.replay.ReplayEntry;
+import engine.replay.ReplayReader;
+import engine.replay.ReplayRecorder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GameEngine engine;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        InputStream in = getClass().getResourceAsStream("debugGame.skb");
+        engine = new GameEngine(in, false);
+        file = folder.newFile("game.rpl").toPath();
+    }
+
+    private static void assertEntry(ReplayReader reader, ReplayEntry entry, Direction direction, boolean crateMoved) {
+        assertTrue("The replay ended early", reader.next());
+        assertEquals(entry, reader.getEntry());
+        assertEquals(direction, reader.getDirection());
+        assertEquals(crateMoved, reader.isCrateMoved());
+    }
+
+    @Test
+    public void testRecordAndRead() throws IOException {
+        long firstLevel = engine.getCurrentLevel().getLayout().getContentHash();
+        try (ReplayRecorder recorder = new ReplayRecorder(file, engine.getCurrentLevel(), 4)) {
+            engine.addMoveListener(recorder);
+
+            engine.move(Direction.RIGHT);
+            engine.undo();
+            engine.resetLevel();
+            // Walk up to the crate, then push it on the diamond to complete the level.
+            for (int i = 0; i < 5; i++) {
+                engine.move(Direction.LEFT);
+            }
+        }
+
+        try (ReplayReader reader = ReplayReader.open(file)) {
+            assertEquals(firstLevel, reader.getFirstLevelHash());
+            assertTrue("The timestamps have not been recorded", reader.hasTimestamps());
+
+            assertEntry(reader, ReplayEntry.MOVE, Direction.RIGHT, false);
+            assertEntry(reader, ReplayEntry.UNDO, Direction.RIGHT, false);
+            assertEntry(reader, ReplayEntry.RESET, null, false);
+            assertEntry(reader, ReplayEntry.MOVE, Direction.LEFT, false);
+            assertEntry(reader, ReplayEntry.MOVE, Direction.LEFT, false);
+            assertEquals(firstLevel, reader.getLevelHash());
+            for (int i = 0; i < 3; i++) {
+                assertEntry(reader, ReplayEntry.MOVE, Direction.LEFT, true);
+            }
+            assertEntry(reader, ReplayEntry.LEVEL, null, false);
+            assertEquals(engine.getCurrentLevel().getLayout().getContentHash(), reader.getLevelHash());
+
+            assertFalse("There should be no more entries", reader.next());
+            assertEquals(9, reader.getEntryCount());
+            assertTrue("No timestamp has been read", reader.getTimestamp() >= 0);
+        }
+    }
+
+    @Test
+    public void testSeek() throws IOException {
+        int moves = 3000;
+        try (ReplayRecorder recorder = new ReplayRecorder(file, engine.getCurrentLevel(), 0)) {
+            engine.addMoveListener(recorder);
+            for (int i = 0; i < moves; i++) {
+                engine.move(i % 2 == 0 ? Direction.RIGHT : Direction.LEFT);
+            }
+        }
+
+        try (ReplayReader reader = ReplayReader.open(file)) {
+            assertEquals(moves, reader.getEntryCount());
+
+            reader.seek(2501);
+            assertEntry(reader, ReplayEntry.MOVE, Direction.LEFT, false);
+            assertEquals(2501, reader.getEntryIndex());
+
+            reader.seek(1024);
+            assertEntry(reader, ReplayEntry.MOVE, Direction.RIGHT, false);
+            assertEquals(1024, reader.getEntryIndex());
+
+            reader.seek(moves);
+            assertFalse("There should be no more entries", reader.next());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import engine.GameEngine;
+import engine.trace.Trace;
+import engine.trace.TraceDecoder;
+import engine.trace.TraceEvent;
+import javafx.scene.input.KeyCode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TraceTests {
+
+    private GameEngine engine;
+
+    @Before
+    public void setUp() {
+        Trace.clear();
+        engine = new GameEngine(getClass().getResourceAsStream("debugLevel.skb"), false);
+    }
+
+    @After
+    public void tearDown() {
+        Trace.setEnabled(Trace.ENABLED_AT_STARTUP);
+    }
+
+    private String dumpAndDecode() throws IOException {
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        Trace.dump(dump);
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        TraceDecoder.decode(new ByteArrayInputStream(dump.toByteArray()), new PrintStream(decoded));
+        return decoded.toString();
+    }
+
+    @Test
+    public void testRecordsWhenEnabled() throws IOException {
+        Trace.setEnabled(true);
+        engine.handleKey(KeyCode.RIGHT);
+
+        String decoded = dumpAndDecode();
+        assertTrue("Missing move record:\n" + decoded, decoded.contains("MOVE keeper=[1:1] direction=RIGHT target=FLOOR"));
+        assertTrue("Missing key record:\n" + decoded, decoded.contains("KEY_PRESSED key=RIGHT"));
+    }
+
+    @Test
+    public void testNothingRecordedWhenDisabled() throws IOException {
+        Trace.setEnabled(false);
+        engine.handleKey(KeyCode.RIGHT);
+
+        assertFalse("No move should have been recorded", dumpAndDecode().contains("MOVE"));
+    }
+
+    @Test
+    public void testTerminatedThreadsReleased() throws Exception {
+        Trace.setEnabled(true);
+        Trace.record(TraceEvent.KEY_PRESSED);
+        int initial = Trace.getBufferCount();
+
+        for (int i = 0; i < 200; i++) {
+            Thread thread = new Thread(() -> Trace.record(TraceEvent.KEY_PRESSED), "Trace-" + i);
+            thread.start();
+            thread.join();
+            // The buffers of up to 16 terminated threads are kept, plus the one of the last thread.
+            assertTrue("Too many buffers retained: " + Trace.getBufferCount(),
+                    Trace.getBufferCount() <= initial + 16 + 1);
+        }
+
+        // The last threads are still dumped once, then their buffers are released.
+        assertTrue(dumpAndDecode().contains("Trace-199"));
+        assertTrue("Terminated threads still retained: " + Trace.getBufferCount(), Trace.getBufferCount() <= initial);
+    }
+}
@@ -0,0 +1,82 @@
+package jfx;
+
+import engine.Level;
+import javafx.scene.image.Image;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ThumbnailCacheTests {
+
+    private static final Level LEVEL = new Level("Corridor", 1, Arrays.asList(
+            "WWWWWW",
+            "WS CDW",
+            "WWWWWW"));
+
+    /**
+     * The tasks handed to the FX thread, run by the test instead
+     */
+    private final BlockingQueue<Runnable> fxThread = new LinkedBlockingQueue<>();
+    private ThumbnailCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ThumbnailCache(4, fxThread::add);
+    }
+
+    @After
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    private Runnable awaitRendered() throws InterruptedException {
+        Runnable task = fxThread.poll(10, TimeUnit.SECONDS);
+        assertNotNull("The thumbnail has not been rendered", task);
+        return task;
+    }
+
+    @Test
+    public void testRequest() throws InterruptedException {
+        List<Image> received = new ArrayList<>();
+        cache.request(LEVEL, received::add);
+        assertNull(cache.get(LEVEL));
+
+        awaitRendered().run();
+        Image thumbnail = cache.get(LEVEL);
+        assertNotNull(thumbnail);
+        assertEquals(Arrays.asList(thumbnail), received);
+
+        cache.request(LEVEL, received::add);
+        assertEquals("A cached thumbnail should be returned at once", 2, received.size());
+    }
+
+    @Test
+    public void testClearDiscardsPendingThumbnails() throws InterruptedException {
+        List<Image> received = new ArrayList<>();
+        cache.request(LEVEL, received::add);
+        Runnable stale = awaitRendered();
+
+        cache.clear();
+        stale.run();
+        assertNull("A thumbnail requested before clear should not be cached", cache.get(LEVEL));
+        assertTrue(received.isEmpty());
+
+        // A new request for the same level is rendered again.
+        cache.request(LEVEL, received::add);
+        awaitRendered().run();
+        assertNotNull(cache.get(LEVEL));
+        assertEquals(1, received.size());
+    }
+}
@@ -0,0 +1,57 @@
+package jfx;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ViewportTests {
+
+    private static final int SIZE = 15;
+    private static final int TOTAL = 50;
+
+    @Test
+    public void testStillInsideMargin() {
+        for (int position = 10 + Viewport.MARGIN; position <= 10 + SIZE - 1 - Viewport.MARGIN; position++) {
+            assertEquals("The camera moved with the keeper at " + position,
+                    10, Viewport.follow(10, position, SIZE, TOTAL, false));
+        }
+    }
+
+    @Test
+    public void testScrollsAtMargin() {
+        // One cell past the margin moves the camera by one cell.
+        assertEquals(9, Viewport.follow(10, 10 + Viewport.MARGIN - 1, SIZE, TOTAL, false));
+        assertEquals(11, Viewport.follow(10, 10 + SIZE - Viewport.MARGIN, SIZE, TOTAL, false));
+
+        // A jump, e.g. after an undo across the map, brings the keeper back within the margin.
+        assertEquals(40 - SIZE + 1 + Viewport.MARGIN, Viewport.follow(10, 40, SIZE, TOTAL, false));
+    }
+
+    @Test
+    public void testEdges() {
+        assertEquals("Nothing before the level should be shown", 0, Viewport.follow(2, 0, SIZE, TOTAL, false));
+        assertEquals("Nothing after the level should be shown",
+                TOTAL - SIZE, Viewport.follow(TOTAL - SIZE - 1, TOTAL - 1, SIZE, TOTAL, false));
+        assertEquals(0, Viewport.follow(0, 1, SIZE, TOTAL, true));
+        assertEquals(TOTAL - SIZE, Viewport.follow(0, TOTAL - 2, SIZE, TOTAL, true));
+    }
+
+    @Test
+    public void testCentre() {
+        assertEquals(25 - SIZE / 2, Viewport.follow(0, 25, SIZE, TOTAL, true));
+    }
+
+    @Test
+    public void testSmallMap() {
+        assertEquals(0, Viewport.follow(0, 5, SIZE, 10, false));
+        assertEquals(0, Viewport.follow(3, 9, SIZE, 10, true));
+        assertEquals(0, Viewport.follow(0, 14, SIZE, SIZE, false));
+    }
+
+    @Test
+    public void testTinyViewport() {
+        // The margin shrinks so that the keeper can still be kept in view.
+        assertEquals(5, Viewport.follow(0, 5, 1, TOTAL, false));
+        assertEquals(4, Viewport.follow(0, 5, 2, TOTAL, false));
+    }
+}